@@ -6,6 +6,11 @@ import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.jpa.repository.StarObjectRepository;
 import com.teamgannon.trips.search.AstroSearchQuery;
+import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.index.StarIndexService;
+import com.teamgannon.trips.service.migration.SchemaMigrationService;
+import com.teamgannon.trips.service.score.DisplayScoreService;
+import com.teamgannon.trips.service.statistics.DatasetStatisticsService;
 import javafx.application.Application;
 import javafx.scene.Node;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +41,36 @@ public class TripsSpringBootApplication implements CommandLineRunner {
     @Autowired
     private StarObjectRepository starObjectRepository;
 
+    /**
+     * manages the star table indexes
+     */
+    @Autowired
+    private StarIndexService starIndexService;
+
+    /**
+     * brings older databases up to the current schema
+     */
+    @Autowired
+    private SchemaMigrationService schemaMigrationService;
+
+    /**
+     * keeps the dataset statistics cached on the descriptors
+     */
+    @Autowired
+    private DatasetStatisticsService datasetStatisticsService;
+
+    /**
+     * catches up the label display scores of older stars
+     */
+    @Autowired
+    private DisplayScoreService displayScoreService;
+
+    /**
+     * clears away imports that did not finish
+     */
+    @Autowired
+    private DatabaseManagementService databaseManagementService;
+
     public static void main(String[] args) {
 
         System.setProperty("javafx.preloader", TripsPreloader.class.getName());
@@ -64,6 +99,11 @@ public class TripsSpringBootApplication implements CommandLineRunner {
 
     @Override
     public void run(String... args) throws Exception {
+        schemaMigrationService.migrate();
+        starIndexService.ensureIndexes();
+        databaseManagementService.discardUnfinishedImports();
+        datasetStatisticsService.ensureStatistics();
+        displayScoreService.rescoreInBackground();
         log.info("TRIPS UP and Running!!");
     }
 
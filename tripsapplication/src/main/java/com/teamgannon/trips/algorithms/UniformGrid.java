@@ -0,0 +1,133 @@
+package com.teamgannon.trips.algorithms;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.IntConsumer;
+
+/**
+ * buckets a set of 3d points into cubes so we can find the points near a point without looking at all of them
+ * <p>
+ * the cells are at least as big as the search radius, so everything within the radius of a point is in the
+ * point's own cell or one of the 26 around it. The number of cells is kept to a few per point, a radius that
+ * is large compared to the spread of the points just means fewer, bigger cells.
+ * <p>
+ * the grid is read only once built so any number of threads can search it at once.
+ */
+public class UniformGrid {
+
+    private final double[][] points;
+
+    private final double[] min = new double[3];
+    private final double[] cellSize = new double[3];
+    private final int[] dims = new int[3];
+
+    /**
+     * the cell of each point as x, y, z indexes
+     */
+    private final int[] cellX;
+    private final int[] cellY;
+    private final int[] cellZ;
+
+    /**
+     * the points sorted by cell, the points in cell c are pointOrder[cellStart[c]] to pointOrder[cellStart[c + 1] - 1]
+     */
+    private final int[] cellStart;
+    private final int[] pointOrder;
+
+    /**
+     * @param points the points as x, y, z arrays, the array is kept so don't change it while the grid is in use
+     * @param radius the largest distance that will be searched for
+     */
+    public UniformGrid(double @NotNull [] @NotNull [] points, double radius) {
+        this.points = points;
+        int n = points.length;
+
+        double[] max = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            min[axis] = Double.POSITIVE_INFINITY;
+            max[axis] = Double.NEGATIVE_INFINITY;
+        }
+        for (double[] point : points) {
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], point[axis]);
+                max[axis] = Math.max(max[axis], point[axis]);
+            }
+        }
+
+        // about two cells per point along each axis at most
+        int maxCellsPerAxis = Math.max(1, (int) Math.ceil(Math.cbrt(n) * 2));
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = n == 0 ? 0 : max[axis] - min[axis];
+            if (radius > 0 && Double.isFinite(radius) && Double.isFinite(extent)) {
+                dims[axis] = (int) Math.min(Math.floor(extent / radius) + 1, maxCellsPerAxis);
+            } else {
+                dims[axis] = 1;
+            }
+            cellSize[axis] = dims[axis] == 1 ? Double.POSITIVE_INFINITY : Math.max(radius, extent / dims[axis]);
+        }
+
+        cellX = new int[n];
+        cellY = new int[n];
+        cellZ = new int[n];
+        int cellCount = dims[0] * dims[1] * dims[2];
+        cellStart = new int[cellCount + 1];
+        for (int i = 0; i < n; i++) {
+            cellX[i] = cellIndex(0, points[i][0]);
+            cellY[i] = cellIndex(1, points[i][1]);
+            cellZ[i] = cellIndex(2, points[i][2]);
+            cellStart[cell(cellX[i], cellY[i], cellZ[i]) + 1]++;
+        }
+        for (int c = 0; c < cellCount; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        pointOrder = new int[n];
+        int[] fill = new int[cellCount];
+        for (int i = 0; i < n; i++) {
+            int c = cell(cellX[i], cellY[i], cellZ[i]);
+            pointOrder[cellStart[c] + fill[c]++] = i;
+        }
+    }
+
+    /**
+     * visit every point in the cells around a point of the grid, which includes every point within the radius
+     * and the point itself. The caller still has to check the distance.
+     *
+     * @param point   the index of the point
+     * @param visitor called with the index of each candidate
+     */
+    public void forEachCandidate(int point, @NotNull IntConsumer visitor) {
+        int x = cellX[point];
+        int y = cellY[point];
+        int z = cellZ[point];
+        for (int cx = Math.max(0, x - 1); cx <= Math.min(dims[0] - 1, x + 1); cx++) {
+            for (int cy = Math.max(0, y - 1); cy <= Math.min(dims[1] - 1, y + 1); cy++) {
+                for (int cz = Math.max(0, z - 1); cz <= Math.min(dims[2] - 1, z + 1); cz++) {
+                    int c = cell(cx, cy, cz);
+                    for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                        visitor.accept(pointOrder[k]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of points in the grid
+     */
+    public int size() {
+        return points.length;
+    }
+
+    private int cellIndex(int axis, double value) {
+        if (dims[axis] == 1) {
+            return 0;
+        }
+        int index = (int) ((value - min[axis]) / cellSize[axis]);
+        return Math.max(0, Math.min(dims[axis] - 1, index));
+    }
+
+    private int cell(int x, int y, int z) {
+        return (x * dims[1] + y) * dims[2] + z;
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.teamgannon.trips.config.application;
 
 import com.teamgannon.trips.config.application.model.ColorPalette;
+import com.teamgannon.trips.graphics.AstrographicTransformer;
 import com.teamgannon.trips.graphics.entities.StarDisplayRecord;
 import com.teamgannon.trips.jpa.model.CivilizationDisplayPreferences;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
@@ -67,6 +68,11 @@ public class CurrentPlot {
      */
     private ColorPalette colorPalette;
 
+    /**
+     * turns actual coordinates into screen coordinates with the scaling this plot was drawn at
+     */
+    private AstrographicTransformer astrographicTransformer;
+
 
     /**
      * add a record
@@ -87,24 +93,55 @@ public class CurrentPlot {
     }
 
     /**
-     * once we have all the labels, we create a sub list that has the stars that we allow labels to show
+     * show the labels of the best of the stars the database picked that made it into the plot
+     *
+     * @param labelledStars the ids of the candidate stars, best first
+     * @param labelCount    the user supplied count of labels to show
+     */
+    public void determineVisibleLabels(@NotNull Collection<UUID> labelledStars, int labelCount) {
+        Map<UUID, StarDisplayRecord> plotted = new HashMap<>();
+        for (StarDisplayRecord starDisplayRecord : starDisplayRecordList) {
+            plotted.put(starDisplayRecord.getRecordId(), starDisplayRecord);
+        }
+        int shown = 0;
+        for (UUID starId : labelledStars) {
+            if (shown >= labelCount) {
+                break;
+            }
+            StarDisplayRecord starDisplayRecord = plotted.get(starId);
+            if (starDisplayRecord != null) {
+                starDisplayRecord.setDisplayLabel(true);
+                shown++;
+            }
+        }
+    }
+
+    /**
+     * once we have all the labels, we pick the stars that we allow labels to show
+     * <p>
+     * this is for plots that do not come from a search query, those are labelled by the database. Only
+     * the top labelCount records are kept while scanning so the plot is never sorted as a whole.
      *
      * @param labelCount the user supplied count of labels to show
      */
     public void determineVisibleLabels(int labelCount) {
-        if (labelCount > starDisplayRecordList.size()) {
-            labelCount = starDisplayRecordList.size();
+        if (labelCount <= 0) {
+            return;
         }
 
-        // sort the list in order, duplicates are keep
-        starDisplayRecordList.sort(Comparator.comparing(StarDisplayRecord::getCurrentLabelDisplayScore).reversed());
+        // a min heap of the best records seen so far, the weakest on top
+        PriorityQueue<StarDisplayRecord> best = new PriorityQueue<>(labelCount + 1,
+                Comparator.comparing(StarDisplayRecord::getCurrentLabelDisplayScore));
+        for (StarDisplayRecord starDisplayRecord : starDisplayRecordList) {
+            best.add(starDisplayRecord);
+            if (best.size() > labelCount) {
+                best.poll();
+            }
+        }
 
-        // create a check set for the user count
-        for (int i = 0; i < labelCount; i++) {
-            StarDisplayRecord starDisplayRecord = starDisplayRecordList.get(i);
+        for (StarDisplayRecord starDisplayRecord : best) {
             starDisplayRecord.setDisplayLabel(true);
         }
-
     }
 
 
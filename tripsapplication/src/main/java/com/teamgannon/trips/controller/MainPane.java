@@ -8,6 +8,7 @@ import com.teamgannon.trips.dialogs.AboutDialog;
 import com.teamgannon.trips.dialogs.ExportQueryDialog;
 import com.teamgannon.trips.dialogs.dataset.DataSetManagerDialog;
 import com.teamgannon.trips.dialogs.dataset.SelectActiveDatasetDialog;
+import com.teamgannon.trips.dialogs.diagnostics.IndexDiagnosticsDialog;
 import com.teamgannon.trips.dialogs.preferences.ViewPreferencesDialog;
 import com.teamgannon.trips.dialogs.query.AdvResultsSet;
 import com.teamgannon.trips.dialogs.query.AdvancedQueryDialog;
@@ -42,6 +43,10 @@ import com.teamgannon.trips.search.SearchContext;
 import com.teamgannon.trips.service.DataExportService;
 import com.teamgannon.trips.service.DataImportService;
 import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.async.AsyncDatabaseService;
+import com.teamgannon.trips.service.index.StarIndexService;
+import com.teamgannon.trips.service.query.AdvancedQueryService;
+import com.teamgannon.trips.service.score.DisplayScoreService;
 import com.teamgannon.trips.starplotting.StarPlotManager;
 import com.teamgannon.trips.support.AlertFactory;
 import com.teamgannon.trips.tableviews.DataSetTable;
@@ -130,6 +135,26 @@ public class MainPane implements
      * database management spring component service
      */
     private final DatabaseManagementService databaseManagementService;
+
+    /**
+     * star table index management
+     */
+    private final StarIndexService starIndexService;
+
+    /**
+     * runs the user written queries
+     */
+    private final AdvancedQueryService advancedQueryService;
+
+    /**
+     * runs the slow database calls off the application thread
+     */
+    private final AsyncDatabaseService asyncDatabaseService;
+
+    /**
+     * keeps the stored label display scores up to date
+     */
+    private final DisplayScoreService displayScoreService;
     public CheckMenuItem toggleRouteLengthsMenuitem;
     public MenuItem showRoutesMenuitem;
     public MenuItem openDatasetMenuItem;
@@ -222,11 +247,7 @@ public class MainPane implements
      * solar system panes for showing the details of various solar systems
      */
     private SolarSystemSpacePane solarSystemSpacePane;
-    private DataImportService dataImportService;
-    /**
-     * list of routes
-     */
-    private List<Route> routeList;
+    private final DataImportService dataImportService;
 
     // state settings for control positions
     private boolean polities = true;
@@ -261,7 +282,12 @@ public class MainPane implements
                     @NotNull TripsContext tripsContext,
                     ApplicationContext appContext,
                     DatabaseManagementService databaseManagementService,
-                    Localization localization
+                    StarIndexService starIndexService,
+                    AdvancedQueryService advancedQueryService,
+                    AsyncDatabaseService asyncDatabaseService,
+                    DataImportService dataImportService,
+                    Localization localization,
+                    DisplayScoreService displayScoreService
     ) {
 
         this.fxWeaver = fxWeaver;
@@ -272,7 +298,12 @@ public class MainPane implements
         this.appContext = appContext;
 
         this.databaseManagementService = databaseManagementService;
+        this.starIndexService = starIndexService;
+        this.advancedQueryService = advancedQueryService;
+        this.asyncDatabaseService = asyncDatabaseService;
+        this.dataImportService = dataImportService;
         this.localization = localization;
+        this.displayScoreService = displayScoreService;
 
         this.dataExportService = new DataExportService(databaseManagementService, this);
 
@@ -284,7 +315,7 @@ public class MainPane implements
 
         setMnemonics();
 
-        this.plotManager = new PlotManager(tripsContext, databaseManagementService,
+        this.plotManager = new PlotManager(tripsContext, databaseManagementService, asyncDatabaseService,
                 this, this, this);
 
         setButtons();
@@ -677,8 +708,6 @@ public class MainPane implements
 
         queryDialog = new QueryDialog(searchContext, tripsContext.getDataSetContext(), this, this);
         queryDialog.initModality(Modality.NONE);
-
-        this.dataImportService = new DataImportService(databaseManagementService);
     }
 
 
@@ -827,13 +856,6 @@ public class MainPane implements
 
         List<DataSetDescriptor> dataSetDescriptorList = databaseManagementService.getDataSets();
 
-        for (DataSetDescriptor descriptor : dataSetDescriptorList) {
-            if (descriptor.getRoutesStr() != null) {
-                routeList = descriptor.getRoutes();
-                log.info("routes");
-            }
-        }
-
         addDataSetToList(dataSetDescriptorList, true);
         log.info("loaded DBs");
         return dataSetDescriptorList;
@@ -908,7 +930,10 @@ public class MainPane implements
     }
 
     public void plotRoutes(ActionEvent actionEvent) {
-        interstellarSpacePane.plotRoutes(routeList);
+        DataSetDescriptor descriptor = searchContext.getAstroSearchQuery().getDescriptor();
+        if (descriptor != null) {
+            interstellarSpacePane.plotRoutes(databaseManagementService.getRoutes(descriptor));
+        }
     }
 
     public void clearStars(ActionEvent actionEvent) {
@@ -1022,7 +1047,8 @@ public class MainPane implements
                 this,
                 dataImportService,
                 localization,
-                dataExportService);
+                dataExportService,
+                displayScoreService);
 
         // we throw away the result after returning
         dialog.showAndWait();
@@ -1097,6 +1123,7 @@ public class MainPane implements
         routeFinderDataset.startRouteLocation(
                 searchContext.getAstroSearchQuery().getDescriptor(),
                 databaseManagementService,
+                asyncDatabaseService,
                 tripsContext.getAppViewPreferences().getStarDisplayPreferences()
         );
 
@@ -1291,6 +1318,7 @@ public class MainPane implements
     @Override
     public void updateStar(@NotNull StarObject starObject) {
         databaseManagementService.updateStar(starObject);
+        refreshContextStatistics();
     }
 
     @Override
@@ -1306,11 +1334,28 @@ public class MainPane implements
     @Override
     public void removeStar(@NotNull StarObject starObject) {
         databaseManagementService.removeStar(starObject);
+        refreshContextStatistics();
     }
 
     @Override
     public void removeStar(@NotNull UUID recordId) {
         databaseManagementService.removeStar(recordId);
+        refreshContextStatistics();
+    }
+
+    @Override
+    public List<Route> getRoutes(@NotNull DataSetDescriptor descriptor) {
+        return databaseManagementService.getRoutes(descriptor);
+    }
+
+    /**
+     * pick up the statistics changes from a star edit on the dataset in context
+     */
+    private void refreshContextStatistics() {
+        DataSetContext dataSetContext = tripsContext.getDataSetContext();
+        if (dataSetContext.isValidDescriptor()) {
+            databaseManagementService.getDatasetStatistics(dataSetContext.getDescriptor());
+        }
     }
 
     @Override
@@ -1358,7 +1403,7 @@ public class MainPane implements
     public void newRoute(@NotNull DataSetDescriptor dataSetDescriptor, @NotNull RouteDescriptor routeDescriptor) {
         log.info("new route");
         databaseManagementService.addRouteToDataSet(dataSetDescriptor, routeDescriptor);
-        routingPanel.setContext(dataSetDescriptor, plotManager.willRoutesShow(dataSetDescriptor));
+        updateRoutingPanel(dataSetDescriptor);
         routingStatus(false);
     }
 
@@ -1368,8 +1413,7 @@ public class MainPane implements
         String datasetName = searchContext.getAstroSearchQuery().getDescriptor().getDataSetName();
         DataSetDescriptor descriptor = databaseManagementService.updateRoute(datasetName, routeDescriptor);
         searchContext.getAstroSearchQuery().setDescriptor(descriptor);
-        routingPanel.setContext(descriptor, plotManager.willRoutesShow(descriptor));
-        interstellarSpacePane.redrawRoutes(descriptor.getRoutes());
+        interstellarSpacePane.redrawRoutes(showRoutesOnPanel(descriptor));
     }
 
     @Override
@@ -1383,8 +1427,7 @@ public class MainPane implements
         DataSetDescriptor descriptor = searchContext.getAstroSearchQuery().getDescriptor();
         descriptor = databaseManagementService.deleteRoute(descriptor.getDataSetName(), routeDescriptor);
         searchContext.getAstroSearchQuery().setDescriptor(descriptor);
-        routingPanel.setContext(descriptor, plotManager.willRoutesShow(descriptor));
-        interstellarSpacePane.redrawRoutes(descriptor.getRoutes());
+        interstellarSpacePane.redrawRoutes(showRoutesOnPanel(descriptor));
     }
 
     @Override
@@ -1427,34 +1470,7 @@ public class MainPane implements
         setContextDataSet(descriptor);
 
         if (showPlot || showTable) {
-            // get the distance range
-            double displayRadius = searchQuery.getUpperDistanceLimit();
-
-            // do a search and cause the plot to show it
-            List<StarObject> starObjects = getAstrographicObjectsOnQuery();
-
-            if (!starObjects.isEmpty()) {
-                if (showPlot) {
-                    plotManager.drawAstrographicData(descriptor,
-                            starObjects,
-                            displayRadius,
-                            searchQuery.getCenterCoordinates(),
-                            tripsContext.getAppViewPreferences().getColorPallete(),
-                            tripsContext.getAppViewPreferences().getStarDisplayPreferences(),
-                            tripsContext.getAppViewPreferences().getCivilizationDisplayPreferences()
-                    );
-
-                    //
-                    routingPanel.setContext(descriptor, plotManager.willRoutesShow(descriptor));
-                }
-                if (showTable) {
-                    showList(starObjects);
-                }
-                updateStatus("Dataset loaded is: " + descriptor.getDataSetName());
-
-            } else {
-                showErrorAlert("Astrographic data view error", "No Astrographic data was loaded ");
-            }
+            showQueryResults(searchContext, showPlot, showTable);
         }
     }
 
@@ -1479,38 +1495,63 @@ public class MainPane implements
      */
     @Override
     public void showNewStellarData(boolean showPlot, boolean showTable) {
-        AstroSearchQuery searchQuery = tripsContext.getSearchContext().getAstroSearchQuery();
-
-        // do a search and cause the plot to show it
-        List<StarObject> starObjects = getAstrographicObjectsOnQuery();
-
-        if (!starObjects.isEmpty()) {
-            // get the distance range
-            double displayRadius = searchQuery.getUpperDistanceLimit();
-
-            if (showPlot) {
-                plotManager.drawAstrographicData(searchQuery.getDescriptor(),
-                        starObjects,
-                        displayRadius,
-                        searchQuery.getCenterCoordinates(),
-                        tripsContext.getAppViewPreferences().getColorPallete(),
-                        tripsContext.getAppViewPreferences().getStarDisplayPreferences(),
-                        tripsContext.getAppViewPreferences().getCivilizationDisplayPreferences()
-                );
-                DataSetDescriptor descriptor = searchQuery.getDescriptor();
-                routingPanel.setContext(descriptor, plotManager.willRoutesShow(descriptor));
-            }
-            if (showTable) {
-                showList(starObjects);
-            }
-            updateStatus("Dataset loaded is: " + searchQuery.getDescriptor().getDataSetName());
+        SearchContext currentContext = tripsContext.getSearchContext();
 
-            // highlight the data set used
-            setContextDataSet(searchQuery.getDescriptor());
+        // highlight the data set used
+        setContextDataSet(currentContext.getAstroSearchQuery().getDescriptor());
 
-        } else {
-            showErrorAlert("Astrographic data view error", "No Astrographic data was loaded ");
-        }
+        showQueryResults(currentContext, showPlot, showTable);
+    }
+
+    /**
+     * run a query in the background and draw the plot and show the table when it comes back
+     * <p>
+     * the stars are read once for both, and a newer plot or table asked for before this one comes back
+     * replaces it
+     *
+     * @param currentContext the search context holding the query
+     * @param showPlot       show the graphical plot
+     * @param showTable      show the table
+     */
+    private void showQueryResults(@NotNull SearchContext currentContext, boolean showPlot, boolean showTable) {
+        AstroSearchQuery searchQuery = currentContext.getAstroSearchQuery();
+        DataSetDescriptor descriptor = searchQuery.getDescriptor();
+
+        // the query is copied when it is submitted, take the range and center to draw with at the same point
+        double displayRadius = searchQuery.getUpperDistanceLimit();
+        double[] centerCoordinates = searchQuery.getCenterCoordinates().clone();
+
+        updateStatus("Querying stars from: " + descriptor.getDataSetName());
+        AsyncDatabaseService.deliverOnFxThread(
+                asyncDatabaseService.plotAndTableQuery(currentContext,
+                        tripsContext.getAppViewPreferences().getStarDisplayPreferences().getNumberOfVisibleLabels(),
+                        showPlot, showTable),
+                plotQueryResult -> {
+                    List<StarPlotView> plotViews = plotQueryResult.getPlotViews();
+                    List<StarObject> starObjects = plotQueryResult.getStarObjects();
+                    if (!plotViews.isEmpty() || !starObjects.isEmpty()) {
+                        if (showPlot) {
+                            plotManager.drawAstrographicData(descriptor,
+                                    plotViews,
+                                    displayRadius,
+                                    centerCoordinates,
+                                    tripsContext.getAppViewPreferences().getColorPallete(),
+                                    tripsContext.getAppViewPreferences().getStarDisplayPreferences(),
+                                    tripsContext.getAppViewPreferences().getCivilizationDisplayPreferences(),
+                                    plotQueryResult.getLabelledStars()
+                            );
+                            updateRoutingPanel(descriptor);
+                        }
+                        if (showTable) {
+                            showList(starObjects);
+                        }
+                        updateStatus("Dataset loaded is: " + descriptor.getDataSetName());
+                    } else {
+                        showErrorAlert("Astrographic data view error", "No Astrographic data was loaded ");
+                    }
+                },
+                throwable -> showErrorAlert("Astrographic data view error",
+                        "Failed to query the stars: " + throwable.getMessage()));
     }
 
     @Override
@@ -1522,7 +1563,7 @@ public class MainPane implements
 
     private void showList(@NotNull List<StarObject> starObjects) {
         if (starObjects.size() > 0) {
-            new DataSetTable(databaseManagementService, starObjects);
+            new DataSetTable(asyncDatabaseService, starObjects);
         } else {
             showErrorAlert("Display Data table", "no data to show");
         }
@@ -1530,6 +1571,7 @@ public class MainPane implements
 
     @Override
     public void addDataSet(@NotNull DataSetDescriptor dataSetDescriptor) {
+        databaseManagementService.refreshDatasetStatistics(dataSetDescriptor);
         searchContext.addDataSet(dataSetDescriptor);
         addDataSetToList(new ArrayList<>(searchContext.getDatasetMap().values()), true);
         queryDialog.updateDataContext(dataSetDescriptor);
@@ -1543,23 +1585,50 @@ public class MainPane implements
                 "Are you sure you want to remove: " + dataSetDescriptor.getDataSetName());
 
         if ((buttonType.isPresent()) && (buttonType.get() == ButtonType.OK)) {
-            searchContext.removeDataSet(dataSetDescriptor);
-
             // remove from database
             databaseManagementService.removeDataSet(dataSetDescriptor);
 
-            // redisplay the datasets
-            addDataSetToList(new ArrayList<>(searchContext.getDatasetMap().values()), true);
-            updateStatus("Dataset: " + dataSetDescriptor.getDataSetName() + " removed");
+            dataSetRemoved(dataSetDescriptor);
         }
     }
 
+    @Override
+    public void dataSetRemoved(@NotNull DataSetDescriptor dataSetDescriptor) {
+        searchContext.removeDataSet(dataSetDescriptor);
+
+        // redisplay the datasets
+        addDataSetToList(new ArrayList<>(searchContext.getDatasetMap().values()), true);
+        updateStatus("Dataset: " + dataSetDescriptor.getDataSetName() + " removed");
+    }
+
+    @Override
+    public void dataSetRenamed(@NotNull DataSetDescriptor original, @NotNull DataSetDescriptor renamed) {
+        DataSetContext dataSetContext = tripsContext.getDataSetContext();
+        boolean inContext = dataSetContext.isValidDescriptor()
+                && original.getDataSetName().equals(dataSetContext.getDescriptor().getDataSetName());
+        searchContext.removeDataSet(original);
+        searchContext.addDataSet(renamed);
+
+        // redisplay the datasets
+        addDataSetToList(new ArrayList<>(searchContext.getDatasetMap().values()), true);
+        if (queryDialog != null) {
+            queryDialog.updateDataContext(renamed);
+        }
+        if (inContext) {
+            setContextDataSet(renamed);
+        }
+        updateStatus("Dataset: " + original.getDataSetName() + " renamed to " + renamed.getDataSetName());
+    }
+
     @Override
     public void setContextDataSet(@NotNull DataSetDescriptor descriptor) {
 
         // clear all the current data
         clearAll();
 
+        // bring the star count, range and statistics up to date before anything uses them
+        databaseManagementService.getDatasetStatistics(descriptor);
+
         tripsContext.getDataSetContext().setDescriptor(descriptor);
         tripsContext.getDataSetContext().setValidDescriptor(true);
         tripsContext.getSearchContext().getAstroSearchQuery().setDescriptor(descriptor);
@@ -1682,18 +1751,33 @@ public class MainPane implements
     /////////////////////  DISPLAY DATA   ///////////////////////////
 
 
+    /**
+     * load the stars that match the current query in the background and show them in a table
+     *
+     * @param dataSetDescriptor the dataset being shown
+     */
+    private void showTableOnQuery(@NotNull DataSetDescriptor dataSetDescriptor) {
+        updateStatus("Loading table for: " + dataSetDescriptor.getDataSetName());
+        AsyncDatabaseService.deliverOnFxThread(
+                asyncDatabaseService.getAstrographicObjectsOnQuery(searchContext),
+                starObjects -> {
+                    if (starObjects.size() > 0) {
+                        new DataSetTable(asyncDatabaseService, starObjects);
+                        updateStatus("Dataset table loaded is: " + dataSetDescriptor.getDataSetName());
+                    } else {
+                        showErrorAlert("Show Data Table", "No data to show");
+                    }
+                },
+                throwable -> showErrorAlert("Show Data Table", "Failed to load the data: " + throwable.getMessage()));
+    }
+
     /**
      * show the data in a spreadsheet
      */
     private void showTableData() {
 
         if (tripsContext.getDataSetContext().isValidDescriptor()) {
-            List<StarObject> starObjects = getAstrographicObjectsOnQuery();
-            if (starObjects.size() > 0) {
-                new DataSetTable(databaseManagementService, starObjects);
-            } else {
-                showErrorAlert("Show Data Table", "no data found");
-            }
+            showTableOnQuery(tripsContext.getDataSetContext().getDescriptor());
         } else {
             List<DataSetDescriptor> datasets = databaseManagementService.getDataSets();
             if (datasets.size() == 0) {
@@ -1717,13 +1801,7 @@ public class MainPane implements
                     log.error("How the hell did this happen");
                     return;
                 }
-                List<StarObject> starObjects = getAstrographicObjectsOnQuery();
-                if (starObjects.size() > 0) {
-                    new DataSetTable(databaseManagementService, starObjects);
-                    updateStatus("Dataset table loaded is: " + dataSetDescriptor.getDataSetName());
-                } else {
-                    showErrorAlert("Show Data Table", "No data to show");
-                }
+                showTableOnQuery(dataSetDescriptor);
 
                 // set current context
                 setContextDataSet(dataSetDescriptor);
@@ -1777,33 +1855,48 @@ public class MainPane implements
             showErrorAlert("Find stars", "No datasets in database, please load first");
             return;
         }
-        FindStarsWithNameMatchDialog findStarsWithNameMatchDialog = new FindStarsWithNameMatchDialog(datasetNames);
+        FindStarsWithNameMatchDialog findStarsWithNameMatchDialog = new FindStarsWithNameMatchDialog(asyncDatabaseService, datasetNames);
         Optional<StarSearchResults> optional = findStarsWithNameMatchDialog.showAndWait();
         if (optional.isPresent()) {
             StarSearchResults starSearchResults = optional.get();
             if (starSearchResults.isStarsFound()) {
-                String datasetName = starSearchResults.getDataSetName();
-                String starName = starSearchResults.getNameToSearch();
                 log.info("name to search: {}", starSearchResults.getNameToSearch());
-                List<StarObject> starObjects = databaseManagementService.findStarsWithName(datasetName, starName);
+                List<StarObject> starObjects = starSearchResults.getStarObjects();
                 log.info("number of stars found ={}", starObjects.size());
-                ShowStarMatchesDialog showStarMatchesDialog = new ShowStarMatchesDialog(databaseManagementService, starObjects);
+                ShowStarMatchesDialog showStarMatchesDialog = new ShowStarMatchesDialog(asyncDatabaseService, starObjects);
                 showStarMatchesDialog.showAndWait();
             }
         }
     }
 
 
+    public void indexDiagnostics(ActionEvent actionEvent) {
+        List<String> datasetNames = searchContext.getDataSetNames();
+        if (datasetNames.isEmpty()) {
+            showErrorAlert("Index diagnostics", "No datasets in database, please load first");
+            return;
+        }
+        String currentDataSetName = null;
+        if (tripsContext.getDataSetContext().isValidDescriptor()) {
+            currentDataSetName = tripsContext.getDataSetContext().getDescriptor().getDataSetName();
+        }
+        IndexDiagnosticsDialog dialog = new IndexDiagnosticsDialog(starIndexService,
+                databaseManagementService.getQueryCacheMetrics(), datasetNames, currentDataSetName);
+        // we throw away the result after returning
+        dialog.showAndWait();
+    }
+
     public void copyDatabase(ActionEvent actionEvent) {
         showInfoMessage("Copy Database", "not ready yet, coming soon");
     }
 
     public void advancedSearch(ActionEvent actionEvent) {
-        AdvancedQueryDialog advancedQueryDialog = new AdvancedQueryDialog(databaseManagementService, tripsContext.getDataSetContext(), searchContext.getDatasetMap());
+        AdvancedQueryDialog advancedQueryDialog = new AdvancedQueryDialog(advancedQueryService, tripsContext.getDataSetContext(), searchContext.getDatasetMap());
         Optional<AdvResultsSet> optional = advancedQueryDialog.showAndWait();
         if (optional.isPresent()) {
             AdvResultsSet advResultsSet = optional.get();
             if (!advResultsSet.isDismissed()) {
+                updateStatus(advResultsSet.getResultsSummary());
                 if (advResultsSet.isResultsFound()) {
                     if (advResultsSet.isViewStars()) {
                         showList(advResultsSet.getStarsFound());
@@ -1813,7 +1906,7 @@ public class MainPane implements
                         double displayRadius = searchContext.getAstroSearchQuery().getUpperDistanceLimit();
 
                         plotManager.drawAstrographicData(advResultsSet.getDataSetDescriptor(),
-                                advResultsSet.getStarsFound(),
+                                advResultsSet.getStarsFound().stream().map(StarPlotView::fromStarObject).collect(Collectors.toList()),
                                 displayRadius,
                                 searchContext.getAstroSearchQuery().getCenterCoordinates(),
                                 tripsContext.getAppViewPreferences().getColorPallete(),
@@ -1831,7 +1924,19 @@ public class MainPane implements
 
     @Override
     public void updateRoutingPanel(DataSetDescriptor dataSetDescriptor) {
-        routingPanel.setContext(dataSetDescriptor, plotManager.willRoutesShow(dataSetDescriptor));
+        showRoutesOnPanel(dataSetDescriptor);
+    }
+
+    /**
+     * read the routes of a dataset once and show the ones in view on the routing panel
+     *
+     * @param dataSetDescriptor the dataset
+     * @return the routes
+     */
+    private @NotNull List<Route> showRoutesOnPanel(@NotNull DataSetDescriptor dataSetDescriptor) {
+        List<Route> routes = databaseManagementService.getRoutes(dataSetDescriptor);
+        routingPanel.setContext(dataSetDescriptor, routes, plotManager.willRoutesShow(routes));
+        return routes;
     }
 
     public void rotate(ActionEvent actionEvent) {
@@ -1923,7 +2028,7 @@ public class MainPane implements
 
     public void routeListReport(ActionEvent actionEvent) {
         List<DataSetDescriptor> dataSetDescriptorList = databaseManagementService.getDataSets();
-        RouteReportDialog dialog = new RouteReportDialog(tripsContext.getDataSetContext(), dataSetDescriptorList);
+        RouteReportDialog dialog = new RouteReportDialog(tripsContext.getDataSetContext(), dataSetDescriptorList, databaseManagementService);
         dialog.showAndWait();
     }
 
@@ -5,14 +5,11 @@ import com.teamgannon.trips.dataset.model.Link;
 import com.teamgannon.trips.dataset.model.Polity;
 import com.teamgannon.trips.dataset.model.Theme;
 import com.teamgannon.trips.dialogs.dataset.Dataset;
-import com.teamgannon.trips.file.chview.ChViewRecord;
 import com.teamgannon.trips.file.chview.model.CHViewPreferences;
 import com.teamgannon.trips.file.chview.model.ChViewFile;
 import com.teamgannon.trips.file.csvin.RegCSVFile;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
-import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.jpa.repository.DataSetDescriptorRepository;
-import com.teamgannon.trips.jpa.repository.StarObjectRepository;
 import com.teamgannon.trips.routing.RouteDefinition;
 import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
 import javafx.scene.paint.Color;
@@ -33,20 +30,24 @@ public class DataSetDescriptorFactory {
 
     /**
      * create a Dataset descriptor for chview files
+     * <p>
+     * the stars themselves are converted and saved by the import pipeline before this is called
      *
      * @param progressUpdater             an updater for any long loading progress
      * @param dataset                     the descriptor from the user for this dataset
      * @param dataSetDescriptorRepository the data set repo to save this in
-     * @param starObjectRepository        the astrographic repo to save it in
      * @param chViewFile                  the ch view files
+     * @param numberStars                 the number of stars saved
+     * @param maxDistance                 the distance of the farthest star saved
      * @return a dataset descriptor
      */
     public static @NotNull DataSetDescriptor createDataSetDescriptor(
             @NotNull ProgressUpdater progressUpdater,
             @NotNull Dataset dataset,
             @NotNull DataSetDescriptorRepository dataSetDescriptorRepository,
-            @NotNull StarObjectRepository starObjectRepository,
-            @NotNull ChViewFile chViewFile) throws Exception {
+            @NotNull ChViewFile chViewFile,
+            long numberStars,
+            double maxDistance) throws Exception {
 
         DataSetDescriptor dataSetDescriptor = new DataSetDescriptor();
         dataSetDescriptor.setDataSetName(dataset.getName());
@@ -63,46 +64,21 @@ public class DataSetDescriptorFactory {
             throw new Exception("This dataset:{" + dataSetDescriptor.getDataSetName() + "} already exists");
         }
 
-
-        // process all the stellar records from chview and convert to our target objects
-        Map<Integer, ChViewRecord> chViewRecordMap = chViewFile.getRecords();
-        Map<UUID, StarObject> astrographicObjectMap = new HashMap<>();
-        double maxDistance = 0;
-        progressUpdater.updateTaskInfo("Saving records in database");
-        for (Integer recordId : chViewRecordMap.keySet()) {
-            try {
-
-                ChViewRecord chViewRecord = chViewRecordMap.get(recordId);
-                // distance check
-                double distance = Double.parseDouble(chViewRecord.getDistanceToEarth());
-                if (distance > maxDistance) {
-                    maxDistance = distance;
-                }
-                StarObject starObject = new StarObject();
-                starObject.fromChvRecord(dataset, chViewRecord);
-                astrographicObjectMap.put(starObject.getId(), starObject);
-            } catch (Exception e) {
-                log.error("failed to translate to star object: {}", chViewRecordMap.get(recordId));
-            }
-        }
-
-        // save the astrographic records
-        starObjectRepository.saveAll(astrographicObjectMap.values());
         String saveMessage = String.format("Number of records loaded for file:%s is %d",
                 chViewFile.getOriginalFileName(),
-                astrographicObjectMap.size());
+                numberStars);
         log.info(saveMessage);
         progressUpdater.updateTaskInfo(saveMessage);
 
         // set the records for this
-        dataSetDescriptor.setNumberStars((long) astrographicObjectMap.keySet().size());
+        dataSetDescriptor.setNumberStars(numberStars);
+        dataSetDescriptor.setDistanceRange(maxDistance);
         String message = String.format("Loaded %d stars within %.1f into dataset \"%s\"",
                 dataSetDescriptor.getNumberStars(),
                 dataSetDescriptor.getDistanceRange(),
                 dataSetDescriptor.getDataSetName()
         );
         log.info(message);
-        dataSetDescriptor.setDistanceRange(maxDistance);
 
         // save the data set which is cross referenced to the star records
         dataSetDescriptorRepository.save(dataSetDescriptor);
@@ -0,0 +1,200 @@
+package com.teamgannon.trips.dataset.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * summary statistics for the stars in a dataset
+ * <p>
+ * these are computed by the database in one aggregate pass and cached as json on the dataset descriptor.
+ * Adding, removing and editing single stars adjusts them in place. Counts, sums and the histogram can always
+ * be adjusted exactly, but the minimums and maximums cannot be recovered when the star on the edge is removed,
+ * so in that case the statistics are flagged stale and get recomputed the next time they are asked for.
+ */
+@Data
+public class DatasetStatistics {
+
+    /**
+     * the number of stars
+     */
+    private long count = 0;
+
+    private double minDistance = 0;
+
+    private double maxDistance = 0;
+
+    /**
+     * kept so the average can be adjusted incrementally
+     */
+    private double sumDistance = 0;
+
+    ////////// bounding box  //////////
+
+    private double minX = 0;
+
+    private double maxX = 0;
+
+    private double minY = 0;
+
+    private double maxY = 0;
+
+    private double minZ = 0;
+
+    private double maxZ = 0;
+
+    /**
+     * the number of stars for each one letter spectral class
+     */
+    private Map<String, Long> spectralClassCounts = new TreeMap<>();
+
+    /**
+     * the number of stars for each polity
+     */
+    private Map<String, Long> polityCounts = new TreeMap<>();
+
+    /**
+     * the width in ly of each bin of the distance histogram
+     */
+    private double histogramBinWidth = 1;
+
+    /**
+     * the number of bins the histogram was computed with, the last one takes everything beyond the rest,
+     * 0 if there is no limit
+     */
+    private int histogramBins = 0;
+
+    /**
+     * the number of stars in each distance bin, bin i covers [i * width, (i + 1) * width)
+     */
+    private List<Long> distanceHistogram = new ArrayList<>();
+
+    /**
+     * true when a min or max may no longer be exact and we need to recompute
+     */
+    private boolean stale = false;
+
+    /**
+     * when these were last computed from the database
+     */
+    private long computedAt = System.currentTimeMillis();
+
+    @JsonIgnore
+    public double getAverageDistance() {
+        return count == 0 ? 0 : sumDistance / count;
+    }
+
+    /**
+     * account for a star that was added to the dataset
+     *
+     * @param sample the star values
+     */
+    public void add(@NotNull StarStatisticsSample sample) {
+        if (count == 0) {
+            minDistance = maxDistance = sample.getDistance();
+            minX = maxX = sample.getX();
+            minY = maxY = sample.getY();
+            minZ = maxZ = sample.getZ();
+        } else {
+            minDistance = Math.min(minDistance, sample.getDistance());
+            maxDistance = Math.max(maxDistance, sample.getDistance());
+            minX = Math.min(minX, sample.getX());
+            maxX = Math.max(maxX, sample.getX());
+            minY = Math.min(minY, sample.getY());
+            maxY = Math.max(maxY, sample.getY());
+            minZ = Math.min(minZ, sample.getZ());
+            maxZ = Math.max(maxZ, sample.getZ());
+        }
+        count++;
+        sumDistance += sample.getDistance();
+        spectralClassCounts.merge(spectralClassKey(sample.getSpectralClass()), 1L, Long::sum);
+        polityCounts.merge(categoryKey(sample.getPolity()), 1L, Long::sum);
+
+        int bin = histogramBin(sample.getDistance());
+        while (distanceHistogram.size() <= bin) {
+            distanceHistogram.add(0L);
+        }
+        distanceHistogram.set(bin, distanceHistogram.get(bin) + 1);
+    }
+
+    /**
+     * account for a star that was removed from the dataset
+     *
+     * @param sample the star values as they were before removal
+     */
+    public void remove(@NotNull StarStatisticsSample sample) {
+        if (count <= 1) {
+            clear();
+            return;
+        }
+        count--;
+        sumDistance -= sample.getDistance();
+        decrement(spectralClassCounts, spectralClassKey(sample.getSpectralClass()));
+        decrement(polityCounts, categoryKey(sample.getPolity()));
+
+        int bin = histogramBin(sample.getDistance());
+        if (bin < distanceHistogram.size() && distanceHistogram.get(bin) > 0) {
+            distanceHistogram.set(bin, distanceHistogram.get(bin) - 1);
+        }
+
+        if (sample.getDistance() <= minDistance || sample.getDistance() >= maxDistance
+                || sample.getX() <= minX || sample.getX() >= maxX
+                || sample.getY() <= minY || sample.getY() >= maxY
+                || sample.getZ() <= minZ || sample.getZ() >= maxZ) {
+            stale = true;
+        }
+    }
+
+    private void clear() {
+        count = 0;
+        sumDistance = 0;
+        minDistance = maxDistance = 0;
+        minX = maxX = minY = maxY = minZ = maxZ = 0;
+        spectralClassCounts.clear();
+        polityCounts.clear();
+        distanceHistogram.clear();
+        stale = false;
+    }
+
+    private int histogramBin(double distance) {
+        if (histogramBinWidth <= 0 || distance <= 0) {
+            return 0;
+        }
+        int bin = (int) Math.floor(distance / histogramBinWidth);
+        return histogramBins > 0 ? Math.min(bin, histogramBins - 1) : bin;
+    }
+
+    private void decrement(@NotNull Map<String, Long> counts, @NotNull String key) {
+        counts.computeIfPresent(key, (k, value) -> value > 1 ? value - 1 : null);
+    }
+
+    /**
+     * the key a category is counted under, blank values are grouped together
+     *
+     * @param value the raw value
+     * @return the key
+     */
+    public static @NotNull String categoryKey(String value) {
+        if (value == null || value.isBlank()) {
+            return "NA";
+        }
+        return value.trim();
+    }
+
+    /**
+     * the key a spectral class is counted under, its first letter
+     *
+     * @param value the raw spectral class
+     * @return the key
+     */
+    public static @NotNull String spectralClassKey(String value) {
+        String key = categoryKey(value);
+        return key.equals("NA") ? key : key.substring(0, 1);
+    }
+
+}
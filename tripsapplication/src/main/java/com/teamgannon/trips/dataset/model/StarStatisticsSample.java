@@ -0,0 +1,37 @@
+package com.teamgannon.trips.dataset.model;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * the values of one star that feed into the dataset statistics
+ */
+@Data
+@AllArgsConstructor
+public class StarStatisticsSample {
+
+    private double distance;
+
+    private double x;
+
+    private double y;
+
+    private double z;
+
+    private String spectralClass;
+
+    private String polity;
+
+    public static @NotNull StarStatisticsSample fromStarObject(@NotNull StarObject starObject) {
+        return new StarStatisticsSample(
+                starObject.getDistance(),
+                starObject.getX(),
+                starObject.getY(),
+                starObject.getZ(),
+                starObject.getOrthoSpectralClass(),
+                starObject.getPolity());
+    }
+
+}
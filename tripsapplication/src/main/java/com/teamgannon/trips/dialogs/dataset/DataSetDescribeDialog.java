@@ -1,8 +1,13 @@
 package com.teamgannon.trips.dialogs.dataset;
 
+import com.teamgannon.trips.dataset.model.DatasetStatistics;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
@@ -16,6 +21,10 @@ import javafx.stage.WindowEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Slf4j
 public class DataSetDescribeDialog extends Dialog<DataSetDescriptor> {
 
@@ -38,8 +47,10 @@ public class DataSetDescribeDialog extends Dialog<DataSetDescriptor> {
         planGrid.add(createLabel("Date:  ", true), 0, 2);
         planGrid.add(createLabel(descriptor.getCreationDate(), false), 1, 2);
 
+        DatasetStatistics statistics = descriptor.getStatistics();
+        long numberStars = statistics != null ? statistics.getCount() : descriptor.getNumberStars();
         planGrid.add(createLabel("# of Stars:  ", true), 0, 3);
-        planGrid.add(createLabel(Long.toString(descriptor.getNumberStars()), false), 1, 3);
+        planGrid.add(createLabel(Long.toString(numberStars), false), 1, 3);
 
         planGrid.add(createLabel("Max Range (ly):  ", true), 0, 4);
         planGrid.add(createLabel(Double.toString(descriptor.getDistanceRange()), false), 1, 4);
@@ -47,16 +58,37 @@ public class DataSetDescribeDialog extends Dialog<DataSetDescriptor> {
         planGrid.add(createLabel("Notes:  ", true), 0, 5);
         planGrid.add(createLabel(descriptor.getNotes(), false), 1, 5);
 
+        int row = 6;
+        if (statistics != null && statistics.getCount() > 0) {
+            planGrid.add(createLabel("Distance (ly):  ", true), 0, row);
+            planGrid.add(createValueLabel(String.format("min %.2f, avg %.2f, max %.2f",
+                    statistics.getMinDistance(), statistics.getAverageDistance(), statistics.getMaxDistance())), 1, row++);
+
+            planGrid.add(createLabel("Bounds (ly):  ", true), 0, row);
+            planGrid.add(createValueLabel(String.format("x %.1f to %.1f, y %.1f to %.1f, z %.1f to %.1f",
+                    statistics.getMinX(), statistics.getMaxX(),
+                    statistics.getMinY(), statistics.getMaxY(),
+                    statistics.getMinZ(), statistics.getMaxZ())), 1, row++);
+
+            planGrid.add(createLabel("Spectral classes:  ", true), 0, row);
+            planGrid.add(createValueLabel(formatCounts(statistics.getSpectralClassCounts())), 1, row++);
+
+            planGrid.add(createLabel("Polities:  ", true), 0, row);
+            planGrid.add(createValueLabel(formatCounts(statistics.getPolityCounts())), 1, row++);
+
+            planGrid.add(createHistogram(statistics), 0, row++, 2, 1);
+        }
+
         Separator mySep = new Separator();
         mySep.setMinHeight(10);
-        planGrid.add(mySep, 0, 6, 2, 1);
+        planGrid.add(mySep, 0, row++, 2, 1);
 
         Button cancelDataSetButton = new Button("Cancel");
         cancelDataSetButton.setOnAction(this::close);
         HBox hBox = new HBox();
         hBox.setAlignment(Pos.CENTER);
         hBox.getChildren().add(cancelDataSetButton);
-        planGrid.add(hBox, 0, 7, 2, 1);
+        planGrid.add(hBox, 0, row, 2, 1);
 
         this.getDialogPane().setContent(planGrid);
 
@@ -84,6 +116,40 @@ public class DataSetDescribeDialog extends Dialog<DataSetDescriptor> {
         setResult(descriptor);
     }
 
+    private @NotNull String formatCounts(@NotNull Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .map(entry -> entry.getKey() + ": " + entry.getValue())
+                .collect(Collectors.joining(", "));
+    }
+
+    private @NotNull BarChart<String, Number> createHistogram(@NotNull DatasetStatistics statistics) {
+        CategoryAxis xAxis = new CategoryAxis();
+        xAxis.setLabel("distance (ly)");
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setLabel("stars");
+        BarChart<String, Number> histogram = new BarChart<>(xAxis, yAxis);
+        histogram.setLegendVisible(false);
+        histogram.setAnimated(false);
+        histogram.setBarGap(0);
+        histogram.setCategoryGap(1);
+        histogram.setPrefSize(450, 200);
+
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        List<Long> bins = statistics.getDistanceHistogram();
+        for (int i = 0; i < bins.size(); i++) {
+            series.getData().add(new XYChart.Data<>(String.format("%.0f", i * statistics.getHistogramBinWidth()), bins.get(i)));
+        }
+        histogram.getData().add(series);
+        return histogram;
+    }
+
+    private @NotNull Label createValueLabel(String text) {
+        Label label = createLabel(text, false);
+        label.setPrefWidth(LABEL_PREF_WIDTH * 2);
+        label.setWrapText(true);
+        return label;
+    }
+
     protected @NotNull Label createLabel(String textName, boolean boldFlag) {
         Label label = new Label(textName);
         label.setPrefWidth(LABEL_PREF_WIDTH);
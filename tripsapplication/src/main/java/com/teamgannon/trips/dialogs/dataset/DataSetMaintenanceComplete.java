@@ -0,0 +1,15 @@
+package com.teamgannon.trips.dialogs.dataset;
+
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+
+public interface DataSetMaintenanceComplete {
+    /**
+     * signal completion of a dataset removal or rename
+     *
+     * @param status       whether it finished or was stopped
+     * @param original     the dataset we started with
+     * @param renamed      the renamed dataset, null for a removal or if it did not finish
+     * @param message      the final message
+     */
+    void complete(boolean status, DataSetDescriptor original, DataSetDescriptor renamed, String message);
+}
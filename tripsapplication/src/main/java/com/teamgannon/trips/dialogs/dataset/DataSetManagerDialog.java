@@ -12,6 +12,9 @@ import com.teamgannon.trips.service.DatabaseManagementService;
 import com.teamgannon.trips.service.export.ExportResult;
 import com.teamgannon.trips.service.export.ExportResults;
 import com.teamgannon.trips.service.importservices.ImportResult;
+import com.teamgannon.trips.service.maintenance.DataSetMaintenanceService;
+import com.teamgannon.trips.service.score.DisplayScoreService;
+import javafx.application.Platform;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -36,7 +39,7 @@ import static com.teamgannon.trips.support.AlertFactory.showConfirmationAlert;
 import static com.teamgannon.trips.support.AlertFactory.showErrorAlert;
 
 @Slf4j
-public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskComplete, ExportTaskComplete, LoadUpdateListener {
+public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskComplete, ExportTaskComplete, LoadUpdateListener, DataSetMaintenanceComplete {
 
 
     private final Font font = Font.font("Verdana", FontWeight.BOLD, FontPosture.REGULAR, 13);
@@ -53,6 +56,10 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
     private final Label exportProgressText = new Label("    waiting for file selection");
     private final Button cancelExport = new Button("Cancel Export");
 
+    private final HBox maintenancePanel = new HBox();
+    private final Label maintenanceProgressText = new Label("    waiting");
+    private final Button cancelMaintenance = new Button("Cancel");
+
 
     /**
      * the database management service used to manage datasets and databases
@@ -64,10 +71,22 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
     private final Localization localization;
     private final DataExportService dataExportService;
 
+    /**
+     * runs the removes and renames in the background
+     */
+    private final DataSetMaintenanceService dataSetMaintenanceService;
+
+    /**
+     * works the label display scores out again
+     */
+    private final DisplayScoreService displayScoreService;
+
     private final TableView<DataSetDescriptor> tableView = new TableView<>();
 
     private final Button deleteButton = new Button("Delete");
     private final Button exportButton = new Button("Export");
+    private final Button renameButton = new Button("Rename");
+    private final Button rescoreButton = new Button("Rescore Labels");
 
 
     private @Nullable DataSetDescriptor selectedDataset;
@@ -78,7 +97,8 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
                                 StatusUpdaterListener statusUpdaterListener,
                                 DataImportService dataImportService,
                                 Localization localization,
-                                DataExportService dataExportService) {
+                                DataExportService dataExportService,
+                                DisplayScoreService displayScoreService) {
 
         this.dataSetChangeListener = dataSetChangeListener;
         this.databaseManagementService = databaseManagementService;
@@ -86,6 +106,8 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
         this.dataImportService = dataImportService;
         this.localization = localization;
         this.dataExportService = dataExportService;
+        this.dataSetMaintenanceService = new DataSetMaintenanceService(databaseManagementService);
+        this.displayScoreService = displayScoreService;
 
         this.setTitle("Dataset Management Dialog");
         this.setWidth(700);
@@ -102,6 +124,7 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
 
         createImportProgress(vBox);
         createExportProgress(vBox);
+        createMaintenanceProgress(vBox);
 
         // set the dialog as a utility
         Stage stage = (Stage) this.getDialogPane().getScene().getWindow();
@@ -134,6 +157,17 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
         vBox.getChildren().add(exportLoadingPanel);
     }
 
+    private void createMaintenanceProgress(VBox vBox) {
+        vBox.getChildren().add(new Separator());
+        maintenancePanel.setAlignment(Pos.CENTER);
+        Label progressLabel = new Label("Dataset delete/rename progress:  ");
+        maintenancePanel.getChildren().add(progressLabel);
+        maintenancePanel.getChildren().add(maintenanceProgressText);
+        maintenancePanel.getChildren().add(cancelMaintenance);
+        cancelMaintenance.setOnAction(this::cancelTaskMaintenance);
+        maintenancePanel.setVisible(false);
+        vBox.getChildren().add(maintenancePanel);
+    }
 
     /**
      * close the dialog from stage x button
@@ -169,10 +203,18 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
         deleteButton.setOnAction(this::delete);
         deleteButton.setDisable(true);
 
+        buttonBox.getChildren().add(renameButton);
+        renameButton.setOnAction(this::rename);
+        renameButton.setDisable(true);
+
         buttonBox.getChildren().add(exportButton);
         exportButton.setOnAction(this::exportDB);
         exportButton.setDisable(true);
 
+        buttonBox.getChildren().add(rescoreButton);
+        rescoreButton.setOnAction(this::rescore);
+        rescoreButton.setDisable(true);
+
         Button closeDialogButton = new Button("Close");
         buttonBox.getChildren().add(closeDialogButton);
         closeDialogButton.setOnAction(this::close);
@@ -228,7 +270,9 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
         if (selectedItems.size() != 0) {
             selectedDataset = selectedItems.get(0);
             deleteButton.setDisable(false);
+            renameButton.setDisable(false);
             exportButton.setDisable(false);
+            rescoreButton.setDisable(false);
         }
     }
 
@@ -246,12 +290,110 @@ public class DataSetManagerDialog extends Dialog<Integer> implements ImportTaskC
     }
 
     private void delete(ActionEvent actionEvent) {
-        if (selectedDataset != null) {
-            this.dataSetChangeListener.removeDataSet(selectedDataset);
-        } else {
+        if (selectedDataset == null) {
             showErrorAlert("Delete Dataset", "You need to select a dataset first");
+            return;
+        }
+        if (dataSetMaintenanceService.isRunning()) {
+            showErrorAlert("Delete Dataset", "Please wait for the current delete or rename to finish");
+            return;
+        }
+        Optional<ButtonType> buttonType = showConfirmationAlert("Remove Dataset",
+                "Remove",
+                "Are you sure you want to remove: " + selectedDataset.getDataSetName());
+        if ((buttonType.isPresent()) && (buttonType.get() == ButtonType.OK)) {
+            maintenanceProgressText.setText("  starting removal of " + selectedDataset.getDataSetName());
+            maintenancePanel.setVisible(true);
+            setMaintenanceButtonsDisabled(true);
+            dataSetMaintenanceService.removeDataSet(
+                    selectedDataset,
+                    statusUpdaterListener,
+                    this,
+                    maintenanceProgressText,
+                    cancelMaintenance);
+        }
+    }
+
+    private void rename(ActionEvent actionEvent) {
+        if (selectedDataset == null) {
+            showErrorAlert("Rename Dataset", "You need to select a dataset first");
+            return;
+        }
+        if (dataSetMaintenanceService.isRunning()) {
+            showErrorAlert("Rename Dataset", "Please wait for the current delete or rename to finish");
+            return;
+        }
+        TextInputDialog nameDialog = new TextInputDialog(selectedDataset.getDataSetName());
+        nameDialog.setTitle("Rename Dataset");
+        nameDialog.setHeaderText("Enter a new name for " + selectedDataset.getDataSetName());
+        Optional<String> nameOptional = nameDialog.showAndWait();
+        if (nameOptional.isEmpty()) {
+            return;
+        }
+        String newName = nameOptional.get().trim();
+        if (newName.isEmpty() || newName.equals(selectedDataset.getDataSetName())) {
+            return;
+        }
+        if (databaseManagementService.getDatasetFromName(newName) != null) {
+            showErrorAlert("Rename Dataset", "A dataset called " + newName + " already exists");
+            return;
+        }
+        maintenanceProgressText.setText("  starting rename of " + selectedDataset.getDataSetName());
+        maintenancePanel.setVisible(true);
+        setMaintenanceButtonsDisabled(true);
+        dataSetMaintenanceService.renameDataSet(
+                selectedDataset,
+                newName,
+                statusUpdaterListener,
+                this,
+                maintenanceProgressText,
+                cancelMaintenance);
+    }
+
+    /**
+     * work out the label display score of every star in the selected dataset again
+     */
+    private void rescore(ActionEvent actionEvent) {
+        if (selectedDataset == null) {
+            showErrorAlert("Rescore Labels", "You need to select a dataset first");
+            return;
+        }
+        String dataSetName = selectedDataset.getDataSetName();
+        boolean started = displayScoreService.rescoreDataSetInBackground(dataSetName,
+                scored -> Platform.runLater(() -> statusUpdaterListener.updateStatus(scored < 0
+                        ? "Rescoring the labels of " + dataSetName + " failed"
+                        : "Rescored the labels of " + scored + " stars in " + dataSetName + ", they show from the next plot")));
+        if (started) {
+            statusUpdaterListener.updateStatus("Rescoring the labels of " + dataSetName);
+        } else {
+            showErrorAlert("Rescore Labels", "Please wait for the label scoring already running to finish");
+        }
+    }
+
+    private void setMaintenanceButtonsDisabled(boolean disabled) {
+        deleteButton.setDisable(disabled);
+        renameButton.setDisable(disabled);
+        exportButton.setDisable(disabled);
+        rescoreButton.setDisable(disabled);
+    }
+
+    private void cancelTaskMaintenance(ActionEvent actionEvent) {
+        log.info("Dataset delete/rename was cancelled");
+        dataSetMaintenanceService.cancelMaintenance();
+    }
+
+    @Override
+    public void complete(boolean status, @NotNull DataSetDescriptor original, @Nullable DataSetDescriptor renamed, String message) {
+        maintenanceProgressText.setText("  " + message);
+        if (status) {
+            if (renamed == null) {
+                dataSetChangeListener.dataSetRemoved(original);
+            } else {
+                dataSetChangeListener.dataSetRenamed(original, renamed);
+            }
         }
         selectedDataset = null;
+        tableView.getSelectionModel().clearSelection();
         updateTable();
     }
 
@@ -6,6 +6,7 @@ import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
@@ -26,15 +27,23 @@ import java.io.File;
 public class ExportDialog extends Dialog<ExportOptions> {
 
 
+    private final ChoiceBox<String> exportChoice = new ChoiceBox<>();
+
     private final TextField fileNameTextField = new TextField();
     private final DataSetDescriptor selectedDataSet;
 
     public ExportDialog(DataSetDescriptor selectedDataSet) {
         this.selectedDataSet = selectedDataSet;
 
-        this.setTitle("Export as CSV");
+        this.setTitle("Export Dataset");
         this.setWidth(600);
 
+        // csv and excel for spreadsheets, json as a complete backup
+        exportChoice.getItems().add(ExportFileType.CSV.toString());
+        exportChoice.getItems().add(ExportFileType.EXCEL.toString());
+        exportChoice.getItems().add(ExportFileType.JSON.toString());
+        exportChoice.setValue(ExportFileType.CSV.toString());
+
         VBox vBox = new VBox();
 
         GridPane gridPane = new GridPane();
@@ -43,10 +52,11 @@ public class ExportDialog extends Dialog<ExportOptions> {
         gridPane.setHgap(5);
         gridPane.setPrefWidth(450);
 
-        Label exportTypeLabel = new Label("Export as CSV");
+        Label exportTypeLabel = new Label("Export Type");
         Font font = Font.font("Verdana", FontWeight.BOLD, FontPosture.REGULAR, 13);
         exportTypeLabel.setFont(font);
         gridPane.add(exportTypeLabel, 0, 1);
+        gridPane.add(exportChoice, 1, 1);
 
         gridPane.add(new Label("FileName"), 0, 2);
         fileNameTextField.setPrefWidth(300);
@@ -82,7 +92,7 @@ public class ExportDialog extends Dialog<ExportOptions> {
 
     private void showDialog() {
         final FileChooser fileChooser = new FileChooser();
-        fileChooser.setTitle("Select Database to export as a CSV file");
+        fileChooser.setTitle("Select the file to export the dataset to");
         File file = fileChooser.showSaveDialog(null);
         if (file != null) {
             fileNameTextField.setText(file.getAbsolutePath());
@@ -104,7 +114,7 @@ public class ExportDialog extends Dialog<ExportOptions> {
         ExportOptions options = ExportOptions
                 .builder()
                 .doExport(true)
-                .exportFormat(ExportFileType.CSV)
+                .exportFormat(ExportFileType.valueOf(exportChoice.getValue()))
                 .fileName(fileNameTextField.getText())
                 .dataset(selectedDataSet)
                 .build();
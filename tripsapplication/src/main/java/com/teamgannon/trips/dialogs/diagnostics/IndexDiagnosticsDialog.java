@@ -0,0 +1,131 @@
+package com.teamgannon.trips.dialogs.diagnostics;
+
+import com.teamgannon.trips.service.cache.QueryCacheMetrics;
+import com.teamgannon.trips.service.index.IndexDiagnostic;
+import com.teamgannon.trips.service.index.StarIndexService;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.event.ActionEvent;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * shows whether the star table indexes exist and whether the query planner uses them,
+ * along with how the plot query cache is doing
+ */
+@Slf4j
+public class IndexDiagnosticsDialog extends Dialog<Boolean> {
+
+    private final StarIndexService starIndexService;
+
+    private final ChoiceBox<String> dataSetChoice = new ChoiceBox<>();
+
+    private final TableView<IndexDiagnostic> diagnosticsTable = new TableView<>();
+
+    private final TextArea planArea = new TextArea();
+
+    public IndexDiagnosticsDialog(@NotNull StarIndexService starIndexService,
+                                  @NotNull QueryCacheMetrics queryCacheMetrics,
+                                  @NotNull List<String> dataSetNames,
+                                  String currentDataSetName) {
+        this.starIndexService = starIndexService;
+
+        setTitle("Star Index Diagnostics");
+        VBox vBox = new VBox();
+        vBox.setSpacing(10);
+        vBox.setPadding(new Insets(10, 10, 10, 10));
+
+        HBox hBox1 = new HBox();
+        hBox1.setSpacing(10);
+        dataSetChoice.setPrefWidth(200);
+        dataSetChoice.getItems().addAll(dataSetNames);
+        if (currentDataSetName != null) {
+            dataSetChoice.setValue(currentDataSetName);
+        }
+        Button runButton = new Button("Run Diagnostics");
+        runButton.setOnAction(this::runDiagnostics);
+        hBox1.getChildren().addAll(new Label("Dataset to use:"), dataSetChoice, runButton);
+        vBox.getChildren().add(hBox1);
+
+        setupTable();
+        vBox.getChildren().add(diagnosticsTable);
+
+        planArea.setEditable(false);
+        planArea.setPrefRowCount(6);
+        planArea.setPrefWidth(700);
+        vBox.getChildren().addAll(new Label("Query plan for selected index:"), planArea);
+
+        vBox.getChildren().add(new Label("Plot query cache: " + queryCacheMetrics));
+
+        HBox hBox2 = new HBox();
+        hBox2.setAlignment(Pos.CENTER);
+        Button dismissButton = new Button("Dismiss");
+        dismissButton.setOnAction(this::dismissAction);
+        hBox2.getChildren().add(dismissButton);
+        vBox.getChildren().add(hBox2);
+
+        this.getDialogPane().setContent(vBox);
+
+        Stage stage = (Stage) this.getDialogPane().getScene().getWindow();
+        stage.setOnCloseRequest(this::close);
+    }
+
+    private void setupTable() {
+        diagnosticsTable.setPrefSize(700, 200);
+
+        TableColumn<IndexDiagnostic, String> indexCol = new TableColumn<>("Index");
+        indexCol.setCellValueFactory(param -> new ReadOnlyStringWrapper(param.getValue().getIndexName()));
+        indexCol.setPrefWidth(200);
+
+        TableColumn<IndexDiagnostic, String> shapeCol = new TableColumn<>("Query shape");
+        shapeCol.setCellValueFactory(param -> new ReadOnlyStringWrapper(param.getValue().getQueryShape()));
+        shapeCol.setPrefWidth(200);
+
+        TableColumn<IndexDiagnostic, String> presentCol = new TableColumn<>("Present");
+        presentCol.setCellValueFactory(param -> new ReadOnlyStringWrapper(param.getValue().isPresent() ? "yes" : "NO"));
+
+        TableColumn<IndexDiagnostic, String> usedCol = new TableColumn<>("Used");
+        usedCol.setCellValueFactory(param -> new ReadOnlyStringWrapper(param.getValue().isUsed() ? "yes" : "NO"));
+
+        TableColumn<IndexDiagnostic, String> rowsCol = new TableColumn<>("Rows");
+        rowsCol.setCellValueFactory(param -> new ReadOnlyStringWrapper(Long.toString(param.getValue().getRowsMatched())));
+
+        TableColumn<IndexDiagnostic, String> timeCol = new TableColumn<>("Time (ms)");
+        timeCol.setCellValueFactory(param -> new ReadOnlyStringWrapper(Long.toString(param.getValue().getElapsedMs())));
+
+        diagnosticsTable.getColumns().addAll(List.of(indexCol, shapeCol, presentCol, usedCol, rowsCol, timeCol));
+        diagnosticsTable.getSelectionModel().selectedItemProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue != null) {
+                planArea.setText(newValue.getPlan());
+            }
+        });
+    }
+
+    private void runDiagnostics(ActionEvent actionEvent) {
+        String dataSetName = dataSetChoice.getValue();
+        if (dataSetName == null) {
+            planArea.setText("select a dataset first");
+            return;
+        }
+        List<IndexDiagnostic> diagnostics = starIndexService.runDiagnostics(dataSetName);
+        diagnosticsTable.getItems().setAll(diagnostics);
+        planArea.clear();
+    }
+
+    private void dismissAction(ActionEvent actionEvent) {
+        setResult(true);
+    }
+
+    private void close(WindowEvent windowEvent) {
+        setResult(true);
+    }
+
+}
@@ -52,6 +52,11 @@ public class AdvResultsSet {
     @Builder.Default
     private @NotNull List<StarObject> starsFound = new ArrayList<>();
 
+    /**
+     * how many stars the query found and how long it took
+     */
+    private String resultsSummary;
+
     /**
      * the dataset descriptor that we selected
      */
@@ -2,8 +2,9 @@ package com.teamgannon.trips.dialogs.query;
 
 import com.teamgannon.trips.config.application.DataSetContext;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
-import com.teamgannon.trips.jpa.model.StarObject;
-import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.query.AdvancedQueryResult;
+import com.teamgannon.trips.service.query.AdvancedQueryService;
+import com.teamgannon.trips.service.query.tasks.AdvancedQueryTask;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -17,15 +18,11 @@ import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 import lombok.extern.slf4j.Slf4j;
-import net.sf.jsqlparser.util.validation.Validation;
-import net.sf.jsqlparser.util.validation.ValidationError;
-import net.sf.jsqlparser.util.validation.feature.DatabaseType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static com.teamgannon.trips.support.AlertFactory.showErrorAlert;
 import static com.teamgannon.trips.support.AlertFactory.showWarningMessage;
@@ -40,12 +37,21 @@ public class AdvancedQueryDialog extends Dialog<AdvResultsSet> {
 
     private final TextArea queryErrors = new TextArea();
 
+    private final Label progressText = new Label();
+    private final Button doQueryButton = new Button("Run Query");
+    private final Button cancelQueryButton = new Button("Cancel Query");
+
+    /**
+     * the query that is running, null when there isn't one
+     */
+    private @Nullable AdvancedQueryTask runningQuery;
+
     private final ChoiceBox<String> datasetChoices = new ChoiceBox<>();
     QueryFields queryFields = new QueryFields();
-    private final DatabaseManagementService service;
+    private final AdvancedQueryService service;
     private final @NotNull Map<String, DataSetDescriptor> dataSetDescriptorMap;
 
-    public AdvancedQueryDialog(DatabaseManagementService service,
+    public AdvancedQueryDialog(AdvancedQueryService service,
                                DataSetContext dataSetContext,
                                @NotNull Map<String, DataSetDescriptor> dataSetDescriptorMap) {
 
@@ -110,14 +116,21 @@ public class AdvancedQueryDialog extends Dialog<AdvResultsSet> {
         Button examplesButton = new Button("Show Examples");
         examplesButton.setOnAction(this::showExamples);
         hBox.getChildren().add(examplesButton);
-        Button doQueryButton = new Button("Run Query");
         doQueryButton.setOnAction(this::runQuery);
         hBox.getChildren().add(doQueryButton);
+        cancelQueryButton.setOnAction(this::cancelQuery);
+        cancelQueryButton.setDisable(true);
+        hBox.getChildren().add(cancelQueryButton);
         Button cancelButton = new Button("Ok");
         cancelButton.setOnAction(this::cancelReq);
         hBox.getChildren().add(cancelButton);
         vBox.getChildren().add(hBox);
 
+        HBox progressBox = new HBox();
+        progressBox.setAlignment(Pos.CENTER);
+        progressBox.getChildren().add(progressText);
+        vBox.getChildren().add(progressBox);
+
         queryErrors.setDisable(true);
         queryErrors.setPromptText("query syntax errors will appear here");
         vBox.getChildren().add(queryErrors);
@@ -133,61 +146,104 @@ public class AdvancedQueryDialog extends Dialog<AdvResultsSet> {
     }
 
     private void close(WindowEvent windowEvent) {
+        stopRunningQuery();
         AdvResultsSet advResultsSet = AdvResultsSet.builder().dismissed(true).build();
         setResult(advResultsSet);
     }
 
     private void cancelReq(ActionEvent actionEvent) {
+        stopRunningQuery();
         AdvResultsSet advResultsSet = AdvResultsSet.builder().dismissed(true).build();
         setResult(advResultsSet);
     }
 
+    private void cancelQuery(ActionEvent actionEvent) {
+        stopRunningQuery();
+    }
+
+    private void stopRunningQuery() {
+        if (runningQuery != null) {
+            runningQuery.cancelQuery();
+        }
+    }
+
     private void runQuery(ActionEvent actionEvent) {
-        String queryWherePart = wherePart.getText();
+        if (runningQuery != null) {
+            return;
+        }
+        String queryWherePart = wherePart.getText() == null ? "" : wherePart.getText().trim();
 
         String datasetName = datasetChoices.getValue();
-        if (!datasetName.isEmpty()) {
-            String queryPrefix = "SELECT * FROM STAR_OBJ WHERE ";
-            String datasetQuery = "DATA_SET_NAME='" + datasetName + "' ";
-            String queryToRun = queryPrefix + datasetQuery;
-
-            if (queryWherePart.isEmpty()) {
-                showWarningMessage("Run Advanced Query", "this will get all stars");
-            } else {
-                queryToRun += " AND " + queryWherePart;
-            }
-
-            log.info("query is ::  {}", queryToRun);
-            Validation validation = new Validation(Collections.singletonList(DatabaseType.H2), queryToRun);
-            List<ValidationError> errors = validation.validate();
-            if (errors.size() > 0) {
-                String stringBuilder = errors.stream().map(error -> error.toString() + "\n").collect(Collectors.joining());
-                queryErrors.setText(stringBuilder);
-            } else {
-                if (plotCheckBox.isSelected() || viewCheckBox.isSelected()) {
-                    try {
-                        List<StarObject> starObjectList = service.runNativeQuery(queryToRun);
-                        AdvResultsSet advResultsSet = AdvResultsSet
-                                .builder()
-                                .queryValid(true)
-                                .plotStars(plotCheckBox.isSelected())
-                                .viewStars(viewCheckBox.isSelected())
-                                .dataSetDescriptor(dataSetDescriptorMap.get(datasetName))
-                                .resultsFound(starObjectList.size() > 0)
-                                .starsFound(starObjectList)
-                                .build();
-                        setResult(advResultsSet);
-                    } catch (Exception e) {
-                        showErrorAlert("Run Advanced Query", "failed: " + e.getMessage());
-                    }
-                } else {
-                    showErrorAlert("Run Advanced Query", "either plot or view must be selected");
-                }
-            }
-        } else {
+        if (datasetName == null || datasetName.isEmpty()) {
             showErrorAlert("Run Advanced Query", "You must enter a query");
+            return;
+        }
+        if (!plotCheckBox.isSelected() && !viewCheckBox.isSelected()) {
+            showErrorAlert("Run Advanced Query", "either plot or view must be selected");
+            return;
         }
+        if (queryWherePart.isEmpty()) {
+            showWarningMessage("Run Advanced Query", "this will get all stars");
+        }
+
+        String queryToRun = AdvancedQueryService.makeQueryText(datasetName, queryWherePart);
+        log.info("query is ::  {}", queryToRun);
+        List<String> errors = service.validate(queryToRun);
+        if (errors.size() > 0) {
+            queryErrors.setText(String.join("\n", errors));
+            return;
+        }
+        queryErrors.setText("");
+
+        AdvancedQueryTask task = new AdvancedQueryTask(service, datasetName, queryWherePart);
+        task.setOnSucceeded(event -> queryFinished(datasetName, task.getValue()));
+        task.setOnFailed(event -> {
+            queryStopped();
+            showErrorAlert("Run Advanced Query", "failed: " + task.getException().getMessage());
+        });
+        runningQuery = task;
+        progressText.textProperty().bind(task.messageProperty());
+        doQueryButton.setDisable(true);
+        cancelQueryButton.setDisable(false);
+
+        Thread thread = new Thread(task, "advanced-query");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void queryFinished(String datasetName, @NotNull AdvancedQueryResult result) {
+        queryStopped();
+        progressText.setText(result.getSummary());
+        if (result.isTimedOut()) {
+            showErrorAlert("Run Advanced Query", result.getSummary() + ", try narrowing it down");
+            return;
+        }
+        if (result.isCancelled()) {
+            return;
+        }
+        if (result.isTruncated()) {
+            showWarningMessage("Run Advanced Query",
+                    String.format("more than %d stars matched, only the first %d are shown",
+                            result.getRowLimit(), result.getStars().size()));
+        }
+        AdvResultsSet advResultsSet = AdvResultsSet
+                .builder()
+                .queryValid(true)
+                .plotStars(plotCheckBox.isSelected())
+                .viewStars(viewCheckBox.isSelected())
+                .dataSetDescriptor(dataSetDescriptorMap.get(datasetName))
+                .resultsFound(result.getStars().size() > 0)
+                .starsFound(result.getStars())
+                .resultsSummary(result.getSummary())
+                .build();
+        setResult(advResultsSet);
+    }
 
+    private void queryStopped() {
+        runningQuery = null;
+        progressText.textProperty().unbind();
+        doQueryButton.setDisable(false);
+        cancelQueryButton.setDisable(true);
     }
 
 }
@@ -1,6 +1,7 @@
 package com.teamgannon.trips.dialogs.search;
 
 import com.teamgannon.trips.dialogs.search.model.StarSearchResults;
+import com.teamgannon.trips.service.async.AsyncDatabaseService;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -22,8 +23,16 @@ public class FindStarsWithNameMatchDialog extends Dialog<StarSearchResults> {
 
     private final TextField starName = new TextField();
     private final ChoiceBox<String> datasets = new ChoiceBox<>();
+    private final Label searchStatus = new Label();
 
-    public FindStarsWithNameMatchDialog(@NotNull List<String> datasetNames) {
+    /**
+     * the search runs in the background, searching again replaces a search still running
+     */
+    private final AsyncDatabaseService asyncDatabaseService;
+
+    public FindStarsWithNameMatchDialog(@NotNull AsyncDatabaseService asyncDatabaseService,
+                                        @NotNull List<String> datasetNames) {
+        this.asyncDatabaseService = asyncDatabaseService;
         this.setTitle("Find a star in database");
         this.setHeight(500);
         this.setWidth(500);
@@ -44,6 +53,7 @@ public class FindStarsWithNameMatchDialog extends Dialog<StarSearchResults> {
         datasetLabel.setFont(font);
         gridPane.add(datasetLabel, 0, 2);
         gridPane.add(datasets, 1, 2);
+        gridPane.add(searchStatus, 1, 3);
 
         HBox hBox2 = new HBox();
         hBox2.setAlignment(Pos.CENTER);
@@ -66,6 +76,7 @@ public class FindStarsWithNameMatchDialog extends Dialog<StarSearchResults> {
     }
 
     private void close(WindowEvent windowEvent) {
+        asyncDatabaseService.cancel(FindStarsWithNameMatchDialog.class.getName());
         StarSearchResults findResults = StarSearchResults.builder().starsFound(false).build();
         setResult(findResults);
     }
@@ -74,19 +85,30 @@ public class FindStarsWithNameMatchDialog extends Dialog<StarSearchResults> {
         String nameToSearch = starName.getText();
         String dataSetName = datasets.getValue();
         if (!nameToSearch.isEmpty()) {
-            StarSearchResults findResults = StarSearchResults
-                    .builder()
-                    .starsFound(true)
-                    .nameToSearch(nameToSearch)
-                    .dataSetName(dataSetName)
-                    .build();
-            setResult(findResults);
+            searchStatus.setText("Searching...");
+            AsyncDatabaseService.deliverOnFxThread(
+                    asyncDatabaseService.findStarsWithName(FindStarsWithNameMatchDialog.class.getName(), dataSetName, nameToSearch),
+                    starObjects -> {
+                        StarSearchResults findResults = StarSearchResults
+                                .builder()
+                                .starsFound(true)
+                                .nameToSearch(nameToSearch)
+                                .dataSetName(dataSetName)
+                                .starObjects(starObjects)
+                                .build();
+                        setResult(findResults);
+                    },
+                    throwable -> {
+                        searchStatus.setText("");
+                        showErrorAlert("find star", "Search failed: " + throwable.getMessage());
+                    });
         } else {
             showErrorAlert("find star", "You must enter a partial name");
         }
     }
 
     private void close(ActionEvent actionEvent) {
+        asyncDatabaseService.cancel(FindStarsWithNameMatchDialog.class.getName());
         StarSearchResults findResults = StarSearchResults.builder().starsFound(false).build();
         setResult(findResults);
     }
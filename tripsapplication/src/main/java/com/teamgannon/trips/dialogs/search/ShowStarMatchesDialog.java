@@ -4,7 +4,7 @@ import com.teamgannon.trips.dataset.enums.SortParameterEnum;
 import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.screenobjects.StarEditDialog;
 import com.teamgannon.trips.screenobjects.StarEditStatus;
-import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.async.AsyncDatabaseService;
 import javafx.beans.Observable;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.teamgannon.trips.support.AlertFactory.showErrorAlert;
+
 @Slf4j
 public class ShowStarMatchesDialog extends Dialog<String> {
 
@@ -44,10 +46,10 @@ public class ShowStarMatchesDialog extends Dialog<String> {
     private final List<StarObject> starObjects;
     private @NotNull SortParameterEnum currentSortStrategy = SortParameterEnum.NAME;
     private TableColumn.@NotNull SortType sortDirection = TableColumn.SortType.ASCENDING;
-    private final DatabaseManagementService databaseManagementService;
+    private final AsyncDatabaseService asyncDatabaseService;
 
-    public ShowStarMatchesDialog(DatabaseManagementService databaseManagementService, List<StarObject> starObjects) {
-        this.databaseManagementService = databaseManagementService;
+    public ShowStarMatchesDialog(AsyncDatabaseService asyncDatabaseService, List<StarObject> starObjects) {
+        this.asyncDatabaseService = asyncDatabaseService;
         this.starObjects = starObjects;
         this.setTitle("Show discovered stars");
         this.setHeight(700);
@@ -167,10 +169,11 @@ public class ShowStarMatchesDialog extends Dialog<String> {
             if (statusOptional.isPresent()) {
                 StarEditStatus starEditStatus = statusOptional.get();
                 if (starEditStatus.isChanged()) {
-                    // update the database
-                    databaseManagementService.updateStar(starEditStatus.getRecord());
-                    // load data base on were we are
-                    loadData();
+                    // update the database, then load data base on were we are
+                    AsyncDatabaseService.deliverOnFxThread(
+                            asyncDatabaseService.updateStar(starEditStatus.getRecord()),
+                            done -> loadData(),
+                            throwable -> showErrorAlert("Edit Star", "Failed to save the star: " + throwable.getMessage()));
                 }
             }
 
@@ -197,11 +200,12 @@ public class ShowStarMatchesDialog extends Dialog<String> {
         UUID id = starObject.getId();
 
         // remove from DB
-        databaseManagementService.removeStar(id);
+        AsyncDatabaseService.deliverOnFxThread(
+                asyncDatabaseService.removeStar(id),
+                done -> log.info("Removed from DB"),
+                throwable -> showErrorAlert("Remove Star", "Failed to remove the star: " + throwable.getMessage()));
 
         loadData();
-
-        log.info("Removed from DB");
     }
 
     private void setSelectionModel() {
@@ -1,8 +1,12 @@
 package com.teamgannon.trips.dialogs.search.model;
 
+import com.teamgannon.trips.jpa.model.StarObject;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Builder
 public class StarSearchResults {
@@ -13,4 +17,10 @@ public class StarSearchResults {
 
     private String nameToSearch;
 
+    /**
+     * the stars that matched the name
+     */
+    @Builder.Default
+    private List<StarObject> starObjects = new ArrayList<>();
+
 }
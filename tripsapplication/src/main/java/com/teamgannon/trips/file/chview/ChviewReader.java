@@ -2,26 +2,32 @@ package com.teamgannon.trips.file.chview;
 
 import com.teamgannon.trips.file.chview.model.CHViewPreferences;
 import com.teamgannon.trips.file.chview.model.ChViewFile;
-import com.teamgannon.trips.file.chview.model.PseudoString;
-import com.teamgannon.trips.file.chview.model.StringResult;
 import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
 import com.teamgannon.trips.stellarmodelling.StarColor;
 import com.teamgannon.trips.stellarmodelling.StellarClassification;
 import com.teamgannon.trips.stellarmodelling.StellarFactory;
 import javafx.scene.paint.Color;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.EndianUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Used to read the CHView file format
  * <p>
+ * the file is memory mapped and decoded in place, little endian as written by the original program. Open
+ * reads the preamble and preferences, the records are then decoded one at a time by nextRecord so an
+ * import never holds more than the records it is working on. A reader reads one file at a time.
+ * <p>
  * Created by larrymitchell on 2017-02-07.
  */
 @Slf4j
@@ -33,11 +39,20 @@ public class ChviewReader {
      */
     private final @NotNull StellarFactory stellarFactory;
 
+    /**
+     * the star colours, worked out once rather than for every record
+     */
+    private final Map<StarColor, Color> starColors = new EnumMap<>(StarColor.class);
 
     /**
-     * the complete file content
+     * the mapped file content
      */
-    private byte[] fileContent;
+    private ByteBuffer buffer;
+
+    /**
+     * the file being read, it gets the trailing comments once the last record is read
+     */
+    private ChViewFile chViewFile;
 
     /**
      * the current index in the file
@@ -45,10 +60,25 @@ public class ChviewReader {
     private int currentIndex = 0;
 
     /**
-     * the number of records parsed so far
+     * the number of records parsed so far, subsidiary stars included
      */
     private int recordNumber = 0;
 
+    /**
+     * the number of top level records read so far
+     */
+    private int recordsRead = 0;
+
+    /**
+     * set by readStarParameter and findString to say whether the value was a name or a number
+     */
+    private boolean lastWasName;
+
+    /**
+     * scratch space for decoding strings
+     */
+    private char[] chars = new char[256];
+
     /**
      * dependency injection for component
      */
@@ -57,92 +87,135 @@ public class ChviewReader {
     }
 
     /**
-     * load a ch view file
+     * load a ch view file with all its records
      *
-     * @param file the chview file
+     * @param progressUpdater the updater
+     * @param file            the chview file
      * @return a chview file
      */
     public @Nullable ChViewFile loadFile(@NotNull ProgressUpdater progressUpdater, @NotNull File file) {
-        return readCompleteFile(progressUpdater, file);
+        ChViewFile loaded = open(progressUpdater, file);
+        if (loaded == null) {
+            return null;
+        }
+        ChViewRecord chViewRecord;
+        while ((chViewRecord = nextRecord(progressUpdater)) != null) {
+            loaded.addRecord(chViewRecord);
+        }
+        return loaded;
     }
 
     /**
-     * read the complete file
+     * open a ch view file and read everything up to the first record
+     * <p>
+     * the records are not read, call nextRecord until it returns null for those
      *
-     * @param progressUpdater the updateer
-     * @param inputFile       the file name to read
+     * @param progressUpdater the updater
+     * @param inputFile       the chview file
+     * @return the file without its records, null if it could not be read
      */
-    private @Nullable ChViewFile readCompleteFile(@NotNull ProgressUpdater progressUpdater, @NotNull File inputFile) {
+    public @Nullable ChViewFile open(@NotNull ProgressUpdater progressUpdater, @NotNull File inputFile) {
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            log.error("load failed for file because of:" + e);
+            return null;
+        }
 
         try {
-            fileContent = Files.readAllBytes(inputFile.toPath());
-            return parsefile(progressUpdater, inputFile.getAbsolutePath());
-        } catch (IOException e) {
+            return parseHeader(progressUpdater, inputFile.getAbsolutePath());
+        } catch (RuntimeException e) {
             log.error("load failed for file because of:" + e);
+            buffer = null;
             return null;
         }
     }
 
+    /**
+     * read the next star record of the open file
+     * <p>
+     * records that are corrupt are logged and skipped
+     *
+     * @param progressUpdater the updater
+     * @return the record, null once every record has been read
+     */
+    public @Nullable ChViewRecord nextRecord(@NotNull ProgressUpdater progressUpdater) {
+        if (buffer == null) {
+            return null;
+        }
+        while (recordsRead < chViewFile.getNumberOfRecords()) {
+            ChViewRecord chViewRecord = parseRecord(progressUpdater);
+            recordsRead++;
+            if (recordsRead % 100 == 0) {
+                progressUpdater.updateTaskInfo("read " + recordsRead + " records");
+            }
+            if (chViewRecord != null) {
+                return chViewRecord;
+            }
+        }
+        finish(progressUpdater);
+        return null;
+    }
 
     /**
-     * relies on the file being read into a byte buffer
+     * the preamble, preferences and record count
      */
-    private @Nullable ChViewFile parsefile(@NotNull ProgressUpdater progressUpdater, String fileName) {
+    private @NotNull ChViewFile parseHeader(@NotNull ProgressUpdater progressUpdater, String fileName) {
         progressUpdater.updateTaskInfo("reading front preamble");
-        ChViewFile chViewFile = new ChViewFile();
+        chViewFile = new ChViewFile();
         currentIndex = 0;
+        recordNumber = 0;
+        recordsRead = 0;
         chViewFile.setOriginalFileName(fileName);
 
         // get the file version
-        int versionNumber = readInt(fileContent, currentIndex);
+        int versionNumber = readInt(currentIndex);
         chViewFile.setFileVersion(versionNumber);
         currentIndex += 4;
 
         // get the view preferences
-        CHViewPreferences CHViewPreferences = parseViewPreferences(fileContent);
+        CHViewPreferences CHViewPreferences = parseViewPreferences();
         chViewFile.setCHViewPreferences(CHViewPreferences);
 
         // get the number of records
-        short numberOfRecords = readShort(fileContent, currentIndex);
+        short numberOfRecords = readShort(currentIndex);
         currentIndex += 2;
         chViewFile.setNumberOfRecords(numberOfRecords);
 
-        // read each file record
         progressUpdater.updateTaskInfo("reading records");
-        for (int i = 0; i < numberOfRecords; i++) {
-            ChViewRecord chViewRecord = parseRecord(fileContent, currentIndex, progressUpdater);
-            if (chViewRecord == null) {
-                continue;
-            }
-            chViewFile.addRecord(chViewRecord);
-            if (i % 100 == 0) {
-                progressUpdater.updateTaskInfo("read " + i + " records");
-            }
-        }
-
-        parseLinks(fileContent, currentIndex);
+        return chViewFile;
+    }
 
-        chViewFile.setComments(parsePreamble(fileContent, currentIndex));
+    /**
+     * the links and comments after the last record
+     */
+    private void finish(@NotNull ProgressUpdater progressUpdater) {
+        try {
+            parseLinks(currentIndex);
+            chViewFile.setComments(parsePreamble(currentIndex));
+        } catch (RuntimeException e) {
+            log.error("failed to read the end of the file because of:" + e);
+        }
+        buffer = null;
 
         // return the JSON file
         progressUpdater.updateTaskInfo("file read complete");
-        return chViewFile;
     }
 
-    private void parseLinks(byte @NotNull [] fileContent, int index) {
+    private void parseLinks(int index) {
 
-        if (fileContent.length < index) {
-            short numberOfLinks = readShort(fileContent, index);
+        if (buffer.limit() < index) {
+            short numberOfLinks = readShort(index);
             currentIndex += 2;
 
             for (int i = 0; i < numberOfLinks; i++) {
                 // read the link type
-                short linkType = readShort(fileContent, currentIndex);
+                short linkType = readShort(currentIndex);
                 currentIndex += 2;
 
                 // the destination
-                StringResult destination = readString(fileContent, currentIndex);
-                currentIndex += destination.getIndexAdd();
+                readString();
             }
         } else {
             log.debug("Reached end of file ->  no links");
@@ -153,14 +226,12 @@ public class ChviewReader {
     /**
      * parse the preamble
      *
-     * @param fileContent the file content
-     * @param index       the current index
+     * @param index the current index
      */
 
-    private String parsePreamble(byte @NotNull [] fileContent, int index) {
-        if (fileContent.length < index) {
-            StringResult fileComments = readString(fileContent, currentIndex);
-            return fileComments.getValue();
+    private String parsePreamble(int index) {
+        if (buffer.limit() < index) {
+            return readString();
         } else {
             log.debug("Reached end of file ->  no links");
             return "no file comments";
@@ -170,83 +241,76 @@ public class ChviewReader {
     /**
      * parse the preferences section
      *
-     * @param buffer the file content buffer
      * @return the View Preferences object
      */
-    private @NotNull CHViewPreferences parseViewPreferences(byte[] buffer) {
+    private @NotNull CHViewPreferences parseViewPreferences() {
         CHViewPreferences CHViewPreferences = new CHViewPreferences();
 
         // boolean
-        boolean grid = readBoolean(buffer, currentIndex);
+        boolean grid = readBoolean(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setGridOn(grid);
 
-        StringResult gridSize = readString(buffer, currentIndex);
-        currentIndex += gridSize.getIndexAdd();
-        CHViewPreferences.setGridSize(Double.parseDouble(gridSize.getValue()));
+        String gridSize = readString();
+        CHViewPreferences.setGridSize(Double.parseDouble(gridSize));
 
         // boolean value
-        boolean link = readBoolean(buffer, currentIndex);
+        boolean link = readBoolean(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setLinkOn(link);
 
         // boolean value
-        boolean linkNumbers = readBoolean(buffer, currentIndex);
+        boolean linkNumbers = readBoolean(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setDisplayLinkOn(linkNumbers);
 
-        StringResult linkSize1 = readString(buffer, currentIndex);
-        currentIndex += linkSize1.getIndexAdd();
-        StringResult linkSize2 = readString(buffer, currentIndex);
-        currentIndex += linkSize2.getIndexAdd();
-        StringResult linkSize3 = readString(buffer, currentIndex);
-        currentIndex += linkSize3.getIndexAdd();
-        StringResult linkSize4 = readString(buffer, currentIndex);
-        currentIndex += linkSize4.getIndexAdd();
+        String linkSize1 = readString();
+        String linkSize2 = readString();
+        String linkSize3 = readString();
+        String linkSize4 = readString();
         CHViewPreferences.setLinkSizes(
-                Double.parseDouble(linkSize1.getValue()),
-                Double.parseDouble(linkSize2.getValue()),
-                Double.parseDouble(linkSize3.getValue()),
-                Double.parseDouble(linkSize4.getValue())
+                Double.parseDouble(linkSize1),
+                Double.parseDouble(linkSize2),
+                Double.parseDouble(linkSize3),
+                Double.parseDouble(linkSize4)
         );
 
         // boolean
-        boolean starName = readBoolean(buffer, currentIndex);
+        boolean starName = readBoolean(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setStarNameOn(starName);
 
-        StringResult radius = readString(buffer, currentIndex);
-        currentIndex += radius.getIndexAdd();
-        CHViewPreferences.setRadius(Double.parseDouble(radius.getValue()));
+        String radius = readString();
+        CHViewPreferences.setRadius(Double.parseDouble(radius));
 
         // boolean
-        boolean scale = readBoolean(buffer, currentIndex);
+        boolean scale = readBoolean(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setScaleOn(scale);
 
-        short gridStyle = readShort(buffer, currentIndex);
+        short gridStyle = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setGridStyle(gridStyle);
 
-        short linkStyle1 = readShort(buffer, currentIndex);
+        short linkStyle1 = readShort(currentIndex);
         currentIndex += 2;
-        short linkStyle2 = readShort(buffer, currentIndex);
+        short linkStyle2 = readShort(currentIndex);
         currentIndex += 2;
-        short linkStyle3 = readShort(buffer, currentIndex);
+        short linkStyle3 = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setLinkStyles(linkStyle1, linkStyle2, linkStyle3);
 
-        short stemStyle = readShort(buffer, currentIndex);
+        short stemStyle = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setStemStyle(stemStyle);
 
         // boolean
-        boolean starOutline = readBoolean(buffer, currentIndex);
+        boolean starOutline = readBoolean(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setStarOutlineOn(starOutline);
 
         //boolean
-        boolean routeDisplay = readBoolean(buffer, currentIndex);
+        boolean routeDisplay = readBoolean(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setRouteDisplayOn(routeDisplay);
 
@@ -257,201 +321,182 @@ public class ChviewReader {
         currentIndex += 24;
 
 
-        byte[] oColor = copyBytes(buffer, currentIndex, 3);
+        byte[] oColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setOColor(oColor);
 
-        byte[] bColor = copyBytes(buffer, currentIndex, 3);
+        byte[] bColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setBColor(bColor);
 
-        byte[] aColor = copyBytes(buffer, currentIndex, 3);
+        byte[] aColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setAColor(aColor);
 
-        byte[] fColor = copyBytes(buffer, currentIndex, 3);
+        byte[] fColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setFColor(fColor);
 
-        byte[] gColor = copyBytes(buffer, currentIndex, 3);
+        byte[] gColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setGColor(gColor);
 
-        byte[] kColor = copyBytes(buffer, currentIndex, 3);
+        byte[] kColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setKColor(kColor);
 
-        byte[] mColor = copyBytes(buffer, currentIndex, 3);
+        byte[] mColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setMColor(mColor);
 
-        byte[] xColor = copyBytes(buffer, currentIndex, 3);
+        byte[] xColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setXColor(xColor);
 
-        byte[] backColor = copyBytes(buffer, currentIndex, 3);
+        byte[] backColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setBackgroudColor(backColor);
 
-        byte[] textColor = copyBytes(buffer, currentIndex, 3);
+        byte[] textColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setTextColor(textColor);
 
-        byte[] linkNumberColor = copyBytes(buffer, currentIndex, 3);
+        byte[] linkNumberColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setLinkNumberColor(linkNumberColor);
 
-        byte[] linkColor1 = copyBytes(buffer, currentIndex, 3);
+        byte[] linkColor1 = copyBytes(currentIndex, 3);
         currentIndex += 4;
-        byte[] linkColor2 = copyBytes(buffer, currentIndex, 3);
+        byte[] linkColor2 = copyBytes(currentIndex, 3);
         currentIndex += 4;
-        byte[] linkColor3 = copyBytes(buffer, currentIndex, 3);
+        byte[] linkColor3 = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setLinkColors(linkColor1, linkColor2, linkColor3);
 
-        byte[] gridColor = copyBytes(buffer, currentIndex, 3);
+        byte[] gridColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setGridColor(gridColor);
 
-        byte[] stemColor = copyBytes(buffer, currentIndex, 3);
+        byte[] stemColor = copyBytes(currentIndex, 3);
         currentIndex += 4;
         CHViewPreferences.setStemColor(stemColor);
 
-        short oRadius = readShort(buffer, currentIndex);
+        short oRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setORadius(oRadius);
 
-        short bRadius = readShort(buffer, currentIndex);
+        short bRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setBRadius(bRadius);
 
-        short aRadius = readShort(buffer, currentIndex);
+        short aRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setARadius(aRadius);
 
-        short fRadius = readShort(buffer, currentIndex);
+        short fRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setFRadius(fRadius);
 
-        short gRadius = readShort(buffer, currentIndex);
+        short gRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setGRadius(gridStyle);
 
-        short kRadius = readShort(buffer, currentIndex);
+        short kRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setKRadius(kRadius);
 
-        short mRadius = readShort(buffer, currentIndex);
+        short mRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setMRadius(mRadius);
 
-        short xRadius = readShort(buffer, currentIndex);
+        short xRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setXRadius(xRadius);
 
-        short dwarfRadius = readShort(buffer, currentIndex);
+        short dwarfRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setDwarfRadius(dwarfRadius);
 
-        short giantRadius = readShort(buffer, currentIndex);
+        short giantRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setGiantRadius(giantRadius);
 
-        short superGiantRadius = readShort(buffer, currentIndex);
+        short superGiantRadius = readShort(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setSuperGiantRadius(superGiantRadius);
 
-        StringResult centreOrds1 = readString(buffer, currentIndex);
-        currentIndex += centreOrds1.getIndexAdd();
-        StringResult centreOrds2 = readString(buffer, currentIndex);
-        currentIndex += centreOrds2.getIndexAdd();
-        StringResult centreOrds3 = readString(buffer, currentIndex);
-        currentIndex += centreOrds3.getIndexAdd();
-        CHViewPreferences.setCentreOrdinate(centreOrds1.getValue(), centreOrds2.getValue(), centreOrds3.getValue());
+        String centreOrds1 = readString();
+        String centreOrds2 = readString();
+        String centreOrds3 = readString();
+        CHViewPreferences.setCentreOrdinate(centreOrds1, centreOrds2, centreOrds3);
 
-        StringResult theta = readString(buffer, currentIndex);
-        currentIndex += theta.getIndexAdd();
-        CHViewPreferences.setTheta(Double.parseDouble(theta.getValue()));
+        String theta = readString();
+        CHViewPreferences.setTheta(Double.parseDouble(theta));
 
-        StringResult phi = readString(buffer, currentIndex);
-        currentIndex += phi.getIndexAdd();
-        CHViewPreferences.setPhi(Double.parseDouble(phi.getValue()));
+        String phi = readString();
+        CHViewPreferences.setPhi(Double.parseDouble(phi));
 
-        StringResult rho = readString(buffer, currentIndex);
-        currentIndex += rho.getIndexAdd();
-        CHViewPreferences.setRho(Double.parseDouble(rho.getValue()));
+        String rho = readString();
+        CHViewPreferences.setRho(Double.parseDouble(rho));
 
-        StringResult tScale = readString(buffer, currentIndex);
-        currentIndex += tScale.getIndexAdd();
-        CHViewPreferences.setTScale(Double.parseDouble(tScale.getValue()));
+        String tScale = readString();
+        CHViewPreferences.setTScale(Double.parseDouble(tScale));
 
-        StringResult pScale = readString(buffer, currentIndex);
-        currentIndex += pScale.getIndexAdd();
-        CHViewPreferences.setPScale(Double.parseDouble(pScale.getValue()));
+        String pScale = readString();
+        CHViewPreferences.setPScale(Double.parseDouble(pScale));
 
-        StringResult rScale = readString(buffer, currentIndex);
-        currentIndex += rScale.getIndexAdd();
-        CHViewPreferences.setTheta(Double.parseDouble(theta.getValue()));
+        String rScale = readString();
+        CHViewPreferences.setTheta(Double.parseDouble(theta));
 
-        StringResult xScale = readString(buffer, currentIndex);
-        currentIndex += xScale.getIndexAdd();
-        CHViewPreferences.setTheta(Double.parseDouble(theta.getValue()));
+        String xScale = readString();
+        CHViewPreferences.setTheta(Double.parseDouble(theta));
 
-        StringResult yScale = readString(buffer, currentIndex);
-        currentIndex += yScale.getIndexAdd();
-        CHViewPreferences.setTheta(Double.parseDouble(theta.getValue()));
+        String yScale = readString();
+        CHViewPreferences.setTheta(Double.parseDouble(theta));
 
-        StringResult group1 = readString(buffer, currentIndex);
-        currentIndex += group1.getIndexAdd();
-        StringResult group2 = readString(buffer, currentIndex);
-        currentIndex += group2.getIndexAdd();
-        StringResult group3 = readString(buffer, currentIndex);
-        currentIndex += group3.getIndexAdd();
-        StringResult group4 = readString(buffer, currentIndex);
-        currentIndex += group4.getIndexAdd();
-        CHViewPreferences.setNamesOfGroups(group1.getValue(), group2.getValue(), group3.getValue(), group4.getValue());
+        String group1 = readString();
+        String group2 = readString();
+        String group3 = readString();
+        String group4 = readString();
+        CHViewPreferences.setNamesOfGroups(group1, group2, group3, group4);
 
-        boolean displayGroup1 = readBoolean(buffer, currentIndex);
+        boolean displayGroup1 = readBoolean(currentIndex);
         currentIndex += 2;
-        boolean displayGroup2 = readBoolean(buffer, currentIndex);
+        boolean displayGroup2 = readBoolean(currentIndex);
         currentIndex += 2;
-        boolean displayGroup3 = readBoolean(buffer, currentIndex);
+        boolean displayGroup3 = readBoolean(currentIndex);
         currentIndex += 2;
-        boolean displayGroup4 = readBoolean(buffer, currentIndex);
+        boolean displayGroup4 = readBoolean(currentIndex);
         currentIndex += 2;
         CHViewPreferences.setDisplayFlagGroupOn(displayGroup1, displayGroup2, displayGroup3, displayGroup4);
 
-        StringResult routeLabel1 = readString(buffer, currentIndex);
-        currentIndex += routeLabel1.getIndexAdd();
-        byte[] routeColor1 = copyBytes(buffer, currentIndex, 3);
+        String routeLabel1 = readString();
+        byte[] routeColor1 = copyBytes(currentIndex, 3);
         currentIndex += 4;
-        short routeStyle1 = readShort(buffer, currentIndex);
+        short routeStyle1 = readShort(currentIndex);
         currentIndex += 2;
-        CHViewPreferences.addRoute(1, routeLabel1.getValue(), routeColor1, routeStyle1);
+        CHViewPreferences.addRoute(1, routeLabel1, routeColor1, routeStyle1);
 
-        StringResult routeLabel2 = readString(buffer, currentIndex);
-        currentIndex += routeLabel2.getIndexAdd();
-        byte[] routeColor2 = copyBytes(buffer, currentIndex, 3);
+        String routeLabel2 = readString();
+        byte[] routeColor2 = copyBytes(currentIndex, 3);
         currentIndex += 4;
-        short routeStyle2 = readShort(buffer, currentIndex);
+        short routeStyle2 = readShort(currentIndex);
         currentIndex += 2;
-        CHViewPreferences.addRoute(2, routeLabel2.getValue(), routeColor2, routeStyle2);
+        CHViewPreferences.addRoute(2, routeLabel2, routeColor2, routeStyle2);
 
-        StringResult routeLabel3 = readString(buffer, currentIndex);
-        currentIndex += routeLabel3.getIndexAdd();
-        byte[] routeColor3 = copyBytes(buffer, currentIndex, 3);
+        String routeLabel3 = readString();
+        byte[] routeColor3 = copyBytes(currentIndex, 3);
         currentIndex += 4;
-        short routeStyle3 = readShort(buffer, currentIndex);
+        short routeStyle3 = readShort(currentIndex);
         currentIndex += 2;
-        CHViewPreferences.addRoute(3, routeLabel3.getValue(), routeColor3, routeStyle3);
+        CHViewPreferences.addRoute(3, routeLabel3, routeColor3, routeStyle3);
 
-        StringResult routeLabel4 = readString(buffer, currentIndex);
-        currentIndex += routeLabel4.getIndexAdd();
-        byte[] routeColor4 = copyBytes(buffer, currentIndex, 3);
+        String routeLabel4 = readString();
+        byte[] routeColor4 = copyBytes(currentIndex, 3);
         currentIndex += 4;
-        short routeStyle4 = readShort(buffer, currentIndex);
+        short routeStyle4 = readShort(currentIndex);
         currentIndex += 2;
-        CHViewPreferences.addRoute(4, routeLabel4.getValue(), routeColor4, routeStyle4);
+        CHViewPreferences.addRoute(4, routeLabel4, routeColor4, routeStyle4);
 
         currentIndex += 50;
 
@@ -459,18 +504,15 @@ public class ChviewReader {
 
         currentIndex += 50;
 
-        StringResult galCoordinatesx = readString(buffer, currentIndex);
-        currentIndex += galCoordinatesx.getIndexAdd();
+        String galCoordinatesx = readString();
 
-        StringResult galCoordinatesy = readString(buffer, currentIndex);
-        currentIndex += galCoordinatesy.getIndexAdd();
+        String galCoordinatesy = readString();
 
-        StringResult galCoordinatesz = readString(buffer, currentIndex);
-        currentIndex += galCoordinatesz.getIndexAdd();
+        String galCoordinatesz = readString();
         CHViewPreferences.setGalCoordinates(
-                galCoordinatesx.getValue(),
-                galCoordinatesy.getValue(),
-                galCoordinatesz.getValue()
+                galCoordinatesx,
+                galCoordinatesy,
+                galCoordinatesz
         );
 
         return CHViewPreferences;
@@ -479,28 +521,23 @@ public class ChviewReader {
     /**
      * copy an array of byte form a start point
      *
-     * @param buffer the buffer
      * @param index  the start
      * @param length the length
      * @return the byte array
      */
-    private byte @NotNull [] copyBytes(byte[] buffer, int index, int length) {
+    private byte @NotNull [] copyBytes(int index, int length) {
         byte[] byteArray = new byte[length];
-        for (int i = 0; i < length; ++i) {
-            int position = index + i;
-            byteArray[i] = buffer[position];
-        }
+        buffer.get(index, byteArray);
         return byteArray;
     }
 
     /**
-     * parse a single ChView star record
+     * parse a single ChView star record at the current index
      *
-     * @param buffer          the file content
-     * @param progressUpdater
+     * @param progressUpdater the updater
      * @return the parsed record
      */
-    private @Nullable ChViewRecord parseRecord(byte[] buffer, int index, @NotNull ProgressUpdater progressUpdater) {
+    private @Nullable ChViewRecord parseRecord(@NotNull ProgressUpdater progressUpdater) {
 
         ChViewRecord chViewRecord = new ChViewRecord();
 
@@ -525,90 +562,68 @@ public class ChviewReader {
             // there is only a star name.
             // Damn, who programs like this??
 
-            PseudoString string1 = findString(buffer, currentIndex);
-            currentIndex += string1.getLength();
+            String string1 = findString();
+            boolean string1IsName = lastWasName;
 
-            PseudoString string2 = findString(buffer, currentIndex);
-            currentIndex += string2.getLength();
+            String string2 = findString();
+            boolean string2IsName = lastWasName;
 
-            if (string1.isName() && string2.isName()) {
+            if (string1IsName && string2IsName) {
                 // found place name and star name
-                chViewRecord.setProperPlaceName(string1.getValue());
-                chViewRecord.setStarName(string2.getValue());
+                chViewRecord.setProperPlaceName(string1);
+                chViewRecord.setStarName(string2);
 
                 // now parse for the distance to earth value
-                PseudoString dToEarth = readStarParameter(buffer, currentIndex);
-                currentIndex += dToEarth.getLength();
-                chViewRecord.setDistanceToEarth(dToEarth.getValue());
+                chViewRecord.setDistanceToEarth(readStarParameter());
 
             } else {
                 // this is the only other valid case or we really screwed up the pointers
-                if (!string2.isName()) {
-                    chViewRecord.setStarName(string1.getValue());
-                    chViewRecord.setDistanceToEarth(string2.getValue());
+                if (!string2IsName) {
+                    chViewRecord.setStarName(string1);
+                    chViewRecord.setDistanceToEarth(string2);
                 } else {
                     throw new IllegalArgumentException("File parsing is really screwed");
                 }
             }
 
-            PseudoString spectra = readStarParameter(buffer, currentIndex);
-            currentIndex += spectra.getLength();
-            chViewRecord.setSpectra(spectra.getValue());
+            String spectra = readStarParameter();
+            chViewRecord.setSpectra(spectra);
 
-            PseudoString mass = readStarParameter(buffer, currentIndex);
-            currentIndex += mass.getLength();
-            chViewRecord.setCollapsedMass(Double.parseDouble(mass.getValue()));
+            chViewRecord.setCollapsedMass(Double.parseDouble(readStarParameter()));
+            chViewRecord.setUncollapsedMass(Double.parseDouble(readStarParameter()));
 
-            PseudoString actualMass = readStarParameter(buffer, currentIndex);
-            currentIndex += actualMass.getLength();
-            chViewRecord.setUncollapsedMass(Double.parseDouble(actualMass.getValue()));
+            double ords1 = Double.parseDouble(readStarParameter());
+            double ords2 = Double.parseDouble(readStarParameter());
+            double ords3 = Double.parseDouble(readStarParameter());
+            chViewRecord.setOrdinates(ords1, ords2, ords3);
 
-            PseudoString ords1 = readStarParameter(buffer, currentIndex);
-            currentIndex += ords1.getLength();
+            chViewRecord.setConstellation(readStarParameter());
+            chViewRecord.setComment(readStarParameter());
 
-            PseudoString ords2 = readStarParameter(buffer, currentIndex);
-            currentIndex += ords2.getLength();
-
-            PseudoString ords3 = readStarParameter(buffer, currentIndex);
-            currentIndex += ords3.getLength();
-            chViewRecord.setOrdinates(
-                    Double.parseDouble(ords1.getValue()),
-                    Double.parseDouble(ords2.getValue()),
-                    Double.parseDouble(ords3.getValue())
-            );
-
-            PseudoString constellation = readStarParameter(buffer, currentIndex);
-            currentIndex += constellation.getLength();
-            chViewRecord.setConstellation(constellation.getValue());
-
-            PseudoString comment = readStarParameter(buffer, currentIndex);
-            currentIndex += comment.getLength();
-            chViewRecord.setComment(comment.getValue());
-
-            boolean selected = readBoolean(buffer, currentIndex);
+            boolean selected = readBoolean(currentIndex);
             currentIndex += 2;
             chViewRecord.setSelected(selected);
 
-            short indexInFile = readShort(buffer, currentIndex);
+            short indexInFile = readShort(currentIndex);
             currentIndex += 2;
             chViewRecord.setIndex(indexInFile);
 
-            short group = readShort(buffer, currentIndex);
+            short group = readShort(currentIndex);
 
             currentIndex += 2;
             chViewRecord.setGroupNumber(group);
 
-            if (buffer[currentIndex] != 0) {
+            if (buffer.get(currentIndex) != 0) {
                 currentIndex++;
                 log.debug(chViewRecord.toString());
-                chViewRecord.setSubsidiaryStar(parseRecord(buffer, currentIndex, progressUpdater));
+                chViewRecord.setSubsidiaryStar(parseRecord(progressUpdater));
             }
 
             // get the stellar class
-            String stellarClass = spectra.getValue().substring(0, 1);
+            String stellarClass = spectra.substring(0, 1);
             if (stellarClass.equals("\"")) {
-                if (spectra.getValue().length()>=2) {
-                    stellarClass=  spectra.getValue().substring(1, 2);
+                if (spectra.length() >= 2) {
+                    stellarClass = spectra.substring(1, 2);
                 }
             }
 
@@ -632,10 +647,6 @@ public class ChviewReader {
                 chViewRecord.setOrthoSpectra("DC");
             }
 
-            if (stellarClass.equals("F")) {
-                log.info("found F");
-            }
-
             if (stellarClass.equals("?")) {
                 // these are not defined in standard spectral classification so force them to be M class.
                 chViewRecord.setOrthoSpectra("Unk");
@@ -675,54 +686,56 @@ public class ChviewReader {
     }
 
     private @NotNull Color getColor(@NotNull StarColor starColor) {
-        String[] colorRGB = starColor.color().split(",");
-        return Color.rgb(
-                Integer.parseInt(colorRGB[0]),
-                Integer.parseInt(colorRGB[1]),
-                Integer.parseInt(colorRGB[2])
-        );
+        return starColors.computeIfAbsent(starColor, color -> {
+            String[] colorRGB = color.color().split(",");
+            return Color.rgb(
+                    Integer.parseInt(colorRGB[0]),
+                    Integer.parseInt(colorRGB[1]),
+                    Integer.parseInt(colorRGB[2])
+            );
+        });
     }
 
-    private @NotNull PseudoString readStarParameter(byte[] buffer, int index) {
-        // initialization
-        PseudoString pseudoString = new PseudoString();
-        int i = index;
-        int lengthDiscovered = 0;
+    /**
+     * read a star parameter at the current index and move past it
+     *
+     * @return the value, lastWasName says whether it was a name or a number
+     */
+    private @NotNull String readStarParameter() {
+        int i = currentIndex;
+        int lengthDiscovered;
         int paddingCounter = 0;
 
         // handle the condition where the length is > 255
-        if (buffer[i] != 0xFF) {
+        if (buffer.get(i) != 0xFF) {
             // simple length
-            lengthDiscovered = buffer[i];
+            lengthDiscovered = buffer.get(i);
             i++;  // move pointer to just past length
             paddingCounter++;
         } else {
             // complex length
             i++; // skip past special length marker
-            lengthDiscovered = readShort(buffer, i);
+            lengthDiscovered = readShort(i);
             paddingCounter += 3;
             i += 2;
         }
 
-        if (buffer[i] == 0) {
+        String value;
+        if (buffer.get(i) == 0) {
             // this is a name
             i++;
-            StringBuilder name = readString(buffer, i, lengthDiscovered);
-            pseudoString.setName(true);
-            pseudoString.setValue(name.toString());
+            value = readChars(i, lengthDiscovered);
+            lastWasName = true;
             paddingCounter++;
         } else {
             // this is a number (double/float, whatever)
-            pseudoString.setName(false);
-            StringBuilder name = readString(buffer, i, lengthDiscovered);
-            pseudoString.setValue(name.toString());
+            value = readChars(i, lengthDiscovered);
+            lastWasName = false;
         }
 
-        // now set the actual length traversed
-        lengthDiscovered += paddingCounter;
-        pseudoString.setLength(lengthDiscovered);
-        return pseudoString;
-
+        // now move past the actual length traversed
+        currentIndex += lengthDiscovered + paddingCounter;
+        return value;
     }
 
     /**
@@ -733,57 +746,51 @@ public class ChviewReader {
      * <p>
      * We use it to help find the start of a star record
      *
-     * @param buffer the buffer to read
-     * @param index  the point to start from
-     * @return the result of what was found
+     * @return the value, lastWasName says whether it was a name or a number
      */
-    private @NotNull PseudoString findString(byte[] buffer, int index) {
-        // initialization
-        PseudoString pseudoString = new PseudoString();
-        int i = index;
-        int lengthDiscovered = 0;
+    private @NotNull String findString() {
+        int i = currentIndex;
+        int lengthDiscovered;
         int paddingCounter = 0;
 
         // scan for first non zero
-        int j = scanNonZero(buffer, i);
+        int j = scanNonZero(i);
         paddingCounter += Math.abs(j - i);
         i = j;
 
         // handle the condition where the length is > 255
-        if (buffer[i] != 0xFF) {
+        if (buffer.get(i) != 0xFF) {
             // simple length
-            lengthDiscovered = buffer[i];
+            lengthDiscovered = buffer.get(i);
             i++;  // move pointer to just past length
             paddingCounter++;
         } else {
             // complex length
             i++; // skip past special length marker
-            lengthDiscovered = readShort(buffer, i);
+            lengthDiscovered = readShort(i);
             paddingCounter += 3;
             i += 2;
         }
 
-        if (buffer[i] == 0) {
+        String value;
+        if (buffer.get(i) == 0) {
             // this is a name
             i++;
-            StringBuilder name = readString(buffer, i, lengthDiscovered);
-            pseudoString.setName(true);
-            pseudoString.setValue(name.toString());
+            value = readChars(i, lengthDiscovered);
+            lastWasName = true;
             paddingCounter++;
         } else {
             // this is a number (double/float, whatever)
-            int k = scanNonZero(buffer, i);
-            pseudoString.setName(false);
+            int k = scanNonZero(i);
+            lastWasName = false;
             paddingCounter += Math.abs(k - i);
             i = k;
-            StringBuilder name = readString(buffer, i, lengthDiscovered);
-            pseudoString.setValue(name.toString());
+            value = readChars(i, lengthDiscovered);
         }
 
-        // now set the actual length traversed
-        lengthDiscovered += paddingCounter;
-        pseudoString.setLength(lengthDiscovered);
-        return pseudoString;
+        // now move past the actual length traversed
+        currentIndex += lengthDiscovered + paddingCounter;
+        return value;
     }
 
 
@@ -792,12 +799,11 @@ public class ChviewReader {
     /**
      * scan for non zero elements
      *
-     * @param buffer the buffer to read
-     * @param i      the beginning point
-     * @return a description of what was read
+     * @param i the beginning point
+     * @return the index of the first non zero byte
      */
-    private int scanNonZero(byte[] buffer, int i) {
-        while (buffer[i] == 0) {
+    private int scanNonZero(int i) {
+        while (buffer.get(i) == 0) {
             i++;
         }
         return i;
@@ -806,103 +812,102 @@ public class ChviewReader {
     /**
      * read a short from the buffer
      *
-     * @param buffer the buffer
-     * @param index  the index
+     * @param index the index
      * @return the short value
      */
-    private short readShort(byte[] buffer, int index) {
-        return EndianUtils.readSwappedShort(buffer, index);
+    private short readShort(int index) {
+        return buffer.getShort(index);
     }
 
     /**
-     * read a boolean from the array
+     * read a boolean from the buffer
      *
-     * @param buffer the buffer
-     * @param index  the index point
+     * @param index the index point
      * @return a boolean
      */
-    private boolean readBoolean(byte[] buffer, int index) {
-        int value = EndianUtils.readSwappedShort(buffer, index);
-        return value != 0;
+    private boolean readBoolean(int index) {
+        return buffer.getShort(index) != 0;
     }
 
     /**
      * read an int from buffer
      *
-     * @param buffer the buffer
-     * @param index  the index
+     * @param index the index
      * @return the int value
      */
-    private int readInt(byte[] buffer, int index) {
-        return EndianUtils.readSwappedInteger(buffer, index);
+    private int readInt(int index) {
+        return buffer.getInt(index);
     }
 
     /**
-     * Read a String from the buffer
+     * Read a String at the current index and move past it
      * <p>
      * Strings: are saved a a 1 byte length determinator followed by that many bytes of data. This does not
      * include the null terminator. If the string is longer that 254 then a byte containing FF is stored with
      * two bytes following containing the actual length.
      *
-     * @param buffer the buffer to read from
-     * @param index  the index from which to read
      * @return the string
      */
-    private @NotNull StringResult readString(byte[] buffer, int index) {
-
-        StringResult result = new StringResult();
-        StringBuilder stringBuilder = new StringBuilder();
-
-        short length = getStringLength(buffer, index);
+    private @NotNull String readString() {
+        int index = currentIndex;
+        short length = getStringLength(index);
 
         if (length < 255) {
-            int skipCount = skipWeirdEmpties(buffer, index + 1);
-            stringBuilder.append(readString(buffer, index + 1 + skipCount, length));
-            result.setIndexAdd(length + 1 + skipCount);
+            int skipCount = skipWeirdEmpties(index + 1);
+            currentIndex += length + 1 + skipCount;
+            return readChars(index + 1 + skipCount, length);
         } else {
             // recalculate length from following bytes
-            length = readShort(buffer, index + 1);
-            int skipCount = skipWeirdEmpties(buffer, index + 3);
-            stringBuilder.append(readString(buffer, index + 3 + skipCount, length));
-            result.setIndexAdd(length + 3 + skipCount);
+            length = readShort(index + 1);
+            int skipCount = skipWeirdEmpties(index + 3);
+            currentIndex += length + 3 + skipCount;
+            return readChars(index + 3 + skipCount, length);
         }
-
-        result.setLength(length);
-        result.setValue(stringBuilder.toString());
-
-        return result;
     }
 
-    private int skipWeirdEmpties(byte[] buffer, int i) {
+    private int skipWeirdEmpties(int i) {
         int skipCount = 0;
-        while (buffer[i + skipCount] == 0) {
+        while (buffer.get(i + skipCount) == 0) {
             skipCount++;
         }
         return skipCount;
     }
 
-    private short getStringLength(byte[] buffer, int index) {
-        short value = buffer[index];
+    private short getStringLength(int index) {
+        short value = buffer.get(index);
         if (value != 0xff) {
             // length is in 1 byte
             return value;
         } else {
             // length is longer than one byte
-            return readShort(buffer, index + 1);
+            return readShort(index + 1);
         }
     }
 
-    private @NotNull StringBuilder readString(byte[] buffer, int index, int length) {
-        StringBuilder stringBuilder = new StringBuilder();
+    /**
+     * decode ASCII bytes straight from the buffer
+     *
+     * @param index  the first byte
+     * @param length the number of bytes
+     * @return the string
+     */
+    private @NotNull String readChars(int index, int length) {
+        if (length <= 0) {
+            return "";
+        }
+        if (chars.length < length) {
+            chars = new char[length];
+        }
         for (int i = 0; i < length; ++i) {
-            if (buffer[index + i] < 0) {
+            byte value = buffer.get(index + i);
+            if (value < 0) {
                 log.error("Bad ASCII character at index=" + index + i);
                 // I threw this error as a help to parsing so I would know why the parser failed
                 throw new IllegalArgumentException();
             }
-            stringBuilder.append((char) buffer[index + i]);
+            chars[i] = (char) value;
         }
-        return stringBuilder;
+        return new String(chars, 0, length);
     }
 
 
@@ -0,0 +1,278 @@
+package com.teamgannon.trips.file.csvin;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * one record of a CSV file
+ * <p>
+ * the field values sit in a char buffer with the quotes already taken out and each field is a pair of
+ * offsets into it, so nothing is allocated per field unless a caller asks for a String. Numbers are parsed
+ * straight from the buffer.
+ */
+public class CsvRecord {
+
+    /**
+     * powers of ten that a double holds exactly, for the fast number path
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private char[] chars;
+    private int length = 0;
+
+    private int[] fieldStart;
+    private int[] fieldEnd;
+    private int fieldCount = 0;
+
+    /**
+     * the record number in the file, starting at 1
+     */
+    private long recordNumber = 0;
+
+    CsvRecord() {
+        this(1024, 64);
+    }
+
+    private CsvRecord(int charCapacity, int fieldCapacity) {
+        this.chars = new char[Math.max(charCapacity, 1)];
+        this.fieldStart = new int[Math.max(fieldCapacity, 1)];
+        this.fieldEnd = new int[Math.max(fieldCapacity, 1)];
+    }
+
+    /**
+     * make a compact copy that does not share the buffer, for handing to another thread
+     *
+     * @return the copy
+     */
+    public @NotNull CsvRecord copy() {
+        CsvRecord copy = new CsvRecord(length, fieldCount);
+        System.arraycopy(chars, 0, copy.chars, 0, length);
+        System.arraycopy(fieldStart, 0, copy.fieldStart, 0, fieldCount);
+        System.arraycopy(fieldEnd, 0, copy.fieldEnd, 0, fieldCount);
+        copy.length = length;
+        copy.fieldCount = fieldCount;
+        copy.recordNumber = recordNumber;
+        return copy;
+    }
+
+    /**
+     * @return the number of fields in the record
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return the record number in the file, starting at 1
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * @return true if the record is an empty line
+     */
+    public boolean isBlankRecord() {
+        return fieldCount == 1 && isBlank(0);
+    }
+
+    /**
+     * @param field the field index
+     * @return true if the field is missing or only whitespace
+     */
+    public boolean isBlank(int field) {
+        if (field >= fieldCount) {
+            return true;
+        }
+        return trimmedStart(field) >= trimmedEnd(field);
+    }
+
+    /**
+     * get a field as a trimmed String
+     *
+     * @param field        the field index
+     * @param defaultValue what to return when the field is blank
+     * @return the value, an empty string if the record does not have this field
+     */
+    public @NotNull String getString(int field, @NotNull String defaultValue) {
+        if (field >= fieldCount) {
+            return "";
+        }
+        int start = trimmedStart(field);
+        int end = trimmedEnd(field);
+        return start >= end ? defaultValue : new String(chars, start, end - start);
+    }
+
+    /**
+     * get a field as a double
+     *
+     * @param field the field index
+     * @return the value, 0 if the field is missing, blank or not a number
+     */
+    public double getDouble(int field) {
+        if (field >= fieldCount) {
+            return 0;
+        }
+        int start = trimmedStart(field);
+        int end = trimmedEnd(field);
+        if (start >= end) {
+            return 0;
+        }
+        return parseDouble(chars, start, end);
+    }
+
+    /**
+     * get a field as a boolean, only "true" in any case is true
+     *
+     * @param field        the field index
+     * @param defaultValue what to return when the field is blank
+     * @return the value, false if the record does not have this field
+     */
+    public boolean getBoolean(int field, boolean defaultValue) {
+        if (field >= fieldCount) {
+            return false;
+        }
+        int start = trimmedStart(field);
+        int end = trimmedEnd(field);
+        if (start >= end) {
+            return defaultValue;
+        }
+        if (end - start != 4) {
+            return false;
+        }
+        return (chars[start] | 0x20) == 't' && (chars[start + 1] | 0x20) == 'r'
+                && (chars[start + 2] | 0x20) == 'u' && (chars[start + 3] | 0x20) == 'e';
+    }
+
+    /**
+     * @return every field of the record as an untrimmed String
+     */
+    public String @NotNull [] toArray() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = new String(chars, fieldStart[i], fieldEnd[i] - fieldStart[i]);
+        }
+        return fields;
+    }
+
+    /**
+     * parse a double from part of a char array
+     * <p>
+     * plain decimals with up to 15 significant digits, which is most of what we see, are done exactly with
+     * one multiply or divide by a power of ten. Anything else goes through Double.parseDouble.
+     *
+     * @param chars the characters
+     * @param start the first character
+     * @param end   one past the last character
+     * @return the value, 0 if it is not a number
+     */
+    static double parseDouble(char @NotNull [] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    // leading zeros are not significant
+                    if (seenPoint) {
+                        scale++;
+                    }
+                    continue;
+                }
+                if (++digits > 15) {
+                    return parseSlow(chars, start, end);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenPoint) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                // exponents, NaN, Infinity and anything odd
+                return parseSlow(chars, start, end);
+            }
+        }
+        if (!seenDigit) {
+            return 0;
+        }
+        if (scale >= POWERS_OF_TEN.length) {
+            return parseSlow(chars, start, end);
+        }
+        double value = (double) mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private static double parseSlow(char @NotNull [] chars, int start, int end) {
+        try {
+            return Double.parseDouble(new String(chars, start, end - start));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private int trimmedStart(int field) {
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimmedEnd(int field) {
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    ///////////////  filled in by the tokenizer  ///////////////
+
+    void reset() {
+        length = 0;
+        fieldCount = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    void setRecordNumber(long recordNumber) {
+        this.recordNumber = recordNumber;
+    }
+
+    void append(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+        chars[length++] = c;
+    }
+
+    void addField(int start, int end) {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+            fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = end;
+        fieldCount++;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.teamgannon.trips.file.csvin;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * a single pass, quote aware CSV tokenizer
+ * <p>
+ * each record is read into a reusable CsvRecord, copy it if it has to outlive the next call to nextRecord.
+ * Quoted fields follow RFC 4180: a quote only opens a field as its first character, the quotes are dropped, a
+ * doubled quote is a literal quote and commas and line breaks inside the quotes belong to the field. A quote
+ * anywhere else in an unquoted field is kept as it is. The exports put a space after each comma, so blanks
+ * ahead of the opening quote are allowed, they go when the field is trimmed.
+ */
+public class CsvTokenizer {
+
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final Reader reader;
+
+    /**
+     * the raw characters read from the file
+     */
+    private final char[] input = new char[READ_SIZE];
+    private int inputPosition = 0;
+    private int inputLimit = 0;
+
+    /**
+     * the current record, reused for every record
+     */
+    private final CsvRecord record = new CsvRecord();
+
+    private long recordNumber = 0;
+
+    public CsvTokenizer(@NotNull Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * read the next record
+     *
+     * @return false at the end of the file
+     * @throws IOException if the read fails
+     */
+    public boolean nextRecord() throws IOException {
+        record.reset();
+
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+
+        boolean inQuotes = false;
+        // nothing but blanks in the current field so far, so a quote still opens it
+        boolean fieldOpen = true;
+        int start = 0;
+        while (true) {
+            if (inQuotes) {
+                if (c < 0) {
+                    // an unterminated quote runs to the end of the file
+                    break;
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        record.append('"');
+                    } else {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    record.append((char) c);
+                }
+            } else {
+                if (c < 0 || c == '\n') {
+                    break;
+                }
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n' && next >= 0) {
+                        inputPosition--;
+                    }
+                    break;
+                }
+                if (c == ',') {
+                    record.addField(start, record.length());
+                    start = record.length();
+                    fieldOpen = true;
+                } else if (c == '"' && fieldOpen) {
+                    inQuotes = true;
+                    fieldOpen = false;
+                } else {
+                    record.append((char) c);
+                    if (c != ' ' && c != '\t') {
+                        fieldOpen = false;
+                    }
+                }
+            }
+            c = read();
+        }
+        record.addField(start, record.length());
+        record.setRecordNumber(++recordNumber);
+        return true;
+    }
+
+    /**
+     * @return the current record, only valid until the next call to nextRecord
+     */
+    public @NotNull CsvRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * @return how many records have been read
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    private int read() throws IOException {
+        if (inputPosition >= inputLimit) {
+            inputLimit = reader.read(input, 0, input.length);
+            inputPosition = 0;
+            if (inputLimit <= 0) {
+                inputLimit = 0;
+                return -1;
+            }
+        }
+        return input[inputPosition++];
+    }
+
+}
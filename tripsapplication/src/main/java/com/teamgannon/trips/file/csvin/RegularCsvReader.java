@@ -1,10 +1,12 @@
 package com.teamgannon.trips.file.csvin;
 
 import com.teamgannon.trips.dialogs.dataset.Dataset;
-import com.teamgannon.trips.file.csvin.model.AstroCSVStar;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipeline;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipelineSettings;
+import com.teamgannon.trips.service.importservices.pipeline.ImportStatistics;
 import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
@@ -16,10 +18,8 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.time.Instant;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.UUID;
-import java.util.stream.IntStream;
+import java.util.function.BooleanSupplier;
 
 @Slf4j
 @Component
@@ -31,27 +31,42 @@ public class RegularCsvReader {
         this.databaseManagementService = databaseManagementService;
     }
 
-    public @NotNull RegCSVFile loadFile(@NotNull ProgressUpdater progressUpdater, @NotNull File file, @NotNull Dataset dataset) {
+    /**
+     * read a CSV file and save its stars
+     * <p>
+     * the records are read on one thread, parsed on the pipeline's parser threads and saved in batches here
+     *
+     * @param progressUpdater where progress goes
+     * @param file            the file
+     * @param dataset         the dataset the stars go in
+     * @param settings        the import pipeline sizes
+     * @param cancelled       true stops the import, the stars saved so far are left for the caller to discard
+     * @return the result of the read
+     */
+    public @NotNull RegCSVFile loadFile(@NotNull ProgressUpdater progressUpdater,
+                                        @NotNull File file,
+                                        @NotNull Dataset dataset,
+                                        @NotNull ImportPipelineSettings settings,
+                                        @NotNull BooleanSupplier cancelled) {
         RegCSVFile csvFile = new RegCSVFile();
         csvFile.setDataset(dataset);
         dataset.setFileSelected(file.getAbsolutePath());
 
-        long totalCount = 0;
-        boolean readComplete = false;
-        double maxDistance = 0.0;
-
-        try {
-            BufferedReader reader = new BufferedReader(new FileReader(file));
+        double[] maxDistance = {0.0};
 
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             // read descriptor
             // read first to determine whether this file follows the backup protocol or not.
             // backup protocol means that the two lines hold the dataset descriptor
             // if the first header starts with dataSetName, then backup, if it start with id, then its a fresh load
             // if it start with anythign else then it's malformed
             String backup = reader.readLine();
+            if (backup == null) {
+                throw new IOException("file is empty");
+            }
             String[] indicator = backup.split(",");
             if (indicator[0].trim().equals("dataSetName")) {
-                // this is a dataset
+                // this is a dataset, its theme and routes are JSON so the line is split as is without quote handling
                 String readLine = reader.readLine();
                 String[] descriptor = readLine.split(",");
                 csvFile.setDataSetDescriptor(transformDescriptor(dataset, descriptor));
@@ -62,122 +77,42 @@ public class RegularCsvReader {
             // read stars
             // skip header
             reader.readLine();
-
-            do {
-                Set<StarObject> starSet = new HashSet<>();
-                int loopCounter = 0;
-                for (int i = 0; i < 20000; i++) {
-
-                    String line = reader.readLine();
-
-                    if (line == null) {
-                        log.error(">>> Null line encountered at line={}", totalCount);
-                        readComplete = true;
-                        break;
-                    }
-
-                    String[] splitLine = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-                    String[] lineRead = linePad(splitLine, splitLine.length);
-                    loopCounter++;
-                    AstroCSVStar star = AstroCSVStar
-                            .builder()
-                            // skip id lineRead[0]
-                            // read dataset name
-                            .datasetName(dataset.getName())
-                            .displayName(testForNull(lineRead, 2, ""))
-                            .commonName(testForNull(lineRead, 3, ""))
-                            .simbadId(testForNull(lineRead, 4, ""))
-                            .gaiaId(testForNull(lineRead, 5, ""))
-                            .constellationName(testForNull(lineRead, 6, ""))
-                            .mass(testForNull(lineRead, 7, "0"))
-                            .age(testForNull(lineRead, 8, "0"))
-                            .metallicity(testForNull(lineRead, 9, "0"))
-                            .source(testForNull(lineRead, 10, ""))
-                            .catalogIdList(testForNull(lineRead, 11, ""))
-                            .x(testForNull(lineRead, 12, "0"))
-                            .y(testForNull(lineRead, 13, "0"))
-                            .z(testForNull(lineRead, 14, "0"))
-                            .radius(testForNull(lineRead, 15, "0"))
-                            .ra(testForNull(lineRead, 16, "0"))
-                            .pmra(testForNull(lineRead, 17, "0"))
-                            .declination(testForNull(lineRead, 18, "0"))
-                            .pmdec(testForNull(lineRead, 19, "0"))
-                            .parallax(testForNull(lineRead, 20, "0"))
-                            .distance(testForNull(lineRead, 21, "0"))
-                            .radialVelocity(testForNull(lineRead, 22, ""))
-                            .spectralClass(testForNull(lineRead, 23, ""))
-                            .orthoSpectralClass(testForNull(lineRead, 24, ""))
-                            .temperature(testForNull(lineRead, 25, "0"))
-                            .realStar(testForNull(lineRead, 26, "true"))
-                            .bprp(testForNull(lineRead, 27, "0"))
-                            .bpg(testForNull(lineRead, 28, "0"))
-                            .grp(testForNull(lineRead, 29, "0"))
-                            .luminosity(testForNull(lineRead, 30, ""))
-                            .magu(testForNull(lineRead, 31, "0"))
-                            .magb(testForNull(lineRead, 32, "0"))
-                            .magv(testForNull(lineRead, 33, "0"))
-                            .magr(testForNull(lineRead, 34, "0"))
-                            .magi(testForNull(lineRead, 35, "0"))
-                            .other(testForNull(lineRead, 36, "false"))
-                            .anomaly(testForNull(lineRead, 37, "false"))
-                            .polity(testForNull(lineRead, 38, "NA"))
-                            .worldType(testForNull(lineRead, 39, "NA"))
-                            .fuelType(testForNull(lineRead, 40, "NA"))
-                            .portType(testForNull(lineRead, 41, "NA"))
-                            .populationType(testForNull(lineRead, 42, "NA"))
-                            .techType(testForNull(lineRead, 43, "NA"))
-                            .productType(testForNull(lineRead, 44, "NA"))
-                            .milSpaceType(testForNull(lineRead, 45, "NA"))
-                            .milPlanType(testForNull(lineRead, 46, "NA"))
-                            .miscText1(testForNull(lineRead, 47, ""))
-                            .miscText2(testForNull(lineRead, 48, ""))
-                            .miscText3(testForNull(lineRead, 49, ""))
-                            .miscText4(testForNull(lineRead, 50, ""))
-                            .miscText5(testForNull(lineRead, 51, ""))
-                            .miscNum1(parseDouble(testForNull(lineRead, 52, "0")))
-                            .miscNum2(parseDouble(testForNull(lineRead, 53, "0")))
-                            .miscNum3(parseDouble(testForNull(lineRead, 54, "0")))
-                            .miscNum4(parseDouble(testForNull(lineRead, 55, "0")))
-                            .miscNum5(parseDouble(testForNull(lineRead, 56, "0")))
-                            .notes(testForNull(lineRead, 57, "none"))
-                            .galacticLattitude(testForNull(lineRead, 58, "0"))
-                            .galacticLongitude(testForNull(lineRead, 59, "0"))
-                            .build();
-                    try {
-                        double distance = Double.parseDouble(star.getDistance());
-                        if (distance > maxDistance) {
-                            maxDistance = distance;
+            CsvTokenizer tokenizer = new CsvTokenizer(reader);
+
+            ImportPipeline<CsvRecord> pipeline = new ImportPipeline<>("csv", settings, progressUpdater, cancelled, false);
+            ImportStatistics statistics = pipeline.run(
+                    () -> {
+                        while (tokenizer.nextRecord()) {
+                            if (!tokenizer.getRecord().isBlankRecord()) {
+                                // the parsers work on it on other threads so it cannot share the buffer
+                                return tokenizer.getRecord().copy();
+                            }
                         }
-                    } catch (NumberFormatException nfe) {
-                        log.error("Error getting distance for {}, coordinates are ({},{},{})", star.getDisplayName(), star.getX(), star.getY(), star.getZ());
-                    }
-                    try {
-                        StarObject starObject = star.toStarObject();
-                        if (starObject != null) {
-                            starObject.setDataSetName(dataset.getName());
-                            starSet.add(starObject);
-                            csvFile.incAccepts();
-                        } else {
-                            csvFile.incRejects();
+                        return null;
+                    },
+                    record -> toStarObject(record, dataset.getName()),
+                    stars -> {
+                        for (StarObject starObject : stars) {
+                            maxDistance[0] = Math.max(maxDistance[0], starObject.getDistance());
                         }
-                        csvFile.incTotal();
-                    } catch (Exception e) {
-                        log.error("failed to parse star:{}, because of {}", star, e.getMessage());
-                    }
-                }
-
-                // save all the stars we've read so far
-                databaseManagementService.starBulkSave(starSet);
-                totalCount += loopCounter;
-                progressUpdater.updateTaskInfo(String.format("Saving %d  of total so far = %d", 20000, totalCount));
-                log.info("\n\nsaving {} entries, total count is {}\n\n", loopCounter, totalCount);
-            } while (!readComplete); // the moment readComplete turns true, we stop
+                        databaseManagementService.starBulkSave(stars);
+                    });
+
+            csvFile.setSize(statistics.getRead());
+            csvFile.setNumbAccepts(statistics.getParsed());
+            csvFile.setNumbRejects(statistics.getRejected());
+            if (statistics.isCancelled()) {
+                csvFile.setReadSuccess(false);
+                csvFile.setProcessMessage("load of " + dataset.getName() + " was cancelled");
+                return csvFile;
+            }
 
-            log.info("File load report: total:{}, accepts:{}, rejects:{}", csvFile.getSize(), csvFile.getNumbAccepts(), csvFile.getNumbRejects());
+            log.info("File load report: total:{}, accepts:{}, rejects:{}, {}",
+                    csvFile.getSize(), csvFile.getNumbAccepts(), csvFile.getNumbRejects(), statistics);
             csvFile.setReadSuccess(true);
 
             csvFile.setProcessMessage(String.format("File load report: total:%d, accepts:%d, rejects:%d", csvFile.getSize(), csvFile.getNumbAccepts(), csvFile.getNumbRejects()));
-        } catch (IOException e) {
+        } catch (Exception e) {
             progressUpdater.updateTaskInfo("failed to read file because: " + e.getMessage());
             log.error("failed to read file because: {}", e.getMessage());
             csvFile.setReadSuccess(false);
@@ -185,50 +120,78 @@ public class RegularCsvReader {
         }
 
         if (csvFile.isReadSuccess()) {
-            csvFile.setMaxDistance(maxDistance);
-            csvFile.getDataSetDescriptor().setNumberStars(totalCount);
-            csvFile.getDataSetDescriptor().setDistanceRange(maxDistance);
-            progressUpdater.updateTaskInfo("load of dataset complete with " + totalCount + " stars loaded");
+            csvFile.setMaxDistance(maxDistance[0]);
+            csvFile.getDataSetDescriptor().setNumberStars(csvFile.getNumbAccepts());
+            csvFile.getDataSetDescriptor().setDistanceRange(maxDistance[0]);
+            progressUpdater.updateTaskInfo("load of dataset complete with " + csvFile.getNumbAccepts() + " stars loaded");
         }
 
         return csvFile;
     }
 
-    private String testForNull(String[] lineRead, int i, String optional) {
-        if (i >= lineRead.length) {
-            return "";
-        } else {
-            String value = lineRead[i].trim();
-            return value.isEmpty() ? optional : value;
-        }
-
+    /**
+     * build a star straight from the fields of a record
+     * <p>
+     * the columns are the ones the CSV exporter writes, the id in column 0 and the dataset name in column 1 are
+     * ignored. Blank fields get the same defaults the old AstroCSVStar path gave them.
+     *
+     * @param record      the record
+     * @param dataSetName the dataset the star goes in
+     * @return the star
+     */
+    private @NotNull StarObject toStarObject(@NotNull CsvRecord record, String dataSetName) {
+        StarObject astro = new StarObject();
+        astro.setId(UUID.randomUUID());
+        astro.setDataSetName(dataSetName);
+        astro.setDisplayName(record.getString(2, ""));
+        astro.setCommonName(record.getString(3, ""));
+        astro.setSimbadId(record.getString(4, ""));
+        astro.setGaiaId(record.getString(5, ""));
+        astro.setConstellationName(record.getString(6, ""));
+        astro.setMass(record.getDouble(7));
+        astro.setSource(record.getString(10, ""));
+        astro.setCatalogIdList(record.getString(11, ""));
+        astro.setX(record.getDouble(12));
+        astro.setY(record.getDouble(13));
+        astro.setZ(record.getDouble(14));
+        astro.setRadius(record.getDouble(15));
+        astro.setRa(record.getDouble(16));
+        astro.setPmra(record.getDouble(17));
+        astro.setDeclination(record.getDouble(18));
+        astro.setPmdec(record.getDouble(19));
+        astro.setParallax(record.getDouble(20));
+        astro.setDistance(record.getDouble(21));
+        astro.setRadialVelocity(record.getDouble(22));
+        astro.setSpectralClass(record.getString(23, ""));
+        astro.setOrthoSpectralClass(record.getString(24, ""));
+        astro.setTemperature(record.getDouble(25));
+        astro.setRealStar(record.getBoolean(26, true));
+        astro.setBprp(record.getDouble(27));
+        astro.setPolity(record.getString(38, "NA"));
+        astro.setWorldType(record.getString(39, "NA"));
+        astro.setFuelType(record.getString(40, "NA"));
+        astro.setPortType(record.getString(41, "NA"));
+        astro.setPopulationType(record.getString(42, "NA"));
+        astro.setTechType(record.getString(43, "NA"));
+        astro.setProductType(record.getString(44, "NA"));
+        astro.setMilSpaceType(record.getString(45, "NA"));
+        astro.setMilPlanType(record.getString(46, "NA"));
+        astro.setMiscText1(record.getString(47, ""));
+        astro.setMiscText2(record.getString(48, ""));
+        astro.setMiscText3(record.getString(49, ""));
+        astro.setMiscText4(record.getString(50, ""));
+        astro.setMiscText5(record.getString(51, ""));
+        astro.setMiscNum1(record.getDouble(52));
+        astro.setMiscNum2(record.getDouble(53));
+        astro.setMiscNum3(record.getDouble(54));
+        astro.setMiscNum4(record.getDouble(55));
+        astro.setMiscNum5(record.getDouble(56));
+        astro.setNotes(record.getString(57, "none"));
+        astro.setGalacticLat(record.getDouble(58));
+        astro.setGalacticLong(record.getDouble(59));
+        return astro;
     }
 
-
-    private double parseDouble(String string) {
-        if (string.isEmpty()) {
-            return 0;
-        }
-        try {
-            return Double.parseDouble(string);
-        } catch (NumberFormatException e) {
-            return 0;
-        }
-    }
-
-    private String[] linePad(String[] split, int size) {
-        String[] pad = new String[size];
-        IntStream.range(0, size).forEachOrdered(i -> {
-            if (i < split.length) {
-                pad[i] = split[i];
-            } else {
-                pad[i] = "";
-            }
-        });
-        return pad;
-    }
-
-
     private DataSetDescriptor createDescriptor(Dataset dataset) {
         DataSetDescriptor descriptor = new DataSetDescriptor();
         descriptor.setDataSetName(dataset.getName());
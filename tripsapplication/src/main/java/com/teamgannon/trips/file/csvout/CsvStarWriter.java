@@ -0,0 +1,448 @@
+package com.teamgannon.trips.file.csvout;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * writes stars to a .trips.csv file
+ * <p>
+ * the rows are formatted straight into a StringBuilder that is reused, and a full one is handed to a writer
+ * thread that does the encoding and the disk writes. That way whoever is reading the stars out of the database
+ * does not wait on the disk. A small pool of buffers goes round between the two threads, so if the disk falls
+ * behind the caller blocks instead of piling up rows.
+ * <p>
+ * the format is the one the exports have always used, a comma and a space between values and the catalog ids
+ * joined with ~. Text fields that hold a quote, a comma or a line break are quoted per RFC 4180.
+ */
+@Slf4j
+public class CsvStarWriter implements Closeable {
+
+    public static final String HEADERS = "id," +
+            "dataSetName," +
+            "displayName," +
+            "commonName," +
+            "gaiaId," +
+            "simbadId," +
+            "constellationName," +
+            "mass," +
+            "age," +
+            "metallicity," +
+            "source," +
+            "catalogIdList," +
+            "X," +
+            "Y," +
+            "Z," +
+            "radius," +
+            "ra," +
+            "pmra," +
+            "declination," +
+            "pmdec," +
+            "parallax," +
+            "distance," +
+            "radialVelocity," +
+            "spectralClass," +
+            "orthoSpectralClass," +
+            "temperature," +
+            "realStar," +
+            "bprp," +
+            "bpg," +
+            "grp," +
+            "luminosity," +
+            "magu," +
+            "magb," +
+            "magv," +
+            "magr," +
+            "magi," +
+            "other," +
+            "anomaly," +
+            "polity," +
+            "worldType," +
+            "fuelType," +
+            "portType," +
+            "populationType," +
+            "techType," +
+            "productType," +
+            "milSpaceType," +
+            "milPlanType," +
+            "miscText1," +
+            "miscText2," +
+            "miscText3," +
+            "miscText4," +
+            "miscText5," +
+            "miscNum1," +
+            "miscNum2," +
+            "miscNum3," +
+            "miscNum4," +
+            "miscNum5," +
+            "Notes," +
+            "L," +
+            "B" +
+            "\n";
+
+    private static final String SEPARATOR = ", ";
+
+    /**
+     * a buffer is handed over once it holds this many characters
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * the number of buffers going round, one being filled and the rest queued or being written
+     */
+    private static final int BUFFER_COUNT = 4;
+
+    /**
+     * tells the writer thread there is nothing more
+     */
+    private static final StringBuilder END = new StringBuilder();
+
+    private final Writer writer;
+
+    private final BlockingQueue<StringBuilder> fullBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+
+    private final BlockingQueue<StringBuilder> freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+
+    private final Thread writerThread;
+
+    /**
+     * the first thing that went wrong on the writer thread
+     */
+    private volatile @Nullable IOException writeError;
+
+    private @NotNull StringBuilder current;
+
+    private long starsWritten = 0;
+
+    private boolean closed = false;
+
+    /**
+     * open the file and write the headers
+     *
+     * @param file the file, replaced if it is there
+     * @throws IOException if the file can't be opened
+     */
+    public CsvStarWriter(@NotNull Path file) throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        for (int i = 1; i < BUFFER_COUNT; i++) {
+            freeBuffers.add(new StringBuilder(BUFFER_SIZE + 4096));
+        }
+        this.current = new StringBuilder(BUFFER_SIZE + 4096);
+        this.current.append(HEADERS);
+
+        this.writerThread = new Thread(this::drain, "csv-export-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * write a star
+     *
+     * @param starObject the star
+     * @throws IOException if the writer thread has failed
+     */
+    public void write(@NotNull StarObject starObject) throws IOException {
+        formatRow(current, starObject);
+        starsWritten++;
+        if (current.length() >= BUFFER_SIZE) {
+            handOver();
+        }
+    }
+
+    /**
+     * write a page of stars
+     *
+     * @param starObjects the stars
+     * @throws IOException if the writer thread has failed
+     */
+    public void writeAll(@NotNull List<StarObject> starObjects) throws IOException {
+        for (StarObject starObject : starObjects) {
+            write(starObject);
+        }
+    }
+
+    /**
+     * @return the number of stars written so far
+     */
+    public long getStarsWritten() {
+        return starsWritten;
+    }
+
+    /**
+     * write what is left, wait for the writer thread and close the file
+     *
+     * @throws IOException if any write failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (current.length() > 0) {
+                put(current);
+            }
+            put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerThread.interrupt();
+            writeError = new InterruptedIOException("interrupted while finishing the export");
+        } finally {
+            writer.close();
+        }
+        checkWriter();
+    }
+
+    /**
+     * stop without writing what is left, for a cancelled export
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error("failed to close the export file: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * stop a writer and remove what it wrote, so a cancelled or failed export does not leave half a file
+     *
+     * @param writer the writer, null if it never opened
+     * @param file   the file
+     */
+    public static void discard(@Nullable CsvStarWriter writer, @NotNull Path file) {
+        if (writer != null) {
+            writer.abort();
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("failed to remove the partial export {}", file);
+        }
+    }
+
+    /**
+     * format one star as a row of the file
+     *
+     * @param sb         where to put it
+     * @param starObject the star
+     */
+    static void formatRow(@NotNull StringBuilder sb, @NotNull StarObject starObject) {
+        text(sb, starObject.getId().toString()).append(SEPARATOR);
+        text(sb, starObject.getDataSetName()).append(SEPARATOR);
+        text(sb, starObject.getDisplayName()).append(SEPARATOR);
+        text(sb, starObject.getCommonName()).append(SEPARATOR);
+        text(sb, starObject.getGaiaId()).append(SEPARATOR);
+        text(sb, starObject.getSimbadId()).append(SEPARATOR);
+        text(sb, starObject.getConstellationName()).append(SEPARATOR);
+        sb.append(starObject.getMass()).append(SEPARATOR);
+        sb.append(starObject.getAge()).append(SEPARATOR);
+        sb.append(starObject.getMetallicity()).append(SEPARATOR);
+        text(sb, starObject.getSource()).append(SEPARATOR);
+        List<String> catalogIds = starObject.getCatalogIdList();
+        if (catalogIds.stream().anyMatch(CsvStarWriter::needsQuotes)) {
+            text(sb, String.join("~", catalogIds));
+        } else {
+            for (int i = 0; i < catalogIds.size(); i++) {
+                if (i > 0) {
+                    sb.append('~');
+                }
+                sb.append(catalogIds.get(i));
+            }
+        }
+        sb.append(SEPARATOR);
+        sb.append(starObject.getX()).append(SEPARATOR);
+        sb.append(starObject.getY()).append(SEPARATOR);
+        sb.append(starObject.getZ()).append(SEPARATOR);
+        sb.append(starObject.getRadius()).append(SEPARATOR);
+        sb.append(starObject.getRa()).append(SEPARATOR);
+        sb.append(starObject.getPmra()).append(SEPARATOR);
+        sb.append(starObject.getDeclination()).append(SEPARATOR);
+        sb.append(starObject.getPmdec()).append(SEPARATOR);
+        sb.append(starObject.getParallax()).append(SEPARATOR);
+        sb.append(starObject.getDistance()).append(SEPARATOR);
+        sb.append(starObject.getRadialVelocity()).append(SEPARATOR);
+        sb.append(starObject.getSpectralClass()).append(SEPARATOR);
+        sb.append(starObject.getOrthoSpectralClass()).append(SEPARATOR);
+        sb.append(starObject.getTemperature()).append(SEPARATOR);
+        sb.append(starObject.isRealStar()).append(SEPARATOR);
+        sb.append(starObject.getBprp()).append(SEPARATOR);
+        sb.append(starObject.getBpg()).append(SEPARATOR);
+        sb.append(starObject.getGrp()).append(SEPARATOR);
+        sb.append(starObject.getLuminosity()).append(SEPARATOR);
+        sb.append(starObject.getMagu()).append(SEPARATOR);
+        sb.append(starObject.getMagb()).append(SEPARATOR);
+        sb.append(starObject.getMagv()).append(SEPARATOR);
+        sb.append(starObject.getMagr()).append(SEPARATOR);
+        sb.append(starObject.getMagi()).append(SEPARATOR);
+        sb.append(starObject.isOther()).append(SEPARATOR);
+        sb.append(starObject.isAnomaly()).append(SEPARATOR);
+        sb.append(starObject.getPolity()).append(SEPARATOR);
+        sb.append(starObject.getWorldType()).append(SEPARATOR);
+        sb.append(starObject.getFuelType()).append(SEPARATOR);
+        sb.append(starObject.getPortType()).append(SEPARATOR);
+        sb.append(starObject.getPopulationType()).append(SEPARATOR);
+        sb.append(starObject.getTechType()).append(SEPARATOR);
+        sb.append(starObject.getProductType()).append(SEPARATOR);
+        sb.append(starObject.getMilSpaceType()).append(SEPARATOR);
+        sb.append(starObject.getMilPlanType()).append(SEPARATOR);
+        text(sb, starObject.getMiscText1()).append(SEPARATOR);
+        text(sb, starObject.getMiscText2()).append(SEPARATOR);
+        text(sb, starObject.getMiscText3()).append(SEPARATOR);
+        text(sb, starObject.getMiscText4()).append(SEPARATOR);
+        text(sb, starObject.getMiscText5()).append(SEPARATOR);
+        sb.append(starObject.getMiscNum1()).append(SEPARATOR);
+        sb.append(starObject.getMiscNum2()).append(SEPARATOR);
+        sb.append(starObject.getMiscNum3()).append(SEPARATOR);
+        sb.append(starObject.getMiscNum4()).append(SEPARATOR);
+        sb.append(starObject.getMiscNum5()).append(SEPARATOR);
+        text(sb, starObject.getNotes()).append(SEPARATOR);
+        sb.append(starObject.getGalacticLat()).append(SEPARATOR);
+        sb.append(starObject.getGalacticLong());
+        sb.append('\n');
+    }
+
+    /**
+     * append a text value, quoted with its quotes doubled if it would not otherwise read back as one field
+     */
+    private static @NotNull StringBuilder text(@NotNull StringBuilder sb, @Nullable String value) {
+        if (value == null) {
+            // what the old string concatenation wrote
+            return sb.append("null");
+        }
+        if (!needsQuotes(value)) {
+            return sb.append(value);
+        }
+        sb.append('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * @return true if the value holds a quote, a comma or a line break
+     */
+    private static boolean needsQuotes(@Nullable String value) {
+        if (value == null) {
+            return false;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == ',' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * pass the current buffer to the writer thread and pick up an empty one
+     */
+    private void handOver() throws IOException {
+        try {
+            put(current);
+            StringBuilder next = null;
+            while (next == null) {
+                checkWriter();
+                next = freeBuffers.poll(100, TimeUnit.MILLISECONDS);
+            }
+            current = next;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing the export");
+        }
+    }
+
+    private void put(@NotNull StringBuilder buffer) throws InterruptedException, IOException {
+        checkWriter();
+        fullBuffers.put(buffer);
+    }
+
+    private void checkWriter() throws IOException {
+        IOException error = writeError;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * the writer thread, writes each full buffer and puts it back in the pool
+     */
+    private void drain() {
+        char[] chars = new char[BUFFER_SIZE + 4096];
+        try {
+            while (true) {
+                StringBuilder buffer = fullBuffers.take();
+                if (buffer == END) {
+                    break;
+                }
+                if (writeError == null) {
+                    int length = buffer.length();
+                    if (chars.length < length) {
+                        chars = new char[length];
+                    }
+                    buffer.getChars(0, length, chars, 0);
+                    writer.write(chars, 0, length);
+                }
+                buffer.setLength(0);
+                freeBuffers.offer(buffer);
+            }
+            writer.flush();
+        } catch (InterruptedException e) {
+            log.warn("csv export writer stopped");
+        } catch (IOException e) {
+            log.error("csv export write failed: {}", e.getMessage());
+            writeError = e;
+            // keep taking buffers so the other side is not left waiting on a full queue
+            drainAfterError();
+        }
+    }
+
+    private void drainAfterError() {
+        try {
+            while (true) {
+                StringBuilder buffer = fullBuffers.take();
+                if (buffer == END) {
+                    return;
+                }
+                buffer.setLength(0);
+                freeBuffers.offer(buffer);
+            }
+        } catch (InterruptedException e) {
+            log.warn("csv export writer stopped");
+        }
+    }
+
+}
@@ -17,4 +17,9 @@ public class ExcelFile {
 
     private DataSetDescriptor descriptor;
 
+    /**
+     * true if the load was stopped before the end of the file
+     */
+    private boolean cancelled;
+
 }
@@ -6,8 +6,10 @@ import com.teamgannon.trips.file.csvin.model.AstroCSVStar;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipeline;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipelineSettings;
+import com.teamgannon.trips.service.importservices.pipeline.ImportStatistics;
 import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
-
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
@@ -17,12 +19,11 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 @Slf4j
 public class ExcelReader {
@@ -32,24 +33,40 @@ public class ExcelReader {
 
 
     /**
-     * load the excel file
+     * load the excel file and save its stars
+     * <p>
+     * the rows are read on one thread, parsed on the pipeline's parser threads and saved in batches here
      *
      * @param loadUpdater               the load updater
      * @param dataSet                   the dataset to load
      * @param file                      the excel file
      * @param databaseManagementService the database management service
+     * @param settings                  the import pipeline sizes
+     * @param cancelled                 true stops the import, the stars saved so far are left for the caller to discard
+     * @return the file, with its descriptor filled in
+     * @throws Exception if the file cannot be read or the stars cannot be saved
      */
-    public @NotNull ExcelFile loadFile(ProgressUpdater loadUpdater, Dataset dataSet, @NotNull File file, DatabaseManagementService databaseManagementService) {
+    public @NotNull ExcelFile loadFile(@NotNull ProgressUpdater loadUpdater,
+                                       @NotNull Dataset dataSet,
+                                       @NotNull File file,
+                                       @NotNull DatabaseManagementService databaseManagementService,
+                                       @NotNull ImportPipelineSettings settings,
+                                       @NotNull BooleanSupplier cancelled) throws Exception {
 
         this.databaseManagementService = databaseManagementService;
 
         ExcelFile excelFile = new ExcelFile();
         excelFile.setFileName(file.getAbsolutePath());
         excelFile.setAuthor(dataSet.getAuthor());
-        return useStreamingAPI(loadUpdater, dataSet, file, excelFile);
+        return useStreamingAPI(loadUpdater, dataSet, file, excelFile, settings, cancelled);
     }
 
-    private ExcelFile useStreamingAPI(ProgressUpdater loadUpdater, Dataset dataSet, File file, ExcelFile excelFile) {
+    private @NotNull ExcelFile useStreamingAPI(@NotNull ProgressUpdater loadUpdater,
+                                               @NotNull Dataset dataSet,
+                                               @NotNull File file,
+                                               @NotNull ExcelFile excelFile,
+                                               @NotNull ImportPipelineSettings settings,
+                                               @NotNull BooleanSupplier cancelled) throws Exception {
 
         try (
                 InputStream is = new FileInputStream(file);
@@ -58,16 +75,6 @@ public class ExcelReader {
                         .bufferSize(4096) // buffer size to use when reading InputStream to file (defaults to 1024)
                         .open(is)) // InputStream or File for XLSX file (required)
         {
-
-            Set<StarObject> starSet = new HashSet<>();
-
-            // first row is the headers
-            boolean firstRow = true;
-
-            long totalCount = 0;
-            int rejectCount = 0;
-            double maxDistance = 0.0;
-
             DataSetDescriptor descriptor = createDescriptor(dataSet);
             excelFile.setDescriptor(descriptor);
 
@@ -81,77 +88,52 @@ public class ExcelReader {
                 return excelFile;
             }
 
-            int i = 1;
-            for (Row row : dataSheet) {
-                if (row == null) {
-                    if (!starSet.isEmpty()) {
-                        databaseManagementService.starBulkSave(starSet);
-                        loadUpdater.updateTaskInfo(totalCount + " stars loaded");
-                        totalCount += starSet.size();
-                        starSet.clear();
-                    }
-                    break;
-                }
-
-                // skip first row always
-                if (firstRow) {
-                    firstRow = false;
-                    continue;
-                }
-
-                // build a star
-                AstroCSVStar star = extractStar1(dataSet.getName(), row);
-                if (star.getDisplayName().isEmpty()) {
-                    rejectCount++;
-                    continue;
-                }
-
-                StarObject starObject = star.toStarObject();
-                if (starObject != null) {
-                    starSet.add(star.toStarObject());
-                } else {
-                    rejectCount++;
-                    continue;
-                }
-
-                if (starObject.getDistance() > maxDistance) {
-                    maxDistance = starObject.getDistance();
-                }
-
-                if ((i % 2000) == 0) {
-                    log.info("about to save 1000 stars");
-                    totalCount += starSet.size();
-                    databaseManagementService.starBulkSave(starSet);
-                    starSet.clear();
-                    log.info(totalCount + " stars loaded so far");
-                    loadUpdater.updateTaskInfo(totalCount + " stars loaded so far");
-                }
-
-                log.debug("Parsed {} stars", starSet.size());
-                i++;
-            }
-
-            if (!starSet.isEmpty()) {
-                databaseManagementService.starBulkSave(starSet);
-                loadUpdater.updateTaskInfo(totalCount + " stars loaded");
-                totalCount += starSet.size();
+            // the streaming reader is not thread safe so the cells are pulled out on the reader thread
+            Iterator<Row> rows = dataSheet.iterator();
+            // first row is the headers
+            if (rows.hasNext()) {
+                rows.next();
             }
 
-            excelFile.getDescriptor().setNumberStars(totalCount);
-            excelFile.getDescriptor().setDistanceRange(maxDistance);
+            double[] maxDistance = {0.0};
+            ImportPipeline<List<String>> pipeline = new ImportPipeline<>("excel", settings, loadUpdater, cancelled, false);
+            ImportStatistics statistics = pipeline.run(
+                    () -> {
+                        Row row = rows.hasNext() ? rows.next() : null;
+                        if (row == null) {
+                            return null;
+                        }
+                        List<String> fieldList = new ArrayList<>();
+                        for (Cell c : row) {
+                            fieldList.add(c.getStringCellValue().trim());
+                        }
+                        return fieldList;
+                    },
+                    fieldList -> {
+                        AstroCSVStar star = extractStar1(dataSet.getName(), fieldList);
+                        if (star.getDisplayName().isEmpty()) {
+                            return null;
+                        }
+                        return star.toStarObject();
+                    },
+                    stars -> {
+                        for (StarObject starObject : stars) {
+                            maxDistance[0] = Math.max(maxDistance[0], starObject.getDistance());
+                        }
+                        this.databaseManagementService.starBulkSave(stars);
+                    });
+
+            excelFile.setCancelled(statistics.isCancelled());
+            excelFile.getDescriptor().setNumberStars(statistics.getParsed());
+            excelFile.getDescriptor().setDistanceRange(maxDistance[0]);
+            log.info("Excel load report: total:{}, accepts:{}, rejects:{}",
+                    statistics.getRead(), statistics.getParsed(), statistics.getRejected());
 
             return excelFile;
-        } catch (IOException e) {
-            log.error("failed to read file:" + e.getMessage());
         }
-        return excelFile;
     }
 
-    private AstroCSVStar extractStar1(String name, Row row) {
-        List<String> fieldList = new ArrayList<>();
-        for (Cell c : row) {
-            fieldList.add(c.getStringCellValue().trim());
-        }
+    private @NotNull AstroCSVStar extractStar1(String name, @NotNull List<String> fieldList) {
         int i = 2;
         AstroCSVStar star = AstroCSVStar.builder().build();
         // fill
@@ -0,0 +1,112 @@
+package com.teamgannon.trips.file.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.service.export.model.DataSetDescriptorDTO;
+import com.teamgannon.trips.service.importservices.pipeline.RecordSource;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * reads a .trips.json backup one star at a time
+ * <p>
+ * the file is one object with the dataset descriptor and the list of stars, see JsonStarWriter. Only the star
+ * being read is ever held, so a backup of any size reads in a fixed heap. The descriptor can come before or
+ * after the stars, it is picked up whenever the parser passes it.
+ */
+public class JsonStarReader implements RecordSource<StarObject>, Closeable {
+
+    /**
+     * the field that holds the dataset descriptor
+     */
+    public static final String DESCRIPTOR_FIELD = "descriptor";
+
+    /**
+     * the field that holds the array of stars
+     */
+    public static final String STARS_FIELD = "starObjectList";
+
+    private final JsonParser parser;
+
+    private final ObjectReader descriptorReader;
+
+    private final ObjectReader starReader;
+
+    private @Nullable DataSetDescriptorDTO descriptor;
+
+    /**
+     * true while the parser is inside the star array
+     */
+    private boolean inStars = false;
+
+    private boolean done = false;
+
+    public JsonStarReader(@NotNull ObjectMapper objectMapper, @NotNull File file) throws IOException {
+        this.parser = objectMapper.getFactory().createParser(file);
+        this.descriptorReader = objectMapper.readerFor(DataSetDescriptorDTO.class);
+        this.starReader = objectMapper.readerFor(StarObject.class);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new IOException(file.getName() + " is not a TRIPS JSON file");
+        }
+    }
+
+    /**
+     * read the next star
+     *
+     * @return the star, null at the end of the file
+     * @throws IOException if the file cannot be read or is not valid
+     */
+    @Override
+    public @Nullable StarObject next() throws IOException {
+        while (!done) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new EOFException("the file ended in the middle of the data");
+            }
+            if (inStars) {
+                if (token == JsonToken.END_ARRAY) {
+                    inStars = false;
+                    continue;
+                }
+                return starReader.readValue(parser);
+            }
+            if (token == JsonToken.END_OBJECT) {
+                done = true;
+                break;
+            }
+
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (DESCRIPTOR_FIELD.equals(field)) {
+                descriptor = descriptorReader.readValue(parser);
+            } else if (STARS_FIELD.equals(field) && value == JsonToken.START_ARRAY) {
+                inStars = true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the descriptor, only certain to be there once next has returned null
+     */
+    public @Nullable DataSetDescriptorDTO getDescriptor() {
+        return descriptor;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.teamgannon.trips.file.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.service.export.model.DataSetDescriptorDTO;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * writes a .trips.json backup one star at a time
+ * <p>
+ * the layout is
+ * <pre>
+ *     { "descriptor": { ... }, "starObjectList": [ { ... }, { ... } ] }
+ * </pre>
+ * the descriptor goes first so a reader knows what it has before the stars start, and each star is written
+ * as it is handed over so nothing but the output buffer is held.
+ */
+public class JsonStarWriter implements Closeable {
+
+    private final JsonGenerator generator;
+
+    private final ObjectWriter descriptorWriter;
+
+    private final ObjectWriter starWriter;
+
+    private long starsWritten = 0;
+
+    public JsonStarWriter(@NotNull ObjectMapper objectMapper,
+                          @NotNull File file,
+                          @NotNull DataSetDescriptorDTO descriptor) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(file, JsonEncoding.UTF8);
+        // the generator buffers, flushing after every star would defeat it
+        this.descriptorWriter = objectMapper.writerFor(DataSetDescriptorDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.starWriter = objectMapper.writerFor(StarObject.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        generator.writeStartObject();
+        generator.writeFieldName(JsonStarReader.DESCRIPTOR_FIELD);
+        descriptorWriter.writeValue(generator, descriptor);
+        generator.writeFieldName(JsonStarReader.STARS_FIELD);
+        generator.writeStartArray();
+    }
+
+    /**
+     * write a star
+     *
+     * @param starObject the star
+     * @throws IOException if the write fails
+     */
+    public void write(@NotNull StarObject starObject) throws IOException {
+        starWriter.writeValue(generator, starObject);
+        starsWritten++;
+    }
+
+    /**
+     * @return the number of stars written so far
+     */
+    public long getStarsWritten() {
+        return starsWritten;
+    }
+
+    /**
+     * end the star list and the document and close the file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!generator.isClosed()) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        } finally {
+            generator.close();
+        }
+    }
+
+}
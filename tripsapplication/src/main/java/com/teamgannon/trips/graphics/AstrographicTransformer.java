@@ -1,7 +1,8 @@
 package com.teamgannon.trips.graphics;
 
 import com.teamgannon.trips.algorithms.Universe;
-import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.dataset.model.DatasetStatistics;
+import com.teamgannon.trips.jpa.model.StarPlotView;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
@@ -102,7 +103,7 @@ public class AstrographicTransformer {
      * @param starRecords       the star records to check
      * @param centerCoordinates teh center coordinates
      */
-    public ScalingParameters findMinMaxValues(@NotNull List<StarObject> starRecords, double[] centerCoordinates) {
+    public ScalingParameters findMinMaxValues(@NotNull List<StarPlotView> starRecords, double[] centerCoordinates) {
 
         scalingParameters = new ScalingParameters();
         clearRanges();
@@ -110,7 +111,7 @@ public class AstrographicTransformer {
         this.centerCoordinates = centerCoordinates;
 
         // scan through the records and determine the range of x,y, and z data values
-        for (StarObject starRecord : starRecords) {
+        for (StarPlotView starRecord : starRecords) {
             double[] ords = starRecord.getCoordinates();
 
             // check X limits, keep highest and lowest
@@ -153,6 +154,42 @@ public class AstrographicTransformer {
         return scalingParameters;
     }
 
+    /**
+     * find the min/max in all coordinates from the cached dataset statistics
+     * <p>
+     * this gives the same answer as scanning the records when the whole dataset is being plotted
+     *
+     * @param statistics        the dataset statistics
+     * @param centerCoordinates the center coordinates
+     */
+    public ScalingParameters findMinMaxValues(@NotNull DatasetStatistics statistics, double[] centerCoordinates) {
+
+        scalingParameters = new ScalingParameters();
+        clearRanges();
+
+        this.centerCoordinates = centerCoordinates;
+
+        // the ranges always include the origin, as they do when we scan
+        minX = Math.min(0, statistics.getMinX());
+        maxX = Math.max(0, statistics.getMaxX());
+        minY = Math.min(0, statistics.getMinY());
+        maxY = Math.max(0, statistics.getMaxY());
+        minZ = Math.min(0, statistics.getMinZ());
+        maxZ = Math.max(0, statistics.getMaxZ());
+
+        scalingParameters.setMinX(minX);
+        scalingParameters.setMaxX(maxX);
+        scalingParameters.setMinY(minY);
+        scalingParameters.setMaxY(maxY);
+        scalingParameters.setMinZ(minZ);
+        scalingParameters.setMaxZ(maxZ);
+
+        double scalingFactor = findScalingValues(scalingParameters);
+        scalingParameters.setScalingFactor(scalingFactor);
+
+        return scalingParameters;
+    }
+
     private void clearRanges() {
         minX = 0;
         maxX = 0;
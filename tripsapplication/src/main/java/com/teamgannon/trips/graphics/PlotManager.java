@@ -5,12 +5,13 @@ import com.teamgannon.trips.config.application.CurrentPlot;
 import com.teamgannon.trips.config.application.StarDisplayPreferences;
 import com.teamgannon.trips.config.application.TripsContext;
 import com.teamgannon.trips.config.application.model.ColorPalette;
+import com.teamgannon.trips.dataset.model.DatasetStatistics;
 import com.teamgannon.trips.graphics.entities.StarDisplayRecord;
 import com.teamgannon.trips.graphics.panes.InterstellarSpacePane;
 import com.teamgannon.trips.jpa.model.CivilizationDisplayPreferences;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.jpa.model.GraphEnablesPersist;
-import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.jpa.model.StarPlotView;
 import com.teamgannon.trips.listener.DataSetChangeListener;
 import com.teamgannon.trips.listener.RoutingPanelListener;
 import com.teamgannon.trips.listener.StatusUpdaterListener;
@@ -18,11 +19,13 @@ import com.teamgannon.trips.routing.Route;
 import com.teamgannon.trips.search.AstroSearchQuery;
 import com.teamgannon.trips.search.SearchContext;
 import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.async.AsyncDatabaseService;
 import javafx.geometry.Point3D;
 import javafx.scene.control.ChoiceDialog;
 import javafx.scene.paint.Color;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -42,6 +45,11 @@ public class PlotManager {
     private final TripsContext tripsContext;
     private final DatabaseManagementService databaseManagementService;
 
+    /**
+     * runs the plot queries off the application thread
+     */
+    private final AsyncDatabaseService asyncDatabaseService;
+
     private final CurrentPlot currentPlot;
 
     private final AstrographicTransformer astrographicTransformer;
@@ -61,6 +69,7 @@ public class PlotManager {
      */
     public PlotManager(@NotNull TripsContext tripsContext,
                        DatabaseManagementService databaseManagementService,
+                       AsyncDatabaseService asyncDatabaseService,
                        DataSetChangeListener dataSetChangeListener,
                        StatusUpdaterListener statusUpdaterListener,
                        RoutingPanelListener routingPanelListener) {
@@ -69,6 +78,7 @@ public class PlotManager {
         this.currentPlot = tripsContext.getCurrentPlot();
         this.searchContext = tripsContext.getSearchContext();
         this.databaseManagementService = databaseManagementService;
+        this.asyncDatabaseService = asyncDatabaseService;
         this.astrographicTransformer = new AstrographicTransformer(tripsContext.getAppPreferences().getGridsize());
         this.dataSetChangeListener = dataSetChangeListener;
         this.statusUpdaterListener = statusUpdaterListener;
@@ -132,6 +142,9 @@ public class PlotManager {
 
     /**
      * plot a series of stars that are within the current range of the distance slider
+     * <p>
+     * the query runs in the background and the plot is drawn when it comes back, a plot asked for while
+     * an earlier one is still querying replaces it
      *
      * @param dataSetDescriptor the data descriptor
      */
@@ -140,27 +153,35 @@ public class PlotManager {
         // get the distance range
         double displayRadius = astroSearchQuery.getUpperDistanceLimit();
 
-        // now query the data and plot
-        List<StarObject> starObjects = databaseManagementService.getAstrographicObjectsOnQuery(searchContext);
-
-        log.info("DB Query returns {} stars", starObjects.size());
-
-        if (!starObjects.isEmpty()) {
-
-            astroSearchQuery.zeroCenter();
-            drawAstrographicData(
-                    tripsContext.getSearchContext().getAstroSearchQuery().getDescriptor(),
-                    starObjects,
-                    displayRadius,
-                    astroSearchQuery.getCenterCoordinates(),
-                    tripsContext.getAppViewPreferences().getColorPallete(),
-                    tripsContext.getAppViewPreferences().getStarDisplayPreferences(),
-                    tripsContext.getAppViewPreferences().getCivilizationDisplayPreferences()
-            );
-            statusUpdaterListener.updateStatus("Dataset plotted is selection from: " + dataSetDescriptor.getDataSetName());
-        } else {
-            showErrorAlert("Astrographic data view error", "No Astrographic data was loaded ");
-        }
+        statusUpdaterListener.updateStatus("Querying stars from: " + dataSetDescriptor.getDataSetName());
+
+        // the labels are picked against the query as it was run, so before the center is moved
+        AsyncDatabaseService.deliverOnFxThread(
+                asyncDatabaseService.plotQuery(searchContext,
+                        tripsContext.getAppViewPreferences().getStarDisplayPreferences().getNumberOfVisibleLabels()),
+                plotQueryResult -> {
+                    List<StarPlotView> plotViews = plotQueryResult.getPlotViews();
+                    log.info("DB Query returns {} stars", plotViews.size());
+
+                    if (!plotViews.isEmpty()) {
+                        astroSearchQuery.zeroCenter();
+                        drawAstrographicData(
+                                tripsContext.getSearchContext().getAstroSearchQuery().getDescriptor(),
+                                plotViews,
+                                displayRadius,
+                                astroSearchQuery.getCenterCoordinates(),
+                                tripsContext.getAppViewPreferences().getColorPallete(),
+                                tripsContext.getAppViewPreferences().getStarDisplayPreferences(),
+                                tripsContext.getAppViewPreferences().getCivilizationDisplayPreferences(),
+                                plotQueryResult.getLabelledStars()
+                        );
+                        statusUpdaterListener.updateStatus("Dataset plotted is selection from: " + dataSetDescriptor.getDataSetName());
+                    } else {
+                        showErrorAlert("Astrographic data view error", "No Astrographic data was loaded ");
+                    }
+                },
+                throwable -> showErrorAlert("Astrographic data view error",
+                        "Failed to query the stars: " + throwable.getMessage()));
     }
 
     public static @NotNull Color getColor(double[] colors) {
@@ -177,26 +198,48 @@ public class PlotManager {
     }
 
     /**
-     * draw the ch view file
+     * draw a set of stars that did not come from the current search query
      *
-     * @param starObjects       the list of objects to draw
+     * @param plotViews         the list of stars to draw
      * @param displayRadius     the max display radius
      * @param centerCoordinates the center of the plot
      * @param colorPalette      the color palette to draw
      */
     public void drawAstrographicData(@NotNull DataSetDescriptor dataSetDescriptor,
-                                     @NotNull List<StarObject> starObjects,
+                                     @NotNull List<StarPlotView> plotViews,
                                      double displayRadius,
                                      double[] centerCoordinates,
                                      @NotNull ColorPalette colorPalette,
                                      @NotNull StarDisplayPreferences starDisplayPreferences,
                                      CivilizationDisplayPreferences civilizationDisplayPreferences) {
+        drawAstrographicData(dataSetDescriptor, plotViews, displayRadius, centerCoordinates,
+                colorPalette, starDisplayPreferences, civilizationDisplayPreferences, null);
+    }
+
+    /**
+     * draw the ch view file
+     *
+     * @param plotViews         the list of stars to draw
+     * @param displayRadius     the max display radius
+     * @param centerCoordinates the center of the plot
+     * @param colorPalette      the color palette to draw
+     * @param labelledStars     the stars the database picked to label when the stars are the result of a
+     *                          search query, null to pick them from the plot
+     */
+    public void drawAstrographicData(@NotNull DataSetDescriptor dataSetDescriptor,
+                                     @NotNull List<StarPlotView> plotViews,
+                                     double displayRadius,
+                                     double[] centerCoordinates,
+                                     @NotNull ColorPalette colorPalette,
+                                     @NotNull StarDisplayPreferences starDisplayPreferences,
+                                     CivilizationDisplayPreferences civilizationDisplayPreferences,
+                                     @Nullable Collection<UUID> labelledStars) {
 
         // clear plot first
         currentPlot.clearPlot();
 
-        // clear interstellarPlot
-        interstellarSpacePane.clearAll();
+        // clear interstellarPlot, the transits are kept and brought up to date once the stars are plotted
+        interstellarSpacePane.clearStars();
 
         // set center star
         String centerStar = searchContext.getAstroSearchQuery().getCenterStar();
@@ -208,56 +251,68 @@ public class PlotManager {
                 starDisplayPreferences, civilizationDisplayPreferences
         );
 
-        // find the min/max values to plot
-        astrographicTransformer.findMinMaxValues(starObjects, centerCoordinates);
+        // find the min/max values to plot, if we are plotting the whole dataset the statistics already have them
+        DatasetStatistics statistics = dataSetDescriptor.getStatistics();
+        if (statistics != null && !statistics.isStale() && statistics.getCount() == plotViews.size()) {
+            astrographicTransformer.findMinMaxValues(statistics, centerCoordinates);
+        } else {
+            astrographicTransformer.findMinMaxValues(plotViews, centerCoordinates);
+        }
         ScalingParameters scalingParameters = astrographicTransformer.getScalingParameters();
         log.info("New Plot Scaling parameters:" + scalingParameters);
+        currentPlot.setAstrographicTransformer(astrographicTransformer);
 
         // rebuild the grid based on parameters
         interstellarSpacePane.rebuildGrid(astrographicTransformer, currentPlot);
 
 
         // plot all stars
-        for (StarObject starObject : starObjects) {
+        for (StarPlotView plotView : plotViews) {
             try {
                 // create a star record object
-                double[] ords = starObject.getCoordinates();
+                double[] ords = plotView.getCoordinates();
                 double[] correctedOrds = astrographicTransformer.transformOrds(ords);
 
                 // figure out what stars should be plotted in a sphere
-                if (drawable(starObject)) {
-                    starObject.calculateDisplayScore();
-                    StarDisplayRecord record = StarDisplayRecord.fromStarObject(starObject, starDisplayPreferences);
+                if (drawable(plotView)) {
+                    StarDisplayRecord record = StarDisplayRecord.fromStarPlotView(plotView, starDisplayPreferences);
                     if (record != null) {
                         record.setCurrentLabelDisplayScore(displayRadius);
                         record.setCoordinates(new Point3D(correctedOrds[0], correctedOrds[1], correctedOrds[2]));
                         currentPlot.addRecord(record.copy());
                     } else {
-                        log.error("astrographic object is bad: {}", starObject);
+                        log.error("astrographic object is bad: {}", plotView);
                     }
                 } else {
-                    log.warn("star record is not drawable:{}", starObject);
+                    log.warn("star record is not drawable:{}", plotView);
                 }
             } catch (IllegalArgumentException iae) {
-                log.error("Star color is invalid:{}", starObject);
+                log.error("Star color is invalid:{}", plotView);
             }
         }
 
-        currentPlot.determineVisibleLabels(starDisplayPreferences.getNumberOfVisibleLabels());
+        if (labelledStars != null) {
+            currentPlot.determineVisibleLabels(labelledStars, starDisplayPreferences.getNumberOfVisibleLabels());
+        } else {
+            currentPlot.determineVisibleLabels(starDisplayPreferences.getNumberOfVisibleLabels());
+        }
 
         // with our data now plot in interstellar
         interstellarSpacePane.plotStars(currentPlot);
         currentPlot.setPlotActive(true);
 
+        // keep the transits between stars still in view, measure only the stars that came into view
+        interstellarSpacePane.updateTransits();
+
         // draw the routes for this descriptor
-        interstellarSpacePane.redrawRoutes(dataSetDescriptor.getRoutes());
+        interstellarSpacePane.redrawRoutes(databaseManagementService.getRoutes(dataSetDescriptor));
 
         // draw the labels for this plot
         interstellarSpacePane.updateLabels();
 
         // messages to end user
         String data = String.format("%s records plotted from dataset %s.",
-                starObjects.size(),
+                plotViews.size(),
                 dataSetDescriptor.getDataSetName());
 
         showInfoMessage("Load Astrographic Format", data);
@@ -274,9 +329,8 @@ public class PlotManager {
         return allStarsVisible;
     }
 
-    public Map<UUID, Boolean> willRoutesShow(DataSetDescriptor descriptor) {
+    public Map<UUID, Boolean> willRoutesShow(List<Route> routeList) {
         Map<UUID, Boolean> visibleRouteMap;
-        List<Route> routeList = descriptor.getRoutes();
         visibleRouteMap = routeList.stream().collect(Collectors.toMap(Route::getUuid, this::willRouteShow, (a, b) -> b));
         return visibleRouteMap;
     }
@@ -289,7 +343,7 @@ public class PlotManager {
      * @param starRecord the list of ordinates
      * @return true if in the area and false otherwise
      */
-    private boolean drawable(@NotNull StarObject starRecord) {
+    private boolean drawable(@NotNull StarPlotView starRecord) {
         double[] ordinates = starRecord.getCoordinates();
         if (ordinates[0] > Universe.boxWidth) {
             return false;
@@ -3,6 +3,7 @@ package com.teamgannon.trips.graphics.entities;
 import com.teamgannon.trips.config.application.StarDescriptionPreference;
 import com.teamgannon.trips.config.application.StarDisplayPreferences;
 import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.jpa.model.StarPlotView;
 import com.teamgannon.trips.stellarmodelling.StellarType;
 import javafx.geometry.Point3D;
 import javafx.scene.paint.Color;
@@ -187,6 +188,54 @@ public class StarDisplayRecord {
         return record;
     }
 
+    /**
+     * create a display record from the plot projection of a star
+     * <p>
+     * the projection does not carry the notes, those are read from the database when they are asked for
+     *
+     * @param plotView               the plot projection
+     * @param starDisplayPreferences the star display preferences
+     * @return the display record or null if the stellar type is not known
+     */
+    public static @Nullable StarDisplayRecord fromStarPlotView(@NotNull StarPlotView plotView,
+                                                               @NotNull StarDisplayPreferences starDisplayPreferences) {
+        StarDisplayRecord record = new StarDisplayRecord();
+
+        StellarType stellarType;
+        try {
+            String sClass = plotView.getOrthoSpectralClass().substring(0, 1);
+            stellarType = StellarType.valueOf(sClass);
+        } catch (Exception e) {
+            stellarType = StellarType.M;
+        }
+
+        StarDescriptionPreference starDescriptionPreference = starDisplayPreferences.get(stellarType);
+        if (starDescriptionPreference != null) {
+            record.setRadius(starDescriptionPreference.getSize());
+            record.setStarColor(starDescriptionPreference.getColor());
+
+            record.setRecordId(plotView.getId());
+            record.setStarName(plotView.getDisplayName());
+            record.setDataSetName(plotView.getDataSetName());
+            record.setDistance(plotView.getDistance());
+            record.setSpectralClass(plotView.getSpectralClass());
+            record.setMass(plotView.getMass());
+            record.setActualCoordinates(plotView.getCoordinates());
+            record.setPolity(plotView.getPolity());
+            record.setDisplayScore(plotView.getDisplayScore());
+            if (plotView.isForceLabelToBeShown()) {
+                record.setDisplayLabel(true);
+                record.setCurrentLabelDisplayScore(1000);
+            }
+            record.setLabelForced(plotView.isForceLabelToBeShown());
+        } else {
+            log.error("unable to find stellar type for:{}, record ={}", stellarType, record);
+            return null;
+        }
+
+        return record;
+    }
+
     public void init() {
         dataSetName = " ";
         starName = " ";
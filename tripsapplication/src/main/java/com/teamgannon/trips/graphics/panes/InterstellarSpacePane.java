@@ -210,6 +210,7 @@ public class InterstellarSpacePane extends Pane implements RotationController {
         );
 
         starPlotManager.setRouteManager(routeManager);
+        starPlotManager.setTransitManager(transitManager);
 
         // create a rotation animation
         rotator = createRotateAnimation();
@@ -288,6 +289,13 @@ public class InterstellarSpacePane extends Pane implements RotationController {
         transitManager.findTransits(transitDefinitions, starsInView);
     }
 
+    /**
+     * bring the transits up to date with the stars now in view, after the stars were plotted again
+     */
+    public void updateTransits() {
+        transitManager.updateStarsInView(getCurrentStarsInView());
+    }
+
     /**
      * clear existing transits
      */
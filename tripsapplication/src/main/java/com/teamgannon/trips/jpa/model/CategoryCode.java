@@ -0,0 +1,28 @@
+package com.teamgannon.trips.jpa.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+
+/**
+ * one entry of the dictionary that maps the categorical string values of a star to small integer codes
+ * <p>
+ * code 0 is never stored here, it stands for an empty value
+ */
+@Data
+@Entity(name = "CATEGORY_CODE")
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"category", "categoryValue"}))
+public class CategoryCode {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private StarCategory category;
+
+    private String categoryValue;
+
+    private short code;
+
+}
@@ -4,8 +4,8 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.teamgannon.trips.dataset.model.CustomDataDefinition;
 import com.teamgannon.trips.dataset.model.CustomDataValue;
+import com.teamgannon.trips.dataset.model.DatasetStatistics;
 import com.teamgannon.trips.dataset.model.Theme;
-import com.teamgannon.trips.routing.Route;
 import com.teamgannon.trips.service.export.model.DataSetDescriptorDTO;
 import com.teamgannon.trips.transits.TransitDefinitions;
 import lombok.Data;
@@ -108,7 +108,10 @@ public class DataSetDescriptor implements Serializable {
     @Lob
     private String astrographicDataList;
     /**
-     * an object describing routes
+     * the routes as JSON, only used to carry routes in and out of files
+     * <p>
+     * the routes themselves are stored in the ROUTE and ROUTE_STAR tables, see RouteService. This is
+     * cleared once the routes it holds have been moved there.
      */
     @Lob
     @Column(length = 1000)
@@ -128,6 +131,12 @@ public class DataSetDescriptor implements Serializable {
     @Column(length = 1000)
     private String transitPreferencesStr;
 
+    /**
+     * the cached dataset statistics stored as a json string
+     */
+    @Lob
+    private String statisticsStr;
+
     /**
      * since we can add a complex object like this, we convert between object and JSON
      * this is the getter
@@ -147,37 +156,6 @@ public class DataSetDescriptor implements Serializable {
         themeStr = new Theme().convertToJson(theme);
     }
 
-    /**
-     * convert the internal route representation to a list for external representation
-     *
-     * @return the list of routes
-     */
-    public List<Route> getRoutes() {
-        if (routesStr != null) {
-            if (!routesStr.isBlank()) {
-                return new Route().toRoute(routesStr);
-            } else {
-                return new ArrayList<>();
-            }
-        } else {
-            return new ArrayList<>();
-        }
-    }
-
-    /**
-     * set the list of routes and convert to a JSON representation
-     *
-     * @param routes the list of routes
-     */
-    public void setRoutes(List<Route> routes) {
-        numberRoutes = routes.size();
-        routesStr = new Route().convertToJson(routes);
-    }
-
-    public void clearRoutes() {
-        setRoutes(new ArrayList<>());
-    }
-
     public void resetDate() {
         fileOriginalDate = Instant.now().toEpochMilli();
     }
@@ -310,5 +288,34 @@ public class DataSetDescriptor implements Serializable {
         }
     }
 
+    /**
+     * get the cached statistics
+     *
+     * @return the statistics or null if they have not been computed
+     */
+    public DatasetStatistics getStatistics() {
+        if (statisticsStr == null || statisticsStr.isBlank()) {
+            return null;
+        }
+        try {
+            return mapper.readValue(statisticsStr, DatasetStatistics.class);
+        } catch (IOException e) {
+            log.error("couldn't deserialize this {} because of {}:", statisticsStr, e.getMessage());
+            return null;
+        }
+    }
+
+    public void setStatistics(DatasetStatistics statistics) {
+        if (statistics == null) {
+            statisticsStr = null;
+            return;
+        }
+        try {
+            statisticsStr = mapper.writeValueAsString(statistics);
+        } catch (IOException e) {
+            log.error("couldn't serialize this {} because of {}:", statistics, e.getMessage());
+            statisticsStr = null;
+        }
+    }
 
 }
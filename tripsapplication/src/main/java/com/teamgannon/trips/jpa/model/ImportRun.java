@@ -0,0 +1,32 @@
+package com.teamgannon.trips.jpa.model;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.util.UUID;
+
+/**
+ * marks an import that is writing stars under a dataset name
+ * <p>
+ * the stars go in before their descriptor so while the marker exists the name belongs to this run, nothing
+ * else can import under it and a discard only ever removes this run's stars. The marker is removed once the
+ * descriptor is saved or the stars are thrown away, one that is left over was cut short by a crash.
+ */
+@Data
+@Entity
+public class ImportRun {
+
+    @Id
+    private UUID id;
+
+    @Column(unique = true, nullable = false)
+    private String dataSetName;
+
+    /**
+     * when the run started, in epoch millis
+     */
+    private long startedAt;
+
+}
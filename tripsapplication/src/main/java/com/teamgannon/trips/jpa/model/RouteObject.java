@@ -0,0 +1,136 @@
+package com.teamgannon.trips.jpa.model;
+
+import com.teamgannon.trips.routing.Route;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.jetbrains.annotations.NotNull;
+
+import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * a route as it is stored in the database, one row per route with its stars in ROUTE_STAR
+ * <p>
+ * the rest of the application works with {@link Route}, this is only the storage form
+ */
+@Data
+@Entity(name = "ROUTE")
+@Table(indexes = {
+        @Index(name = "IDX_ROUTE_DATASET", columnList = "dataSetName, routeOrder")
+})
+public class RouteObject {
+
+    @Id
+    private UUID id;
+
+    /**
+     * the dataset this route belongs to
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "dataSetName", foreignKey = @ForeignKey(name = "FK_ROUTE_DATASET"))
+    private DataSetDescriptor dataSet;
+
+    /**
+     * the position of this route in the dataset, routes are listed in the order they were made
+     */
+    private int routeOrder;
+
+    private String routeName;
+
+    private UUID routeType;
+
+    @Lob
+    private String routeNotes;
+
+    private String routeColor;
+
+    private double lineWidth;
+
+    private String startingStar;
+
+    /**
+     * the stars along the route in order
+     */
+    @OneToMany(mappedBy = "route", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("starOrder")
+    private List<RouteStar> stars = new ArrayList<>();
+
+    /**
+     * build the stored form of a route
+     * <p>
+     * the star ids, names and leg lengths of a route are parallel lists, they are stored side by side with
+     * one row per position. The lists are not always the same length so every column of a row is optional.
+     *
+     * @param route      the route
+     * @param dataSet    the dataset it belongs to
+     * @param routeOrder its position in the dataset
+     * @return the route to store
+     */
+    public static @NotNull RouteObject fromRoute(@NotNull Route route, @NotNull DataSetDescriptor dataSet, int routeOrder) {
+        RouteObject routeObject = new RouteObject();
+        routeObject.setId(route.getUuid() != null ? route.getUuid() : UUID.randomUUID());
+        routeObject.setDataSet(dataSet);
+        routeObject.setRouteOrder(routeOrder);
+        routeObject.copyFrom(route);
+        return routeObject;
+    }
+
+    /**
+     * replace the contents of this route, keeping its id, dataset and position
+     *
+     * @param route the new contents
+     */
+    public void copyFrom(@NotNull Route route) {
+        routeName = route.getRouteName();
+        routeType = route.getRouteType();
+        routeNotes = route.getRouteNotes();
+        routeColor = route.getRouteColor();
+        lineWidth = route.getLineWidth();
+        startingStar = route.getStartingStar();
+
+        stars.clear();
+        int positions = Math.max(route.getRouteStars().size(),
+                Math.max(route.getRouteStarNames().size(), route.getRouteLengths().size()));
+        for (int i = 0; i < positions; i++) {
+            RouteStar routeStar = new RouteStar();
+            routeStar.setRoute(this);
+            routeStar.setStarOrder(i);
+            routeStar.setStarId(i < route.getRouteStars().size() ? route.getRouteStars().get(i) : null);
+            routeStar.setStarName(i < route.getRouteStarNames().size() ? route.getRouteStarNames().get(i) : null);
+            routeStar.setLegLength(i < route.getRouteLengths().size() ? route.getRouteLengths().get(i) : null);
+            stars.add(routeStar);
+        }
+    }
+
+    /**
+     * @return the route in the form the rest of the application uses
+     */
+    public @NotNull Route toRoute() {
+        Route route = new Route();
+        route.setUuid(id);
+        route.setRouteName(routeName);
+        route.setRouteType(routeType);
+        route.setRouteNotes(routeNotes);
+        route.setRouteColor(routeColor);
+        route.setLineWidth(lineWidth);
+        route.setStartingStar(startingStar);
+        for (RouteStar routeStar : stars) {
+            if (routeStar.getStarId() != null) {
+                route.getRouteStars().add(routeStar.getStarId());
+            }
+            if (routeStar.getStarName() != null) {
+                route.getRouteStarNames().add(routeStar.getStarName());
+            }
+            if (routeStar.getLegLength() != null) {
+                route.getRouteLengths().add(routeStar.getLegLength());
+            }
+        }
+        return route;
+    }
+
+}
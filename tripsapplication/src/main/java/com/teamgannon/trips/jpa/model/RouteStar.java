@@ -0,0 +1,49 @@
+package com.teamgannon.trips.jpa.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import javax.persistence.*;
+import java.util.UUID;
+
+/**
+ * one position along a stored route
+ * <p>
+ * the star id is indexed so that finding the routes through a star is a single lookup. There is no foreign key
+ * to STAR_OBJ on purpose, routes come in with imported files and outlive the stars they were drawn through,
+ * the same way the details join is left unconstrained.
+ */
+@Data
+@Entity(name = "ROUTE_STAR")
+@Table(indexes = {
+        @Index(name = "IDX_ROUTE_STAR_STAR", columnList = "starId"),
+        @Index(name = "IDX_ROUTE_STAR_ROUTE", columnList = "routeId, starOrder")
+})
+public class RouteStar {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "routeId", foreignKey = @ForeignKey(name = "FK_ROUTE_STAR_ROUTE"))
+    private RouteObject route;
+
+    /**
+     * the position along the route, starting at 0
+     */
+    private int starOrder;
+
+    private UUID starId;
+
+    private String starName;
+
+    /**
+     * the length of the leg at this position of the route's length list
+     */
+    private Double legLength;
+
+}
@@ -0,0 +1,80 @@
+package com.teamgannon.trips.jpa.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * the free form categorical fields of a star that we also keep as small integer codes
+ * <p>
+ * the codes come from the CATEGORY_CODE dictionary and are what the searches filter on, since a small
+ * indexed integer is much cheaper to compare than the string it stands for
+ */
+public enum StarCategory {
+
+    POLITY("polity", "POLITY", StarObject::getPolity, StarObject::setPolityCode),
+    WORLD_TYPE("worldType", "WORLD_TYPE", StarObject::getWorldType, StarObject::setWorldTypeCode),
+    FUEL_TYPE("fuelType", "FUEL_TYPE", StarObject::getFuelType, StarObject::setFuelTypeCode),
+    PORT_TYPE("portType", "PORT_TYPE", StarObject::getPortType, StarObject::setPortTypeCode),
+    POPULATION_TYPE("populationType", "POPULATION_TYPE", StarObject::getPopulationType, StarObject::setPopulationTypeCode),
+    TECH_TYPE("techType", "TECH_TYPE", StarObject::getTechType, StarObject::setTechTypeCode),
+    PRODUCT_TYPE("productType", "PRODUCT_TYPE", StarObject::getProductType, StarObject::setProductTypeCode),
+    MIL_SPACE_TYPE("milSpaceType", "MIL_SPACE_TYPE", StarObject::getMilSpaceType, StarObject::setMilSpaceTypeCode),
+    MIL_PLAN_TYPE("milPlanType", "MIL_PLAN_TYPE", StarObject::getMilPlanType, StarObject::setMilPlanTypeCode);
+
+    /**
+     * the entity attribute holding the string value
+     */
+    private final String attribute;
+
+    /**
+     * the physical column holding the string value
+     */
+    private final String column;
+
+    private final Function<StarObject, String> valueGetter;
+
+    private final BiConsumer<StarObject, Short> codeSetter;
+
+    StarCategory(String attribute,
+                 String column,
+                 Function<StarObject, String> valueGetter,
+                 BiConsumer<StarObject, Short> codeSetter) {
+        this.attribute = attribute;
+        this.column = column;
+        this.valueGetter = valueGetter;
+        this.codeSetter = codeSetter;
+    }
+
+    public @NotNull String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * @return the entity attribute holding the code
+     */
+    public @NotNull String getCodeAttribute() {
+        return attribute + "Code";
+    }
+
+    public @NotNull String getColumn() {
+        return column;
+    }
+
+    /**
+     * @return the physical column holding the code
+     */
+    public @NotNull String getCodeColumn() {
+        return column + "_CODE";
+    }
+
+    public String valueOf(@NotNull StarObject starObject) {
+        return valueGetter.apply(starObject);
+    }
+
+    public void setCode(@NotNull StarObject starObject, short code) {
+        codeSetter.accept(starObject, code);
+    }
+
+}
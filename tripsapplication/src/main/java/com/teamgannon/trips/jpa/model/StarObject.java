@@ -1,13 +1,17 @@
 package com.teamgannon.trips.jpa.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.teamgannon.trips.dialogs.dataset.Dataset;
 import com.teamgannon.trips.file.chview.ChViewRecord;
 import com.teamgannon.trips.solarsysmodelling.accrete.SimStar;
+import com.teamgannon.trips.stellarmodelling.DisplayScoreCalculator;
 import com.teamgannon.trips.stellarmodelling.StarCreator;
 import com.teamgannon.trips.stellarmodelling.StarModel;
 import com.teamgannon.trips.stellarmodelling.StarUtils;
 import com.teamgannon.trips.stellarmodelling.StellarType;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.persistence.*;
@@ -18,8 +22,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * an relational data model for astrographic objects
@@ -29,6 +31,22 @@ import java.util.regex.Pattern;
 @Slf4j
 @Data
 @Entity(name = "STAR_OBJ")
+@Table(indexes = {
+        @Index(name = "IDX_STAR_DATASET_DISTANCE", columnList = "dataSetName, distance"),
+        @Index(name = "IDX_STAR_DATASET_XYZ", columnList = "dataSetName, x, y, z"),
+        @Index(name = "IDX_STAR_DATASET_NAME", columnList = "dataSetName, displayName"),
+        @Index(name = "IDX_STAR_DATASET_SCORE", columnList = "dataSetName, displayScore"),
+        @Index(name = "IDX_STAR_DATASET_CLASS_CODE", columnList = "dataSetName, stellarClassCode"),
+        @Index(name = "IDX_STAR_DATASET_POLITY_CODE", columnList = "dataSetName, polityCode"),
+        @Index(name = "IDX_STAR_DATASET_WORLD_CODE", columnList = "dataSetName, worldTypeCode"),
+        @Index(name = "IDX_STAR_DATASET_FUEL_CODE", columnList = "dataSetName, fuelTypeCode"),
+        @Index(name = "IDX_STAR_DATASET_PORT_CODE", columnList = "dataSetName, portTypeCode"),
+        @Index(name = "IDX_STAR_DATASET_POPULATION_CODE", columnList = "dataSetName, populationTypeCode"),
+        @Index(name = "IDX_STAR_DATASET_TECH_CODE", columnList = "dataSetName, techTypeCode"),
+        @Index(name = "IDX_STAR_DATASET_PRODUCT_CODE", columnList = "dataSetName, productTypeCode"),
+        @Index(name = "IDX_STAR_DATASET_MIL_SPACE_CODE", columnList = "dataSetName, milSpaceTypeCode"),
+        @Index(name = "IDX_STAR_DATASET_MIL_PLAN_CODE", columnList = "dataSetName, milPlanTypeCode")
+})
 public class StarObject implements Serializable {
 
     public final static String SIMBAD_NO_ID = "UNDEFINED";
@@ -38,26 +56,10 @@ public class StarObject implements Serializable {
     @Serial
     private static final long serialVersionUID = -5403395729696357381L;
 
-    /**
-     * match the pattern * nnn Con
-     * nnn for 3 digits
-     */
-    @Transient
-    Pattern flamsteedPattern = Pattern.compile("[\\*] +[0-9]{3} +[a-zA-Z]{3}");
-
-    /**
-     * match the pattern * ggg Con
-     * ggg for 3 characters
-     */
-    @Transient
-    Pattern bayerPattern = Pattern.compile("[\\*] +[a-zA-Z]{3} +[a-zA-Z]{3}");
-
-
     /**
      * id of the object
      */
     @Id
-    @GeneratedValue
     private UUID id;
 
     /**
@@ -82,25 +84,17 @@ public class StarObject implements Serializable {
     private double mass = 0.0;
 
     /**
-     * A free form text field for any notes we want.  Preferentially DATA will be stored in data fields, even
-     * if we have to add custom fields in the custom object, but sometimes text notes make sense.
-     */
-    @Lob
-    private String notes = "";
-
-    /**
-     * the source catalog system used to hold this star
-     * where did it come from?
-     */
-    @Lob
-    private String source = "";
-
-    /**
-     * Same story. One object has names in many catalogs. The catalogIDs go in an array which can have
-     * one to many entries.
+     * the notes, source, catalog ids and custom fields that are rarely read
+     * <p>
+     * these live in their own table which shares our primary key and is only read when one of the
+     * delegating accessors below is used
      */
-    @Lob
-    private String catalogIdList = "";
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, optional = false)
+    @PrimaryKeyJoinColumn(foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private StarObjectDetails details;
 
     /*
      * The cartesian coordinates of where the object is. Heliocentric (Sol at 0,0,0), Epoch J2000.0 the X axis
@@ -187,6 +181,15 @@ public class StarObject implements Serializable {
      */
     private String orthoSpectralClass;
 
+    /**
+     * the ordinal of the StellarType that orthoSpectralClass resolves to, -1 if none
+     * <p>
+     * this is what the stellar class search filters on
+     */
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT -1")
+    private short stellarClassCode = -1;
+
     /**
      * the temperature of the star in K
      */
@@ -307,92 +310,109 @@ public class StarObject implements Serializable {
      */
     private String milPlanType;
 
-    /**
-     * the star's common name
+    /*
+     * the codes of the categorical fields above, see StarCategory
+     *
+     * these are looked up in the CATEGORY_CODE dictionary when the star is saved, 0 means no value
      */
-    private String commonName;
 
     /**
-     * the Simbad id
+     * the code of the polity
      */
-    private String simbadId;
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short polityCode = 0;
 
     /**
-     * age of the star
+     * the code of the world type
      */
-    private double age;
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short worldTypeCode = 0;
 
     /**
-     * star metallicity
+     * the code of the fuel type
      */
-    private double metallicity;
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short fuelTypeCode = 0;
 
     /**
-     * galactic lattitude
+     * the code of the port type
      */
-    private double galacticLat;
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short portTypeCode = 0;
 
     /**
-     * galactic longitude
+     * the code of the population type
      */
-    private double galacticLong;
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short populationTypeCode = 0;
 
     /**
-     * the id in the gaia catalog
+     * the code of the tech type
      */
-    private String gaiaId;
-
-    /////////////   Miscellaneous   /////////////////////////////////////
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short techTypeCode = 0;
 
     /**
-     * for user custom use in future versions
+     * the code of the product type
      */
-    private String miscText1;
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short productTypeCode = 0;
 
     /**
-     * for user custom use in future versions
+     * the code of the space military type
      */
-    private String miscText2;
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short milSpaceTypeCode = 0;
 
     /**
-     * for user custom use in future versions
+     * the code of the planetary military type
      */
-    private String miscText3;
+    @JsonIgnore
+    @Column(columnDefinition = "SMALLINT DEFAULT 0")
+    private short milPlanTypeCode = 0;
 
     /**
-     * for user custom use in future versions
+     * the star's common name
      */
-    private String miscText4;
+    private String commonName;
 
     /**
-     * for user custom use in future versions
+     * the Simbad id
      */
-    private String miscText5;
+    private String simbadId;
 
     /**
-     * for user custom use in future versions
+     * age of the star
      */
-    private double miscNum1 = 0.0;
+    private double age;
 
     /**
-     * for user custom use in future versions
+     * star metallicity
      */
-    private double miscNum2 = 0.0;
+    private double metallicity;
 
     /**
-     * for user custom use in future versions
+     * galactic lattitude
      */
-    private double miscNum3 = 0.0;
+    private double galacticLat;
 
     /**
-     * for user custom use in future versions
+     * galactic longitude
      */
-    private double miscNum4 = 0.0;
+    private double galacticLong;
 
     /**
-     * for user custom use in future versions
+     * the id in the gaia catalog
      */
-    private double miscNum5 = 0.0;
+    private String gaiaId;
 
     /**
      * a flag that tells us if this system has exoplanets
@@ -408,6 +428,8 @@ public class StarObject implements Serializable {
 
     /**
      * this is a computed heuristic that tells us whether to show the label on the graphics display or not
+     * <p>
+     * it is worked out when the star is saved, 0 means it has not been scored yet
      */
     private double displayScore = 0;
 
@@ -421,11 +443,10 @@ public class StarObject implements Serializable {
 
     private void init() {
         id = UUID.randomUUID();
+        details = new StarObjectDetails(id);
         dataSetName = "not specified";
         realStar = true;
         displayName = "no name";
-        source = "no source identified";
-        catalogIdList = "NA";
         x = 0;
         y = 0;
         z = 0;
@@ -457,7 +478,6 @@ public class StarObject implements Serializable {
         techType = "NA";
         productType = "NA";
         milSpaceType = "NA";
-        notes = "initial star file load";
 
         simbadId = "";
         commonName = "";
@@ -469,25 +489,37 @@ public class StarObject implements Serializable {
 
         exoplanets = false;
 
-        miscNum1 = 0;
-        miscNum2 = 0;
-        miscNum3 = 0;
-        miscNum4 = 0;
-        miscNum5 = 0;
+        displayScore = 0;
+    }
 
-        miscText1 = "";
-        miscText2 = "";
-        miscText3 = "";
-        miscText4 = "";
-        miscText5 = "";
 
-        displayScore = 0;
+    /**
+     * keep the stellar class code in step with the ortho spectral class
+     * <p>
+     * the category codes need the dictionary so they are filled in by CategoryCodeService before saving,
+     * the class code needs nothing but the StellarType table so it is always derived here
+     */
+    @PrePersist
+    @PreUpdate
+    private void deriveStellarClassCode() {
+        stellarClassCode = StellarType.codeOf(orthoSpectralClass);
     }
 
 
     /////////////////  convertors  /////////////
 
+    /**
+     * set the id, the details share it
+     *
+     * @param id the id
+     */
+    public void setId(UUID id) {
+        this.id = id;
+        details.setId(id);
+    }
+
     public List<String> getCatalogIdList() {
+        String catalogIdList = details.getCatalogIdList();
         if (catalogIdList == null) {
             return new ArrayList<>();
         }
@@ -498,234 +530,128 @@ public class StarObject implements Serializable {
     }
 
     public void setCatalogIdList(String catalogIdList) {
-        this.catalogIdList = catalogIdList;
+        details.setCatalogIdList(catalogIdList);
     }
 
-    public double[] getCoordinates() {
-        double[] coordinates = new double[3];
-        coordinates[0] = x;
-        coordinates[1] = y;
-        coordinates[2] = z;
+    public String getNotes() {
+        return details.getNotes();
+    }
 
-        return coordinates;
+    public void setNotes(String notes) {
+        details.setNotes(notes);
     }
 
-    public void setCoordinates(double[] coordinates) {
-        x = coordinates[0];
-        y = coordinates[1];
-        z = coordinates[2];
+    public String getSource() {
+        return details.getSource();
     }
 
+    public void setSource(String source) {
+        details.setSource(source);
+    }
 
-    /**
-     * calculate the display score
-     */
-    public void calculateDisplayScore() {
-        displayScore = calculateBaseScore() * calculateLabelMultiplier();
+    public String getMiscText1() {
+        return details.getMiscText1();
     }
 
-    /**
-     * calculate the display score multiplier
-     * <p>
-     * PLX 3278
-     * |* alf Cen C
-     * |2E 1426.0-6227
-     * |2E  3278
-     * |2RE J142946-624031
-     * |2RE J1429-624
-     * |CCDM J14396-6050C
-     * |CSI-62-14263
-     * |CSV   2142
-     * |Ci 20  861
-     * |GEN# +6.10010551
-     * |GEN# +6.00105721
-     * |GJ   551
-     * |HIC  70890
-     * |HIP  70890
-     * |IRAS 14260-6227
-     * |JP11  5156
-     * |JP11  5155
-     * |JP11  5187
-     * |LFT 1110
-     * |LHS    49
-     * |LPM 526
-     * |LTT  5721
-     * |NAME Proxima Cen
-     * |NAME Proxima
-     * |NAME Proxima Centauri
-     * |NLTT 37460
-     * |PM 14263-6228
-     * |RE J1429-624
-     * |RE J142950-624056
-     * |V* V645 Cen
-     * |Zkh 211
-     * |[AOP94]  6
-     * |[FS2003] 0708
-     * |[GKL99] 301
-     * |[RHG95]  2291
-     * |2MASS J14294291-6240465
-     * |PLX 3278.00
-     * |1E 1425.9-6228
-     * |1ES 1426-62.4
-     * |1RXS J142947.9-624058
-     * |2EUVE J1429-62.6
-     * |EUVE J1429-62.6
-     * |EUVE J1430-62.6
-     * |RX J1429.7-6240
-     * |WDS J14396-6050C
-     * |PMSC 14328-6025C
-     * |Gaia DR2 5853498713160606720
-     * |WISEA J142937.35-624038.3
-     * |GALEX 6387417244251458613
-     * |PM J14297-6240
-     *
-     * @return the multiplier
-     */
-    private double calculateLabelMultiplier() {
+    public void setMiscText1(String miscText1) {
+        details.setMiscText1(miscText1);
+    }
 
-        double cumulativeTotal = 0;
+    public String getMiscText2() {
+        return details.getMiscText2();
+    }
 
-        // 1. Is there something in the Common Name field?
-        if (!commonName.isEmpty()) {
-            cumulativeTotal += 3;
-        }
+    public void setMiscText2(String miscText2) {
+        details.setMiscText2(miscText2);
+    }
 
-        // 2. Does the star have a Flamsteed catalog ID?
-        //      In the CatalogID field there will be a value of "* nnn Con"
-        //      where nnn is an integer and Con is a constellation Abbreviation
-        Matcher flamMatcher = flamsteedPattern.matcher(catalogIdList);
-        if (flamMatcher.find()) {
-            cumulativeTotal += 3;
-        }
+    public String getMiscText3() {
+        return details.getMiscText3();
+    }
 
-        // 3. Does the star have a Bayer catalog ID?
-        //      "* ggg Con" in CatalogID where GGG is
-        //      a greek letter abbreviation, a-z, or A-Q  and Con is a constellation abbreviation
-        Matcher bayerMatcher = bayerPattern.matcher(catalogIdList);
-        if (bayerMatcher.find()) {
-            cumulativeTotal += 3;
-        }
+    public void setMiscText3(String miscText3) {
+        details.setMiscText3(miscText3);
+    }
 
-        // 4. Is the star in the BD catalog?
-        //      BD and DM are the same thing
-        //      An entry in CatalogID staring with BD+ or BD-
-        if (catalogIdList.contains("BD+") || catalogIdList.contains("BD-")) {
-            cumulativeTotal += 1.5;
-        }
+    public String getMiscText4() {
+        return details.getMiscText4();
+    }
 
-        // 5. Is the star in the Gliese catalog?
-        //      "GJ " in Catalog ID
-        //      This is tricky. Alph Cen is GJ 559 But because it's binary, Alph Cen A is in GJ as GJ 559A and
-        //      "GJ 559" isn't in the base catalog right now, because Simbad doesn't list it.
-        if (catalogIdList.contains("GJ")) {
-            cumulativeTotal += 1.5;
-        }
+    public void setMiscText4(String miscText4) {
+        details.setMiscText4(miscText4);
+    }
 
-        // 6. Is the star in Hipparchos?
-        //      "HIP " in Catalog ID
-        //      Same problem. Alpha Cen A is HIP 71683  Alph Cen is not in HIP…
-        if (catalogIdList.contains("HIP")) {
-            cumulativeTotal += 1.5;
-        }
+    public String getMiscText5() {
+        return details.getMiscText5();
+    }
 
-        // 7. Is the star in Henry Draper?
-        //      "HD " in Catalog ID?
-        if (catalogIdList.contains("HD")) {
-            cumulativeTotal += 1.5;
-        }
+    public void setMiscText5(String miscText5) {
+        details.setMiscText5(miscText5);
+    }
 
-        // 8. is there an entry in polity?
-        if (!polity.trim().isEmpty()) {
-            cumulativeTotal += 3;
-        }
+    public double getMiscNum1() {
+        return details.getMiscNum1();
+    }
 
-        // check if any other fictional item is set
-        if (otherFictionalfieldsPresent()) {
-            cumulativeTotal += 3;
-        }
+    public void setMiscNum1(double miscNum1) {
+        details.setMiscNum1(miscNum1);
+    }
 
-        // 10. If none of the above, make the multiplier one. (1)
-        if (cumulativeTotal == 0) {
-            cumulativeTotal = 1;
-        }
+    public double getMiscNum2() {
+        return details.getMiscNum2();
+    }
 
-        return cumulativeTotal;
+    public void setMiscNum2(double miscNum2) {
+        details.setMiscNum2(miscNum2);
     }
 
-    private boolean otherFictionalfieldsPresent() {
-        if (!worldType.trim().isEmpty()) {
-            return true;
-        }
-        if (!fuelType.trim().isEmpty()) {
-            return true;
-        }
-        if (!portType.trim().isEmpty()) {
-            return true;
-        }
-        if (!populationType.trim().isEmpty()) {
-            return true;
-        }
-        if (!techType.trim().isEmpty()) {
-            return true;
-        }
+    public double getMiscNum3() {
+        return details.getMiscNum3();
+    }
 
-        if (!milSpaceType.trim().isEmpty()) {
-            return true;
-        }
+    public void setMiscNum3(double miscNum3) {
+        details.setMiscNum3(miscNum3);
+    }
 
-        return !milPlanType.trim().isEmpty();
+    public double getMiscNum4() {
+        return details.getMiscNum4();
     }
 
-    private double calculateBaseScore() {
-        int base = 0;
+    public void setMiscNum4(double miscNum4) {
+        details.setMiscNum4(miscNum4);
+    }
 
-        StarModel starModel = new StarCreator().parseSpectral(orthoSpectralClass);
+    public double getMiscNum5() {
+        return details.getMiscNum5();
+    }
 
-        if (starModel.getStellarClass() == null) {
-            log.error("could not find stellar class");
-            return 1;
-        }
+    public void setMiscNum5(double miscNum5) {
+        details.setMiscNum5(miscNum5);
+    }
 
-        // process harvard spectral class
-        if (orthoSpectralClass.length() > 1) {
-            StellarType x = starModel.getStellarClass();
-            if (x == null) {
-                log.error("odd");
-            }
-            String harvardSpecClass = starModel.getStellarClass().getValue();
-
-            switch (harvardSpecClass) {
-                case "O", "A", "B" -> base += 2;
-                case "F", "K" -> base += 4;
-                case "G" -> base += 5;
-                case "M" -> base += 3;
-                case "L", "T", "Y" -> base += 1;
-            }
-        }
+    public double[] getCoordinates() {
+        double[] coordinates = new double[3];
+        coordinates[0] = x;
+        coordinates[1] = y;
+        coordinates[2] = z;
 
+        return coordinates;
+    }
+
+    public void setCoordinates(double[] coordinates) {
+        x = coordinates[0];
+        y = coordinates[1];
+        z = coordinates[2];
+    }
 
-        // process luminosity
-        String luminosityValue = starModel.getLuminosityClass();
-        if (luminosityValue != null && !luminosityValue.isEmpty()) {
-            int lumNum = 1;
-            switch (luminosityValue) {
-                case "I" -> lumNum = 1;
-                case "II" -> lumNum = 2;
-                case "III" -> lumNum = 3;
-                case "IV" -> lumNum = 4;
-                case "V" -> lumNum = 5;
-                case "VI" -> lumNum = 6;
-                case "VII" -> lumNum = 7;
-                case "VIII" -> lumNum = 8;
-                case "IX" -> lumNum = 9;
-                case "X" -> lumNum = 10;
-            }
-            base += (11 - lumNum);
-        } else {
-            base += 1;
-        }
 
-        return base;
+    /**
+     * calculate the display score
+     */
+    public void calculateDisplayScore() {
+        displayScore = DisplayScoreCalculator.calculate(
+                orthoSpectralClass, commonName, details.getCatalogIdList(), polity,
+                worldType, fuelType, portType, populationType, techType, milSpaceType, milPlanType);
     }
 
     public SimStar toSimStar() {
@@ -789,9 +715,9 @@ public class StarObject implements Serializable {
 
         // mark that this is the first load of this object
         if (chViewRecord.getComment() != null) {
-            this.notes = chViewRecord.getComment();
+            setNotes(chViewRecord.getComment());
         } else {
-            this.notes = "";
+            setNotes("");
         }
 
 
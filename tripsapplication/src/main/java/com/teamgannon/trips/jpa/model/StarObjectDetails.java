@@ -0,0 +1,112 @@
+package com.teamgannon.trips.jpa.model;
+
+import lombok.Data;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * the cold part of a star, the large text fields and the custom fields that are rarely read
+ * <p>
+ * this shares its primary key with the StarObject it belongs to and is fetched lazily so that
+ * scans over the star table do not drag the lob data along with them. StarObject exposes all these
+ * fields through its own getters and setters so callers do not need to know about the split.
+ */
+@Data
+@Entity(name = "STAR_OBJ_DETAILS")
+public class StarObjectDetails implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2203637496434961553L;
+
+    /**
+     * the id of the star that this belongs to
+     */
+    @Id
+    private UUID id;
+
+    /**
+     * A free form text field for any notes we want.  Preferentially DATA will be stored in data fields, even
+     * if we have to add custom fields in the custom object, but sometimes text notes make sense.
+     */
+    @Lob
+    private String notes = "initial star file load";
+
+    /**
+     * the source catalog system used to hold this star
+     * where did it come from?
+     */
+    @Lob
+    private String source = "no source identified";
+
+    /**
+     * Same story. One object has names in many catalogs. The catalogIDs go in an array which can have
+     * one to many entries.
+     */
+    @Lob
+    private String catalogIdList = "NA";
+
+    /////////////   Miscellaneous   /////////////////////////////////////
+
+    /**
+     * for user custom use in future versions
+     */
+    private String miscText1 = "";
+
+    /**
+     * for user custom use in future versions
+     */
+    private String miscText2 = "";
+
+    /**
+     * for user custom use in future versions
+     */
+    private String miscText3 = "";
+
+    /**
+     * for user custom use in future versions
+     */
+    private String miscText4 = "";
+
+    /**
+     * for user custom use in future versions
+     */
+    private String miscText5 = "";
+
+    /**
+     * for user custom use in future versions
+     */
+    private double miscNum1 = 0.0;
+
+    /**
+     * for user custom use in future versions
+     */
+    private double miscNum2 = 0.0;
+
+    /**
+     * for user custom use in future versions
+     */
+    private double miscNum3 = 0.0;
+
+    /**
+     * for user custom use in future versions
+     */
+    private double miscNum4 = 0.0;
+
+    /**
+     * for user custom use in future versions
+     */
+    private double miscNum5 = 0.0;
+
+    public StarObjectDetails() {
+    }
+
+    public StarObjectDetails(UUID id) {
+        this.id = id;
+    }
+
+}
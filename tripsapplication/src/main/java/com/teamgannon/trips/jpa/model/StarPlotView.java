@@ -0,0 +1,128 @@
+package com.teamgannon.trips.jpa.model;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * a lightweight read only projection of a star that has just what we need to plot it
+ * <p>
+ * this is filled by a constructor expression query so that plotting does not hydrate full StarObject
+ * entities with their lob fields and all the other columns. Anything that needs the whole star, like
+ * the edit dialog or the properties pane, looks it up by id when it is asked for.
+ * <p>
+ * it can't be changed once made, so the query cache can hand the same views to every plot that asks
+ */
+@Value
+public class StarPlotView {
+
+    /**
+     * the column list for the constructor expression, in the order of the constructor
+     * <p>
+     * every one is a column of the star table, the details table is never joined for a plot
+     */
+    public static final String[] PROJECTED_FIELDS = {
+            "id", "dataSetName", "displayName",
+            "x", "y", "z", "distance",
+            "spectralClass", "orthoSpectralClass", "polity",
+            "radius", "mass", "forceLabelToBeShown", "displayScore"
+    };
+
+    private UUID id;
+
+    private String dataSetName;
+
+    private String displayName;
+
+    private double x;
+
+    private double y;
+
+    private double z;
+
+    private double distance;
+
+    private String spectralClass;
+
+    private String orthoSpectralClass;
+
+    private String polity;
+
+    private double radius;
+
+    private double mass;
+
+    private boolean forceLabelToBeShown;
+
+    /**
+     * the stored label display score, worked out when the star was saved
+     */
+    private double displayScore;
+
+    public StarPlotView(UUID id,
+                        String dataSetName,
+                        String displayName,
+                        double x,
+                        double y,
+                        double z,
+                        double distance,
+                        String spectralClass,
+                        String orthoSpectralClass,
+                        String polity,
+                        double radius,
+                        double mass,
+                        boolean forceLabelToBeShown,
+                        double displayScore) {
+        this.id = id;
+        this.dataSetName = dataSetName;
+        this.displayName = displayName;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.distance = distance;
+        this.spectralClass = spectralClass;
+        this.orthoSpectralClass = orthoSpectralClass;
+        this.polity = polity;
+        this.radius = radius;
+        this.mass = mass;
+        this.forceLabelToBeShown = forceLabelToBeShown;
+        this.displayScore = displayScore;
+    }
+
+    /**
+     * build a plot view from a star we already have in memory
+     * <p>
+     * used where the stars come from somewhere other than a projection query, like an advanced search
+     *
+     * @param starObject the star
+     * @return the plot view
+     */
+    public static @NotNull StarPlotView fromStarObject(@NotNull StarObject starObject) {
+        return new StarPlotView(
+                starObject.getId(),
+                starObject.getDataSetName(),
+                starObject.getDisplayName(),
+                starObject.getX(),
+                starObject.getY(),
+                starObject.getZ(),
+                starObject.getDistance(),
+                starObject.getSpectralClass(),
+                starObject.getOrthoSpectralClass(),
+                starObject.getPolity(),
+                starObject.getRadius(),
+                starObject.getMass(),
+                starObject.isForceLabelToBeShown(),
+                starObject.getDisplayScore());
+    }
+
+    public double[] getCoordinates() {
+        double[] coordinates = new double[3];
+        coordinates[0] = x;
+        coordinates[1] = y;
+        coordinates[2] = z;
+
+        return coordinates;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.teamgannon.trips.jpa.repository;
+
+import com.teamgannon.trips.jpa.model.CategoryCode;
+import org.springframework.data.repository.CrudRepository;
+
+public interface CategoryCodeRepository extends CrudRepository<CategoryCode, Long> {
+}
@@ -0,0 +1,15 @@
+package com.teamgannon.trips.jpa.repository;
+
+import com.teamgannon.trips.jpa.model.ImportRun;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.UUID;
+
+/**
+ * the imports that are still writing stars
+ */
+public interface ImportRunRepository extends CrudRepository<ImportRun, UUID> {
+
+    ImportRun findByDataSetName(String dataSetName);
+
+}
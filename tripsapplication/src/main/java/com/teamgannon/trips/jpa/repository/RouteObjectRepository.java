@@ -0,0 +1,82 @@
+package com.teamgannon.trips.jpa.repository;
+
+import com.teamgannon.trips.jpa.model.RouteObject;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * used to access the stored routes
+ */
+public interface RouteObjectRepository extends CrudRepository<RouteObject, UUID> {
+
+    /**
+     * get all the routes of a dataset with their stars in one query
+     *
+     * @param dataSetName the dataset
+     * @return the routes in the order they were made
+     */
+    @Query("SELECT DISTINCT r FROM ROUTE r LEFT JOIN FETCH r.stars " +
+            "WHERE r.dataSet.dataSetName = :dataSetName ORDER BY r.routeOrder")
+    List<RouteObject> findByDataSetName(@Param("dataSetName") String dataSetName);
+
+    /**
+     * @param dataSetName the dataset
+     * @return the number of routes in the dataset
+     */
+    @Query("SELECT COUNT(r) FROM ROUTE r WHERE r.dataSet.dataSetName = :dataSetName")
+    long countByDataSetName(@Param("dataSetName") String dataSetName);
+
+    /**
+     * @param dataSetName the dataset
+     * @return the position of the last route in the dataset, -1 if it has none
+     */
+    @Query("SELECT COALESCE(MAX(r.routeOrder), -1) FROM ROUTE r WHERE r.dataSet.dataSetName = :dataSetName")
+    int findLastRouteOrder(@Param("dataSetName") String dataSetName);
+
+    /**
+     * find the routes that pass through a star, this goes straight to the star id index
+     *
+     * @param starId the star
+     * @return the ids of the routes
+     */
+    @Query("SELECT DISTINCT rs.route.id FROM ROUTE_STAR rs WHERE rs.starId = :starId")
+    List<UUID> findRouteIdsByStarId(@Param("starId") UUID starId);
+
+    /**
+     * delete the stars of every route in a dataset, this has to go before deleteRoutesByDataSetName
+     *
+     * @param dataSetName the dataset
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM ROUTE_STAR rs WHERE rs.route.id IN " +
+            "(SELECT r.id FROM ROUTE r WHERE r.dataSet.dataSetName = :dataSetName)")
+    int deleteRouteStarsByDataSetName(@Param("dataSetName") String dataSetName);
+
+    /**
+     * delete the routes of a dataset, their stars must already be gone
+     *
+     * @param dataSetName the dataset
+     * @return the number of routes deleted
+     */
+    @Modifying
+    @Query("DELETE FROM ROUTE r WHERE r.dataSet.dataSetName = :dataSetName")
+    int deleteRoutesByDataSetName(@Param("dataSetName") String dataSetName);
+
+    /**
+     * move the routes of a dataset over to another, both descriptors must exist
+     *
+     * @param dataSetName    the current dataset
+     * @param newDataSetName the dataset to move them to
+     * @return the number of routes moved
+     */
+    @Modifying
+    @Query(value = "UPDATE ROUTE SET DATA_SET_NAME = :newDataSetName WHERE DATA_SET_NAME = :dataSetName", nativeQuery = true)
+    int moveRoutes(@Param("dataSetName") String dataSetName, @Param("newDataSetName") String newDataSetName);
+
+}
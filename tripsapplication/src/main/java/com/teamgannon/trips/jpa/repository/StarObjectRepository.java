@@ -3,11 +3,13 @@ package com.teamgannon.trips.jpa.repository;
 import com.teamgannon.trips.jpa.model.StarObject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -19,6 +21,16 @@ import java.util.stream.Stream;
 public interface StarObjectRepository
         extends PagingAndSortingRepository<StarObject, UUID>, StarObjectRepositoryCustom {
 
+    /**
+     * find a star along with its details
+     *
+     * @param id the id
+     * @return the star
+     */
+    @Override
+    @EntityGraph(attributePaths = "details")
+    Optional<StarObject> findById(UUID id);
+
     /**
      * find by a list of ids
      *
@@ -57,11 +69,14 @@ public interface StarObjectRepository
 
     /**
      * find a star containing a partial match on a name in a specified dataset
+     * <p>
+     * the matches are shown and edited as full records so their details come along
      *
      * @param dataSetName the dataset
      * @param nameMatch   the partial match
      * @return the list of objects that match what we search for
      */
+    @EntityGraph(attributePaths = "details")
     List<StarObject> findByDataSetNameAndDisplayNameContainsIgnoreCase(String dataSetName, String nameMatch);
 
 
@@ -75,11 +90,21 @@ public interface StarObjectRepository
 
     /**
      * delete all stars stored with a specific dataset name
+     * <p>
+     * this loads every star before deleting it, use deleteChunkByDataSetName for large datasets
      *
      * @param dataSetName the name
      */
     void deleteByDataSetName(String dataSetName);
 
+    /**
+     * count the stars in a dataset
+     *
+     * @param dataSetName the name
+     * @return the number of stars
+     */
+    long countByDataSetName(String dataSetName);
+
     /**
      * this is the distance from Sol
      *
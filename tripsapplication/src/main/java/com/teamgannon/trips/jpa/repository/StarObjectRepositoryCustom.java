@@ -1,13 +1,18 @@
 package com.teamgannon.trips.jpa.repository;
 
 import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.jpa.model.StarPlotView;
 import com.teamgannon.trips.search.AstroSearchQuery;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -42,4 +47,181 @@ public interface StarObjectRepositoryCustom {
     @Transactional(readOnly = true)
     Stream<StarObject> findBySearchQueryStream(@NotNull AstroSearchQuery astroSearchQuery);
 
+    /**
+     * walk the star objects that match a query with a forward only cursor
+     * <p>
+     * the persistence context is cleared every clearInterval stars so the session never holds more
+     * than that many managed entities, which means the consumer must not rely on lazy loading
+     *
+     * @param astroSearchQuery the astro query
+     * @param fetchSize        the JDBC fetch size
+     * @param clearInterval    how many stars to read between clearing the persistence context, zero or less
+     *                         never clears it
+     * @param consumer         called for each star in display name order
+     * @return the number of stars read
+     */
+    @Transactional(readOnly = true)
+    long scrollBySearchQuery(@NotNull AstroSearchQuery astroSearchQuery,
+                             int fetchSize,
+                             int clearInterval,
+                             @NotNull Consumer<StarObject> consumer);
+
+    /**
+     * walk the star objects in the bounding box of a recentered query with a forward only cursor
+     *
+     * @param astroSearchQuery the astro query that holds the dataset and the bounding box
+     * @param fetchSize        the JDBC fetch size
+     * @param clearInterval    how many stars to read between clearing the persistence context, zero or less
+     *                         never clears it
+     * @param consumer         called for each star in display name order
+     * @return the number of stars read
+     */
+    @Transactional(readOnly = true)
+    long scrollByBoundingBox(@NotNull AstroSearchQuery astroSearchQuery,
+                             int fetchSize,
+                             int clearInterval,
+                             @NotNull Consumer<StarObject> consumer);
+
+    /**
+     * count the star objects that match a query without fetching them
+     *
+     * @param astroSearchQuery the astro query
+     * @return the number of matching stars
+     */
+    @Transactional(readOnly = true)
+    long countBySearchQuery(@NotNull AstroSearchQuery astroSearchQuery);
+
+    /**
+     * get the next page of star objects that match a query using keyset pagination
+     * <p>
+     * results are ordered by (displayName, id) with the stars that have no name last, ordered by id, and
+     * the page starts after the given key, so the cost of a page does not depend on how deep into the
+     * results we are
+     *
+     * @param astroSearchQuery the astro query
+     * @param lastDisplayName  the display name of the last star on the previous page, may be null
+     * @param lastId           the id of the last star on the previous page, null for the first page
+     * @param limit            the maximum number of stars to return
+     * @param withDetails      true to read the details in the same query, for exports that write every column
+     * @return the page of star objects
+     */
+    @Transactional(readOnly = true)
+    List<StarObject> findBySearchQueryAfter(@NotNull AstroSearchQuery astroSearchQuery,
+                                            String lastDisplayName,
+                                            UUID lastId,
+                                            int limit,
+                                            boolean withDetails);
+
+    /**
+     * get the next page of star objects in a dataset using keyset pagination
+     *
+     * @param dataSetName     the dataset name
+     * @param lastDisplayName the display name of the last star on the previous page, may be null
+     * @param lastId          the id of the last star on the previous page, null for the first page
+     * @param limit           the maximum number of stars to return
+     * @param withDetails     true to read the details in the same query, for exports that write every column
+     * @return the page of star objects
+     */
+    @Transactional(readOnly = true)
+    List<StarObject> findByDataSetNameAfter(@NotNull String dataSetName,
+                                            String lastDisplayName,
+                                            UUID lastId,
+                                            int limit,
+                                            boolean withDetails);
+
+    /**
+     * get the notes of some stars without loading the stars, for lists that show a comment column
+     *
+     * @param ids the star ids
+     * @return the notes by star id, stars without notes are left out
+     */
+    @Transactional(readOnly = true)
+    Map<UUID, String> findNotesByIds(@NotNull Collection<UUID> ids);
+
+    /**
+     * get the plot projection of the stars that match a query
+     * <p>
+     * only the columns needed to draw a star are read, the entities are never hydrated
+     *
+     * @param astroSearchQuery the astro query
+     * @return the plot views in display name order
+     */
+    @Transactional(readOnly = true)
+    List<StarPlotView> findPlotViewsBySearchQuery(@NotNull AstroSearchQuery astroSearchQuery);
+
+    /**
+     * get the plot projection of the stars in the bounding box of a recentered query
+     *
+     * @param astroSearchQuery the astro query that holds the dataset and the bounding box
+     * @return the plot views in display name order
+     */
+    @Transactional(readOnly = true)
+    List<StarPlotView> findPlotViewsByBoundingBox(@NotNull AstroSearchQuery astroSearchQuery);
+
+    /**
+     * get the ids of the stars a plot of a query should label, best first
+     * <p>
+     * this is the same set of stars as the plot query, limited to the sphere around the center, ranked in the
+     * database by the display score weighted for how far away they are, the same way a plot weights the labels
+     * it picks itself. Only the ids of the top stars come back.
+     *
+     * @param astroSearchQuery the astro query
+     * @param limit            the number of stars to return
+     * @return the star ids, best first
+     */
+    @Transactional(readOnly = true)
+    List<UUID> findTopScoredIds(@NotNull AstroSearchQuery astroSearchQuery, int limit);
+
+    /**
+     * get the plot projection of the stars in a dataset that are within a distance of Sol
+     *
+     * @param dataSetName the dataset name
+     * @param distance    the distance limit
+     * @param limit       the maximum number of stars to return
+     * @return the plot views in display name order
+     */
+    @Transactional(readOnly = true)
+    List<StarPlotView> findPlotViewsByDataSetNameWithinDistance(@NotNull String dataSetName,
+                                                                double distance,
+                                                                int limit);
+
+    /**
+     * insert a large number of new stars
+     * <p>
+     * the stars are persisted rather than merged so there is no existence check per star, and the
+     * persistence context is flushed and cleared periodically so the inserts go out as JDBC batches
+     * and memory stays flat. The stars must be new and have their ids assigned.
+     *
+     * @param starObjects the stars to insert
+     * @return the number of stars inserted
+     */
+    @Transactional
+    long persistAll(@NotNull Iterable<StarObject> starObjects);
+
+    /**
+     * delete the next chunk of stars in a dataset with bulk statements
+     * <p>
+     * no entities are loaded, the star ids for the chunk are selected and then the details and the
+     * stars are deleted by id. Call this repeatedly until it returns zero.
+     *
+     * @param dataSetName the dataset name
+     * @param chunkSize   the maximum number of stars to delete
+     * @return the number of stars deleted
+     */
+    @Transactional
+    int deleteChunkByDataSetName(@NotNull String dataSetName, int chunkSize);
+
+    /**
+     * move the next chunk of stars in a dataset to another dataset name with a bulk update
+     * <p>
+     * call this repeatedly until it returns zero
+     *
+     * @param dataSetName    the dataset name to move stars from
+     * @param newDataSetName the dataset name to move them to
+     * @param chunkSize      the maximum number of stars to move
+     * @return the number of stars moved
+     */
+    @Transactional
+    int renameChunkByDataSetName(@NotNull String dataSetName, @NotNull String newDataSetName, int chunkSize);
+
 }
@@ -1,11 +1,18 @@
 package com.teamgannon.trips.jpa.repository.impl;
 
+import com.teamgannon.trips.jpa.model.StarCategory;
 import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.jpa.model.StarPlotView;
 import com.teamgannon.trips.jpa.repository.StarObjectRepositoryCustom;
 import com.teamgannon.trips.search.AstroSearchQuery;
+import com.teamgannon.trips.service.codes.CategoryCodeService;
 import com.teamgannon.trips.stellarmodelling.StellarType;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.jpa.QueryHints;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -14,8 +21,14 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,16 +38,35 @@ import java.util.stream.Stream;
 @Slf4j
 public class StarObjectRepositoryImpl implements StarObjectRepositoryCustom {
 
+    /**
+     * the fetch size used for streamed results when the caller does not specify one
+     */
+    private static final int DEFAULT_FETCH_SIZE = 500;
+
     /**
      * the entity manager for getting elements from table
      */
     private final EntityManager em;
 
+    /**
+     * turns the categorical fields into the codes we search on
+     */
+    private final CategoryCodeService categoryCodeService;
+
+    /**
+     * how many stars we persist before flushing and clearing the persistence context
+     */
+    private final int flushInterval;
+
     /**
      * the constructor needed for injecting the elasticsearch infrastructure
      */
-    public StarObjectRepositoryImpl(EntityManager em) {
+    public StarObjectRepositoryImpl(EntityManager em,
+                                    CategoryCodeService categoryCodeService,
+                                    @Value("${app.bulk.flushInterval:1000}") int flushInterval) {
         this.em = em;
+        this.categoryCodeService = categoryCodeService;
+        this.flushInterval = flushInterval;
     }
 
 
@@ -48,10 +80,10 @@ public class StarObjectRepositoryImpl implements StarObjectRepositoryCustom {
     public List<StarObject> findBySearchQuery(@NotNull AstroSearchQuery astroSearchQuery) {
 
         TypedQuery<StarObject> typedQuery = getStarObjectTypedQuery(astroSearchQuery);
-        int totalRows = typedQuery.getResultList().size();
-        log.info("number of records found={}", totalRows);
+        List<StarObject> starObjects = typedQuery.getResultList();
+        log.info("number of records found={}", starObjects.size());
 
-        return typedQuery.getResultList();
+        return starObjects;
     }
 
     /**
@@ -63,10 +95,10 @@ public class StarObjectRepositoryImpl implements StarObjectRepositoryCustom {
      */
     @Override
     public Page<StarObject> findBySearchQueryPaged(AstroSearchQuery astroSearchQuery, Pageable page) {
-        TypedQuery<StarObject> typedQuery = getStarObjectTypedQuery(astroSearchQuery);
-        int totalRows = typedQuery.getResultList().size();
+        long totalRows = countBySearchQuery(astroSearchQuery);
         log.info("number of records found={}", totalRows);
 
+        TypedQuery<StarObject> typedQuery = getStarObjectTypedQuery(astroSearchQuery);
         typedQuery.setFirstResult(page.getPageNumber() * page.getPageSize());
         typedQuery.setMaxResults(page.getPageSize());
         return new PageImpl<>(typedQuery.getResultList(), page, totalRows);
@@ -75,19 +107,474 @@ public class StarObjectRepositoryImpl implements StarObjectRepositoryCustom {
 
     /**
      * get star objects that match query as a Java 8 stream
+     * <p>
+     * the stream is backed by an open cursor so it must be consumed and closed inside the transaction
      *
      * @param astroSearchQuery the astro query the query
      * @return the stream of objects
-     * @TODO: 2021-02-24  Currently this fails on first read. No idea why. Don't use until I figure it out
      */
     public Stream<StarObject> findBySearchQueryStream(@NotNull AstroSearchQuery astroSearchQuery) {
         TypedQuery<StarObject> typedQuery = getStarObjectTypedQuery(astroSearchQuery);
-        int totalRows = typedQuery.getResultList().size();
-        log.info("number of records found={}", totalRows);
-
+        typedQuery.setHint(QueryHints.HINT_FETCH_SIZE, DEFAULT_FETCH_SIZE);
+        typedQuery.setHint(QueryHints.HINT_READONLY, true);
         return typedQuery.getResultStream();
     }
 
+    /**
+     * walk the stars that match a query with a scrollable cursor
+     *
+     * @param astroSearchQuery the astro query
+     * @param fetchSize        the JDBC fetch size
+     * @param clearInterval    how often to clear the persistence context
+     * @param consumer         the consumer of each star
+     * @return the number of stars read
+     */
+    @Override
+    public long scrollBySearchQuery(@NotNull AstroSearchQuery astroSearchQuery,
+                                    int fetchSize,
+                                    int clearInterval,
+                                    @NotNull Consumer<StarObject> consumer) {
+        return scroll(getStarObjectTypedQuery(astroSearchQuery), fetchSize, clearInterval, consumer);
+    }
+
+    /**
+     * walk the stars in the bounding box of a recentered query with a scrollable cursor
+     *
+     * @param astroSearchQuery the astro query
+     * @param fetchSize        the JDBC fetch size
+     * @param clearInterval    how often to clear the persistence context
+     * @param consumer         the consumer of each star
+     * @return the number of stars read
+     */
+    @Override
+    public long scrollByBoundingBox(@NotNull AstroSearchQuery astroSearchQuery,
+                                    int fetchSize,
+                                    int clearInterval,
+                                    @NotNull Consumer<StarObject> consumer) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<StarObject> query = cb.createQuery(StarObject.class);
+        Root<StarObject> astrographicObject = query.from(StarObject.class);
+
+        query.where(makeBoundingBoxQuery(astroSearchQuery, astrographicObject, cb).toArray(new Predicate[0]));
+        query.orderBy(cb.asc(astrographicObject.get("displayName")));
+
+        return scroll(em.createQuery(query), fetchSize, clearInterval, consumer);
+    }
+
+    /**
+     * run a query through a forward only Hibernate cursor, handing each entity to the consumer
+     * and clearing the session periodically so entities do not pile up, an interval of zero or less never clears
+     */
+    private long scroll(@NotNull TypedQuery<StarObject> typedQuery,
+                        int fetchSize,
+                        int clearInterval,
+                        @NotNull Consumer<StarObject> consumer) {
+        org.hibernate.query.Query<?> hibernateQuery = typedQuery.unwrap(org.hibernate.query.Query.class);
+        hibernateQuery.setFetchSize(fetchSize);
+        hibernateQuery.setReadOnly(true);
+
+        long count = 0;
+        try (ScrollableResults results = hibernateQuery.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                StarObject starObject = (StarObject) results.get(0);
+                consumer.accept(starObject);
+                count++;
+                if (clearInterval > 0 && count % clearInterval == 0) {
+                    em.clear();
+                }
+            }
+        }
+        log.info("number of records scrolled={}", count);
+        return count;
+    }
+
+    /**
+     * count the stars that match a query
+     *
+     * @param astroSearchQuery the astro query
+     * @return the count
+     */
+    @Override
+    public long countBySearchQuery(@NotNull AstroSearchQuery astroSearchQuery) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<StarObject> astrographicObject = query.from(StarObject.class);
+
+        List<Predicate> predicates = makeAstroQuery(astroSearchQuery, astrographicObject, cb);
+        query.select(cb.count(astrographicObject));
+        query.where(predicates.toArray(new Predicate[0]));
+
+        return em.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * get the next keyset page of stars that match a query
+     *
+     * @param astroSearchQuery the astro query
+     * @param lastDisplayName  the display name of the last star seen, may be null
+     * @param lastId           the id of the last star seen, null to start
+     * @param limit            the page size
+     * @param withDetails      true to fetch the details in the same query
+     * @return the stars
+     */
+    @Override
+    public List<StarObject> findBySearchQueryAfter(@NotNull AstroSearchQuery astroSearchQuery,
+                                                   String lastDisplayName,
+                                                   UUID lastId,
+                                                   int limit,
+                                                   boolean withDetails) {
+        return findPageAfter((root, cb) -> makeAstroQuery(astroSearchQuery, root, cb),
+                lastDisplayName, lastId, limit, withDetails);
+    }
+
+    /**
+     * get the next keyset page of stars in a dataset
+     *
+     * @param dataSetName     the dataset name
+     * @param lastDisplayName the display name of the last star seen, may be null
+     * @param lastId          the id of the last star seen, null to start
+     * @param limit           the page size
+     * @param withDetails     true to fetch the details in the same query
+     * @return the stars
+     */
+    @Override
+    public List<StarObject> findByDataSetNameAfter(@NotNull String dataSetName,
+                                                   String lastDisplayName,
+                                                   UUID lastId,
+                                                   int limit,
+                                                   boolean withDetails) {
+        return findPageAfter((root, cb) -> {
+                    List<Predicate> predicates = new ArrayList<>();
+                    predicates.add(cb.equal(root.get("dataSetName"), dataSetName));
+                    return predicates;
+                },
+                lastDisplayName, lastId, limit, withDetails);
+    }
+
+    /**
+     * one keyset page, the named stars by (displayName, id) and then the unnamed ones by id
+     * <p>
+     * the null names get their own branch because (displayName, id) > (null, id) is never true, a star
+     * without a name at the end of a page would otherwise start the same page again
+     *
+     * @param filter          makes the predicates that pick the stars
+     * @param lastDisplayName the display name of the last star seen
+     * @param lastId          the id of the last star seen, null to start
+     * @param limit           the page size
+     * @param withDetails     true to fetch the details in the same query
+     * @return the stars
+     */
+    private List<StarObject> findPageAfter(@NotNull BiFunction<Root<StarObject>, CriteriaBuilder, List<Predicate>> filter,
+                                           String lastDisplayName,
+                                           UUID lastId,
+                                           int limit,
+                                           boolean withDetails) {
+        List<StarObject> page = new ArrayList<>();
+        if (lastId == null || lastDisplayName != null) {
+            page.addAll(findKeysetPage(filter, true, lastDisplayName, lastId, limit, withDetails));
+            if (page.size() == limit) {
+                return page;
+            }
+            // out of named stars, carry on with the unnamed ones from the start
+            lastId = null;
+        }
+        page.addAll(findKeysetPage(filter, false, null, lastId, limit - page.size(), withDetails));
+        return page;
+    }
+
+    private List<StarObject> findKeysetPage(@NotNull BiFunction<Root<StarObject>, CriteriaBuilder, List<Predicate>> filter,
+                                            boolean named,
+                                            String lastDisplayName,
+                                            UUID lastId,
+                                            int limit,
+                                            boolean withDetails) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<StarObject> query = cb.createQuery(StarObject.class);
+        Root<StarObject> astrographicObject = query.from(StarObject.class);
+        if (withDetails) {
+            astrographicObject.fetch("details", JoinType.LEFT);
+        }
+
+        Path<String> displayName = astrographicObject.get("displayName");
+        Path<UUID> id = astrographicObject.get("id");
+        List<Predicate> predicates = filter.apply(astrographicObject, cb);
+        if (named) {
+            predicates.add(cb.isNotNull(displayName));
+            if (lastId != null) {
+                predicates.add(makeKeysetPredicate(astrographicObject, cb, lastDisplayName, lastId));
+            }
+            query.orderBy(cb.asc(displayName), cb.asc(id));
+        } else {
+            predicates.add(cb.isNull(displayName));
+            if (lastId != null) {
+                predicates.add(cb.greaterThan(id, lastId));
+            }
+            query.orderBy(cb.asc(id));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]));
+        return em.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * get the notes of some stars
+     *
+     * @param ids the star ids
+     * @return the notes by star id
+     */
+    @Override
+    public Map<UUID, String> findNotesByIds(@NotNull Collection<UUID> ids) {
+        Map<UUID, String> notes = new HashMap<>();
+        if (ids.isEmpty()) {
+            return notes;
+        }
+        List<Object[]> rows = em.createQuery("SELECT d.id, d.notes FROM STAR_OBJ_DETAILS d WHERE d.id IN :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                notes.put((UUID) row[0], (String) row[1]);
+            }
+        }
+        return notes;
+    }
+
+    /**
+     * persist new stars in batches
+     *
+     * @param starObjects the stars to insert
+     * @return the number inserted
+     */
+    @Override
+    public long persistAll(@NotNull Iterable<StarObject> starObjects) {
+        long start = System.currentTimeMillis();
+        long count = 0;
+        for (StarObject starObject : starObjects) {
+            starObject.calculateDisplayScore();
+            categoryCodeService.encode(starObject);
+            em.persist(starObject);
+            count++;
+            if (count % flushInterval == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        log.info("bulk inserted {} stars in {} ms ({} stars/s)", count, elapsed, count * 1000 / elapsed);
+        return count;
+    }
+
+    /**
+     * delete a chunk of a dataset
+     *
+     * @param dataSetName the dataset name
+     * @param chunkSize   the chunk size
+     * @return the number deleted
+     */
+    @Override
+    public int deleteChunkByDataSetName(@NotNull String dataSetName, int chunkSize) {
+        List<UUID> ids = findIdChunk(dataSetName, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        em.createQuery("DELETE FROM STAR_OBJ_DETAILS d WHERE d.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return em.createQuery("DELETE FROM STAR_OBJ s WHERE s.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * rename a chunk of a dataset
+     *
+     * @param dataSetName    the current name
+     * @param newDataSetName the new name
+     * @param chunkSize      the chunk size
+     * @return the number moved
+     */
+    @Override
+    public int renameChunkByDataSetName(@NotNull String dataSetName, @NotNull String newDataSetName, int chunkSize) {
+        List<UUID> ids = findIdChunk(dataSetName, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("UPDATE STAR_OBJ s SET s.dataSetName = :newDataSetName WHERE s.id IN :ids")
+                .setParameter("newDataSetName", newDataSetName)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    private List<UUID> findIdChunk(@NotNull String dataSetName, int chunkSize) {
+        return em.createQuery("SELECT s.id FROM STAR_OBJ s WHERE s.dataSetName = :dataSetName", UUID.class)
+                .setParameter("dataSetName", dataSetName)
+                .setMaxResults(chunkSize)
+                .getResultList();
+    }
+
+    /**
+     * the seek predicate: (displayName, id) > (lastDisplayName, lastId)
+     */
+    private @NotNull Predicate makeKeysetPredicate(@NotNull Root<StarObject> root,
+                                                   @NotNull CriteriaBuilder cb,
+                                                   @NotNull String lastDisplayName,
+                                                   @NotNull UUID lastId) {
+        Path<String> displayName = root.get("displayName");
+        Path<UUID> id = root.get("id");
+        return cb.or(
+                cb.greaterThan(displayName, lastDisplayName),
+                cb.and(cb.equal(displayName, lastDisplayName), cb.greaterThan(id, lastId))
+        );
+    }
+
+
+    /**
+     * get the plot views that match a query
+     *
+     * @param astroSearchQuery the astro query
+     * @return the plot views
+     */
+    @Override
+    public List<StarPlotView> findPlotViewsBySearchQuery(@NotNull AstroSearchQuery astroSearchQuery) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<StarPlotView> query = cb.createQuery(StarPlotView.class);
+        Root<StarObject> astrographicObject = query.from(StarObject.class);
+
+        List<Predicate> predicates = makeAstroQuery(astroSearchQuery, astrographicObject, cb);
+        return getPlotViews(query, astrographicObject, cb, predicates, 0);
+    }
+
+    /**
+     * get the plot views in the bounding box of a recentered query
+     *
+     * @param astroSearchQuery the astro query
+     * @return the plot views
+     */
+    @Override
+    public List<StarPlotView> findPlotViewsByBoundingBox(@NotNull AstroSearchQuery astroSearchQuery) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<StarPlotView> query = cb.createQuery(StarPlotView.class);
+        Root<StarObject> astrographicObject = query.from(StarObject.class);
+
+        List<Predicate> predicates = makeBoundingBoxQuery(astroSearchQuery, astrographicObject, cb);
+        return getPlotViews(query, astrographicObject, cb, predicates, 0);
+    }
+
+    /**
+     * get the ids of the stars a plot of a query should label
+     *
+     * @param astroSearchQuery the astro query
+     * @param limit            the number of stars to return
+     * @return the star ids, best weighted score first
+     */
+    @Override
+    public List<UUID> findTopScoredIds(@NotNull AstroSearchQuery astroSearchQuery, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<UUID> query = cb.createQuery(UUID.class);
+        Root<StarObject> astrographicObject = query.from(StarObject.class);
+
+        List<Predicate> predicates = astroSearchQuery.isRecenter()
+                ? makeBoundingBoxQuery(astroSearchQuery, astrographicObject, cb)
+                : makeAstroQuery(astroSearchQuery, astrographicObject, cb);
+        predicates.add(makeSpherePredicate(astroSearchQuery, astrographicObject, cb));
+
+        // the same weighting as StarDisplayRecord.setCurrentLabelDisplayScore, less the 2 * display radius
+        // factor that every star shares, a star at the origin always wins
+        Path<Double> displayScore = astrographicObject.get("displayScore");
+        Path<Double> distance = astrographicObject.get("distance");
+        Expression<Double> weightedScore = cb.<Double>selectCase()
+                .when(cb.le(distance, 0.0), cb.literal(Double.MAX_VALUE))
+                .otherwise(cb.quot(displayScore, distance).as(Double.class));
+
+        query.select(astrographicObject.get("id"));
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(cb.desc(weightedScore), cb.asc(astrographicObject.get("id")));
+
+        return em.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * get the plot views of a dataset within a distance of Sol
+     *
+     * @param dataSetName the dataset name
+     * @param distance    the distance limit
+     * @param limit       the maximum number to return
+     * @return the plot views
+     */
+    @Override
+    public List<StarPlotView> findPlotViewsByDataSetNameWithinDistance(@NotNull String dataSetName,
+                                                                       double distance,
+                                                                       int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<StarPlotView> query = cb.createQuery(StarPlotView.class);
+        Root<StarObject> astrographicObject = query.from(StarObject.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(astrographicObject.get("dataSetName"), dataSetName));
+        predicates.add(cb.lessThan(astrographicObject.get("distance"), distance));
+        return getPlotViews(query, astrographicObject, cb, predicates, limit);
+    }
+
+    /**
+     * run a constructor expression query for the plot view columns, a limit of zero means no limit
+     */
+    private List<StarPlotView> getPlotViews(@NotNull CriteriaQuery<StarPlotView> query,
+                                            @NotNull Root<StarObject> root,
+                                            @NotNull CriteriaBuilder cb,
+                                            @NotNull List<Predicate> predicates,
+                                            int limit) {
+        Selection<?>[] selections = new Selection<?>[StarPlotView.PROJECTED_FIELDS.length];
+        for (int i = 0; i < selections.length; i++) {
+            selections[i] = root.get(StarPlotView.PROJECTED_FIELDS[i]);
+        }
+        query.select(cb.construct(StarPlotView.class, selections));
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(cb.asc(root.get("displayName")));
+
+        TypedQuery<StarPlotView> typedQuery = em.createQuery(query);
+        typedQuery.setHint(QueryHints.HINT_FETCH_SIZE, DEFAULT_FETCH_SIZE);
+        if (limit > 0) {
+            typedQuery.setMaxResults(limit);
+        }
+        List<StarPlotView> plotViews = typedQuery.getResultList();
+        log.info("number of plot views read={}", plotViews.size());
+        return plotViews;
+    }
+
+    /**
+     * the predicates for the bounding box around the center of a recentered query
+     */
+    private @NotNull List<Predicate> makeBoundingBoxQuery(@NotNull AstroSearchQuery astroSearchQuery,
+                                                          @NotNull Root<StarObject> root,
+                                                          @NotNull CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get("dataSetName"), astroSearchQuery.getDescriptor().getDataSetName()));
+        predicates.add(cb.greaterThan(root.get("x"), astroSearchQuery.getXMinus()));
+        predicates.add(cb.lessThan(root.get("x"), astroSearchQuery.getXPlus()));
+        predicates.add(cb.greaterThan(root.get("y"), astroSearchQuery.getYMinus()));
+        predicates.add(cb.lessThan(root.get("y"), astroSearchQuery.getYPlus()));
+        predicates.add(cb.greaterThan(root.get("z"), astroSearchQuery.getZMinus()));
+        predicates.add(cb.lessThan(root.get("z"), astroSearchQuery.getZPlus()));
+        return predicates;
+    }
+
+    /**
+     * the stars strictly inside the sphere of the query's upper distance limit around its center
+     */
+    private @NotNull Predicate makeSpherePredicate(@NotNull AstroSearchQuery astroSearchQuery,
+                                                   @NotNull Root<StarObject> root,
+                                                   @NotNull CriteriaBuilder cb) {
+        double[] center = astroSearchQuery.getCenterCoordinates();
+        Expression<Double> dx = cb.diff(root.<Double>get("x"), center[0]);
+        Expression<Double> dy = cb.diff(root.<Double>get("y"), center[1]);
+        Expression<Double> dz = cb.diff(root.<Double>get("z"), center[2]);
+        Expression<Double> distanceSquared = cb.sum(cb.sum(cb.prod(dx, dx), cb.prod(dy, dy)), cb.prod(dz, dz));
+        double radius = astroSearchQuery.getUpperDistanceLimit();
+        return cb.lessThan(distanceSquared, radius * radius);
+    }
 
     private TypedQuery<StarObject> getStarObjectTypedQuery(@NotNull AstroSearchQuery astroSearchQuery) {
         // create the criteria builder to start putting all this together
@@ -127,11 +614,8 @@ public class StarObjectRepositoryImpl implements StarObjectRepositoryCustom {
         Set<StellarType> stellarSet = astroSearchQuery.getStellarTypes();
 
         if (!stellarSet.isEmpty()) {
-            List<String> spectralClasses = stellarSet.stream().map(StellarType::getValue).collect(Collectors.toList());
-            Expression<String> exp = root.get("orthoSpectralClass");
-            Expression<String> subString = cb.substring(exp, 0, 1);
-            Predicate predicate = subString.in(spectralClasses);
-            predicates.add(predicate);
+            Expression<Short> exp = root.get("stellarClassCode");
+            predicates.add(exp.in(StellarType.matchingCodes(stellarSet)));
         }
 
         // create a query with a real star type
@@ -165,13 +649,10 @@ public class StarObjectRepositoryImpl implements StarObjectRepositoryCustom {
                 log.info("None selected");
                 polityList.add("NA");
             }
-            Expression<String> exp = root.get("polity");
             // setup predicates for actual matches
-            Predicate setPredicate = null;
             if (polityList.size() > 0) {
                 log.info("polities:" + polityList);
-                setPredicate = exp.in(polityList);
-                predicates.add(setPredicate);
+                predicates.add(makeCategoryPredicate(StarCategory.POLITY, polityList, root, cb));
             }
             // set predicate for empty polity accepted if it was selected
 //            if (noneSelected) {
@@ -188,77 +669,70 @@ public class StarObjectRepositoryImpl implements StarObjectRepositoryCustom {
         // setup a predicate based on world types
         Set<String> worldTypesSet = astroSearchQuery.getWorldTypes();
         if (!worldTypesSet.isEmpty()) {
-            List<String> worldTypesList = new ArrayList<>(worldTypesSet);
-            Expression<String> exp = root.get("worldType");
-            Predicate predicate = exp.in(worldTypesList);
-            predicates.add(predicate);
+            predicates.add(makeCategoryPredicate(StarCategory.WORLD_TYPE, worldTypesSet, root, cb));
         }
 
         // setup a predicate based on fuel types
         Set<String> fuelTypesSet = astroSearchQuery.getFuelTypes();
         if (!fuelTypesSet.isEmpty()) {
-            List<String> fuelTypesList = new ArrayList<>(fuelTypesSet);
-            Expression<String> exp = root.get("fuelType");
-            Predicate predicate = exp.in(fuelTypesList);
-            predicates.add(predicate);
+            predicates.add(makeCategoryPredicate(StarCategory.FUEL_TYPE, fuelTypesSet, root, cb));
         }
 
         // setup a predicate based on space port types
         Set<String> portTypesSet = astroSearchQuery.getPortTypes();
         if (!portTypesSet.isEmpty()) {
-            List<String> portTypesList = new ArrayList<>(portTypesSet);
-            Expression<String> exp = root.get("portType");
-            Predicate predicate = exp.in(portTypesList);
-            predicates.add(predicate);
+            predicates.add(makeCategoryPredicate(StarCategory.PORT_TYPE, portTypesSet, root, cb));
         }
 
         // setup a predicate based on population types
         Set<String> populationTypesSet = astroSearchQuery.getPopulationTypes();
         if (!populationTypesSet.isEmpty()) {
-            List<String> populationTypesList = new ArrayList<>(populationTypesSet);
-            Expression<String> exp = root.get("populationType");
-            Predicate predicate = exp.in(populationTypesList);
-            predicates.add(predicate);
+            predicates.add(makeCategoryPredicate(StarCategory.POPULATION_TYPE, populationTypesSet, root, cb));
         }
 
         // setup a predicate based on tech types
         Set<String> techTypesSet = astroSearchQuery.getTechTypes();
         if (!techTypesSet.isEmpty()) {
-            List<String> techTypesList = new ArrayList<>(techTypesSet);
-            Expression<String> exp = root.get("techType");
-            Predicate predicate = exp.in(techTypesList);
-            predicates.add(predicate);
+            predicates.add(makeCategoryPredicate(StarCategory.TECH_TYPE, techTypesSet, root, cb));
         }
 
         // setup a predicate based on product types
         Set<String> productTypesSet = astroSearchQuery.getProductTypes();
         if (!productTypesSet.isEmpty()) {
-            List<String> productTypesList = new ArrayList<>(productTypesSet);
-            Expression<String> exp = root.get("productType");
-            Predicate predicate = exp.in(productTypesList);
-            predicates.add(predicate);
+            predicates.add(makeCategoryPredicate(StarCategory.PRODUCT_TYPE, productTypesSet, root, cb));
         }
 
         // setup a predicate based on military space types
         Set<String> milSpaceTypesSet = astroSearchQuery.getMilSpaceTypes();
         if (!milSpaceTypesSet.isEmpty()) {
-            List<String> milSpaceTypesList = new ArrayList<>(milSpaceTypesSet);
-            Expression<String> exp = root.get("milSpaceType");
-            Predicate predicate = exp.in(milSpaceTypesList);
-            predicates.add(predicate);
+            predicates.add(makeCategoryPredicate(StarCategory.MIL_SPACE_TYPE, milSpaceTypesSet, root, cb));
         }
 
         // setup a predicate based on military planet types
         Set<String> milPlanTypesSet = astroSearchQuery.getMilPlanTypes();
         if (!milPlanTypesSet.isEmpty()) {
-            List<String> milPlanTypesList = new ArrayList<>(milPlanTypesSet);
-            Expression<String> exp = root.get("milPlanType");
-            Predicate predicate = exp.in(milPlanTypesList);
-            predicates.add(predicate);
+            predicates.add(makeCategoryPredicate(StarCategory.MIL_PLAN_TYPE, milPlanTypesSet, root, cb));
         }
 
         // return the  set of predicated to query on
         return predicates;
     }
 
+    /**
+     * match a categorical field against the codes of the values selected
+     * <p>
+     * a value that has no code has never been stored on any star, so if none of them have codes nothing matches
+     */
+    private @NotNull Predicate makeCategoryPredicate(@NotNull StarCategory category,
+                                                     @NotNull Collection<String> values,
+                                                     @NotNull Root<StarObject> root,
+                                                     @NotNull CriteriaBuilder cb) {
+        List<Short> codes = categoryCodeService.findCodes(category, values);
+        if (codes.isEmpty()) {
+            return cb.disjunction();
+        }
+        Expression<Short> exp = root.get(category.getCodeAttribute());
+        return exp.in(codes);
+    }
+
 }
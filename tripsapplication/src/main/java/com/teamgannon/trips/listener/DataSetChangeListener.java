@@ -19,6 +19,21 @@ public interface DataSetChangeListener {
      */
     void removeDataSet(DataSetDescriptor dataSetDescriptor);
 
+    /**
+     * a dataset was removed by a background task, the database work is already done
+     *
+     * @param dataSetDescriptor the removed dataset descriptor
+     */
+    void dataSetRemoved(DataSetDescriptor dataSetDescriptor);
+
+    /**
+     * a dataset was renamed by a background task, the database work is already done
+     *
+     * @param original the descriptor under its old name
+     * @param renamed  the descriptor under its new name
+     */
+    void dataSetRenamed(DataSetDescriptor original, DataSetDescriptor renamed);
+
     /**
      * set the contextual dataset
      *
@@ -1,6 +1,8 @@
 package com.teamgannon.trips.listener;
 
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.routing.Route;
 
 import java.util.List;
 import java.util.UUID;
@@ -50,4 +52,12 @@ public interface DatabaseListener {
      * @param id the id
      */
     void removeStar(UUID id);
+
+    /**
+     * get the stored routes of a dataset
+     *
+     * @param descriptor the dataset
+     * @return the routes
+     */
+    List<Route> getRoutes(DataSetDescriptor descriptor);
 }
@@ -4,6 +4,7 @@ import com.teamgannon.trips.config.application.DataSetContext;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.routing.Route;
 import com.teamgannon.trips.routing.tree.treemodel.RouteTree;
+import com.teamgannon.trips.service.DatabaseManagementService;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -32,9 +33,14 @@ public class RouteReportDialog extends Dialog<Boolean> {
 
     private final ChoiceBox<String> dataSetChoice;
 
+    private final DatabaseManagementService databaseManagementService;
+
     private Stage stage;
 
-    public RouteReportDialog(DataSetContext dataSetContext, List<DataSetDescriptor> dataSetDescriptorList) {
+    public RouteReportDialog(DataSetContext dataSetContext,
+                             List<DataSetDescriptor> dataSetDescriptorList,
+                             DatabaseManagementService databaseManagementService) {
+        this.databaseManagementService = databaseManagementService;
 
         setTitle("Run Route Report for a Dataset");
         setWidth(200);
@@ -82,7 +88,7 @@ public class RouteReportDialog extends Dialog<Boolean> {
         DataSetDescriptor descriptor = lookUp.get(selected);
         String dataSetDescription = getDescription(descriptor);
         StringBuilder report = new StringBuilder(dataSetDescription);
-        List<Route> routeList = descriptor.getRoutes();
+        List<Route> routeList = databaseManagementService.getRoutes(descriptor);
         for (Route route : routeList) {
             RouteTree routeTree = RouteTree.createRouteTree(route);
             report.append(routeTree.getRoute());
@@ -35,50 +35,39 @@ public class RouteBuilderHelper {
      * @param pathName    the name of this path
      * @param color       the color
      * @param lineWidth   the route line width
-     * @param path        the graph path
+     * @param routeGraph  the graph the path was found in
+     * @param path        the vertices along the path
      * @return the created route
      */
-    public RouteDescriptor buildPath(String source, String destination, String pathName, Color color, double lineWidth, @NotNull String path) {
+    public RouteDescriptor buildPath(String source, String destination, String pathName, Color color, double lineWidth,
+                                     @NotNull RouteGraph routeGraph, int @NotNull [] path) {
         RouteDescriptor route = RouteDescriptor.builder().build();
-        String extractPath = path.substring(1, path.length() - 1);
-        String[] starList = extractPath.split(",");
 
         // set route info
         route.setName(String.format("Route %s to %s, path %s", source, destination, pathName));
-        route.setRouteNotes(path);
+        route.setRouteNotes(routeGraph.describe(path));
         route.setColor(color);
-        route.setMaxLength(starList.length - 1);
-        route.setStartStar(starList[0]);
-        StarDisplayRecord lastStar = starDisplayRecordMap.get(starList[starList.length - 1].trim());
-        route.setLastStar(lastStar);
+        route.setMaxLength(path.length - 1);
+        route.setStartStar(routeGraph.getStar(path[0]).getStarName());
+        route.setLastStar(routeGraph.getStar(path[path.length - 1]));
         route.setLineWidth(lineWidth);
 
-        Arrays.stream(starList).forEach(name -> {
-            route.getNameList().add(name.trim());
-            StarDisplayRecord starDisplayRecord = starDisplayRecordMap.get(name.trim());
-            route.getRouteList().add(starDisplayRecord.getRecordId());
-        });
-
-
         // set segments
-
         double totalLength = 0;
-        boolean first = true;
-        double[] coordinates1 = new double[3];
-        for (String star : starList) {
-            StarDisplayRecord starDisplayRecord = starDisplayRecordMap.get(star.trim());
-            if (first) {
-                first = false;
-                coordinates1 = starDisplayRecord.getActualCoordinates();
-            } else {
-                double[] coordinates2 = starDisplayRecord.getActualCoordinates();
+        double[] coordinates1 = null;
+        for (int vertex : path) {
+            StarDisplayRecord starDisplayRecord = routeGraph.getStar(vertex);
+            route.getNameList().add(starDisplayRecord.getStarName());
+            route.getRouteList().add(starDisplayRecord.getRecordId());
+
+            double[] coordinates2 = starDisplayRecord.getActualCoordinates();
+            if (coordinates1 != null) {
                 double lengthValue = StarMath.getDistance(coordinates1, coordinates2);
                 totalLength += lengthValue;
-                coordinates1 = coordinates2;
                 route.addLengthSegment(lengthValue);
             }
+            coordinates1 = coordinates2;
             route.addLineSegment(starDisplayRecord.getCoordinates());
-
         }
         route.setTotalLength(totalLength);
 
@@ -6,11 +6,12 @@ import com.teamgannon.trips.graphics.entities.RouteDescriptor;
 import com.teamgannon.trips.graphics.entities.StarDisplayRecord;
 import com.teamgannon.trips.graphics.panes.InterstellarSpacePane;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
-import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.jpa.model.StarPlotView;
 import com.teamgannon.trips.routing.dialogs.DisplayAutoRoutesDialog;
 import com.teamgannon.trips.routing.dialogs.RouteFinderDialogInDataSet;
 import com.teamgannon.trips.service.DatabaseManagementService;
 import com.teamgannon.trips.service.StarMeasurementService;
+import com.teamgannon.trips.service.async.AsyncDatabaseService;
 import com.teamgannon.trips.transits.TransitRoute;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
@@ -39,11 +40,12 @@ public class RouteFinderDataset {
      */
     public void startRouteLocation(DataSetDescriptor currentDataset,
                                    DatabaseManagementService databaseManagementService,
+                                   AsyncDatabaseService asyncDatabaseService,
                                    @NotNull StarDisplayPreferences starDisplayPreferences) {
 
         RouteFinderDialogInDataSet routeFinderDialogInView = new RouteFinderDialogInDataSet(
                 currentDataset.getDataSetName(),
-                databaseManagementService);
+                asyncDatabaseService);
         Stage theStage = (Stage) routeFinderDialogInView.getDialogPane().getScene().getWindow();
         theStage.setAlwaysOnTop(true);
         theStage.toFront();
@@ -60,12 +62,12 @@ public class RouteFinderDataset {
             // if we actually selected the option to route then do it
             if (routeFindingOptions.isSelected()) {
 
-                List<StarObject> starObjects = databaseManagementService.getFromDatasetWithinLimit(currentDataset, routeFindingOptions.getMaxDistance());
+                List<StarPlotView> plotViews = databaseManagementService.getPlotViewsFromDatasetWithinLimit(currentDataset, routeFindingOptions.getMaxDistance());
 
-                Map<String, StarObject> astroMap = starObjects.stream().collect(Collectors.toMap(StarObject::getDisplayName, astrographicObject -> astrographicObject, (a, b) -> b));
+                Map<String, StarPlotView> astroMap = plotViews.stream().collect(Collectors.toMap(StarPlotView::getDisplayName, plotView -> plotView, (a, b) -> b));
 
-                List<StarDisplayRecord> starsInView = starObjects.stream().map(
-                        astrographicObject -> StarDisplayRecord.fromStarObject(astrographicObject, starDisplayPreferences))
+                List<StarDisplayRecord> starsInView = plotViews.stream().map(
+                        plotView -> StarDisplayRecord.fromStarPlotView(plotView, starDisplayPreferences))
                         .filter(Objects::nonNull).collect(Collectors.toList());
 
                 RouteBuilderHelper routeBuilderHelper = new RouteBuilderHelper(starsInView);
@@ -86,28 +88,21 @@ public class RouteFinderDataset {
                 RouteGraph routeGraph = new RouteGraph(transitRoutes);
 
                 // check if the origin star and destination star are connected to each other
-                if (routeGraph.isConnected(origin, destination)) {
+                if (routeGraph.isConnected(routeGraph.vertexOf(origin), routeGraph.vertexOf(destination))) {
                     log.info("Source and destination stars have a path");
 
-                    // find the k shortest paths. We add one because the first is null
-                    List<String> kShortestPaths = routeGraph.findKShortestPaths(
-                            origin, destination, routeFindingOptions.getNumberPaths() + 1);
-                    kShortestPaths.forEach(System.out::println);
+                    // find the k shortest paths
+                    List<int[]> kShortestPaths = routeGraph.findKShortestPaths(
+                            routeGraph.vertexOf(origin), routeGraph.vertexOf(destination), routeFindingOptions.getNumberPaths());
 
                     PossibleRoutes possibleRoutes = new PossibleRoutes();
                     possibleRoutes.setDesiredPath(String.format("Route %s to %s", origin, destination));
 
                     List<RouteDescriptor> routeList = new ArrayList<>();
-                    List<String> pathToPlot = new ArrayList<>(kShortestPaths);
 
                     int i = 1;
                     // for each of our paths create a route
-                    for (String path : pathToPlot) {
-                        if (path.contains("null")) {
-                            // this is a dead path
-                            continue;
-                        }
-
+                    for (int[] path : kShortestPaths) {
                         Color color = routeFindingOptions.getColor();
                         if (i > 1) {
                             color = Color.color(Math.random(), Math.random(), Math.random());
@@ -115,7 +110,7 @@ public class RouteFinderDataset {
 
                         RouteDescriptor route = routeBuilderHelper.buildPath(
                                 origin, destination, Integer.toString(i++),
-                                color, routeFindingOptions.getLineWidth(), path);
+                                color, routeFindingOptions.getLineWidth(), routeGraph, path);
 
                         routeList.add(route);
 
@@ -123,7 +118,7 @@ public class RouteFinderDataset {
                                 .builder()
                                 .totalLength(route.getTotalLength())
                                 .routeDescriptor(route)
-                                .path(path)
+                                .path(route.getRouteNotes())
                                 .rank(i - 1)
                                 .numberOfSegments(route.getLineSegments().size())
                                 .build();
@@ -140,7 +135,7 @@ public class RouteFinderDataset {
                         List<RoutingMetric> selectedRoutingMetrics = optionalRoutingMetrics.get();
                         if (selectedRoutingMetrics.size() > 0) {
                             log.info("plotting selected routes:{}", selectedRoutingMetrics);
-                            List<StarObject> plotList = gatherStars(possibleRoutes, astroMap);
+                            List<StarPlotView> plotList = gatherStars(possibleRoutes, astroMap);
 
                             // plot the stars and routes found
                             plot(selectedRoutingMetrics, plotList);
@@ -159,8 +154,8 @@ public class RouteFinderDataset {
 
     }
 
-    private List<StarObject> gatherStars(PossibleRoutes possibleRoutes, Map<String, StarObject> astroMap) {
-        List<StarObject> starList = new ArrayList<>();
+    private List<StarPlotView> gatherStars(PossibleRoutes possibleRoutes, Map<String, StarPlotView> astroMap) {
+        List<StarPlotView> starList = new ArrayList<>();
         possibleRoutes
                 .getRoutes()
                 .stream()
@@ -178,7 +173,7 @@ public class RouteFinderDataset {
      * @param routeList the routes to plot
      * @param plotList  the list of stars to plot
      */
-    private void plot(List<RoutingMetric> routeList, List<StarObject> plotList) {
+    private void plot(List<RoutingMetric> routeList, List<StarPlotView> plotList) {
 //        interstellarSpacePane.plotRouteDescriptors(routeList);
         log.info(routeList.toString());
         log.info("# of stars= " + plotList.size());
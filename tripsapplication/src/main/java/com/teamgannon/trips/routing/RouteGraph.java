@@ -2,58 +2,57 @@ package com.teamgannon.trips.routing;
 
 import com.teamgannon.trips.graphics.entities.StarDisplayRecord;
 import com.teamgannon.trips.transits.TransitRoute;
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
-import org.jgrapht.Graph;
-import org.jgrapht.GraphPath;
-import org.jgrapht.alg.connectivity.ConnectivityInspector;
-import org.jgrapht.alg.interfaces.ShortestPathAlgorithm;
-import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
-import org.jgrapht.alg.shortestpath.YenKShortestPath;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.SimpleWeightedGraph;
-import org.jgrapht.nio.Attribute;
-import org.jgrapht.nio.DefaultAttribute;
-import org.jgrapht.nio.dot.DOTExporter;
-
-import java.io.StringWriter;
-import java.io.Writer;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
-
-@Data
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * the graph of transits we route over
+ * <p>
+ * each star is an int vertex and the edges are kept as compressed rows: the neighbours of vertex v are
+ * adjacency[rowStart[v]] to adjacency[rowStart[v + 1] - 1] with the matching lengths in weights. Each transit
+ * shows up in the rows of both its stars. Paths come back as arrays of vertices, getStar turns a vertex back
+ * into its star.
+ * <p>
+ * the searches share scratch arrays so a graph should only be searched from one thread at a time.
+ */
 @Slf4j
 public class RouteGraph {
 
     /**
-     * our discovered transits
+     * the star of each vertex
      */
-    private final @NotNull List<TransitRoute> transitRoutes;
+    private final StarDisplayRecord @NotNull [] stars;
 
     /**
-     * the graph constructed
+     * vertex lookup by star name, the first star with a name wins
      */
-    private final @NotNull Graph<String, DefaultEdge> routingGraph;
+    private final @NotNull Map<String, Integer> vertexByName = new HashMap<>();
+
+    private final int @NotNull [] rowStart;
+    private final int @NotNull [] adjacency;
+    private final double @NotNull [] weights;
 
     /**
-     * our connectivity graph
+     * the connected component of each vertex, worked out the first time it is asked for
      */
-    private final @NotNull ConnectivityInspector<String, DefaultEdge> connectivityInspector;
+    private int @Nullable [] component;
 
     /**
-     * our shortest path graph
+     * dijkstra scratch, a vertex's distance and previous vertex are only good if its stamp is the current search
      */
-    private final @NotNull DijkstraShortestPath<String, DefaultEdge> dijkstraAlg;
+    private final double @NotNull [] distance;
+    private final int @NotNull [] previous;
+    private final int @NotNull [] stamp;
+    private int search = 0;
 
     /**
-     * our Yen k shortest paths
+     * the vertices and edges a yen spur search has to go around
      */
-    private final @NotNull YenKShortestPath<String, DefaultEdge> kShortedPaths;
-
+    private final @NotNull BitSet bannedVertices;
+    private final @NotNull BitSet bannedEdges;
 
     /**
      * the ctor
@@ -61,89 +60,444 @@ public class RouteGraph {
      * @param transitRoutes the transits to map to a graph
      */
     public RouteGraph(@NotNull List<TransitRoute> transitRoutes) {
-        this.transitRoutes = transitRoutes;
-
-        routingGraph = new SimpleWeightedGraph<>(DefaultEdge.class);
+        long start = System.currentTimeMillis();
 
+        // number the stars, a star is the same vertex however many transits it is in
+        Map<UUID, Integer> vertexById = new HashMap<>();
+        List<StarDisplayRecord> starList = new ArrayList<>();
+        int[] from = new int[transitRoutes.size()];
+        int[] to = new int[transitRoutes.size()];
+        double[] length = new double[transitRoutes.size()];
+        int edgeCount = 0;
         for (TransitRoute transitRoute : transitRoutes) {
-            StarDisplayRecord source = transitRoute.getSource();
-            StarDisplayRecord destination = transitRoute.getTarget();
-            routingGraph.addVertex(source.getStarName());
-            routingGraph.addVertex(destination.getStarName());
-            DefaultEdge e1 = routingGraph.addEdge(source.getStarName(), destination.getStarName());
-            routingGraph.setEdgeWeight(e1, transitRoute.getDistance());
+            int source = vertexOf(transitRoute.getSource(), vertexById, starList);
+            int target = vertexOf(transitRoute.getTarget(), vertexById, starList);
+            if (source == target) {
+                continue;
+            }
+            from[edgeCount] = source;
+            to[edgeCount] = target;
+            length[edgeCount] = transitRoute.getDistance();
+            edgeCount++;
         }
+        stars = starList.toArray(new StarDisplayRecord[0]);
+        int n = stars.length;
 
-        // setup a connectivity inspector
-        connectivityInspector = new ConnectivityInspector<>(routingGraph);
+        // count the degrees, then fill the rows
+        rowStart = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            rowStart[from[e] + 1]++;
+            rowStart[to[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            rowStart[v + 1] += rowStart[v];
+        }
+        adjacency = new int[edgeCount * 2];
+        weights = new double[edgeCount * 2];
+        int[] fill = Arrays.copyOf(rowStart, n);
+        for (int e = 0; e < edgeCount; e++) {
+            int a = fill[from[e]]++;
+            adjacency[a] = to[e];
+            weights[a] = length[e];
+            int b = fill[to[e]]++;
+            adjacency[b] = from[e];
+            weights[b] = length[e];
+        }
 
-        // determine shortest paths
-        dijkstraAlg = new DijkstraShortestPath<>(routingGraph);
+        distance = new double[n];
+        previous = new int[n];
+        stamp = new int[n];
+        bannedVertices = new BitSet(n);
+        bannedEdges = new BitSet(adjacency.length);
 
-        kShortedPaths = new YenKShortestPath<>(routingGraph);
+        log.info("route graph of {} stars and {} transits built in {} ms",
+                n, edgeCount, System.currentTimeMillis() - start);
+    }
 
+    private int vertexOf(@NotNull StarDisplayRecord star,
+                         @NotNull Map<UUID, Integer> vertexById,
+                         @NotNull List<StarDisplayRecord> starList) {
+        Integer vertex = vertexById.get(star.getRecordId());
+        if (vertex == null) {
+            vertex = starList.size();
+            vertexById.put(star.getRecordId(), vertex);
+            vertexByName.putIfAbsent(star.getStarName(), vertex);
+            starList.add(star);
+        }
+        return vertex;
     }
 
     /**
-     * export our grah in GraphViz format for plotting
+     * @return the number of stars in the graph
      */
-    public void exportGraphViz() {
-        DOTExporter<String, DefaultEdge> exporter =
-                new DOTExporter<>();
+    public int getVertexCount() {
+        return stars.length;
+    }
 
-        exporter.setVertexAttributeProvider((v) -> {
-            Map<String, Attribute> map = new LinkedHashMap<>();
-            map.put("label", DefaultAttribute.createAttribute(v));
-            return map;
-        });
-        Writer writer = new StringWriter();
-        exporter.exportGraph(routingGraph, writer);
+    /**
+     * @return the number of transits in the graph
+     */
+    public int getEdgeCount() {
+        return adjacency.length / 2;
+    }
+
+    /**
+     * find the vertex of a star
+     *
+     * @param starName the star name
+     * @return the vertex, -1 if the star has no transits
+     */
+    public int vertexOf(@NotNull String starName) {
+        return vertexByName.getOrDefault(starName, -1);
+    }
+
+    /**
+     * @param vertex the vertex
+     * @return the star it stands for
+     */
+    public @NotNull StarDisplayRecord getStar(int vertex) {
+        return stars[vertex];
     }
 
     /**
      * tells us whether a path exists between the origin star and destination star
      *
-     * @param originStar      the star we start at
-     * @param destinationStar the star we want to go to
+     * @param origin      the vertex we start at
+     * @param destination the vertex we want to go to
      * @return true if a path exists, false otherwise
      */
-    public boolean isConnected(String originStar, String destinationStar) {
-        return connectivityInspector.pathExists(originStar, destinationStar);
+    public boolean isConnected(int origin, int destination) {
+        if (origin < 0 || destination < 0) {
+            return false;
+        }
+        int[] components = components();
+        return components[origin] == components[destination];
     }
 
     /**
      * get the connected set from the origin point
      *
-     * @param vertexToLook the vertex to find connectivity
-     * @return the set of connections
+     * @param vertex the vertex to find connectivity
+     * @return the vertices it is connected to, itself included
      */
-    public Set<String> getConnectedTo(String vertexToLook) {
-        return connectivityInspector.connectedSetOf(vertexToLook);
+    public int @NotNull [] getConnectedTo(int vertex) {
+        int[] components = components();
+        int count = 0;
+        for (int c : components) {
+            if (c == components[vertex]) {
+                count++;
+            }
+        }
+        int[] connected = new int[count];
+        int k = 0;
+        for (int v = 0; v < components.length; v++) {
+            if (components[v] == components[vertex]) {
+                connected[k++] = v;
+            }
+        }
+        return connected;
     }
 
     /**
      * find the shortest path
      *
-     * @param origin      the star
-     * @param destination the destination
-     * @return the path found
+     * @param origin      the start vertex
+     * @param destination the end vertex
+     * @return the vertices along the path, null if there is none
      */
-    public String findShortestPath(@NotNull String origin, String destination) {
-        ShortestPathAlgorithm.SingleSourcePaths<String, DefaultEdge> originPaths = dijkstraAlg.getPaths(origin);
-        return originPaths.getPath(destination).toString();
+    public int @Nullable [] findShortestPath(int origin, int destination) {
+        return dijkstra(origin, destination);
     }
 
     /**
-     * find the k shortest paths
+     * find the k shortest loopless paths with Yen's algorithm, shortest first
      *
-     * @param source      the start
-     * @param destination the destination
+     * @param origin      the start vertex
+     * @param destination the end vertex
      * @param kPaths      the number of paths to find
-     * @return the lsit of discovered paths
+     * @return the discovered paths, fewer than asked for if there aren't that many
+     */
+    public @NotNull List<int[]> findKShortestPaths(int origin, int destination, int kPaths) {
+        List<int[]> paths = new ArrayList<>();
+        if (kPaths <= 0 || origin < 0 || destination < 0) {
+            return paths;
+        }
+        int[] shortest = dijkstra(origin, destination);
+        if (shortest == null) {
+            return paths;
+        }
+        paths.add(shortest);
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        Set<Candidate> seen = new HashSet<>();
+        seen.add(new Candidate(shortest, pathLength(shortest)));
+
+        while (paths.size() < kPaths) {
+            int[] last = paths.get(paths.size() - 1);
+            for (int i = 0; i < last.length - 1; i++) {
+                int spur = last[i];
+
+                // the paths found so far that share this root can't leave it the same way again
+                for (int[] path : paths) {
+                    if (path.length > i + 1 && Arrays.equals(path, 0, i + 1, last, 0, i + 1)) {
+                        banEdge(path[i], path[i + 1]);
+                    }
+                }
+                // and the spur path can't go back through the root
+                for (int k = 0; k < i; k++) {
+                    bannedVertices.set(last[k]);
+                }
+
+                int[] spurPath = dijkstra(spur, destination);
+                bannedEdges.clear();
+                bannedVertices.clear();
+                if (spurPath == null) {
+                    continue;
+                }
+                int[] path = new int[i + spurPath.length];
+                System.arraycopy(last, 0, path, 0, i);
+                System.arraycopy(spurPath, 0, path, i, spurPath.length);
+                Candidate candidate = new Candidate(path, pathLength(path));
+                if (seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            Candidate next = candidates.poll();
+            if (next == null) {
+                break;
+            }
+            paths.add(next.path);
+        }
+        return paths;
+    }
+
+    /**
+     * the length of a path, going by the shortest edge between each pair of stars
+     *
+     * @param path the vertices along the path
+     * @return the total length
+     */
+    public double pathLength(int @NotNull [] path) {
+        double total = 0;
+        for (int i = 0; i < path.length - 1; i++) {
+            double shortest = Double.POSITIVE_INFINITY;
+            for (int a = rowStart[path[i]]; a < rowStart[path[i] + 1]; a++) {
+                if (adjacency[a] == path[i + 1]) {
+                    shortest = Math.min(shortest, weights[a]);
+                }
+            }
+            total += shortest;
+        }
+        return total;
+    }
+
+    /**
+     * describe a path as its star names, in the "[a, b, c]" form
+     *
+     * @param path the vertices along the path
+     * @return the description
+     */
+    public @NotNull String describe(int @NotNull [] path) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int vertex : path) {
+            joiner.add(stars[vertex].getStarName());
+        }
+        return joiner.toString();
+    }
+
+    ////////////////////////
+
+    private void banEdge(int from, int to) {
+        for (int a = rowStart[from]; a < rowStart[from + 1]; a++) {
+            if (adjacency[a] == to) {
+                bannedEdges.set(a);
+            }
+        }
+    }
+
+    /**
+     * dijkstra from one vertex to another, going round the banned vertices and edges
+     */
+    private int @Nullable [] dijkstra(int origin, int destination) {
+        if (origin == destination) {
+            return new int[]{origin};
+        }
+        int current = ++search;
+        VertexHeap heap = new VertexHeap(Math.max(16, stars.length));
+        stamp[origin] = current;
+        distance[origin] = 0;
+        previous[origin] = -1;
+        heap.push(origin, 0);
+        while (!heap.isEmpty()) {
+            double d = heap.peekKey();
+            int v = heap.pop();
+            if (d > distance[v]) {
+                // already settled by a shorter way
+                continue;
+            }
+            if (v == destination) {
+                return walkBack(destination);
+            }
+            for (int a = rowStart[v]; a < rowStart[v + 1]; a++) {
+                int w = adjacency[a];
+                if (bannedEdges.get(a) || bannedVertices.get(w)) {
+                    continue;
+                }
+                double through = d + weights[a];
+                if (stamp[w] != current || through < distance[w]) {
+                    stamp[w] = current;
+                    distance[w] = through;
+                    previous[w] = v;
+                    heap.push(w, through);
+                }
+            }
+        }
+        return null;
+    }
+
+    private int @NotNull [] walkBack(int destination) {
+        int length = 0;
+        for (int v = destination; v != -1; v = previous[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = destination; v != -1; v = previous[v]) {
+            path[--length] = v;
+        }
+        return path;
+    }
+
+    private int @NotNull [] components() {
+        if (component == null) {
+            int n = stars.length;
+            int[] components = new int[n];
+            Arrays.fill(components, -1);
+            int[] queue = new int[n];
+            int count = 0;
+            for (int seed = 0; seed < n; seed++) {
+                if (components[seed] != -1) {
+                    continue;
+                }
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = seed;
+                components[seed] = count;
+                while (head < tail) {
+                    int v = queue[head++];
+                    for (int a = rowStart[v]; a < rowStart[v + 1]; a++) {
+                        if (components[adjacency[a]] == -1) {
+                            components[adjacency[a]] = count;
+                            queue[tail++] = adjacency[a];
+                        }
+                    }
+                }
+                count++;
+            }
+            component = components;
+        }
+        return component;
+    }
+
+    /**
+     * a path waiting its turn in Yen's search, equal paths have the same vertices
+     */
+    private static class Candidate implements Comparable<Candidate> {
+
+        private final int[] path;
+
+        private final double length;
+
+        private Candidate(int[] path, double length) {
+            this.path = path;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(@NotNull Candidate other) {
+            int byLength = Double.compare(length, other.length);
+            return byLength != 0 ? byLength : Integer.compare(path.length, other.path.length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Candidate && Arrays.equals(path, ((Candidate) o).path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(path);
+        }
+    }
+
+    /**
+     * a binary min heap of vertices keyed by distance, a vertex can be in it more than once and the stale
+     * entries are skipped when they come out
      */
-    public List<String> findKShortestPaths(String source, String destination, int kPaths) {
-        List<GraphPath<String, DefaultEdge>> yenKShort = kShortedPaths.getPaths(source, destination, kPaths);
-        return yenKShort.stream().map(Object::toString).collect(Collectors.toList());
+    private static class VertexHeap {
+
+        private double[] keys;
+
+        private int[] vertices;
+
+        private int size = 0;
+
+        private VertexHeap(int capacity) {
+            keys = new double[capacity];
+            vertices = new int[capacity];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private double peekKey() {
+            return keys[0];
+        }
+
+        private void push(int vertex, double key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                vertices = Arrays.copyOf(vertices, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                vertices[i] = vertices[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            vertices[i] = vertex;
+        }
+
+        private int pop() {
+            int top = vertices[0];
+            size--;
+            double key = keys[size];
+            int vertex = vertices[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                vertices[i] = vertices[child];
+                i = child;
+            }
+            keys[i] = key;
+            vertices[i] = vertex;
+            return top;
+        }
     }
 
 }
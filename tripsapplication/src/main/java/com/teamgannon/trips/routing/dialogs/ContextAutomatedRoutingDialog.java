@@ -233,7 +233,7 @@ public class ContextAutomatedRoutingDialog extends Dialog<Boolean> {
                 RouteGraph routeGraph = new RouteGraph(transitRoutes);
                 try {
                     // check if the origin star and destination star are connected to each other
-                    if (routeGraph.isConnected(origin, destination)) {
+                    if (routeGraph.isConnected(routeGraph.vertexOf(origin), routeGraph.vertexOf(destination))) {
                         determineRoutesAndPlotOne(currentDataSet, theStage, routeFindingOptions, origin, destination, routeBuilderHelper, routeGraph);
                     } else {
                         log.error("Source and destination stars do not have a path");
@@ -254,24 +254,17 @@ public class ContextAutomatedRoutingDialog extends Dialog<Boolean> {
     private void determineRoutesAndPlotOne(DataSetDescriptor currentDataSet, Stage theStage, RouteFindingOptions routeFindingOptions, String origin, String destination, RouteBuilderHelper routeBuilderHelper, RouteGraph routeGraph) {
         log.info("Source and destination stars have a path");
 
-        // find the k shortest paths. We add one because the first is null
-        List<String> kShortestPaths = routeGraph.findKShortestPaths(
-                origin, destination, routeFindingOptions.getNumberPaths() + 1);
-//                        kShortestPaths.forEach(System.out::println);
+        // find the k shortest paths
+        List<int[]> kShortestPaths = routeGraph.findKShortestPaths(
+                routeGraph.vertexOf(origin), routeGraph.vertexOf(destination), routeFindingOptions.getNumberPaths());
 
         PossibleRoutes possibleRoutes = new PossibleRoutes();
         possibleRoutes.setDesiredPath(String.format("Route %s to %s", origin, destination));
 
         List<RouteDescriptor> routeList = new ArrayList<>();
-        List<String> pathToPlot = new ArrayList<>(kShortestPaths);
         int i = 1;
         // for each of our paths create a route
-        for (String path : pathToPlot) {
-            if (path.contains("null")) {
-                // this is a dead path
-                continue;
-            }
-
+        for (int[] path : kShortestPaths) {
             Color color = routeFindingOptions.getColor();
             if (i > 1) {
                 color = Color.color(Math.random(), Math.random(), Math.random());
@@ -279,7 +272,7 @@ public class ContextAutomatedRoutingDialog extends Dialog<Boolean> {
 
             RouteDescriptor route = routeBuilderHelper.buildPath(
                     origin, destination, Integer.toString(i++),
-                    color, routeFindingOptions.getLineWidth(), path);
+                    color, routeFindingOptions.getLineWidth(), routeGraph, path);
 
             route.setDescriptor(currentDataSet);
             routeList.add(route);
@@ -288,7 +281,7 @@ public class ContextAutomatedRoutingDialog extends Dialog<Boolean> {
                     .builder()
                     .totalLength(route.getTotalLength())
                     .routeDescriptor(route)
-                    .path(path)
+                    .path(route.getRouteNotes())
                     .rank(i - 1)
                     .numberOfSegments(route.getLineSegments().size())
                     .build();
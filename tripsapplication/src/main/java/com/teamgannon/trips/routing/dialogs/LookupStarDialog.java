@@ -2,7 +2,7 @@ package com.teamgannon.trips.routing.dialogs;
 
 import com.teamgannon.trips.dataset.enums.SortParameterEnum;
 import com.teamgannon.trips.jpa.model.StarObject;
-import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.async.AsyncDatabaseService;
 import javafx.beans.Observable;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -16,6 +16,7 @@ import javafx.stage.WindowEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
@@ -36,18 +37,16 @@ public class LookupStarDialog extends Dialog<String> {
     private final TableColumn<StarObject, String> realCol = new TableColumn<>("Real");
     private final TableColumn<StarObject, String> commentCol = new TableColumn<>("comment");
     private final String starToLookup;
-    private final List<StarObject> starsFound;
+    private final List<StarObject> starsFound = new ArrayList<>();
     private @NotNull SortParameterEnum currentSortStrategy = SortParameterEnum.NAME;
     private TableColumn.@NotNull SortType sortDirection = TableColumn.SortType.ASCENDING;
 
 
     public LookupStarDialog(String starToLookup,
                             String datasetName,
-                            @NotNull DatabaseManagementService databaseManagementService) {
+                            @NotNull AsyncDatabaseService asyncDatabaseService) {
         this.starToLookup = starToLookup;
 
-        starsFound = databaseManagementService.findStarsWithName(datasetName, starToLookup);
-
         this.setTitle("Show stars that match: " + starToLookup);
         this.setHeight(700);
         this.setWidth(1000);
@@ -72,16 +71,22 @@ public class LookupStarDialog extends Dialog<String> {
         // setup the table structure
         setupTable();
 
-        // load data
-        loadData(starsFound);
+        // load data once the search comes back
+        tableView.setPlaceholder(new Label("Searching..."));
+        AsyncDatabaseService.deliverOnFxThread(
+                asyncDatabaseService.findStarsWithName(LookupStarDialog.class.getName(), datasetName, starToLookup),
+                this::loadData,
+                throwable -> tableView.setPlaceholder(new Label("Search failed: " + throwable.getMessage())));
 
         // set the dialog as a utility
         Stage stage = (Stage) this.getDialogPane().getScene().getWindow();
         stage.setOnCloseRequest(this::close);
     }
 
-    private void loadData(List<StarObject> starsFound) {
-        for (StarObject starObject : starsFound) {
+    private void loadData(List<StarObject> found) {
+        tableView.setPlaceholder(new Label("No rows to display"));
+        starsFound.addAll(found);
+        for (StarObject starObject : found) {
             // check for a crap record
             if (starObject.getDisplayName() == null) {
                 continue;
@@ -3,7 +3,7 @@ package com.teamgannon.trips.routing.dialogs;
 import com.teamgannon.trips.graphics.entities.StarDisplayRecord;
 import com.teamgannon.trips.routing.RouteFindingOptions;
 import com.teamgannon.trips.routing.dialogs.LookupStarDialog;
-import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.async.AsyncDatabaseService;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -47,19 +47,19 @@ public class RouteFinderDialogInDataSet extends Dialog<RouteFindingOptions> {
 
     private final ColorPicker colorPicker = new ColorPicker();
     private final String currentDataSet;
-    private final DatabaseManagementService databaseManagementService;
+    private final AsyncDatabaseService asyncDatabaseService;
 
     /**
      * this constructor is used when we search an entire database
      *
-     * @param currentDataSet            the dataset to use
-     * @param databaseManagementService the database management service
+     * @param currentDataSet       the dataset to use
+     * @param asyncDatabaseService used to look up star names in the background
      */
     public RouteFinderDialogInDataSet(String currentDataSet,
-                                      @NotNull DatabaseManagementService databaseManagementService) {
+                                      @NotNull AsyncDatabaseService asyncDatabaseService) {
 
         this.currentDataSet = currentDataSet;
-        this.databaseManagementService = databaseManagementService;
+        this.asyncDatabaseService = asyncDatabaseService;
 
         VBox vBox = new VBox();
         GridPane gridPane = new GridPane();
@@ -96,7 +96,7 @@ public class RouteFinderDialogInDataSet extends Dialog<RouteFindingOptions> {
 
 
     private String lookupStarName(String starToFind) {
-        LookupStarDialog lookupStarDialog = new LookupStarDialog(starToFind, currentDataSet, databaseManagementService);
+        LookupStarDialog lookupStarDialog = new LookupStarDialog(starToFind, currentDataSet, asyncDatabaseService);
         Stage theStage = (Stage) lookupStarDialog.getDialogPane().getScene().getWindow();
         theStage.setAlwaysOnTop(true);
         theStage.toFront();
@@ -176,14 +176,14 @@ public class RoutingPanel extends Pane implements RoutingCallback {
      * set the dataset context
      *
      * @param descriptor        the descriptor
+     * @param routeList         the routes of the dataset
      * @param routeVisiblityMap a map of which routes are visible
      */
-    public void setContext(@Nullable DataSetDescriptor descriptor, Map<UUID, Boolean> routeVisiblityMap) {
+    public void setContext(@Nullable DataSetDescriptor descriptor, List<Route> routeList, Map<UUID, Boolean> routeVisiblityMap) {
 
         routingTableView.getItems().clear();
 
         if (descriptor != null) {
-            List<Route> routeList = descriptor.getRoutes();
             if (routeList.size() != 0) {
                 for (Route route : routeList) {
                     RouteTree routeTree = RouteTree.createRouteTree(route);
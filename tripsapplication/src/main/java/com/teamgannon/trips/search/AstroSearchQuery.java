@@ -260,6 +260,52 @@ public class AstroSearchQuery {
         this.descriptor = descriptor;
     }
 
+    /**
+     * copy the query so it can be run in the background while the original is changed
+     *
+     * @return the copy, it shares nothing that can change with this one except the descriptor
+     */
+    public @NotNull AstroSearchQuery copy() {
+        AstroSearchQuery copy = new AstroSearchQuery();
+        copy.descriptor = descriptor;
+        copy.lowerDistanceLimit = lowerDistanceLimit;
+        copy.upperDistanceLimit = upperDistanceLimit;
+        copy.fuelSearch = fuelSearch;
+        copy.worldSearch = worldSearch;
+        copy.portSearch = portSearch;
+        copy.popSearch = popSearch;
+        copy.politySearch = politySearch;
+        copy.techSearch = techSearch;
+        copy.productSearch = productSearch;
+        copy.milSpaceSearch = milSpaceSearch;
+        copy.milPlanetSearch = milPlanetSearch;
+        copy.anomalySearch = anomalySearch;
+        copy.otherSearch = otherSearch;
+        copy.realStars = realStars;
+        copy.fictionalStars = fictionalStars;
+        copy.polities = new HashSet<>(polities);
+        copy.stellarTypes = new HashSet<>(stellarTypes);
+        copy.fuelTypes = new HashSet<>(fuelTypes);
+        copy.worldTypes = new HashSet<>(worldTypes);
+        copy.portTypes = new HashSet<>(portTypes);
+        copy.populationTypes = new HashSet<>(populationTypes);
+        copy.techTypes = new HashSet<>(techTypes);
+        copy.productTypes = new HashSet<>(productTypes);
+        copy.milSpaceTypes = new HashSet<>(milSpaceTypes);
+        copy.milPlanTypes = new HashSet<>(milPlanTypes);
+        copy.recenter = recenter;
+        copy.xMinus = xMinus;
+        copy.xPlus = xPlus;
+        copy.yPlus = yPlus;
+        copy.yMinus = yMinus;
+        copy.zMinus = zMinus;
+        copy.zPlus = zPlus;
+        copy.centrePoint = centrePoint;
+        copy.centerCoordinates = centerCoordinates.clone();
+        copy.centerStar = centerStar;
+        return copy;
+    }
+
     public void zeroCenter() {
         centerCoordinates[0] = 0;
         centerCoordinates[1] = 0;
@@ -98,4 +98,18 @@ public class SearchContext {
         return new ArrayList<>(dataSetDescriptorMap.values());
     }
 
+    /**
+     * copy the context for a query run in the background, so changes made to the query on the
+     * application thread while it runs don't leak into it
+     *
+     * @return the copy
+     */
+    public @NotNull SearchContext snapshot() {
+        SearchContext snapshot = new SearchContext();
+        snapshot.dataSetDescriptorMap.putAll(dataSetDescriptorMap);
+        snapshot.currentDataSet = currentDataSet;
+        snapshot.astroSearchQuery = astroSearchQuery.copy();
+        return snapshot;
+    }
+
 }
@@ -64,7 +64,7 @@ public class SearchPane extends Pane {
                 .max(20)
                 .build();
         if (dataSetContext.getDescriptor() != null) {
-            distanceRange.setMax(dataSetContext.getDescriptor().getDistanceRange());
+            distanceRange.setMax(DistanceSelectionPanel.maxRangeOf(dataSetContext.getDescriptor()));
         }
 
         d2EarthSlider = new DistanceSelectionPanel(searchContext.getAstroSearchQuery().getUpperDistanceLimit(), distanceRange);
@@ -1,5 +1,6 @@
 package com.teamgannon.trips.search.components;
 
+import com.teamgannon.trips.dataset.model.DatasetStatistics;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
@@ -114,8 +115,25 @@ public class DistanceSelectionPanel extends BasePane {
     }
 
     public void setDataSetDescriptor(@NotNull DataSetDescriptor descriptor) {
-        distanceRange.setMax(descriptor.getDistanceRange());
-        d2EarthSlider.setMax(descriptor.getDistanceRange());
+        double max = maxRangeOf(descriptor);
+        distanceRange.setMax(max);
+        d2EarthSlider.setMax(max);
+    }
+
+    /**
+     * the top of the slider for a dataset
+     * <p>
+     * taken from the cached dataset statistics when we have them so the farthest star is always in range
+     *
+     * @param descriptor the dataset
+     * @return the max range in ly
+     */
+    public static double maxRangeOf(@NotNull DataSetDescriptor descriptor) {
+        DatasetStatistics statistics = descriptor.getStatistics();
+        if (statistics != null && !statistics.isStale() && statistics.getCount() > 0) {
+            return Math.ceil(statistics.getMaxDistance());
+        }
+        return descriptor.getDistanceRange();
     }
 
 }
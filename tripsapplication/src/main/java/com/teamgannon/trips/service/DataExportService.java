@@ -20,6 +20,7 @@ import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.teamgannon.trips.support.AlertFactory.showConfirmationAlert;
+import static com.teamgannon.trips.support.AlertFactory.showErrorAlert;
 import static com.teamgannon.trips.support.AlertFactory.showInfoMessage;
 
 /**
@@ -66,7 +67,17 @@ public class DataExportService {
             fileChooser.setTitle("Export entire database to export as a Excel file");
             File file = fileChooser.showSaveDialog(null);
             if (file != null) {
-                excelExporter.exportEntireDB(file.getAbsolutePath());
+                if (currentlyRunning.get() && runningExportService != null) {
+                    showErrorAlert("Database export",
+                            String.format("There is a current export happening, please wait for %s to finish", runningExportService.whoAmI()));
+                    return;
+                }
+                currentlyRunning.set(true);
+                runningExportService = excelExporter;
+                excelExporter.exportEntireDB(file.getAbsolutePath(),
+                        (status, dataSet, exportResults, message) -> complete(status, dataSet, message));
+                excelExporter.reset();
+                excelExporter.restart();
             } else {
                 log.warn("file export cancelled");
                 showInfoMessage("Database export", "Export cancelled");
@@ -117,8 +128,52 @@ public class DataExportService {
                 csvDataSetDataExportService.restart();
                 return ExportResult.builder().success(true).build();
             }
-//            case EXCEL -> excelExporter.exportAsExcel(exportOptions, starObjects);
-//            case JSON -> jsonExporter.exportAsJson(exportOptions, starObjects);
+            case JSON -> {
+                currentlyRunning.set(true);
+                runningExportService = jsonExporter;
+                boolean queued = jsonExporter.exportAsJson(
+                        exportOptions, databaseManagementService,
+                        statusUpdaterListener, importTaskCompleteListener, progressText,
+                        exportProgressBar, cancelExport);
+                if (!queued) {
+                    log.error("failed to start export process");
+                    currentlyRunning.set(false);
+                    runningExportService = null;
+                    jsonExporter.reset();
+                    return ExportResult
+                            .builder()
+                            .success(false)
+                            .message(String.format("failed to start the export for %s", exportOptions.getDataset().getDataSetName()))
+                            .build();
+
+                }
+                jsonExporter.reset();
+                jsonExporter.restart();
+                return ExportResult.builder().success(true).build();
+            }
+            case EXCEL -> {
+                currentlyRunning.set(true);
+                runningExportService = excelExporter;
+                boolean queued = excelExporter.exportAsExcel(
+                        exportOptions, databaseManagementService,
+                        statusUpdaterListener, importTaskCompleteListener, progressText,
+                        exportProgressBar, cancelExport);
+                if (!queued) {
+                    log.error("failed to start export process");
+                    currentlyRunning.set(false);
+                    runningExportService = null;
+                    excelExporter.reset();
+                    return ExportResult
+                            .builder()
+                            .success(false)
+                            .message(String.format("failed to start the export for %s", exportOptions.getDataset().getDataSetName()))
+                            .build();
+
+                }
+                excelExporter.reset();
+                excelExporter.restart();
+                return ExportResult.builder().success(true).build();
+            }
         }
 
 
@@ -6,12 +6,14 @@ import com.teamgannon.trips.dialogs.dataset.ImportTaskComplete;
 import com.teamgannon.trips.listener.DataSetChangeListener;
 import com.teamgannon.trips.listener.StatusUpdaterListener;
 import com.teamgannon.trips.service.importservices.*;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipelineSettings;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -30,13 +32,24 @@ public class DataImportService {
     private @Nullable ImportTaskControl runningImportService;
 
 
-    public DataImportService(DatabaseManagementService databaseManagementService) {
+    public DataImportService(DatabaseManagementService databaseManagementService,
+                             @Value("${app.import.parserThreads:0}") int parserThreads,
+                             @Value("${app.import.queueCapacity:8}") int queueCapacity,
+                             @Value("${app.import.batchSize:2000}") int batchSize) {
+
+        // zero parser threads means leave a couple of cores for the reader and writer
+        ImportPipelineSettings importPipelineSettings = new ImportPipelineSettings();
+        if (parserThreads > 0) {
+            importPipelineSettings.setParserThreads(parserThreads);
+        }
+        importPipelineSettings.setQueueCapacity(queueCapacity);
+        importPipelineSettings.setBatchSize(batchSize);
 
         // importer services are pre-created
-        chvDataImportService = new CHVDataImportService(databaseManagementService);
-        jsonDataImportService = new JsonDataImportService(databaseManagementService);
-        csvDataImportService = new CSVDataImportService(databaseManagementService);
-        excelDataImportService = new ExcelDataImportService(databaseManagementService);
+        chvDataImportService = new CHVDataImportService(databaseManagementService, importPipelineSettings);
+        jsonDataImportService = new JsonDataImportService(databaseManagementService, importPipelineSettings);
+        csvDataImportService = new CSVDataImportService(databaseManagementService, importPipelineSettings);
+        excelDataImportService = new ExcelDataImportService(databaseManagementService, importPipelineSettings);
     }
 
     public ImportResult processFile(@NotNull Dataset dataset,
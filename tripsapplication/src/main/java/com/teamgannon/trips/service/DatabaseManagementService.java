@@ -4,6 +4,8 @@ import com.teamgannon.trips.algorithms.StarMath;
 import com.teamgannon.trips.config.application.StarDisplayPreferences;
 import com.teamgannon.trips.config.application.model.ColorPalette;
 import com.teamgannon.trips.dataset.factories.DataSetDescriptorFactory;
+import com.teamgannon.trips.dataset.model.DatasetStatistics;
+import com.teamgannon.trips.dataset.model.StarStatisticsSample;
 import com.teamgannon.trips.dialogs.dataset.Dataset;
 import com.teamgannon.trips.file.chview.model.ChViewFile;
 import com.teamgannon.trips.file.csvin.RegCSVFile;
@@ -14,21 +16,27 @@ import com.teamgannon.trips.jpa.repository.*;
 import com.teamgannon.trips.routing.Route;
 import com.teamgannon.trips.search.AstroSearchQuery;
 import com.teamgannon.trips.search.SearchContext;
-import com.teamgannon.trips.service.export.model.JsonExportObj;
+import com.teamgannon.trips.service.cache.QueryCacheMetrics;
+import com.teamgannon.trips.service.cache.StarQueryCache;
+import com.teamgannon.trips.service.codes.CategoryCodeService;
+import com.teamgannon.trips.service.export.model.DataSetDescriptorDTO;
 import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
+import com.teamgannon.trips.service.routes.RouteService;
+import com.teamgannon.trips.service.statistics.DatasetStatisticsService;
 import com.teamgannon.trips.transits.TransitDefinitions;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
-import javax.persistence.Query;
 import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -44,6 +52,24 @@ public class DatabaseManagementService {
 
     private static final int MAX_REQUEST_SIZE = 9999;
 
+    /**
+     * the JDBC fetch size used when streaming stars from the database
+     */
+    @Value("${app.query.fetchSize:500}")
+    private int streamFetchSize;
+
+    /**
+     * how many stars we stream before clearing the persistence context
+     */
+    @Value("${app.query.clearInterval:1000}")
+    private int streamClearInterval;
+
+    /**
+     * how many stars each bulk delete or rename statement touches
+     */
+    @Value("${app.bulk.chunkSize:2000}")
+    private int bulkChunkSize;
+
     /**
      * storage of data sets in DB
      */
@@ -74,9 +100,6 @@ public class DatabaseManagementService {
      */
     private final CivilizationDisplayPreferencesRepository civilizationDisplayPreferencesRepository;
 
-    @PersistenceContext
-    private EntityManager entityManager;
-
     /**
      * trips prefs
      */
@@ -87,6 +110,31 @@ public class DatabaseManagementService {
      */
     private TransitSettingsRepository transitSettingsRepository;
 
+    /**
+     * the cached dataset statistics
+     */
+    private final DatasetStatisticsService datasetStatisticsService;
+
+    /**
+     * recent plot query results
+     */
+    private final StarQueryCache starQueryCache;
+
+    /**
+     * the codes of the categorical star fields
+     */
+    private final CategoryCodeService categoryCodeService;
+
+    /**
+     * the stored routes
+     */
+    private final RouteService routeService;
+
+    /**
+     * the imports that are still writing stars
+     */
+    private final ImportRunRepository importRunRepository;
+
     /**
      * constructor
      *
@@ -95,6 +143,11 @@ public class DatabaseManagementService {
      * @param graphColorsRepository        the graph colors
      * @param graphEnablesRepository       the graph enables
      * @param starDetailsPersistRepository the star details
+     * @param datasetStatisticsService     the dataset statistics
+     * @param starQueryCache               the plot query cache
+     * @param categoryCodeService          the category codes
+     * @param routeService                 the routes
+     * @param importRunRepository          the unfinished imports
      */
     public DatabaseManagementService(DataSetDescriptorRepository dataSetDescriptorRepository,
                                      StarObjectRepository starObjectRepository,
@@ -103,7 +156,12 @@ public class DatabaseManagementService {
                                      StarDetailsPersistRepository starDetailsPersistRepository,
                                      CivilizationDisplayPreferencesRepository civilizationDisplayPreferencesRepository,
                                      TripsPrefsRepository tripsPrefsRepository,
-                                     TransitSettingsRepository transitSettingsRepository) {
+                                     TransitSettingsRepository transitSettingsRepository,
+                                     DatasetStatisticsService datasetStatisticsService,
+                                     StarQueryCache starQueryCache,
+                                     CategoryCodeService categoryCodeService,
+                                     RouteService routeService,
+                                     ImportRunRepository importRunRepository) {
 
         this.dataSetDescriptorRepository = dataSetDescriptorRepository;
         this.starObjectRepository = starObjectRepository;
@@ -113,6 +171,11 @@ public class DatabaseManagementService {
         this.civilizationDisplayPreferencesRepository = civilizationDisplayPreferencesRepository;
         this.tripsPrefsRepository = tripsPrefsRepository;
         this.transitSettingsRepository = transitSettingsRepository;
+        this.datasetStatisticsService = datasetStatisticsService;
+        this.starQueryCache = starQueryCache;
+        this.categoryCodeService = categoryCodeService;
+        this.routeService = routeService;
+        this.importRunRepository = importRunRepository;
     }
 
     /**
@@ -121,37 +184,47 @@ public class DatabaseManagementService {
     public void dropDatabase() {
         log.info("Dropping database");
         starObjectRepository.deleteAll();
+        starQueryCache.invalidateAll();
     }
 
+    /**
+     * save the descriptor of a CHV import, the stars have already been saved by the import pipeline
+     *
+     * @param progressUpdater the progress updater
+     * @param dataset         the dataset the user asked for
+     * @param chViewFile      the file, for its display preferences
+     * @param numberStars     the number of stars saved
+     * @param maxDistance     the distance of the farthest star saved
+     * @return the descriptor
+     * @throws Exception if the dataset already exists
+     */
     public @NotNull
-    DataSetDescriptor loadCHFile(@NotNull ProgressUpdater progressUpdater, @NotNull Dataset dataset, @NotNull ChViewFile chViewFile) throws Exception {
+    DataSetDescriptor loadCHFile(@NotNull ProgressUpdater progressUpdater,
+                                 @NotNull Dataset dataset,
+                                 @NotNull ChViewFile chViewFile,
+                                 long numberStars,
+                                 double maxDistance) throws Exception {
 
-        // this method call actually saves the dataset in elasticsearch
+        starQueryCache.invalidate(dataset.getName());
         return DataSetDescriptorFactory.createDataSetDescriptor(
                 progressUpdater,
                 dataset,
                 dataSetDescriptorRepository,
-                starObjectRepository,
-                chViewFile
+                chViewFile,
+                numberStars,
+                maxDistance
         );
     }
 
-    public List<StarObject> runNativeQuery(String queryToRun) {
-        Query query = entityManager.createNativeQuery(queryToRun, StarObject.class);
-        List<StarObject> starObjects = query.getResultList();
-        for (StarObject starObject : starObjects) {
-            log.info(starObject.toString());
-        }
-        log.info("number of elements=" + starObjects.size());
-        return starObjects;
-    }
-
     public @NotNull
     DataSetDescriptor loadCSVFile(@NotNull RegCSVFile regCSVFile) throws Exception {
-        return DataSetDescriptorFactory.createDataSetDescriptor(
+        DataSetDescriptor descriptor = DataSetDescriptorFactory.createDataSetDescriptor(
                 dataSetDescriptorRepository,
                 regCSVFile
         );
+        routeService.adoptLegacyRoutes(descriptor.getDataSetName());
+        descriptor.setRoutesStr(null);
+        return descriptor;
     }
 
     ///////////////////////////////////////
@@ -162,30 +235,137 @@ public class DatabaseManagementService {
      * @param searchContext the search context
      * @return the list of objects
      */
+    @Transactional(readOnly = true)
     public List<StarObject> getAstrographicObjectsOnQuery(@NotNull SearchContext searchContext) {
+        List<StarObject> starObjects = new ArrayList<>();
+        long total = processAstrographicObjectsOnQuery(searchContext, starObjects::add);
+        log.info("New DB Query returns {} stars", total);
+        log.info("Filtered by distance Query returns {} stars", starObjects.size());
+        return starObjects;
+    }
+
+    /**
+     * stream the astrographic objects that match a query to a consumer without materialising them
+     * <p>
+     * stars outside the display sphere are dropped before they reach the consumer, and the stars handed
+     * over are detached from the session so they should be treated as read only
+     *
+     * @param searchContext the search context
+     * @param consumer      the consumer of each star that is in range
+     * @return the number of stars read from the database
+     */
+    @Transactional(readOnly = true)
+    public long processAstrographicObjectsOnQuery(@NotNull SearchContext searchContext,
+                                                  @NotNull Consumer<StarObject> consumer) {
         AstroSearchQuery searchQuery = searchContext.getAstroSearchQuery();
-        List<StarObject> starObjects;
+        double[] centerCoordinates = searchQuery.getCenterCoordinates();
+        double distanceFromCenterStar = searchQuery.getUpperDistanceLimit();
+
+        Consumer<StarObject> distanceFilter = starObject -> {
+            if (inRange(starObject.getCoordinates(), centerCoordinates, distanceFromCenterStar)) {
+                consumer.accept(starObject);
+            }
+        };
+
         if (searchQuery.isRecenter()) {
-            starObjects
-                    = starObjectRepository.findByDataSetNameAndXGreaterThanAndXLessThanAndYGreaterThanAndYLessThanAndZGreaterThanAndZLessThanOrderByDisplayName(
-                    searchQuery.getDescriptor().getDataSetName(),
-                    searchQuery.getXMinus(),
-                    searchQuery.getXPlus(),
-                    searchQuery.getYMinus(),
-                    searchQuery.getYPlus(),
-                    searchQuery.getZMinus(),
-                    searchQuery.getZPlus()
-            );
+            return starObjectRepository.scrollByBoundingBox(searchQuery, streamFetchSize, streamClearInterval, distanceFilter);
+        } else {
+            return starObjectRepository.scrollBySearchQuery(searchQuery, streamFetchSize, streamClearInterval, distanceFilter);
+        }
+    }
 
+    /**
+     * get the plot projection of the stars that match a query
+     * <p>
+     * this only reads the columns we need to draw a star so it is much lighter than
+     * getAstrographicObjectsOnQuery, the full star can be fetched by id when it is needed
+     *
+     * @param searchContext the search context
+     * @return the plot views of the stars in range
+     */
+    @Transactional(readOnly = true)
+    public List<StarPlotView> getPlotViewsOnQuery(@NotNull SearchContext searchContext) {
+        AstroSearchQuery searchQuery = searchContext.getAstroSearchQuery();
+        List<StarPlotView> cached = starQueryCache.get(searchQuery);
+        if (cached != null) {
+            log.info("Query cache returns {} stars, {}", cached.size(), starQueryCache.getMetrics());
+            return cached;
+        }
+        long generation = starQueryCache.generationOf(searchQuery);
+
+        double[] centerCoordinates = searchQuery.getCenterCoordinates();
+        double distanceFromCenterStar = searchQuery.getUpperDistanceLimit();
+
+        List<StarPlotView> plotViews;
+        if (searchQuery.isRecenter()) {
+            plotViews = starObjectRepository.findPlotViewsByBoundingBox(searchQuery);
         } else {
-            starObjects = starObjectRepository.findBySearchQuery(searchQuery);
+            plotViews = starObjectRepository.findPlotViewsBySearchQuery(searchQuery);
         }
-        log.info("New DB Query returns {} stars", starObjects.size());
-        starObjects = filterByDistance(starObjects, searchQuery.getCenterCoordinates(), searchQuery.getUpperDistanceLimit());
-        log.info("Filtered by distance Query returns {} stars", starObjects.size());
-        return starObjects;
+        log.info("New DB Query returns {} stars", plotViews.size());
+
+        List<StarPlotView> inRange = plotViews.stream()
+                .filter(plotView -> inRange(plotView.getCoordinates(), centerCoordinates, distanceFromCenterStar))
+                .collect(Collectors.toList());
+        log.info("Filtered by distance Query returns {} stars", inRange.size());
+        starQueryCache.put(searchQuery, inRange, generation);
+        return inRange;
     }
 
+    /**
+     * get the plot projection of stars already read by getAstrographicObjectsOnQuery
+     * <p>
+     * for when the same query is shown in the table and the plot, so the database is only asked once. The
+     * stars are already filtered by distance, and the views go in the query cache like any other result.
+     *
+     * @param searchContext the search context the stars were read with
+     * @param starObjects   the stars
+     * @param generation    the query cache generation taken before the stars were read
+     * @return the plot views
+     */
+    public List<StarPlotView> getPlotViewsOf(@NotNull SearchContext searchContext,
+                                             @NotNull List<StarObject> starObjects,
+                                             long generation) {
+        List<StarPlotView> plotViews = starObjects.stream()
+                .map(StarPlotView::fromStarObject)
+                .collect(Collectors.toList());
+        starQueryCache.put(searchContext.getAstroSearchQuery(), plotViews, generation);
+        return plotViews;
+    }
+
+    /**
+     * get the stars whose labels a plot of the current query should show
+     * <p>
+     * the database ranks them, so no more than labelCount come back
+     *
+     * @param searchContext the search context holding the query
+     * @param labelCount    the number of labels to show
+     * @return the star ids, best weighted display score first
+     */
+    @Transactional(readOnly = true)
+    public List<UUID> getTopScoredStarIds(@NotNull SearchContext searchContext, int labelCount) {
+        if (labelCount <= 0) {
+            return List.of();
+        }
+        return starObjectRepository.findTopScoredIds(searchContext.getAstroSearchQuery(), labelCount);
+    }
+
+    /**
+     * the query cache generation of the dataset a query reads, for getPlotViewsOf
+     *
+     * @param searchContext the search context
+     * @return the generation
+     */
+    public long getQueryCacheGeneration(@NotNull SearchContext searchContext) {
+        return starQueryCache.generationOf(searchContext.getAstroSearchQuery());
+    }
+
+    /**
+     * @return how the plot query cache is doing
+     */
+    public @NotNull QueryCacheMetrics getQueryCacheMetrics() {
+        return starQueryCache.getMetrics();
+    }
 
     @Transactional(readOnly = true)
     public Page<StarObject> getStarPaged(AstroSearchQuery searchQuery, Pageable pageable) {
@@ -193,33 +373,51 @@ public class DatabaseManagementService {
     }
 
     /**
-     * filter the list to distance by selected distance
+     * count the stars that match a query
+     *
+     * @param searchQuery the search query
+     * @return the number of matching stars
+     */
+    @Transactional(readOnly = true)
+    public long countStarsOnQuery(@NotNull AstroSearchQuery searchQuery) {
+        return starObjectRepository.countBySearchQuery(searchQuery);
+    }
+
+    /**
+     * get the next page of stars matching a query, seeking past the last star of the previous page
+     * <p>
+     * this is for exports, so the details come along with each star
+     *
+     * @param searchQuery the search query
+     * @param lastStar    the last star of the previous page, null for the first page
+     * @param pageSize    the page size
+     * @return the stars on this page, empty when we are done
+     */
+    @Transactional(readOnly = true)
+    public List<StarObject> getStarsAfter(@NotNull AstroSearchQuery searchQuery, @Nullable StarObject lastStar, int pageSize) {
+        if (lastStar == null) {
+            return starObjectRepository.findBySearchQueryAfter(searchQuery, null, null, pageSize, true);
+        }
+        return starObjectRepository.findBySearchQueryAfter(searchQuery, lastStar.getDisplayName(), lastStar.getId(), pageSize, true);
+    }
+
+    /**
+     * check if a star is within the selected distance of the plot center
      *
-     * @param starObjects            the astrogrpic objects to display
+     * @param starCoordinates        the coordinates of the star to check
      * @param centerCoordinates      the plot center coordinates
      * @param distanceFromCenterStar the distance frm the centre star to display
-     * @return the fitlered list
+     * @return true if it should be shown
      */
-    private @NotNull
-    List<StarObject> filterByDistance(
-            @NotNull List<StarObject> starObjects,
-            double[] centerCoordinates,
-            double distanceFromCenterStar) {
-        List<StarObject> filterList = new ArrayList<>();
-        starObjects.forEach(object -> {
-            try {
-                double[] starPosition = new double[3];
-                starPosition[0] = object.getX();
-                starPosition[1] = object.getY();
-                starPosition[2] = object.getZ();
-                if (StarMath.inSphere(centerCoordinates, starPosition, distanceFromCenterStar)) {
-                    filterList.add(object);
-                }
-            } catch (Exception e) {
-                log.error("error in finding distance:", e);
-            }
-        });
-        return filterList;
+    private boolean inRange(double[] starCoordinates,
+                            double[] centerCoordinates,
+                            double distanceFromCenterStar) {
+        try {
+            return StarMath.inSphere(centerCoordinates, starCoordinates, distanceFromCenterStar);
+        } catch (Exception e) {
+            log.error("error in finding distance:", e);
+            return false;
+        }
     }
 
     //////////////////////////////////////
@@ -230,10 +428,51 @@ public class DatabaseManagementService {
      *
      * @param descriptor the descriptor to remove
      */
-    @Transactional
     public void removeDataSet(@NotNull DataSetDescriptor descriptor) {
-        starObjectRepository.deleteByDataSetName(descriptor.getDataSetName());
-        dataSetDescriptorRepository.delete(descriptor);
+        removeDataSet(descriptor, log::info, () -> false);
+    }
+
+    /**
+     * remove a dataset with chunked bulk deletes
+     * <p>
+     * each chunk runs in its own transaction so the stars are never loaded into memory and the work
+     * can be stopped between chunks. If it is cancelled the stars deleted so far stay deleted and the
+     * descriptor is updated with the number of stars left.
+     *
+     * @param descriptor the descriptor to remove
+     * @param updater    where progress messages go
+     * @param cancelled  checked before each chunk, true to stop
+     * @return true if the whole dataset was removed
+     */
+    public boolean removeDataSet(@NotNull DataSetDescriptor descriptor,
+                                 @NotNull ProgressUpdater updater,
+                                 @NotNull BooleanSupplier cancelled) {
+        String dataSetName = descriptor.getDataSetName();
+        long total = starObjectRepository.countByDataSetName(dataSetName);
+        long deleted = 0;
+        int removed;
+        do {
+            if (cancelled.getAsBoolean()) {
+                DataSetDescriptor current = dataSetDescriptorRepository.findByDataSetName(dataSetName);
+                if (current != null) {
+                    current.setNumberStars(total - deleted);
+                    dataSetDescriptorRepository.save(current);
+                    datasetStatisticsService.markStale(dataSetName);
+                }
+                updater.updateTaskInfo(String.format("removal of %s cancelled after %d of %d stars", dataSetName, deleted, total));
+                return false;
+            }
+            removed = starObjectRepository.deleteChunkByDataSetName(dataSetName, bulkChunkSize);
+            starQueryCache.invalidate(dataSetName);
+            deleted += removed;
+            updater.updateRowCount(deleted);
+            updater.updateTaskInfo(String.format("removed %d of %d stars from %s", deleted, total, dataSetName));
+        } while (removed > 0);
+
+        routeService.clearRoutes(dataSetName);
+        dataSetDescriptorRepository.deleteById(dataSetName);
+        updater.updateTaskInfo(String.format("dataset %s removed", dataSetName));
+        return true;
     }
 
     /**
@@ -268,11 +507,42 @@ public class DatabaseManagementService {
     }
 
 
+    /**
+     * get the next page of stars in a dataset, seeking past the last star of the previous page
+     * <p>
+     * this is for exports, so the details come along with each star
+     *
+     * @param dataSetDescriptor the dataset
+     * @param lastStar          the last star of the previous page, null for the first page
+     * @param pageSize          the page size
+     * @return the stars on this page, empty when we are done
+     */
+    @Transactional(readOnly = true)
+    public List<StarObject> getFromDatasetAfter(@NotNull DataSetDescriptor dataSetDescriptor, @Nullable StarObject lastStar, int pageSize) {
+        String dataSetName = dataSetDescriptor.getDataSetName();
+        if (lastStar == null) {
+            return starObjectRepository.findByDataSetNameAfter(dataSetName, null, null, pageSize, true);
+        }
+        return starObjectRepository.findByDataSetNameAfter(dataSetName, lastStar.getDisplayName(), lastStar.getId(), pageSize, true);
+    }
+
     public List<StarObject> getFromDatasetWithinLimit(@NotNull DataSetDescriptor dataSetDescriptor, double distance) {
         // we can only effectively gather 500 at a time
         return toList(starObjectRepository.findByDataSetNameAndDistanceIsLessThanOrderByDisplayName(dataSetDescriptor.getDataSetName(), distance, PageRequest.of(0, MAX_REQUEST_SIZE)));
     }
 
+    /**
+     * get the plot projection of the stars in a dataset within a distance of Sol
+     *
+     * @param dataSetDescriptor the dataset
+     * @param distance          the distance limit
+     * @return the plot views
+     */
+    @Transactional(readOnly = true)
+    public List<StarPlotView> getPlotViewsFromDatasetWithinLimit(@NotNull DataSetDescriptor dataSetDescriptor, double distance) {
+        return starObjectRepository.findPlotViewsByDataSetNameWithinDistance(dataSetDescriptor.getDataSetName(), distance, MAX_REQUEST_SIZE);
+    }
+
     public DataSetDescriptor getDatasetFromName(String dataSetName) {
         return dataSetDescriptorRepository.findByDataSetName(dataSetName);
     }
@@ -318,7 +588,12 @@ public class DatabaseManagementService {
      */
     @Transactional
     public void removeStar(@NotNull StarObject starObject) {
+        StarStatisticsSample before = datasetStatisticsService.sampleStar(starObject.getId());
         starObjectRepository.delete(starObject);
+        starQueryCache.invalidate(starObject.getDataSetName());
+        if (before != null) {
+            datasetStatisticsService.starRemoved(starObject.getDataSetName(), before);
+        }
     }
 
     /**
@@ -328,12 +603,16 @@ public class DatabaseManagementService {
      */
     @Transactional
     public void addStar(@NotNull StarObject starObjectNew) {
-//        starObjectNew.calculateDisplayScore();
+        starObjectNew.calculateDisplayScore();
+        categoryCodeService.encode(starObjectNew);
         starObjectRepository.save(starObjectNew);
         Optional<StarObject> testGet = starObjectRepository.findById(starObjectNew.getId());
         if (testGet.isEmpty()) {
             log.error("why didn't this save work");
+            return;
         }
+        starQueryCache.invalidate(starObjectNew.getDataSetName());
+        datasetStatisticsService.starAdded(starObjectNew);
     }
 
 
@@ -344,8 +623,12 @@ public class DatabaseManagementService {
      */
     @Transactional
     public void updateStar(@NotNull StarObject starObject) {
-//        starObject.calculateDisplayScore();
+        starObject.calculateDisplayScore();
+        StarStatisticsSample before = datasetStatisticsService.sampleStar(starObject.getId());
+        categoryCodeService.encode(starObject);
         starObjectRepository.save(starObject);
+        starQueryCache.invalidate(starObject.getDataSetName());
+        datasetStatisticsService.starUpdated(starObject.getDataSetName(), before, starObject);
     }
 
     //////////////////////////
@@ -432,17 +715,47 @@ public class DatabaseManagementService {
         starDetailsPersistRepository.saveAll(starDetailsPersistListNew);
     }
 
-    @Transactional
+    /**
+     * add a route to a dataset
+     * <p>
+     * only the new route is written, the descriptor and the other routes are left alone
+     *
+     * @param dataSetDescriptor the dataset
+     * @param routeDescriptor   the route
+     */
     public void addRouteToDataSet(@NotNull DataSetDescriptor dataSetDescriptor, @NotNull RouteDescriptor routeDescriptor) {
+        routeService.addRoute(dataSetDescriptor.getDataSetName(), routeDescriptor.toRoute());
+        dataSetDescriptor.setNumberRoutes(dataSetDescriptor.getNumberRoutes() == null ? 1 : dataSetDescriptor.getNumberRoutes() + 1);
+    }
 
-        // pull all routes
-        List<Route> routeList = dataSetDescriptor.getRoutes();
-        // convert to a Route and add to current list
-        routeList.add(routeDescriptor.toRoute());
-        // overwrite the list of routes
-        dataSetDescriptor.setRoutes(routeList);
-        dataSetDescriptorRepository.save(dataSetDescriptor);
+    /**
+     * get the routes of a dataset
+     *
+     * @param descriptor the dataset
+     * @return the routes in the order they were made
+     */
+    public @NotNull List<Route> getRoutes(@NotNull DataSetDescriptor descriptor) {
+        return routeService.getRoutes(descriptor.getDataSetName());
+    }
 
+    /**
+     * find the routes that pass through a star
+     *
+     * @param starId the star
+     * @return the routes
+     */
+    public @NotNull List<Route> getRoutesThroughStar(@NotNull UUID starId) {
+        return routeService.getRoutesThroughStar(starId);
+    }
+
+    /**
+     * get the routes of a dataset in the JSON form that export files carry
+     *
+     * @param descriptor the dataset
+     * @return the routes as JSON
+     */
+    public @NotNull String getRoutesJson(@NotNull DataSetDescriptor descriptor) {
+        return routeService.getRoutesJson(descriptor.getDataSetName());
     }
 
     @Transactional
@@ -459,6 +772,17 @@ public class DatabaseManagementService {
         }
     }
 
+    /**
+     * get the notes of some stars, the stars in lists are loaded without their details
+     *
+     * @param recordIds the star ids
+     * @return the notes by star id
+     */
+    @Transactional(readOnly = true)
+    public @NotNull Map<UUID, String> getNotes(@NotNull Collection<UUID> recordIds) {
+        return starObjectRepository.findNotesByIds(recordIds);
+    }
+
     public StarObject getStar(@NotNull UUID recordId) {
         Optional<StarObject> objectOptional = starObjectRepository.findById(recordId);
         return objectOptional.orElse(null);
@@ -466,18 +790,56 @@ public class DatabaseManagementService {
 
     @Transactional
     public void removeStar(@NotNull UUID recordId) {
-        starObjectRepository.deleteById(recordId);
+        Optional<StarObject> starOptional = starObjectRepository.findById(recordId);
+        if (starOptional.isPresent()) {
+            removeStar(starOptional.get());
+        }
     }
 
 
     /**
      * does a dataset with this name exist?
+     * <p>
+     * a name that an import is still writing stars under counts as taken
      *
      * @param name the dataset name that we are looking for
      * @return true if we found one
      */
     public boolean hasDataSet(String name) {
-        return dataSetDescriptorRepository.findByDataSetName(name) != null;
+        return dataSetDescriptorRepository.findByDataSetName(name) != null
+                || importRunRepository.findByDataSetName(name) != null;
+    }
+
+    /**
+     * claim a dataset name for an import before it writes any stars
+     * <p>
+     * the claim is a row of its own so it holds across a cancel, a failure and a restart, the name stays
+     * taken until the import saves its descriptor or throws its stars away
+     *
+     * @param dataSetName the dataset being imported
+     * @return the id of this import run, null if the name is already taken
+     */
+    public synchronized @Nullable UUID startImport(@NotNull String dataSetName) {
+        if (hasDataSet(dataSetName)) {
+            return null;
+        }
+        ImportRun importRun = new ImportRun();
+        importRun.setId(UUID.randomUUID());
+        importRun.setDataSetName(dataSetName);
+        importRun.setStartedAt(System.currentTimeMillis());
+        importRunRepository.save(importRun);
+        log.info("import run {} started for {}", importRun.getId(), dataSetName);
+        return importRun.getId();
+    }
+
+    /**
+     * release the claim of an import whose descriptor has been saved
+     *
+     * @param runId the import run
+     */
+    public void finishImport(@NotNull UUID runId) {
+        importRunRepository.deleteById(runId);
+        log.info("import run {} finished", runId);
     }
 
 
@@ -488,17 +850,89 @@ public class DatabaseManagementService {
      */
     @Transactional
     public void addStars(@NotNull List<StarObject> starObjectList) {
-        starObjectRepository.saveAll(starObjectList);
+        starObjectRepository.persistAll(starObjectList);
+        invalidateDataSetsOf(starObjectList);
     }
 
     /**
-     * save a large number of stars at once
+     * save a large number of new stars at once
+     * <p>
+     * this goes through the batched insert path so the stars must not already be in the database
      *
      * @param starSet the star set
      */
     @Transactional
-    public void starBulkSave(@NotNull Set<StarObject> starSet) {
-        starObjectRepository.saveAll(starSet);
+    public void starBulkSave(@NotNull Collection<StarObject> starSet) {
+        starObjectRepository.persistAll(starSet);
+        invalidateDataSetsOf(starSet);
+    }
+
+    /**
+     * throw away the stars an import wrote before it was cancelled or failed and release its claim
+     * <p>
+     * the run holds the dataset name until this returns, so every star under the name belongs to it. A run
+     * that no longer holds a claim has nothing to throw away.
+     *
+     * @param runId   the import run
+     * @param updater where progress messages go
+     */
+    public void discardImport(@NotNull UUID runId, @NotNull ProgressUpdater updater) {
+        Optional<ImportRun> importRun = importRunRepository.findById(runId);
+        if (importRun.isEmpty()) {
+            log.warn("import run {} holds no dataset, nothing to discard", runId);
+            return;
+        }
+        deleteImportedStars(importRun.get().getDataSetName(), updater);
+        importRunRepository.deleteById(runId);
+    }
+
+    /**
+     * throw away what the imports that were cut short by a crash or a kill wrote
+     * <p>
+     * run at startup before anything can import. A run whose descriptor got saved only lost its claim, a run
+     * without one has its stars deleted so the next import under the name starts clean.
+     */
+    public void discardUnfinishedImports() {
+        for (ImportRun importRun : importRunRepository.findAll()) {
+            String dataSetName = importRun.getDataSetName();
+            if (dataSetDescriptorRepository.findByDataSetName(dataSetName) == null) {
+                log.warn("the import of {} started at {} did not finish, removing its stars",
+                        dataSetName, new Date(importRun.getStartedAt()));
+                deleteImportedStars(dataSetName, log::info);
+            }
+            importRunRepository.delete(importRun);
+        }
+    }
+
+    /**
+     * delete every star under the name of an import that did not finish
+     *
+     * @param dataSetName the dataset being imported
+     * @param updater     where progress messages go
+     */
+    private void deleteImportedStars(@NotNull String dataSetName, @NotNull ProgressUpdater updater) {
+        long deleted = 0;
+        int removed;
+        do {
+            removed = starObjectRepository.deleteChunkByDataSetName(dataSetName, bulkChunkSize);
+            deleted += removed;
+            updater.updateTaskInfo(String.format("removed %d partly imported stars from %s", deleted, dataSetName));
+        } while (removed > 0);
+        starQueryCache.invalidate(dataSetName);
+        log.info("discarded {} stars of the unfinished import of {}", deleted, dataSetName);
+    }
+
+    /**
+     * drop the cached queries of every dataset in a batch of stars
+     *
+     * @param stars the stars that were written
+     */
+    private void invalidateDataSetsOf(@NotNull Collection<StarObject> stars) {
+        stars.stream()
+                .map(StarObject::getDataSetName)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(starQueryCache::invalidate);
     }
 
     /**
@@ -516,28 +950,55 @@ public class DatabaseManagementService {
     @Transactional
     public void saveExcelDataSetDescriptor(@NotNull ProgressUpdater updater, @NotNull ExcelFile excelFile) {
         dataSetDescriptorRepository.save(excelFile.getDescriptor());
+        routeService.adoptLegacyRoutes(excelFile.getDescriptor().getDataSetName());
+        excelFile.getDescriptor().setRoutesStr(null);
         updater.updateTaskInfo("saved descriptor in database, complete");
     }
 
-    public void loadJsonFileSingleDS(ProgressUpdater updater, JsonExportObj jsonExportObj) {
-        dataSetDescriptorRepository.save(jsonExportObj.getDescriptor().toDataSetDescriptor());
+    /**
+     * save the descriptor of a JSON import, the stars have already been saved by the import pipeline
+     *
+     * @param updater    the progress updater
+     * @param descriptor the descriptor read from the file
+     */
+    @Transactional
+    public void loadJsonFileSingleDS(ProgressUpdater updater, DataSetDescriptorDTO descriptor) {
+        dataSetDescriptorRepository.save(descriptor.toDataSetDescriptor());
+        routeService.adoptLegacyRoutes(descriptor.getDataSetName());
+        starQueryCache.invalidate(descriptor.getDataSetName());
         updater.updateTaskInfo("saved descriptor in database");
-        starObjectRepository.saveAll(jsonExportObj.getStarObjectList());
-        updater.updateTaskInfo("saved all stars in database");
     }
 
-    public DataSetDescriptor recheckDescriptor(DataSetDescriptor descriptor, List<StarObject> starObjects) {
-        double max = 0;
-        long numberStars = 0L;
-        for (StarObject star : starObjects) {
-            if (star.getDistance() > max) {
-                max = star.getDistance();
-            }
-            numberStars++;
-        }
-        descriptor.setDistanceRange(max);
-        descriptor.setNumberStars(numberStars);
-        descriptor.clearRoutes();
+    /**
+     * get the statistics of a dataset, computed by the database if they are not cached
+     *
+     * @param descriptor the dataset, its star count, range and statistics are updated in place
+     * @return the statistics
+     */
+    public @NotNull DatasetStatistics getDatasetStatistics(@NotNull DataSetDescriptor descriptor) {
+        return datasetStatisticsService.getStatistics(descriptor);
+    }
+
+    /**
+     * recompute the statistics of a dataset, used after a bulk load
+     *
+     * @param descriptor the dataset, its star count, range and statistics are updated in place
+     * @return the statistics
+     */
+    public @NotNull DatasetStatistics refreshDatasetStatistics(@NotNull DataSetDescriptor descriptor) {
+        return datasetStatisticsService.refreshStatistics(descriptor);
+    }
+
+    /**
+     * bring the star count and range of a descriptor back in line with its stars
+     *
+     * @param descriptor the descriptor
+     * @return the descriptor
+     */
+    public DataSetDescriptor recheckDescriptor(DataSetDescriptor descriptor) {
+        datasetStatisticsService.refreshStatistics(descriptor);
+        routeService.clearRoutes(descriptor.getDataSetName());
+        descriptor.setNumberRoutes(0);
         descriptor.resetDate();
 
         return descriptor;
@@ -581,30 +1042,18 @@ public class DatabaseManagementService {
         tripsPrefsRepository.save(tripsPrefs);
     }
 
-    @Transactional
     public DataSetDescriptor deleteRoute(String descriptorName, RouteDescriptor routeDescriptor) {
-        DataSetDescriptor descriptor = dataSetDescriptorRepository.findByDataSetName(descriptorName);
-        List<Route> routeList = descriptor.getRoutes();
-        List<Route> updatedRoutes = routeList.stream().filter(route -> !routeDescriptor.getId().equals(route.getUuid())).collect(Collectors.toList());
-        descriptor.setRoutes(updatedRoutes);
-        dataSetDescriptorRepository.save(descriptor);
-        return descriptor;
+        routeService.deleteRoute(descriptorName, routeDescriptor.getId());
+        return dataSetDescriptorRepository.findByDataSetName(descriptorName);
     }
 
-    @Transactional
     public DataSetDescriptor updateRoute(String descriptorName, RouteDescriptor routeDescriptor) {
-        DataSetDescriptor descriptor = dataSetDescriptorRepository.findByDataSetName(descriptorName);
-        List<Route> routeList = descriptor.getRoutes();
-        for (Route route : routeList) {
-            if (route.getUuid().equals(routeDescriptor.getId())) {
-                route.setRouteColor(routeDescriptor.getColor().toString());
-                route.setRouteName(routeDescriptor.getName());
-                route.setRouteNotes(routeDescriptor.getRouteNotes());
-            }
-        }
-        descriptor.setRoutes(routeList);
-        dataSetDescriptorRepository.save(descriptor);
-        return descriptor;
+        routeService.updateRoute(
+                routeDescriptor.getId(),
+                routeDescriptor.getName(),
+                routeDescriptor.getColor().toString(),
+                routeDescriptor.getRouteNotes());
+        return dataSetDescriptorRepository.findByDataSetName(descriptorName);
     }
 
 
@@ -618,11 +1067,9 @@ public class DatabaseManagementService {
         }
     }
 
-    @Transactional
     public void clearRoutesFromCurrent(DataSetDescriptor descriptor) {
-        DataSetDescriptor descriptorCurrent = dataSetDescriptorRepository.findByDataSetName(descriptor.getDataSetName());
-        descriptorCurrent.clearRoutes();
-        dataSetDescriptorRepository.save(descriptorCurrent);
+        routeService.clearRoutes(descriptor.getDataSetName());
+        descriptor.setNumberRoutes(0);
     }
 
     @Transactional
@@ -637,18 +1084,72 @@ public class DatabaseManagementService {
     }
 
     public DataSetDescriptor changeDatasetName(DataSetDescriptor selectedDataset, String newName) {
+        return changeDatasetName(selectedDataset, newName, log::info, () -> false);
+    }
+
+    /**
+     * rename a dataset with chunked bulk updates
+     * <p>
+     * the descriptor is saved under the new name first, then the stars are moved over a chunk at a time
+     * and the old descriptor is removed at the end. If it is cancelled the stars moved so far are moved
+     * back so the dataset is left as it was.
+     *
+     * @param selectedDataset the dataset to rename
+     * @param newName         the new name
+     * @param updater         where progress messages go
+     * @param cancelled       checked before each chunk, true to stop
+     * @return the renamed descriptor or null if the name is taken or it was cancelled
+     */
+    public @Nullable DataSetDescriptor changeDatasetName(@NotNull DataSetDescriptor selectedDataset,
+                                                         @NotNull String newName,
+                                                         @NotNull ProgressUpdater updater,
+                                                         @NotNull BooleanSupplier cancelled) {
         if (dataSetDescriptorRepository.existsById(newName)) {
             return null;
         }
         // get dataset based on name
-        DataSetDescriptor descriptor = dataSetDescriptorRepository.findByDataSetName(selectedDataset.getDataSetName());
-
-        // remove old dataset
-        dataSetDescriptorRepository.delete(descriptor);
+        String oldName = selectedDataset.getDataSetName();
+        DataSetDescriptor descriptor = dataSetDescriptorRepository.findByDataSetName(oldName);
 
         // save as new
-        descriptor.setDataSetName(newName);
-        dataSetDescriptorRepository.save(descriptor);
-        return descriptor;
+        DataSetDescriptor renamed = descriptor.toDataSetDescriptorDTO().toDataSetDescriptor();
+        renamed.setDataSetName(newName);
+        if (descriptor.getTransitPreferencesStr() != null) {
+            TransitDefinitions transitDefinitions = descriptor.getTransitDefinitions();
+            transitDefinitions.setDataSetName(newName);
+            renamed.setTransitDefinitions(transitDefinitions);
+        }
+        renamed.setStatisticsStr(descriptor.getStatisticsStr());
+        dataSetDescriptorRepository.save(renamed);
+
+        // move the stars across
+        long total = starObjectRepository.countByDataSetName(oldName);
+        long moved = 0;
+        int count;
+        do {
+            if (cancelled.getAsBoolean()) {
+                updater.updateTaskInfo(String.format("rename of %s cancelled, restoring %d stars", oldName, moved));
+                while (starObjectRepository.renameChunkByDataSetName(newName, oldName, bulkChunkSize) > 0) {
+                    log.info("restoring stars to {}", oldName);
+                }
+                starQueryCache.invalidate(oldName);
+                starQueryCache.invalidate(newName);
+                dataSetDescriptorRepository.deleteById(newName);
+                updater.updateTaskInfo(String.format("rename of %s cancelled", oldName));
+                return null;
+            }
+            count = starObjectRepository.renameChunkByDataSetName(oldName, newName, bulkChunkSize);
+            starQueryCache.invalidate(oldName);
+            starQueryCache.invalidate(newName);
+            moved += count;
+            updater.updateRowCount(moved);
+            updater.updateTaskInfo(String.format("moved %d of %d stars from %s to %s", moved, total, oldName, newName));
+        } while (count > 0);
+
+        // the routes follow, then the old dataset can go
+        routeService.moveRoutes(oldName, newName);
+        dataSetDescriptorRepository.deleteById(oldName);
+        updater.updateTaskInfo(String.format("dataset %s renamed to %s", oldName, newName));
+        return renamed;
     }
 }
@@ -1,23 +1,35 @@
 package com.teamgannon.trips.service;
 
 import com.teamgannon.trips.algorithms.StarMath;
+import com.teamgannon.trips.algorithms.UniformGrid;
 import com.teamgannon.trips.dialogs.search.model.DistanceRoutes;
 import com.teamgannon.trips.graphics.entities.StarDisplayRecord;
 import com.teamgannon.trips.transits.TransitRoute;
 import com.teamgannon.trips.transits.TransitRangeDef;
+import javafx.scene.paint.Color;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
 
+/**
+ * finds the pairs of stars in view that are within a distance band of each other
+ * <p>
+ * the stars are put in a uniform grid with cells as big as the top of the widest band, so each star is only
+ * measured against the stars in the cells around it. Each pair is measured once, from the star that comes first
+ * in the list, and dropped into every band it falls in, so any number of bands costs one search. The stars are
+ * searched in parallel. The routes of a band come back in the same order as the old all pairs loop gave them:
+ * by source star in list order, then by target star in list order.
+ */
 @Slf4j
 public class StarMeasurementService {
 
-    private final Set<String> lookupSourceTarget = new HashSet<>();
-
     /**
      * calculate the distances between all the stars in view
      *
@@ -25,143 +37,196 @@ public class StarMeasurementService {
      * @param starsInView the list of stars in view
      */
     public @NotNull List<TransitRoute> calculateDistances(@NotNull DistanceRoutes distance, @NotNull List<StarDisplayRecord> starsInView) {
-        lookupSourceTarget.clear();
-        List<TransitRoute> allTransit = new ArrayList<>();
-        for (StarDisplayRecord record : starsInView) {
-            List<TransitRoute> recordTransits = findStarsWithLimit(record, starsInView, distance);
-            allTransit.addAll(recordTransits);
-        }
-        return allTransit;
+        Band band = new Band(distance.getLowerDistance(), distance.getUpperDistance(),
+                distance.getColor(), distance.getLineWidth());
+        return findTransits(new Band[]{band}, starsInView, null)[0];
     }
 
     public @NotNull List<TransitRoute> calculateDistances(@NotNull TransitRangeDef transitRangeDef, @NotNull List<StarDisplayRecord> starsInView) {
-        lookupSourceTarget.clear();
-        List<TransitRoute> allTransit = new ArrayList<>();
-        for (StarDisplayRecord record : starsInView) {
-            List<TransitRoute> recordTransits = findStarsWithLimit(record, starsInView, transitRangeDef);
-            allTransit.addAll(recordTransits);
-        }
-        return allTransit;
+        return findTransits(new Band[]{Band.of(transitRangeDef)}, starsInView, null)[0];
     }
 
-    private @NotNull List<TransitRoute> findStarsWithLimit(@NotNull StarDisplayRecord sourceRecord,
-                                                           @NotNull List<StarDisplayRecord> starsInView,
-                                                           @NotNull TransitRangeDef transitRangeDef) {
-        List<TransitRoute> routeList = new ArrayList<>();
-        for (StarDisplayRecord targetRecord : starsInView) {
-            if (targetRecord != null) {
-                TransitRoute route = calcDistanceAndCheck(sourceRecord, targetRecord, transitRangeDef);
-                if (route.isGood()) {
-                    routeList.add(route);
-                }
-            }
-        }
-        return routeList;
+    /**
+     * calculate the transits of several bands at once
+     *
+     * @param transitRangeDefs the bands, a pair in more than one band shows up in each of them
+     * @param starsInView      the list of stars in view
+     * @return the transits of each band, in the order the bands were given
+     */
+    public @NotNull List<List<TransitRoute>> calculateDistances(@NotNull List<TransitRangeDef> transitRangeDefs,
+                                                                @NotNull List<StarDisplayRecord> starsInView) {
+        Band[] bands = transitRangeDefs.stream().map(Band::of).toArray(Band[]::new);
+        return Arrays.asList(findTransits(bands, starsInView, null));
     }
 
-    private @NotNull List<TransitRoute> findStarsWithLimit(@NotNull StarDisplayRecord sourceRecord,
-                                                           @NotNull List<StarDisplayRecord> starsInView,
-                                                           @NotNull DistanceRoutes distanceRange) {
-        List<TransitRoute> routeList = new ArrayList<>();
-        for (StarDisplayRecord targetRecord : starsInView) {
-            if (targetRecord != null) {
-                TransitRoute route = calcDistanceAndCheck(sourceRecord, targetRecord, distanceRange);
-                if (route.isGood()) {
-                    routeList.add(route);
-                }
-            }
-        }
-        return routeList;
+    /**
+     * calculate only the transits that involve some of the stars, for keeping a set of transits up to date
+     * when a few stars change
+     * <p>
+     * every pair with at least one changed star is measured, once, and the source of a route is whichever of
+     * the two comes first in the list
+     *
+     * @param transitRangeDefs the bands
+     * @param starsInView      all the stars in view
+     * @param changedStars     the record ids of the stars that were added or moved
+     * @return the transits of the changed stars for each band, in the order the bands were given
+     */
+    public @NotNull List<List<TransitRoute>> calculateDistances(@NotNull List<TransitRangeDef> transitRangeDefs,
+                                                                @NotNull List<StarDisplayRecord> starsInView,
+                                                                @NotNull Set<UUID> changedStars) {
+        Band[] bands = transitRangeDefs.stream().map(Band::of).toArray(Band[]::new);
+        return Arrays.asList(findTransits(bands, starsInView, changedStars));
     }
 
-    private TransitRoute calcDistanceAndCheck(@NotNull StarDisplayRecord sourceRecord,
-                                              @NotNull StarDisplayRecord targetRecord,
-                                              @NotNull TransitRangeDef transitRangeDef) {
-        double[] sourceCoordinates = sourceRecord.getActualCoordinates();
-        double[] targetCoordinates = targetRecord.getActualCoordinates();
-        if (checkOffSourceTarget(sourceRecord.getStarName(), targetRecord.getStarName())) {
-            return TransitRoute.builder().good(false).build();
+    /**
+     * find every pair of stars strictly between the lower and upper distance of each band
+     *
+     * @param bands        the bands
+     * @param starsInView  the stars, nulls are skipped
+     * @param changedStars only look for pairs with at least one of these stars, null for all pairs
+     * @return the routes of each band, in the order of the bands
+     */
+    private @NotNull List<TransitRoute>[] findTransits(@NotNull Band[] bands,
+                                                       @NotNull List<StarDisplayRecord> starsInView,
+                                                       @Nullable Set<UUID> changedStars) {
+        @SuppressWarnings("unchecked")
+        List<TransitRoute>[] allTransits = new List[bands.length];
+        for (int b = 0; b < bands.length; b++) {
+            allTransits[b] = new ArrayList<>();
         }
-        try {
-            double distance = StarMath.getDistance(sourceCoordinates, targetCoordinates);
-            if (checkInRange(transitRangeDef, distance)) {
-                // ok, we have a measure to save
-                return TransitRoute
-                        .builder()
-                        .good(true)
-                        .source(sourceRecord)
-                        .target(targetRecord)
-                        .distance(distance)
-                        .lineWeight((transitRangeDef.getLineWidth()))
-                        .color(transitRangeDef.getBandColor())
-                        .build();
-            } else {
-                return TransitRoute.builder().good(false).build();
+
+        StarDisplayRecord[] stars = starsInView.stream()
+                .filter(record -> record != null && record.getActualCoordinates() != null)
+                .toArray(StarDisplayRecord[]::new);
+        int n = stars.length;
+        double searchRadius = 0;
+        for (Band band : bands) {
+            if (band.upper > band.lower) {
+                searchRadius = Math.max(searchRadius, band.upper);
             }
-        } catch (Exception e) {
-            log.error("failed to measure");
         }
-        return TransitRoute.builder().good(false).build();
-    }
+        if (n < 2 || searchRadius <= 0) {
+            return allTransits;
+        }
+        double[][] coordinates = new double[n][];
+        for (int i = 0; i < n; i++) {
+            coordinates[i] = stars[i].getActualCoordinates();
+        }
 
-    private TransitRoute calcDistanceAndCheck(@NotNull StarDisplayRecord sourceRecord,
-                                              @NotNull StarDisplayRecord targetRecord,
-                                              @NotNull DistanceRoutes distanceRange) {
-        double[] sourceCoordinates = sourceRecord.getActualCoordinates();
-        double[] targetCoordinates = targetRecord.getActualCoordinates();
-        if (checkOffSourceTarget(sourceRecord.getStarName(), targetRecord.getStarName())) {
-            return TransitRoute.builder().good(false).build();
+        // the stars to search from, with a pair of changed stars measured from the lower index only
+        boolean[] changed = new boolean[n];
+        IntStream sources;
+        if (changedStars == null) {
+            Arrays.fill(changed, true);
+            sources = IntStream.range(0, n);
+        } else {
+            for (int i = 0; i < n; i++) {
+                changed[i] = changedStars.contains(stars[i].getRecordId());
+            }
+            sources = IntStream.range(0, n).filter(i -> changed[i]);
         }
-        try {
-            double distance = StarMath.getDistance(sourceCoordinates, targetCoordinates);
-            if (checkInRange(distanceRange, distance)) {
-                // ok, we have a measure to save
-                return TransitRoute
-                        .builder()
-                        .good(true)
-                        .source(sourceRecord)
-                        .target(targetRecord)
-                        .distance(distance)
-                        .lineWeight((distanceRange.getLineWidth()))
-                        .color(distanceRange.getColor())
-                        .build();
-            } else {
-                return TransitRoute.builder().good(false).build();
+
+        long start = System.currentTimeMillis();
+        double radius = searchRadius;
+        UniformGrid grid = new UniformGrid(coordinates, radius);
+        @SuppressWarnings("unchecked")
+        List<TransitRoute>[][] routesByStar = new List[n][];
+        sources.parallel().forEach(source -> {
+            Targets targets = new Targets();
+            double[] sourceCoordinates = coordinates[source];
+            grid.forEachCandidate(source, target -> {
+                // each pair is measured once
+                if ((target > source || (target < source && !changed[target]))
+                        && StarMath.getDistance(sourceCoordinates, coordinates[target]) < radius) {
+                    targets.add(target);
+                }
+            });
+            if (targets.count == 0) {
+                return;
+            }
+            // the grid hands back the targets cell by cell, put them back in list order
+            Arrays.sort(targets.items, 0, targets.count);
+            @SuppressWarnings("unchecked")
+            List<TransitRoute>[] routes = new List[bands.length];
+            for (int k = 0; k < targets.count; k++) {
+                int target = targets.items[k];
+                double distance = StarMath.getDistance(sourceCoordinates, coordinates[target]);
+                for (int b = 0; b < bands.length; b++) {
+                    Band band = bands[b];
+                    if (distance < band.upper && distance > band.lower) {
+                        if (routes[b] == null) {
+                            routes[b] = new ArrayList<>();
+                        }
+                        routes[b].add(TransitRoute
+                                .builder()
+                                .good(true)
+                                .source(stars[Math.min(source, target)])
+                                .target(stars[Math.max(source, target)])
+                                .distance(distance)
+                                .lineWeight(band.lineWeight)
+                                .color(band.color)
+                                .build());
+                    }
+                }
+            }
+            routesByStar[source] = routes;
+        });
+
+        for (List<TransitRoute>[] routes : routesByStar) {
+            if (routes != null) {
+                for (int b = 0; b < bands.length; b++) {
+                    if (routes[b] != null) {
+                        allTransits[b].addAll(routes[b]);
+                    }
+                }
             }
-        } catch (Exception e) {
-            log.error("failed to measure");
         }
-        return TransitRoute.builder().good(false).build();
+        log.info("found transits for {} bands up to {} among {} stars in {} ms",
+                bands.length, radius, n, System.currentTimeMillis() - start);
+        return allTransits;
     }
 
     /**
-     * check if we calculated either source to target
-     * or target to source
-     *
-     * @param sourceName the source name
-     * @param targetName the target name
-     * @return true if we saw it, false if not
+     * one distance band and how its routes are drawn
      */
-    private boolean checkOffSourceTarget(String sourceName, String targetName) {
-        if (lookupSourceTarget.contains(sourceName + "," + targetName)) {
-            return true;
-        } else {
-            lookupSourceTarget.add(sourceName + "," + targetName);
+    private static class Band {
+
+        private final double lower;
+
+        private final double upper;
+
+        private final Color color;
+
+        private final double lineWeight;
+
+        private Band(double lower, double upper, Color color, double lineWeight) {
+            this.lower = lower;
+            this.upper = upper;
+            this.color = color;
+            this.lineWeight = lineWeight;
         }
-        if (lookupSourceTarget.contains(targetName + "," + sourceName)) {
-            return true;
-        } else {
-            lookupSourceTarget.add(targetName + "," + sourceName);
+
+        private static @NotNull Band of(@NotNull TransitRangeDef transitRangeDef) {
+            return new Band(transitRangeDef.getLowerRange(), transitRangeDef.getUpperRange(),
+                    transitRangeDef.getBandColor(), transitRangeDef.getLineWidth());
         }
-        return false;
     }
 
-    private boolean checkInRange(@NotNull DistanceRoutes distanceRange, double distance) {
-        return distance < distanceRange.getUpperDistance() && distance > distanceRange.getLowerDistance();
-    }
+    /**
+     * the targets found for one source star
+     */
+    private static class Targets {
+
+        private int[] items = new int[16];
+
+        private int count = 0;
 
-    private boolean checkInRange(@NotNull TransitRangeDef transitRangeDef, double distance) {
-        return distance < transitRangeDef.getUpperRange() && distance > transitRangeDef.getLowerRange();
+        private void add(int target) {
+            if (count == items.length) {
+                items = Arrays.copyOf(items, count * 2);
+            }
+            items[count++] = target;
+        }
     }
 
 }
@@ -0,0 +1,290 @@
+package com.teamgannon.trips.service.async;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.search.SearchContext;
+import com.teamgannon.trips.service.DatabaseManagementService;
+import javafx.application.Platform;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * runs database calls off the JavaFX application thread
+ * <p>
+ * every call hands back a CompletableFuture that runs on a small bounded pool. Calls can be given a request
+ * key, and a new call with the same key supersedes the one still in flight, so when the user replots before the
+ * last plot has come back only the newest one gets drawn. A superseded query that has already started is left
+ * to finish and its result is dropped, the worker is never interrupted since H2 closes the database file on a
+ * thread interrupted in the middle of a read. Writes go through a single thread of their own so they reach the
+ * database in the order they were made. Use deliverOnFxThread to get the result back onto the application
+ * thread.
+ */
+@Slf4j
+@Service
+public class AsyncDatabaseService {
+
+    /**
+     * the key for plot queries, there is only ever one plot worth drawing
+     */
+    public static final String PLOT_REQUEST = "plot";
+
+    /**
+     * the key for loading the stars shown in the data table
+     */
+    public static final String TABLE_REQUEST = "table";
+
+    private final DatabaseManagementService databaseManagementService;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * the star edits, one at a time in the order they were asked for
+     */
+    private final ThreadPoolExecutor writeExecutor;
+
+    /**
+     * the newest request for each key that has not finished yet
+     */
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    public AsyncDatabaseService(DatabaseManagementService databaseManagementService,
+                                @Value("${app.async.poolSize:2}") int poolSize,
+                                @Value("${app.async.queueCapacity:16}") int queueCapacity) {
+        this.databaseManagementService = databaseManagementService;
+        this.executor = createExecutor("db-async-", poolSize, queueCapacity);
+        this.writeExecutor = createExecutor("db-write-", 1, queueCapacity);
+    }
+
+    private static @NotNull ThreadPoolExecutor createExecutor(@NotNull String threadName, int poolSize, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadName + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * stop taking work, anything already running is left to finish rather than interrupted
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        writeExecutor.shutdown();
+    }
+
+    /**
+     * run some database work in the background
+     *
+     * @param requestKey the key of the request, a newer request with the same key cancels this one,
+     *                   null if it should never be superseded
+     * @param work       the work to do
+     * @param <T>        the type of the result
+     * @return the future result, it completes exceptionally if the pool is full
+     */
+    public <T> @NotNull CompletableFuture<T> submit(@Nullable String requestKey, @NotNull Supplier<T> work) {
+        return submit(executor, requestKey, work);
+    }
+
+    /**
+     * run a change to the database in the background, after every change asked for before it
+     *
+     * @param work the work to do
+     * @return the future that completes when the change is made
+     */
+    public @NotNull CompletableFuture<Void> submitWrite(@NotNull Runnable work) {
+        return submit(writeExecutor, null, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private <T> @NotNull CompletableFuture<T> submit(@NotNull ExecutorService pool,
+                                                     @Nullable String requestKey,
+                                                     @NotNull Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (requestKey != null) {
+            CompletableFuture<?> previous = inFlight.put(requestKey, future);
+            if (previous != null && previous.cancel(false)) {
+                log.info("request {} superseded by a newer one", requestKey);
+            }
+        }
+
+        try {
+            pool.execute(() -> {
+                // it may have been superseded while it sat in the queue
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    // once superseded this is a no op and the result goes nowhere
+                    future.complete(work.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.error("database work rejected, the queue is full");
+            future.completeExceptionally(e);
+        }
+
+        if (requestKey != null) {
+            future.whenComplete((result, throwable) -> inFlight.remove(requestKey, future));
+        }
+        return future;
+    }
+
+    /**
+     * cancel the request in flight for a key if there is one
+     *
+     * @param requestKey the request key
+     */
+    public void cancel(@NotNull String requestKey) {
+        CompletableFuture<?> previous = inFlight.remove(requestKey);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * hand the outcome of a future to the JavaFX application thread
+     * <p>
+     * a cancelled future means a newer request took over, so neither callback is called for it
+     *
+     * @param future   the future
+     * @param onResult called with the result
+     * @param onError  called with the cause if the work failed
+     * @param <T>      the type of the result
+     */
+    public static <T> void deliverOnFxThread(@NotNull CompletableFuture<T> future,
+                                             @NotNull Consumer<T> onResult,
+                                             @NotNull Consumer<Throwable> onError) {
+        future.whenCompleteAsync((result, throwable) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                log.error("database request failed because of {}", cause.getMessage());
+                onError.accept(cause);
+            } else {
+                onResult.accept(result);
+            }
+        }, Platform::runLater);
+    }
+
+    ///////////////  the database calls  ///////////////
+
+    /**
+     * get what we need to plot a query, superseding any plot query still running
+     *
+     * @param searchContext the search context holding the query
+     * @param labelCount    the number of labels to show
+     * @return the plot views and the stars to label
+     */
+    public @NotNull CompletableFuture<PlotQueryResult> plotQuery(@NotNull SearchContext searchContext, int labelCount) {
+        return plotAndTableQuery(searchContext, labelCount, true, false);
+    }
+
+    /**
+     * get what we need to plot a query and show it in a table, superseding any plot query still running
+     * <p>
+     * when both are shown the stars are read once and the plot views are made from them
+     *
+     * @param searchContext the search context holding the query
+     * @param labelCount    the number of labels to show
+     * @param showPlot      whether the plot is shown
+     * @param showTable     whether the table is shown
+     * @return the plot views, the stars to label and the stars for the table
+     */
+    public @NotNull CompletableFuture<PlotQueryResult> plotAndTableQuery(@NotNull SearchContext searchContext,
+                                                                         int labelCount,
+                                                                         boolean showPlot,
+                                                                         boolean showTable) {
+        SearchContext query = searchContext.snapshot();
+        return submit(PLOT_REQUEST, () -> {
+            PlotQueryResult plotQueryResult = new PlotQueryResult();
+            // taken before the stars are read, so views made from them are not cached if a write beat us
+            long generation = databaseManagementService.getQueryCacheGeneration(query);
+            if (showTable) {
+                plotQueryResult.setStarObjects(databaseManagementService.getAstrographicObjectsOnQuery(query));
+            }
+            if (showPlot) {
+                plotQueryResult.setPlotViews(showTable
+                        ? databaseManagementService.getPlotViewsOf(query, plotQueryResult.getStarObjects(), generation)
+                        : databaseManagementService.getPlotViewsOnQuery(query));
+                if (!plotQueryResult.getPlotViews().isEmpty()) {
+                    plotQueryResult.setLabelledStars(databaseManagementService.getTopScoredStarIds(query, labelCount));
+                }
+            }
+            return plotQueryResult;
+        });
+    }
+
+    /**
+     * get the full stars that match a query
+     *
+     * @param searchContext the search context holding the query
+     * @return the stars
+     */
+    public @NotNull CompletableFuture<List<StarObject>> getAstrographicObjectsOnQuery(@NotNull SearchContext searchContext) {
+        SearchContext query = searchContext.snapshot();
+        return submit(TABLE_REQUEST, () -> databaseManagementService.getAstrographicObjectsOnQuery(query));
+    }
+
+    /**
+     * find the stars in a dataset whose name contains a string
+     *
+     * @param requestKey  the key of the request, a new search under the same key supersedes this one
+     * @param datasetName the dataset
+     * @param starName    the partial name
+     * @return the matching stars
+     */
+    public @NotNull CompletableFuture<List<StarObject>> findStarsWithName(@Nullable String requestKey,
+                                                                          String datasetName,
+                                                                          String starName) {
+        return submit(requestKey, () -> databaseManagementService.findStarsWithName(datasetName, starName));
+    }
+
+    /**
+     * get the notes of the stars shown in a list
+     *
+     * @param recordIds the star ids
+     * @return the notes by star id
+     */
+    public @NotNull CompletableFuture<Map<UUID, String>> getNotes(@NotNull Collection<UUID> recordIds) {
+        return submit(null, () -> databaseManagementService.getNotes(recordIds));
+    }
+
+    public @NotNull CompletableFuture<StarObject> getStar(@NotNull UUID recordId) {
+        return submit(null, () -> databaseManagementService.getStar(recordId));
+    }
+
+    public @NotNull CompletableFuture<Void> addStar(@NotNull StarObject starObject) {
+        return submitWrite(() -> databaseManagementService.addStar(starObject));
+    }
+
+    public @NotNull CompletableFuture<Void> updateStar(@NotNull StarObject starObject) {
+        return submitWrite(() -> databaseManagementService.updateStar(starObject));
+    }
+
+    public @NotNull CompletableFuture<Void> removeStar(@NotNull UUID recordId) {
+        return submitWrite(() -> databaseManagementService.removeStar(recordId));
+    }
+
+}
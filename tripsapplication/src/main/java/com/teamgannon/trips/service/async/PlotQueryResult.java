@@ -0,0 +1,32 @@
+package com.teamgannon.trips.service.async;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.jpa.model.StarPlotView;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * what a plot, and the table shown with it, need from the database, fetched together in the background
+ */
+@Data
+public class PlotQueryResult {
+
+    /**
+     * the stars to draw
+     */
+    private List<StarPlotView> plotViews = new ArrayList<>();
+
+    /**
+     * the stars whose labels are shown, highest display score first
+     */
+    private List<UUID> labelledStars = new ArrayList<>();
+
+    /**
+     * the full stars for the table, empty when no table was asked for
+     */
+    private List<StarObject> starObjects = new ArrayList<>();
+
+}
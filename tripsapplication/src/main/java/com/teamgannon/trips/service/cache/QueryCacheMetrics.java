@@ -0,0 +1,36 @@
+package com.teamgannon.trips.service.cache;
+
+import lombok.Data;
+
+/**
+ * a snapshot of how the plot query cache is doing
+ */
+@Data
+public class QueryCacheMetrics {
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long invalidations;
+
+    private int entries;
+
+    private long starsHeld;
+
+    private long maxStars;
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits %d, misses %d (%.0f%% hit), %d entries holding %d of %d stars, %d evicted, %d invalidated",
+                hits, misses, getHitRatio() * 100, entries, starsHeld, maxStars, evictions, invalidations);
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.teamgannon.trips.service.cache;
+
+import com.teamgannon.trips.jpa.model.StarPlotView;
+import com.teamgannon.trips.search.AstroSearchQuery;
+import com.teamgannon.trips.stellarmodelling.StellarType;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * an LRU cache of plot query results
+ * <p>
+ * users tend to flip between the same few views, so the plot views for a query are kept keyed by a canonical
+ * hash of the query. The cache is bounded by the total number of stars it holds rather than by the number of
+ * queries, since one query can return a handful of stars or the whole dataset. Any write to a dataset drops
+ * every entry for that dataset and moves its generation on. A reader takes the generation before it goes to
+ * the database and hands it back with the result, so a result read before a write committed is not stored
+ * after it.
+ */
+@Slf4j
+@Service
+public class StarQueryCache {
+
+    /**
+     * the most stars we hold across all entries
+     */
+    private final long maxStars;
+
+    /**
+     * access ordered so iteration starts at the least recently used entry
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * how many times each dataset has been invalidated
+     */
+    private final Map<String, Long> generations = new HashMap<>();
+
+    /**
+     * how many times everything has been invalidated, part of every dataset's generation
+     */
+    private long allGeneration = 0;
+
+    private long starsHeld = 0;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private long evictions = 0;
+
+    private long invalidations = 0;
+
+    public StarQueryCache(@Value("${app.query.cacheMaxStars:200000}") long maxStars) {
+        this.maxStars = maxStars;
+    }
+
+    /**
+     * look up the result of a query
+     *
+     * @param searchQuery the query
+     * @return a copy of the list of cached plot views or null if we do not have them, the views themselves
+     * are immutable so they are shared
+     */
+    public synchronized @Nullable List<StarPlotView> get(@NotNull AstroSearchQuery searchQuery) {
+        CacheEntry entry = entries.get(keyOf(searchQuery));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        log.debug("query cache hit for {}, {} stars", entry.dataSetName, entry.plotViews.size());
+        return new ArrayList<>(entry.plotViews);
+    }
+
+    /**
+     * the generation of the dataset a query reads, take it before reading the database and pass it to put
+     *
+     * @param searchQuery the query
+     * @return the generation
+     */
+    public synchronized long generationOf(@NotNull AstroSearchQuery searchQuery) {
+        if (searchQuery.getDescriptor() == null) {
+            return allGeneration;
+        }
+        return allGeneration + generations.getOrDefault(searchQuery.getDescriptor().getDataSetName(), 0L);
+    }
+
+    /**
+     * store the result of a query
+     * <p>
+     * nothing is stored if the dataset was invalidated since the generation was taken, the result may have
+     * been read before the write that caused it committed
+     *
+     * @param searchQuery the query
+     * @param plotViews   the result
+     * @param generation  the generation of the dataset from before the result was read
+     */
+    public synchronized void put(@NotNull AstroSearchQuery searchQuery,
+                                 @NotNull List<StarPlotView> plotViews,
+                                 long generation) {
+        if (searchQuery.getDescriptor() == null || plotViews.size() > maxStars) {
+            return;
+        }
+        if (generationOf(searchQuery) != generation) {
+            log.debug("not caching a result for {} read before it changed", searchQuery.getDescriptor().getDataSetName());
+            return;
+        }
+        String key = keyOf(searchQuery);
+        CacheEntry previous = entries.put(key,
+                new CacheEntry(searchQuery.getDescriptor().getDataSetName(), List.copyOf(plotViews)));
+        if (previous != null) {
+            starsHeld -= previous.plotViews.size();
+        }
+        starsHeld += plotViews.size();
+
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (starsHeld > maxStars && iterator.hasNext()) {
+            CacheEntry eldest = iterator.next();
+            iterator.remove();
+            starsHeld -= eldest.plotViews.size();
+            evictions++;
+        }
+    }
+
+    /**
+     * drop every cached result for a dataset and move its generation on
+     * <p>
+     * if we are inside a transaction this happens again once it commits. That drops anything cached while the
+     * write was in flight, and the new generation stops a query that read the old rows from storing its result
+     * afterwards.
+     *
+     * @param dataSetName the dataset that changed
+     */
+    public void invalidate(@NotNull String dataSetName) {
+        invalidateNow(dataSetName);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(dataSetName);
+                }
+            });
+        }
+    }
+
+    /**
+     * drop everything
+     */
+    public synchronized void invalidateAll() {
+        allGeneration++;
+        invalidations += entries.size();
+        entries.clear();
+        starsHeld = 0;
+    }
+
+    /**
+     * @return a snapshot of the hit and miss counters
+     */
+    public synchronized @NotNull QueryCacheMetrics getMetrics() {
+        QueryCacheMetrics metrics = new QueryCacheMetrics();
+        metrics.setHits(hits);
+        metrics.setMisses(misses);
+        metrics.setEvictions(evictions);
+        metrics.setInvalidations(invalidations);
+        metrics.setEntries(entries.size());
+        metrics.setStarsHeld(starsHeld);
+        metrics.setMaxStars(maxStars);
+        return metrics;
+    }
+
+    private synchronized void invalidateNow(@NotNull String dataSetName) {
+        generations.merge(dataSetName, 1L, Long::sum);
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            if (entry.dataSetName.equals(dataSetName)) {
+                iterator.remove();
+                starsHeld -= entry.plotViews.size();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * the canonical hash of a query
+     * <p>
+     * every field that changes the result goes in, with the sets sorted so that the order the user picked
+     * things in does not matter
+     *
+     * @param searchQuery the query
+     * @return the key
+     */
+    public static @NotNull String keyOf(@NotNull AstroSearchQuery searchQuery) {
+        double[] center = searchQuery.getCenterCoordinates();
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(searchQuery.getDescriptor() != null ? searchQuery.getDescriptor().getDataSetName() : "")
+                .append('|').append(searchQuery.getLowerDistanceLimit())
+                .append('|').append(searchQuery.getUpperDistanceLimit())
+                .append('|').append(searchQuery.isRecenter())
+                .append('|').append(center[0]).append(',').append(center[1]).append(',').append(center[2])
+                .append('|').append(searchQuery.isRealStars())
+                .append('|').append(searchQuery.isFictionalStars())
+                .append('|').append(searchQuery.isOtherSearch())
+                .append('|').append(searchQuery.isAnomalySearch())
+                .append('|').append(sorted(searchQuery.getStellarTypes().stream()
+                        .map(StellarType::getValue).collect(Collectors.toSet())))
+                .append('|').append(sorted(searchQuery.getPolities()))
+                .append('|').append(sorted(searchQuery.getFuelTypes()))
+                .append('|').append(sorted(searchQuery.getWorldTypes()))
+                .append('|').append(sorted(searchQuery.getPortTypes()))
+                .append('|').append(sorted(searchQuery.getPopulationTypes()))
+                .append('|').append(sorted(searchQuery.getTechTypes()))
+                .append('|').append(sorted(searchQuery.getProductTypes()))
+                .append('|').append(sorted(searchQuery.getMilSpaceTypes()))
+                .append('|').append(sorted(searchQuery.getMilPlanTypes()));
+        return DigestUtils.sha256Hex(canonical.toString());
+    }
+
+    private static @NotNull String sorted(@NotNull Set<String> values) {
+        return String.join(",", new TreeSet<>(values));
+    }
+
+    private static class CacheEntry {
+
+        private final String dataSetName;
+
+        private final List<StarPlotView> plotViews;
+
+        private CacheEntry(String dataSetName, List<StarPlotView> plotViews) {
+            this.dataSetName = dataSetName;
+            this.plotViews = plotViews;
+        }
+    }
+
+}
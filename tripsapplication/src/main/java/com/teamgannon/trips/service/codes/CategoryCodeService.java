@@ -0,0 +1,125 @@
+package com.teamgannon.trips.service.codes;
+
+import com.teamgannon.trips.jpa.model.CategoryCode;
+import com.teamgannon.trips.jpa.model.StarCategory;
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.jpa.repository.CategoryCodeRepository;
+import com.teamgannon.trips.stellarmodelling.StellarType;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * hands out the small integer codes that stand in for the categorical fields of a star
+ * <p>
+ * the dictionary is small, a few dozen values per category at most, so it is held in memory once loaded.
+ * New values are written in their own transaction so that a code, once handed out, is never lost to
+ * a rollback of the import that asked for it.
+ */
+@Slf4j
+@Service
+public class CategoryCodeService {
+
+    /**
+     * the code for a null or blank value
+     */
+    public static final short EMPTY_CODE = 0;
+
+    private final CategoryCodeRepository categoryCodeRepository;
+
+    private final TransactionTemplate newTransaction;
+
+    private final Map<StarCategory, Map<String, Short>> codes = new EnumMap<>(StarCategory.class);
+
+    private boolean loaded = false;
+
+    public CategoryCodeService(CategoryCodeRepository categoryCodeRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.categoryCodeRepository = categoryCodeRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * fill in all the derived codes of a star from its string values
+     *
+     * @param starObject the star
+     */
+    public void encode(@NotNull StarObject starObject) {
+        starObject.setStellarClassCode(StellarType.codeOf(starObject.getOrthoSpectralClass()));
+        for (StarCategory category : StarCategory.values()) {
+            category.setCode(starObject, codeOf(category, category.valueOf(starObject)));
+        }
+    }
+
+    /**
+     * get the code for a value, adding it to the dictionary if it is new
+     *
+     * @param category the category
+     * @param value    the value
+     * @return the code
+     */
+    public synchronized short codeOf(@NotNull StarCategory category, String value) {
+        if (value == null || value.isBlank()) {
+            return EMPTY_CODE;
+        }
+        Map<String, Short> categoryCodes = categoryCodes(category);
+        Short code = categoryCodes.get(value);
+        if (code != null) {
+            return code;
+        }
+
+        int next = categoryCodes.values().stream().mapToInt(Short::intValue).max().orElse(EMPTY_CODE) + 1;
+        if (next > Short.MAX_VALUE) {
+            throw new IllegalStateException("too many distinct values for " + category);
+        }
+        CategoryCode categoryCode = new CategoryCode();
+        categoryCode.setCategory(category);
+        categoryCode.setCategoryValue(value);
+        categoryCode.setCode((short) next);
+        newTransaction.executeWithoutResult(status -> categoryCodeRepository.save(categoryCode));
+        categoryCodes.put(value, (short) next);
+        log.info("new {} code {} for {}", category, next, value);
+        return (short) next;
+    }
+
+    /**
+     * get the codes for a set of values without adding any
+     * <p>
+     * values that have never been stored have no code, no star can match them
+     *
+     * @param category the category
+     * @param values   the values
+     * @return the codes of the values we know
+     */
+    public synchronized @NotNull List<Short> findCodes(@NotNull StarCategory category, @NotNull Collection<String> values) {
+        Map<String, Short> categoryCodes = categoryCodes(category);
+        List<Short> found = new ArrayList<>();
+        for (String value : values) {
+            Short code = categoryCodes.get(value);
+            if (code != null) {
+                found.add(code);
+            }
+        }
+        return found;
+    }
+
+    private @NotNull Map<String, Short> categoryCodes(@NotNull StarCategory category) {
+        if (!loaded) {
+            for (StarCategory starCategory : StarCategory.values()) {
+                codes.put(starCategory, new HashMap<>());
+            }
+            for (CategoryCode categoryCode : categoryCodeRepository.findAll()) {
+                codes.get(categoryCode.getCategory()).put(categoryCode.getCategoryValue(), categoryCode.getCode());
+            }
+            loaded = true;
+        }
+        return codes.get(category);
+    }
+
+}
@@ -1,95 +1,113 @@
 package com.teamgannon.trips.service.export;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.teamgannon.trips.dialogs.dataset.ExportOptions;
-import com.teamgannon.trips.jpa.model.DataSetDescriptor;
-import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.dialogs.dataset.ExportTaskComplete;
 import com.teamgannon.trips.listener.StatusUpdaterListener;
-import com.teamgannon.trips.service.export.model.DataSetDescriptorDTO;
-import com.teamgannon.trips.service.export.model.JsonExportObj;
+import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.export.tasks.JSONDataSetDataExportTask;
+import javafx.concurrent.Service;
+import javafx.concurrent.Task;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.Writer;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.List;
-
-import static com.teamgannon.trips.support.AlertFactory.showErrorAlert;
-import static com.teamgannon.trips.support.AlertFactory.showInfoMessage;
+import static javafx.concurrent.Worker.State.RUNNING;
 
+/**
+ * exports a dataset as a .trips.json backup in the background, see JSONDataSetDataExportTask
+ */
 @Slf4j
-public class JSONExporter implements ExportTaskControl {
+public class JSONExporter extends Service<ExportResults> implements ExportTaskControl {
 
     private final StatusUpdaterListener updaterListener;
+    private DatabaseManagementService databaseManagementService;
+
+    private ExportTaskComplete exportTaskComplete;
+    private Label progressText;
+    private ProgressBar exportProgressionBar;
+    private StatusUpdaterListener statusUpdaterListener;
+
+    private ExportOptions export;
 
     public JSONExporter(StatusUpdaterListener updaterListener) {
         this.updaterListener = updaterListener;
     }
 
-    public static void main(String[] args) {
-        try {
-
-            DataSetDescriptor descriptor = new DataSetDescriptor();
-            descriptor.setThemeStr("");
-            descriptor.setCustomDataValuesStr("");
-            descriptor.setCustomDataDefsStr("");
-            descriptor.setDataSetName("test");
-            descriptor.setFileCreator("anon");
-            descriptor.setFileNotes("notes");
-            descriptor.setFilePath("filepath");
-            descriptor.setDatasetType("json");
-            descriptor.setRoutesStr("");
-
-            DataSetDescriptorDTO dto = descriptor.toDataSetDescriptorDTO();
-
-            ObjectMapper mapper = new ObjectMapper();
-            String jsonStr = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(dto);
+    @Override
+    protected Task<ExportResults> createTask() {
+        return new JSONDataSetDataExportTask(export, databaseManagementService);
+    }
 
-            DataSetDescriptorDTO dto1 = mapper.readValue(jsonStr, DataSetDescriptorDTO.class);
-            DataSetDescriptor descriptor1 = dto1.toDataSetDescriptor();
+    public boolean exportAsJson(@NotNull ExportOptions export,
+                                @NotNull DatabaseManagementService databaseManagementService,
+                                StatusUpdaterListener statusUpdaterListener,
+                                ExportTaskComplete exportTaskComplete,
+                                Label progressText,
+                                ProgressBar exportProgressionBar,
+                                Button cancelExportButton) {
+
+        this.export = export;
+        this.databaseManagementService = databaseManagementService;
+        this.exportTaskComplete = exportTaskComplete;
+        this.progressText = progressText;
+        this.exportProgressionBar = exportProgressionBar;
+        this.statusUpdaterListener = statusUpdaterListener;
+
+        progressText.textProperty().bind(this.messageProperty());
+        exportProgressionBar.progressProperty().bind(this.progressProperty());
+        cancelExportButton.disableProperty().bind(this.stateProperty().isNotEqualTo(RUNNING));
+
+        return true;
+    }
 
-            log.info("converted");
-        } catch (Exception e) {
-            log.error("failed to export as Json" + e.getMessage());
+    @Override
+    protected void succeeded() {
+        unsetProgressControls();
+        ExportResults exportResults = this.getValue();
+        if (exportResults.isSuccess()) {
+            log.info("dataset exported");
+            exportTaskComplete.complete(true, export.getDataset(), exportResults, "exported");
+            statusUpdaterListener.updateStatus("exported " + export.getDataset().getDataSetName() + " to file " + export.getFileName() + ".trips.json");
+        } else {
+            exportTaskComplete.complete(false, export.getDataset(), exportResults, exportResults.getMessage());
+            statusUpdaterListener.updateStatus("dataset export failed due to: " + exportResults.getMessage());
         }
     }
 
-    public void exportAsJson(@NotNull ExportOptions export, List<StarObject> starObjects) {
-
-        ObjectMapper objectMapper = new ObjectMapper();
-
-        try {
-            Writer writer = Files.newBufferedWriter(Paths.get(export.getFileName() + ".trips.json"));
-
-            JsonExportObj jsonExportObj = new JsonExportObj();
-            jsonExportObj.setDescriptor(export.getDataset().toDataSetDescriptorDTO());
-            jsonExportObj.setStarObjectList(starObjects);
-
-            String jsonStr = objectMapper.writeValueAsString(jsonExportObj);
-            writer.write(jsonStr);
+    @Override
+    protected void failed() {
+        log.error("dataset export failed due to: " + getException().getMessage());
+        statusUpdaterListener.updateStatus("dataset export failed due to: " + getException().getMessage());
+        unsetProgressControls();
+        ExportResults exportResults = this.getValue();
+        exportTaskComplete.complete(false, export.getDataset(), exportResults, "dataset export failed due to: " + getException().getMessage());
+    }
 
-            writer.flush();
-            writer.close();
-            showInfoMessage("Database Export", export.getDataset().getDataSetName()
-                    + " was export to " + export.getFileName() + ".trips.json");
+    @Override
+    protected void cancelled() {
+        log.warn("dataset export cancelled");
+        statusUpdaterListener.updateStatus("dataset export was cancelled for " + export.getFileName());
+        unsetProgressControls();
+        ExportResults exportResults = this.getValue();
+        exportTaskComplete.complete(false, export.getDataset(), exportResults, "dataset export cancelled");
+    }
 
-        } catch (Exception e) {
-            log.error("caught error opening the file:{}", e.getMessage());
-            showErrorAlert(
-                    "Export Dataset as JSON file",
-                    export.getDataset().getDataSetName() +
-                            "failed to export:" + e.getMessage());
-        }
+    private void unsetProgressControls() {
+        progressText.textProperty().unbind();
+        exportProgressionBar.progressProperty().unbind();
+        exportProgressionBar.setProgress(1);
     }
 
     @Override
     public boolean cancelExport() {
-        return false;
+        return this.cancel();
     }
 
     @Override
-    public String whoAmI() {
+    public @NotNull String whoAmI() {
         return "JSON exporter";
     }
+
 }
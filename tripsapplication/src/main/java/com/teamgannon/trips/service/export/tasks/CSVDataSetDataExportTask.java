@@ -1,19 +1,15 @@
 package com.teamgannon.trips.service.export.tasks;
 
 import com.teamgannon.trips.dialogs.dataset.ExportOptions;
-import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.file.csvout.CsvStarWriter;
 import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.service.DatabaseManagementService;
 import com.teamgannon.trips.service.export.ExportResults;
 import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
 import javafx.concurrent.Task;
 import lombok.extern.slf4j.Slf4j;
-import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
-import org.springframework.data.domain.Page;
 
-import java.io.Writer;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
@@ -48,183 +44,50 @@ public class CSVDataSetDataExportTask extends Task<ExportResults> implements Pro
         return result;
     }
 
+    /**
+     * page through the dataset in key order and hand each page to the writer, which writes it on its own thread
+     * while we read the next one
+     */
     private ExportResults processCSVFile(ExportOptions export) {
 
         ExportResults exportResults = ExportResults.builder().success(false).build();
 
         log.info("about to process file");
+        Path file = Paths.get(export.getFileName() + ".trips.csv");
+        Long numberStars = export.getDataset().getNumberStars();
+        long total = numberStars != null ? numberStars : 0;
+        CsvStarWriter writer = null;
+        boolean complete = false;
         try {
-            Writer writer = Files.newBufferedWriter(Paths.get(export.getFileName() + ".trips.csv"));
+            writer = new CsvStarWriter(file);
 
-//            createDescriptorHeading(writer, dataSetDescriptor);
-
-            String headers = getHeaders();
-            writer.write(headers);
-
-            int total = 0;
-            int pageNumber = 0;
-            Page<StarObject> starObjectPage = databaseManagementService.getFromDatasetByPage(export.getDataset(), pageNumber, PAGE_SIZE);
-            int totalPages = starObjectPage.getTotalPages();
-
-            for (int i = 0; i < totalPages; i++) {
-                starObjectPage = databaseManagementService.getFromDatasetByPage(export.getDataset(), i, PAGE_SIZE);
-                List<StarObject> starObjects = starObjectPage.getContent();
-                for (StarObject starObject : starObjects) {
-                    String csvRecord = convertToCSV(starObject);
-                    writer.write(csvRecord);
-                    total++;
+            List<StarObject> starObjects = databaseManagementService.getFromDatasetAfter(export.getDataset(), null, PAGE_SIZE);
+            while (!starObjects.isEmpty()) {
+                if (isCancelled()) {
+                    exportResults.setMessage("export of " + export.getDataset().getDataSetName() + " was cancelled");
+                    return exportResults;
                 }
-                updateTaskInfo(total + " elements written so far");
+                writer.writeAll(starObjects);
+                updateTaskInfo(writer.getStarsWritten() + " elements written so far");
+                updateProgress(writer.getStarsWritten(), Math.max(total, writer.getStarsWritten()));
+                StarObject lastStar = starObjects.get(starObjects.size() - 1);
+                starObjects = databaseManagementService.getFromDatasetAfter(export.getDataset(), lastStar, PAGE_SIZE);
             }
-            writer.flush();
             writer.close();
+            complete = true;
             log.info("finished exporting file");
             exportResults.setSuccess(true);
+            exportResults.setMessage(export.getDataset().getDataSetName() + " was exported to " + file);
 
         } catch (Exception e) {
             exportResults.setMessage("caught error opening the file:{}" + e.getMessage());
             log.error("caught error opening the file:{}", e.getMessage());
+        } finally {
+            if (!complete) {
+                CsvStarWriter.discard(writer, file);
+            }
         }
         return exportResults;
     }
 
-
-    private @NotNull String getHeaders() {
-        return "id," +
-                "dataSetName," +
-                "displayName," +
-                "commonName," +
-                "gaiaId," +
-                "simbadId," +
-                "constellationName," +
-                "mass," +
-                "age," +
-                "metallicity," +
-                "source," +
-                "catalogIdList," +
-                "X," +
-                "Y," +
-                "Z," +
-                "radius," +
-                "ra," +
-                "pmra," +
-                "declination," +
-                "pmdec," +
-                "parallax," +
-                "distance," +
-                "radialVelocity," +
-                "spectralClass," +
-                "orthoSpectralClass," +
-                "temperature," +
-                "realStar," +
-                "bprp," +
-                "bpg," +
-                "grp," +
-                "luminosity," +
-                "magu," +
-                "magb," +
-                "magv," +
-                "magr," +
-                "magi," +
-                "other," +
-                "anomaly," +
-                "polity," +
-                "worldType," +
-                "fuelType," +
-                "portType," +
-                "populationType," +
-                "techType," +
-                "productType," +
-                "milSpaceType," +
-                "milPlanType," +
-                "miscText1," +
-                "miscText2," +
-                "miscText3," +
-                "miscText4," +
-                "miscText5," +
-                "miscNum1," +
-                "miscNum2," +
-                "miscNum3," +
-                "miscNum4," +
-                "miscNum5," +
-                "Notes," +
-                "L," +
-                "B" +
-                "\n";
-    }
-
-    private @NotNull String convertToCSV(@NotNull StarObject starObject) {
-
-        return removeCommas(starObject.getId().toString()) + ", " +
-                removeCommas(starObject.getDataSetName()) + ", " +
-                removeCommas(starObject.getDisplayName()) + ", " +
-                removeCommas(starObject.getCommonName()) + ", " +
-                removeCommas(starObject.getGaiaId()) + ", " +
-                removeCommas(starObject.getSimbadId()) + ", " +
-                removeCommas(starObject.getConstellationName()) + ", " +
-                starObject.getMass() + ", " +
-                starObject.getAge() + ", " +
-                starObject.getMetallicity() + ", " +
-                removeCommas(starObject.getSource()) + ", " +
-                String.join("~", starObject.getCatalogIdList()) + ", " +
-                starObject.getX() + ", " +
-                starObject.getY() + ", " +
-                starObject.getZ() + ", " +
-                starObject.getRadius() + ", " +
-                starObject.getRa() + ", " +
-                starObject.getPmra() + ", " +
-                starObject.getDeclination() + ", " +
-                starObject.getPmdec() + ", " +
-                starObject.getParallax() + ", " +
-                starObject.getDistance() + ", " +
-                starObject.getRadialVelocity() + ", " +
-                starObject.getSpectralClass() + ", " +
-                starObject.getOrthoSpectralClass() + ", " +
-                starObject.getTemperature() + ", " +
-                starObject.isRealStar() + ", " +
-                starObject.getBprp() + ", " +
-                starObject.getBpg() + ", " +
-                starObject.getGrp() + ", " +
-                starObject.getLuminosity() + ", " +
-                starObject.getMagu() + ", " +
-                starObject.getMagb() + ", " +
-                starObject.getMagv() + ", " +
-                starObject.getMagr() + ", " +
-                starObject.getMagi() + ", " +
-                starObject.isOther() + ", " +
-                starObject.isAnomaly() + ", " +
-                starObject.getPolity() + ", " +
-                starObject.getWorldType() + ", " +
-                starObject.getFuelType() + ", " +
-                starObject.getPortType() + ", " +
-                starObject.getPopulationType() + ", " +
-                starObject.getTechType() + ", " +
-                starObject.getProductType() + ", " +
-                starObject.getMilSpaceType() + ", " +
-                starObject.getMilPlanType() + ", " +
-                removeCommas(starObject.getMiscText1()) + ", " +
-                removeCommas(starObject.getMiscText2()) + ", " +
-                removeCommas(starObject.getMiscText3()) + ", " +
-                removeCommas(starObject.getMiscText4()) + ", " +
-                removeCommas(starObject.getMiscText5()) + ", " +
-                starObject.getMiscNum1() + ", " +
-                starObject.getMiscNum2() + ", " +
-                starObject.getMiscNum3() + ", " +
-                starObject.getMiscNum4() + ", " +
-                starObject.getMiscNum5() + ", " +
-                removeCommas(starObject.getNotes()) + ", " +
-                starObject.getGalacticLat() + ", " +
-                starObject.getGalacticLong() +
-                "\n";
-    }
-
-    private @Nullable String removeCommas(@Nullable String origin) {
-        String replaced = origin;
-        if (origin != null) {
-            replaced = origin.replace(",", "~");
-        }
-        return replaced;
-    }
-
-
 }
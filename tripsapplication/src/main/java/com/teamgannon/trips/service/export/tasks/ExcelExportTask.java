@@ -0,0 +1,470 @@
+package com.teamgannon.trips.service.export.tasks;
+
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.export.ExportResults;
+import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
+import javafx.concurrent.Task;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang.StringUtils;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * export one dataset, or the whole database, as an Excel workbook
+ * <p>
+ * the workbook is a streaming one that only keeps a small window of rows in memory and spills the rest to a
+ * compressed temp file, and the stars are paged out of the database in key order with the next page read on
+ * another thread while the current one is written. So memory stays flat whatever the size of the database.
+ * POI workbooks are not thread safe so the sheets themselves are written one after another.
+ */
+@Slf4j
+public class ExcelExportTask extends Task<ExportResults> implements ProgressUpdater {
+
+    private final int PAGE_SIZE = 1000;
+
+    /**
+     * how long to wait for a page read still in progress when the export ends
+     */
+    private static final long PAGE_READ_WAIT_SECONDS = 30;
+
+    /**
+     * the number of rows held in memory per sheet
+     */
+    private final int ROW_WINDOW = 100;
+
+    /**
+     * the last row index an xlsx sheet can hold, a bigger dataset carries on in another sheet
+     */
+    private final int MAX_ROW = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+    private final File fileToExport;
+    private final List<DataSetDescriptor> dataSets;
+    private final boolean entireDatabase;
+    private final DatabaseManagementService databaseManagementService;
+
+    private long totalRows = 0;
+    private long totalRowsWritten = 0;
+
+    /**
+     * @param fileToExport              the file to write
+     * @param dataSets                  the datasets to export
+     * @param entireDatabase            true for a sheet per dataset and a summary sheet, false for a single
+     *                                  dataset with its descriptor
+     * @param databaseManagementService the database
+     */
+    public ExcelExportTask(@NotNull File fileToExport,
+                           @NotNull List<DataSetDescriptor> dataSets,
+                           boolean entireDatabase,
+                           @NotNull DatabaseManagementService databaseManagementService) {
+        this.fileToExport = fileToExport;
+        this.dataSets = dataSets;
+        this.entireDatabase = entireDatabase;
+        this.databaseManagementService = databaseManagementService;
+    }
+
+    @Override
+    protected ExportResults call() throws Exception {
+        ExportResults exportResults = ExportResults.builder().success(false).build();
+        for (DataSetDescriptor descriptor : dataSets) {
+            totalRows += descriptor.getNumberStars() != null ? descriptor.getNumberStars() : 0;
+        }
+
+        boolean complete = false;
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        ExecutorService pageReader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "excel-export-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            updateTaskInfo("Starting export to: " + fileToExport.getAbsolutePath());
+            if (entireDatabase) {
+                createDataSetDescriptorsPage(workbook, dataSets);
+                complete = true;
+                for (DataSetDescriptor descriptor : dataSets) {
+                    if (!writeStarSheets(workbook, descriptor.getDataSetName(), descriptor, pageReader)) {
+                        complete = false;
+                        break;
+                    }
+                }
+            } else {
+                DataSetDescriptor descriptor = dataSets.get(0);
+                writeDataDescriptor(workbook, descriptor);
+                complete = writeStarSheets(workbook, "data", descriptor, pageReader);
+            }
+
+            if (complete) {
+                updateTaskInfo(String.format("writing %,d stars to %s", totalRowsWritten, fileToExport.getName()));
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(fileToExport))) {
+                    workbook.write(os);
+                }
+                String msg = String.format("exported %,d stars to %s", totalRowsWritten, fileToExport.getAbsolutePath());
+                log.info(msg);
+                updateTaskInfo(msg);
+                exportResults.setSuccess(true);
+                exportResults.setMessage(msg);
+            } else {
+                exportResults.setMessage("export to " + fileToExport.getName() + " was cancelled");
+            }
+        } catch (Exception e) {
+            complete = false;
+            String msg = String.format("failed to export to %s because of %s", fileToExport.getAbsolutePath(), e.getMessage());
+            log.error(msg);
+            exportResults.setMessage(msg);
+            updateTaskInfo(msg);
+        } finally {
+            // let a page read that is still going finish, interrupting it would upset H2
+            pageReader.shutdown();
+            awaitPageReader(pageReader);
+            // removes the temp files behind the sheets
+            workbook.dispose();
+            workbook.close();
+        }
+
+        if (!complete) {
+            try {
+                Files.deleteIfExists(fileToExport.toPath());
+            } catch (Exception e) {
+                log.error("failed to remove the partial export {}", fileToExport.getName());
+            }
+        }
+        return exportResults;
+    }
+
+    private void awaitPageReader(@NotNull ExecutorService pageReader) {
+        try {
+            if (!pageReader.awaitTermination(PAGE_READ_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("the last page read of the export is still running, leaving it to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * write the stars of a dataset, starting another sheet if one is not big enough
+     *
+     * @return false if the export was cancelled
+     */
+    private boolean writeStarSheets(@NotNull SXSSFWorkbook workbook,
+                                    @NotNull String sheetName,
+                                    @NotNull DataSetDescriptor descriptor,
+                                    @NotNull ExecutorService pageReader) throws Exception {
+        updateTaskInfo(String.format("starting export of %s", descriptor.getDataSetName()));
+        Sheet sheet = createStarSheet(workbook, sheetName);
+        int rowCount = 1;
+
+        Future<List<StarObject>> nextPage = pageReader.submit(
+                () -> databaseManagementService.getFromDatasetAfter(descriptor, null, PAGE_SIZE));
+        while (true) {
+            List<StarObject> starObjects = nextPage.get();
+            if (starObjects.isEmpty()) {
+                break;
+            }
+            if (isCancelled()) {
+                return false;
+            }
+
+            // read the next page while this one is written
+            StarObject lastStar = starObjects.get(starObjects.size() - 1);
+            nextPage = pageReader.submit(
+                    () -> databaseManagementService.getFromDatasetAfter(descriptor, lastStar, PAGE_SIZE));
+
+            for (StarObject starObject : starObjects) {
+                if (rowCount > MAX_ROW) {
+                    sheet = createStarSheet(workbook, sheetName);
+                    rowCount = 1;
+                }
+                Row row = sheet.createRow(rowCount++);
+                saveRow(row, starObject);
+            }
+            totalRowsWritten += starObjects.size();
+            updateTaskInfo(String.format("%,d stars of %s written so far", totalRowsWritten, descriptor.getDataSetName()));
+            updateProgress(totalRowsWritten, Math.max(totalRows, totalRowsWritten));
+        }
+        updateTaskInfo(String.format("Export of %s complete, moving to next", descriptor.getDataSetName()));
+        return true;
+    }
+
+    private @NotNull Sheet createStarSheet(@NotNull SXSSFWorkbook workbook, @NotNull String name) {
+        Sheet sheet = workbook.createSheet(uniqueSheetName(workbook, name));
+        writeStarDataHeaders(sheet);
+        return sheet;
+    }
+
+    /**
+     * sheet names are limited to 31 characters and a few characters are not allowed, so a dataset name might
+     * need cleaning up and two datasets might end up with the same name
+     */
+    private @NotNull String uniqueSheetName(@NotNull SXSSFWorkbook workbook, @NotNull String name) {
+        String safeName = WorkbookUtil.createSafeSheetName(name);
+        String candidate = safeName;
+        for (int i = 2; workbook.getSheet(candidate) != null; i++) {
+            String suffix = " (" + i + ")";
+            candidate = safeName.substring(0, Math.min(safeName.length(), 31 - suffix.length())) + suffix;
+        }
+        return candidate;
+    }
+
+    private void writeDataDescriptor(@NotNull SXSSFWorkbook workbook, @NotNull DataSetDescriptor descriptor) {
+        Sheet mySheet = workbook.createSheet("descriptor");
+        writeDescriptorHeaders(mySheet);
+        writeDescriptorData(descriptor, mySheet);
+    }
+
+    private void writeDescriptorData(@NotNull DataSetDescriptor dataset, @NotNull Sheet mySheet) {
+        int column = 0;
+        Row row = mySheet.createRow(1);
+        storeCell(row, column++, dataset.getDataSetName());
+        storeCell(row, column++, dataset.getFilePath());
+        storeCell(row, column++, dataset.getFileCreator());
+        storeCell(row, column++, dataset.getFileOriginalDate());
+        storeCell(row, column++, dataset.getFileNotes());
+        storeCell(row, column++, dataset.getDatasetType());
+        storeCell(row, column++, dataset.getNumberStars());
+        storeCell(row, column++, dataset.getDistanceRange());
+        storeCell(row, column++, dataset.getNumberRoutes());
+        storeCell(row, column++, dataset.getThemeStr());
+        storeCell(row, column++, dataset.getAstroDataString());
+        storeCell(row, column++, databaseManagementService.getRoutesJson(dataset));
+        storeCell(row, column++, dataset.getCustomDataDefsStr());
+        storeCell(row, column, dataset.getCustomDataValuesStr());
+
+    }
+
+    private void writeDescriptorHeaders(@NotNull Sheet mySheet) {
+        int column = 0;
+        Row row = mySheet.createRow(0);
+        storeCell(row, column++, "dataSetName");
+        storeCell(row, column++, "filePath");
+        storeCell(row, column++, "fileCreator");
+        storeCell(row, column++, "fileOriginalDate");
+        storeCell(row, column++, "fileNotes");
+        storeCell(row, column++, "datasetType");
+        storeCell(row, column++, "numberStars");
+        storeCell(row, column++, "distanceRange");
+        storeCell(row, column++, "numberRoutes");
+        storeCell(row, column++, "themeStr");
+        storeCell(row, column++, "astrographicDataList");
+        storeCell(row, column++, "routesStr");
+        storeCell(row, column++, "customDataDefsStr");
+        storeCell(row, column, "customDataValuesStr");
+    }
+
+    private void createDataSetDescriptorsPage(@NotNull SXSSFWorkbook workbook, @NotNull List<DataSetDescriptor> dataSetDescriptorList) {
+        Sheet mySheet = workbook.createSheet("Database");
+        createDescriptorHeaderRow(mySheet);
+        int row = 1;
+        for (DataSetDescriptor descriptor : dataSetDescriptorList) {
+            createDescriptorRow(mySheet, row++, descriptor);
+        }
+    }
+
+    private void createDescriptorRow(@NotNull Sheet mySheet, int i, @NotNull DataSetDescriptor descriptor) {
+        int column = 0;
+        Row row = mySheet.createRow(i);
+        storeCell(row, column++, descriptor.getDataSetName());
+        storeCell(row, column++, descriptor.getFileCreator());
+        storeCell(row, column++, descriptor.getFileOriginalDate());
+        storeCell(row, column++, descriptor.getFileNotes());
+        storeCell(row, column++, descriptor.getDatasetType());
+        storeCell(row, column++, descriptor.getNumberStars());
+        storeCell(row, column++, descriptor.getDistanceRange());
+        storeCell(row, column, databaseManagementService.getRoutesJson(descriptor));
+
+    }
+
+    private void createDescriptorHeaderRow(@NotNull Sheet mySheet) {
+        int column = 0;
+        Row row = mySheet.createRow(0);
+        storeCell(row, column++, "Dataset name");
+        storeCell(row, column++, "File creator");
+        storeCell(row, column++, "Original date");
+        storeCell(row, column++, "file notes");
+        storeCell(row, column++, "datasetType");
+        storeCell(row, column++, "Number of stars");
+        storeCell(row, column++, "Distance Range");
+        storeCell(row, column++, "Number of Routes");
+        storeCell(row, column, "Routes as a string");
+    }
+
+    private void writeStarDataHeaders(@NotNull Sheet mySheet) {
+        int column = 0;
+        Row row = mySheet.createRow(0);
+        storeCell(row, column++, "id");
+        storeCell(row, column++, "dataSetName");
+        storeCell(row, column++, "displayName");
+        storeCell(row, column++, "constellationName");
+        storeCell(row, column++, "mass");
+        storeCell(row, column++, "actualMass");
+        storeCell(row, column++, "source");
+        storeCell(row, column++, "catalogIdList");
+        storeCell(row, column++, "X");
+        storeCell(row, column++, "Y");
+        storeCell(row, column++, "Z");
+        storeCell(row, column++, "radius");
+        storeCell(row, column++, "ra");
+        storeCell(row, column++, "pmra");
+        storeCell(row, column++, "declination");
+        storeCell(row, column++, "pmdec");
+        storeCell(row, column++, "dec_deg");
+        storeCell(row, column++, "rs_cdeg");
+        storeCell(row, column++, "parallax");
+        storeCell(row, column++, "distance");
+        storeCell(row, column++, "radialVelocity");
+        storeCell(row, column++, "spectralClass");
+        storeCell(row, column++, "orthoSpectralClass");
+        storeCell(row, column++, "temperature");
+        storeCell(row, column++, "realStar");
+        storeCell(row, column++, "bprp");
+        storeCell(row, column++, "bpg");
+        storeCell(row, column++, "grp");
+        storeCell(row, column++, "luminosity");
+        storeCell(row, column++, "magu");
+        storeCell(row, column++, "magb");
+        storeCell(row, column++, "magv");
+        storeCell(row, column++, "magr");
+        storeCell(row, column++, "magi");
+        storeCell(row, column++, "other");
+        storeCell(row, column++, "anomaly");
+        storeCell(row, column++, "polity");
+        storeCell(row, column++, "worldType");
+        storeCell(row, column++, "fuelType");
+        storeCell(row, column++, "portType");
+        storeCell(row, column++, "populationType");
+        storeCell(row, column++, "techType");
+        storeCell(row, column++, "productType");
+        storeCell(row, column++, "milSpaceType");
+        storeCell(row, column++, "milPlanType");
+        storeCell(row, column++, "miscText1");
+        storeCell(row, column++, "miscText2");
+        storeCell(row, column++, "miscText3");
+        storeCell(row, column++, "miscText4");
+        storeCell(row, column++, "miscText5");
+        storeCell(row, column++, "miscNum1");
+        storeCell(row, column++, "miscNum2");
+        storeCell(row, column++, "miscNum3");
+        storeCell(row, column++, "miscNum4");
+        storeCell(row, column++, "miscNum5");
+        storeCell(row, column, "notes");
+    }
+
+    private void saveRow(@NotNull Row row, @NotNull StarObject starObject) {
+        int column = 0;
+
+        storeCell(row, column++, starObject.getId().toString());
+        storeCell(row, column++, starObject.getDataSetName());
+        storeCell(row, column++, starObject.getDisplayName());
+        storeCell(row, column++, starObject.getConstellationName());
+        storeCell(row, column++, starObject.getMass());
+        storeCell(row, column++, starObject.getSource());
+        storeCell(row, column++, starObject.getCatalogIdList());
+        storeCell(row, column++, starObject.getX());
+        storeCell(row, column++, starObject.getY());
+        storeCell(row, column++, starObject.getZ());
+        storeCell(row, column++, starObject.getRadius());
+        storeCell(row, column++, starObject.getRa());
+        storeCell(row, column++, starObject.getPmra());
+        storeCell(row, column++, starObject.getDeclination());
+        storeCell(row, column++, starObject.getPmdec());
+        storeCell(row, column++, starObject.getParallax());
+        storeCell(row, column++, starObject.getDistance());
+        storeCell(row, column++, starObject.getRadialVelocity());
+        storeCell(row, column++, starObject.getSpectralClass());
+        storeCell(row, column++, starObject.getOrthoSpectralClass());
+        storeCell(row, column++, starObject.getTemperature());
+        storeCell(row, column++, starObject.isRealStar());
+        storeCell(row, column++, starObject.getBprp());
+        storeCell(row, column++, starObject.getBpg());
+        storeCell(row, column++, starObject.getGrp());
+        storeCell(row, column++, starObject.getLuminosity());
+        storeCell(row, column++, starObject.getMagu());
+        storeCell(row, column++, starObject.getMagb());
+        storeCell(row, column++, starObject.getMagv());
+        storeCell(row, column++, starObject.getMagr());
+        storeCell(row, column++, starObject.getMagi());
+        storeCell(row, column++, starObject.isOther());
+        storeCell(row, column++, starObject.isAnomaly());
+        storeCell(row, column++, starObject.getPolity());
+        storeCell(row, column++, starObject.getWorldType());
+        storeCell(row, column++, starObject.getFuelType());
+        storeCell(row, column++, starObject.getPortType());
+        storeCell(row, column++, starObject.getPopulationType());
+        storeCell(row, column++, starObject.getTechType());
+        storeCell(row, column++, starObject.getProductType());
+        storeCell(row, column++, starObject.getMilSpaceType());
+        storeCell(row, column++, starObject.getMilPlanType());
+        storeCell(row, column++, starObject.getMiscText1());
+        storeCell(row, column++, starObject.getMiscText2());
+        storeCell(row, column++, starObject.getMiscText3());
+        storeCell(row, column++, starObject.getMiscText4());
+        storeCell(row, column++, starObject.getMiscText5());
+        storeCell(row, column++, starObject.getMiscNum1());
+        storeCell(row, column++, starObject.getMiscNum2());
+        storeCell(row, column++, starObject.getMiscNum3());
+        storeCell(row, column++, starObject.getMiscNum4());
+        storeCell(row, column++, starObject.getMiscNum5());
+        storeCell(row, column, starObject.getNotes());
+
+    }
+
+    private void storeCell(@NotNull Row row, int column, long intValue) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(Long.toString(intValue));
+    }
+
+    private void storeCell(@NotNull Row row, int column, int intValue) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(Integer.toString(intValue));
+    }
+
+    private void storeCell(@NotNull Row row, int column, boolean booleanValue) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(Boolean.toString(booleanValue));
+    }
+
+    private void storeCell(@NotNull Row row, int column, String stringValue) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(stringValue);
+    }
+
+    private void storeCell(@NotNull Row row, int column, double doubleValue) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(Double.toString(doubleValue));
+    }
+
+    private void storeCell(@NotNull Row row, int column, List<String> list) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(StringUtils.join(list, ' '));
+    }
+
+    /**
+     * update the export info to the UI
+     *
+     * @param message the message to write
+     */
+    @Override
+    public void updateTaskInfo(String message) {
+        updateMessage(message + "  ");
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.teamgannon.trips.service.export.tasks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teamgannon.trips.dialogs.dataset.ExportOptions;
+import com.teamgannon.trips.file.json.JsonStarWriter;
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.export.ExportResults;
+import com.teamgannon.trips.service.export.model.DataSetDescriptorDTO;
+import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
+import javafx.concurrent.Task;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * export a dataset as a .trips.json backup
+ * <p>
+ * the stars are paged out of the database in key order and written as they come, so the heap holds one page
+ * at a time whatever the size of the dataset
+ */
+@Slf4j
+public class JSONDataSetDataExportTask extends Task<ExportResults> implements ProgressUpdater {
+
+    private final int PAGE_SIZE = 1000;
+
+    private final ExportOptions export;
+    private final DatabaseManagementService databaseManagementService;
+
+    public JSONDataSetDataExportTask(ExportOptions export, DatabaseManagementService databaseManagementService) {
+        this.export = export;
+        this.databaseManagementService = databaseManagementService;
+    }
+
+    @Override
+    public void updateTaskInfo(String message) {
+        updateMessage(message + "  ");
+    }
+
+    @Override
+    protected ExportResults call() throws Exception {
+        ExportResults result = processJsonFile(export);
+        if (result.isSuccess()) {
+            log.info("dataset exported to {}", export.getFileName());
+        } else {
+            log.error("export json: " + result.getMessage());
+        }
+        return result;
+    }
+
+    private @NotNull ExportResults processJsonFile(@NotNull ExportOptions export) {
+        ExportResults exportResults = ExportResults.builder().success(false).build();
+
+        DataSetDescriptor dataSet = export.getDataset();
+        File file = new File(export.getFileName() + ".trips.json");
+        long expected = dataSet.getNumberStars() != null ? dataSet.getNumberStars() : 0;
+
+        DataSetDescriptorDTO descriptorDTO = dataSet.toDataSetDescriptorDTO();
+        descriptorDTO.setRoutesStr(databaseManagementService.getRoutesJson(dataSet));
+
+        boolean complete = false;
+        try (JsonStarWriter writer = new JsonStarWriter(new ObjectMapper(), file, descriptorDTO)) {
+            List<StarObject> starObjects = databaseManagementService.getFromDatasetAfter(dataSet, null, PAGE_SIZE);
+            while (!starObjects.isEmpty()) {
+                if (isCancelled()) {
+                    exportResults.setMessage("export of " + dataSet.getDataSetName() + " was cancelled");
+                    break;
+                }
+                for (StarObject starObject : starObjects) {
+                    writer.write(starObject);
+                }
+                updateTaskInfo(writer.getStarsWritten() + " elements written so far");
+                updateProgress(writer.getStarsWritten(), Math.max(expected, writer.getStarsWritten()));
+                StarObject lastStar = starObjects.get(starObjects.size() - 1);
+                starObjects = databaseManagementService.getFromDatasetAfter(dataSet, lastStar, PAGE_SIZE);
+            }
+            complete = starObjects.isEmpty();
+            log.info("{} exporting {} stars to {}", complete ? "finished" : "stopped", writer.getStarsWritten(), file.getName());
+        } catch (Exception e) {
+            exportResults.setMessage("caught error writing the file:" + e.getMessage());
+            log.error("caught error writing the file:{}", e.getMessage());
+            complete = false;
+        }
+
+        exportResults.setSuccess(complete);
+        if (!complete) {
+            // a partial backup is worse than none
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (Exception e) {
+                log.error("failed to remove the partial export {}", file.getName());
+            }
+        }
+        return exportResults;
+    }
+
+}
@@ -7,7 +7,9 @@ import com.teamgannon.trips.dialogs.dataset.LoadUpdateListener;
 import com.teamgannon.trips.listener.DataSetChangeListener;
 import com.teamgannon.trips.listener.StatusUpdaterListener;
 import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipelineSettings;
 import com.teamgannon.trips.service.importservices.tasks.ExcelLoadTask;
+import com.teamgannon.trips.service.importservices.tasks.ImportTask;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 import javafx.scene.control.Button;
@@ -15,6 +17,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import static javafx.concurrent.Worker.State.RUNNING;
 
@@ -22,6 +25,7 @@ import static javafx.concurrent.Worker.State.RUNNING;
 public class ExcelDataImportService extends Service<FileProcessResult> implements ImportTaskControl {
 
     private final DatabaseManagementService databaseManagementService;
+    private final ImportPipelineSettings importPipelineSettings;
     private Dataset dataset;
     private StatusUpdaterListener statusUpdaterListener;
     private DataSetChangeListener dataSetChangeListener;
@@ -30,8 +34,15 @@ public class ExcelDataImportService extends Service<FileProcessResult> implement
     private ProgressBar loadProgressBar;
     private LoadUpdateListener loadUpdateListener;
 
-    public ExcelDataImportService(DatabaseManagementService databaseManagementService) {
+    /**
+     * the import in progress
+     */
+    private @Nullable ImportTask currentTask;
+
+    public ExcelDataImportService(DatabaseManagementService databaseManagementService,
+                                  ImportPipelineSettings importPipelineSettings) {
         this.databaseManagementService = databaseManagementService;
+        this.importPipelineSettings = importPipelineSettings;
     }
 
     public boolean processDataSet(Dataset dataset,
@@ -58,17 +69,24 @@ public class ExcelDataImportService extends Service<FileProcessResult> implement
 
     @Override
     protected @NotNull Task<FileProcessResult> createTask() {
-        return new ExcelLoadTask(dataset, databaseManagementService);
+        currentTask = new ExcelLoadTask(dataset, databaseManagementService, importPipelineSettings);
+        return currentTask;
     }
 
 
     @Override
     protected void succeeded() {
-        log.info("dataset loaded");
-        String message = String.format("new Dataset loaded -> %s", dataset.getName());
-        statusUpdaterListener.updateStatus(message);
         unsetProgressControls();
         FileProcessResult fileProcessResult = this.getValue();
+        if (!fileProcessResult.isSuccess()) {
+            // a stopped or failed import has already thrown its stars away, there is no dataset to add
+            log.warn("dataset load of {} did not complete: {}", dataset.getName(), fileProcessResult.getMessage());
+            statusUpdaterListener.updateStatus(fileProcessResult.getMessage());
+            importTaskComplete.complete(false, dataset, fileProcessResult, fileProcessResult.getMessage());
+            return;
+        }
+        log.info("dataset loaded");
+        statusUpdaterListener.updateStatus(String.format("new Dataset loaded -> %s", dataset.getName()));
         importTaskComplete.complete(true, dataset, fileProcessResult, "loaded");
         dataSetChangeListener.addDataSet(fileProcessResult.getDataSetDescriptor());
         // set context to newly loaded dataset
@@ -100,10 +118,23 @@ public class ExcelDataImportService extends Service<FileProcessResult> implement
         loadProgressBar.setProgress(1);
     }
 
+    /**
+     * stop the import at the next batch boundary
+     * <p>
+     * the service keeps running until the import has thrown away what it wrote, so the dataset name stays
+     * taken and nothing else can start against the database in the meantime
+     *
+     * @return true if it was signalled
+     */
     @Override
     public boolean cancelImport() {
-        log.info("Cancelling!!");
-        return this.cancel();
+        ImportTask task = currentTask;
+        if (task == null || !isRunning()) {
+            return false;
+        }
+        task.requestStop();
+        statusUpdaterListener.updateStatus("stopping the import of " + dataset.getName() + ", please wait");
+        return true;
     }
 
     @Override
@@ -0,0 +1,22 @@
+package com.teamgannon.trips.service.importservices.pipeline;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * the writer stage of an import, saves a batch of parsed stars
+ * <p>
+ * it is only ever called from the thread that runs the pipeline
+ */
+@FunctionalInterface
+public interface BatchWriter {
+
+    /**
+     * @param stars the stars to save
+     * @throws Exception if the save fails, this stops the import
+     */
+    void write(@NotNull List<StarObject> stars) throws Exception;
+
+}
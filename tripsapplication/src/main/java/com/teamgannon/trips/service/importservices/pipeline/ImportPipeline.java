@@ -0,0 +1,341 @@
+package com.teamgannon.trips.service.importservices.pipeline;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * a reader, a pool of parsers and a batched writer joined by bounded queues
+ * <p>
+ * the reader runs on its own thread and cuts the file into batches of raw records, the parsers turn each
+ * batch into stars and the writer saves them on the thread that called run, which for an import is the task
+ * thread. The queues are bounded so a fast reader waits for the database rather than filling the heap.
+ * <p>
+ * the batches can finish parsing out of order, if ordered is set the writer holds them back so the stars are
+ * saved in file order. Cancelling, or any stage failing, stops every stage within a poll interval. The writer
+ * only looks at the cancel flag between batches, a batch that is being saved always finishes.
+ *
+ * @param <R> the raw record type
+ */
+@Slf4j
+public class ImportPipeline<R> {
+
+    /**
+     * how long a stage waits on a queue before checking whether it should stop
+     */
+    private static final long POLL_MILLIS = 100;
+
+    private final String name;
+
+    private final ImportPipelineSettings settings;
+
+    private final ProgressUpdater progressUpdater;
+
+    private final BooleanSupplier cancelled;
+
+    private final boolean ordered;
+
+    private final ImportStatistics statistics = new ImportStatistics();
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private volatile boolean stopped = false;
+
+    /**
+     * @param name            the name of the import, used for the thread names and log
+     * @param settings        the sizes of the stages
+     * @param progressUpdater where the per stage counts go after every batch written
+     * @param cancelled       polled by every stage, true stops the import
+     * @param ordered         true to write the stars in the order they were read
+     */
+    public ImportPipeline(@NotNull String name,
+                          @NotNull ImportPipelineSettings settings,
+                          @NotNull ProgressUpdater progressUpdater,
+                          @NotNull BooleanSupplier cancelled,
+                          boolean ordered) {
+        this.name = name;
+        this.settings = settings;
+        this.progressUpdater = progressUpdater;
+        this.cancelled = cancelled;
+        this.ordered = ordered;
+    }
+
+    /**
+     * run the import to the end of the file
+     *
+     * @param source the reader stage
+     * @param parser the parser stage
+     * @param writer the writer stage
+     * @return the counts, check isCancelled to see whether it got to the end
+     * @throws Exception the first failure of any stage
+     */
+    public @NotNull ImportStatistics run(@NotNull RecordSource<R> source,
+                                         @NotNull RecordParser<R> parser,
+                                         @NotNull BatchWriter writer) throws Exception {
+        int parserThreads = Math.max(1, settings.getParserThreads());
+        int queueCapacity = Math.max(1, settings.getQueueCapacity());
+        BlockingQueue<Batch<R>> rawQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Batch<StarObject>> parsedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger parsersRunning = new AtomicInteger(parserThreads);
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(startThread(name + "-reader", () -> readStage(source, rawQueue, parserThreads)));
+        for (int i = 0; i < parserThreads; i++) {
+            threads.add(startThread(name + "-parser-" + (i + 1),
+                    () -> parseStage(parser, rawQueue, parsedQueue, parsersRunning)));
+        }
+        log.info("{} import started with {} parsers", name, parserThreads);
+
+        try {
+            writeStage(writer, parsedQueue);
+        } catch (InterruptedException e) {
+            // the task was cancelled while we waited on the queue
+            statistics.setCancelled(true);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            stopped = true;
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        if (cancelled.getAsBoolean()) {
+            statistics.setCancelled(true);
+        }
+        log.info("{} import {}: {}", name, statistics.isCancelled() ? "cancelled" : "finished", statistics);
+
+        Throwable throwable = failure.get();
+        if (throwable != null && !statistics.isCancelled()) {
+            if (throwable instanceof Exception) {
+                throw (Exception) throwable;
+            }
+            throw new IllegalStateException(throwable);
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the counters, live while the pipeline runs
+     */
+    public @NotNull ImportStatistics getStatistics() {
+        return statistics;
+    }
+
+    ///////////////  stages  ///////////////
+
+    private void readStage(@NotNull RecordSource<R> source, @NotNull BlockingQueue<Batch<R>> rawQueue, int parserThreads) {
+        long sequence = 0;
+        List<R> records = new ArrayList<>(settings.getBatchSize());
+        try {
+            while (!shouldStop()) {
+                long start = System.nanoTime();
+                R record = source.next();
+                if (record == null) {
+                    break;
+                }
+                statistics.recordRead(System.nanoTime() - start);
+                records.add(record);
+                if (records.size() >= settings.getBatchSize()) {
+                    if (!put(rawQueue, new Batch<>(sequence++, records))) {
+                        return;
+                    }
+                    records = new ArrayList<>(settings.getBatchSize());
+                }
+            }
+            if (!records.isEmpty() && !put(rawQueue, new Batch<>(sequence, records))) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            fail(e);
+            return;
+        }
+        // one end marker for each parser
+        try {
+            for (int i = 0; i < parserThreads; i++) {
+                if (!put(rawQueue, Batch.end())) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ignored) {
+            // we are being shut down anyway
+        }
+    }
+
+    private void parseStage(@NotNull RecordParser<R> parser,
+                            @NotNull BlockingQueue<Batch<R>> rawQueue,
+                            @NotNull BlockingQueue<Batch<StarObject>> parsedQueue,
+                            @NotNull AtomicInteger parsersRunning) {
+        try {
+            while (true) {
+                Batch<R> batch = poll(rawQueue);
+                if (batch == null) {
+                    if (shouldStop()) {
+                        return;
+                    }
+                    continue;
+                }
+                if (batch.isEnd()) {
+                    break;
+                }
+                long start = System.nanoTime();
+                List<StarObject> stars = new ArrayList<>(batch.items.size());
+                int rejects = 0;
+                for (R record : batch.items) {
+                    try {
+                        StarObject starObject = parser.parse(record);
+                        if (starObject != null) {
+                            stars.add(starObject);
+                        } else {
+                            rejects++;
+                        }
+                    } catch (Exception e) {
+                        log.error("{} import failed to parse a record because of {}", name, e.getMessage());
+                        rejects++;
+                    }
+                }
+                statistics.recordParsed(stars.size(), rejects, System.nanoTime() - start);
+                if (!put(parsedQueue, new Batch<>(batch.sequence, stars))) {
+                    return;
+                }
+            }
+            // the last parser out tells the writer there is no more
+            if (parsersRunning.decrementAndGet() == 0) {
+                put(parsedQueue, Batch.end());
+            }
+        } catch (InterruptedException ignored) {
+            // we are being shut down
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void writeStage(@NotNull BatchWriter writer, @NotNull BlockingQueue<Batch<StarObject>> parsedQueue) throws Exception {
+        TreeMap<Long, Batch<StarObject>> pending = new TreeMap<>();
+        long nextSequence = 0;
+        while (true) {
+            if (cancelled.getAsBoolean()) {
+                statistics.setCancelled(true);
+                return;
+            }
+            Batch<StarObject> batch = poll(parsedQueue);
+            if (batch == null) {
+                if (shouldStop()) {
+                    statistics.setCancelled(cancelled.getAsBoolean());
+                    return;
+                }
+                continue;
+            }
+            if (batch.isEnd()) {
+                break;
+            }
+            if (!ordered) {
+                write(writer, batch);
+                continue;
+            }
+            pending.put(batch.sequence, batch);
+            while (!pending.isEmpty() && pending.firstKey() == nextSequence) {
+                write(writer, pending.pollFirstEntry().getValue());
+                nextSequence++;
+            }
+        }
+        // everything has arrived so anything still held back can go out in order
+        for (Batch<StarObject> batch : pending.values()) {
+            write(writer, batch);
+        }
+    }
+
+    private void write(@NotNull BatchWriter writer, @NotNull Batch<StarObject> batch) throws Exception {
+        if (batch.items.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        writer.write(batch.items);
+        statistics.recordWritten(batch.items.size(), System.nanoTime() - start);
+        progressUpdater.updateTaskInfo(statistics.getSummary());
+    }
+
+    ///////////////  plumbing  ///////////////
+
+    private boolean shouldStop() {
+        return stopped || failure.get() != null || cancelled.getAsBoolean();
+    }
+
+    private void fail(@NotNull Throwable throwable) {
+        if (failure.compareAndSet(null, throwable)) {
+            log.error("{} import failed because of {}", name, throwable.getMessage());
+        }
+        stopped = true;
+    }
+
+    /**
+     * put on a queue, giving up if the pipeline is stopping
+     *
+     * @return false if we gave up
+     */
+    private <T> boolean put(@NotNull BlockingQueue<T> queue, @NotNull T item) throws InterruptedException {
+        while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (shouldStop()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private <T> @Nullable T poll(@NotNull BlockingQueue<T> queue) throws InterruptedException {
+        return queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private @NotNull Thread startThread(@NotNull String threadName, @NotNull Runnable runnable) {
+        Thread thread = new Thread(runnable, threadName);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * a numbered batch of records, a null list marks the end of the stream
+     */
+    private static class Batch<T> {
+
+        private final long sequence;
+
+        private final List<T> items;
+
+        private Batch(long sequence, List<T> items) {
+            this.sequence = sequence;
+            this.items = items;
+        }
+
+        private static <T> @NotNull Batch<T> end() {
+            return new Batch<>(-1, null);
+        }
+
+        private boolean isEnd() {
+            return items == null;
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.teamgannon.trips.service.importservices.pipeline;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * how an import pipeline is sized
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportPipelineSettings {
+
+    /**
+     * the number of parser threads
+     */
+    private int parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+
+    /**
+     * the number of batches each queue holds before the stage feeding it has to wait
+     */
+    private int queueCapacity = 8;
+
+    /**
+     * the number of records per batch, and so per write
+     */
+    private int batchSize = 2000;
+
+}
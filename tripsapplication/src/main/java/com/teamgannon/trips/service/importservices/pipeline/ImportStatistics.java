@@ -0,0 +1,113 @@
+package com.teamgannon.trips.service.importservices.pipeline;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * the running counters of an import pipeline, one set per stage
+ * <p>
+ * the stage rates are over the time that stage spent working, so the slowest rate is the bottleneck. The
+ * parser time is summed over all the parser threads.
+ */
+public class ImportStatistics {
+
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder read = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+
+    private final LongAdder parsed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+
+    private volatile boolean cancelled = false;
+
+    void recordRead(long nanos) {
+        read.increment();
+        readNanos.add(nanos);
+    }
+
+    void recordParsed(int accepted, int rejects, long nanos) {
+        parsed.add(accepted);
+        rejected.add(rejects);
+        parseNanos.add(nanos);
+    }
+
+    void recordWritten(int count, long nanos) {
+        written.add(count);
+        writeNanos.add(nanos);
+    }
+
+    void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return the raw records read from the file
+     */
+    public long getRead() {
+        return read.sum();
+    }
+
+    /**
+     * @return the records turned into stars
+     */
+    public long getParsed() {
+        return parsed.sum();
+    }
+
+    /**
+     * @return the records the parser turned down or could not parse
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the stars saved
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * @return true if the import was cancelled before the end of the file
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the wall clock time since the pipeline started
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return a one line progress report with the per stage rates
+     */
+    public @NotNull String getSummary() {
+        return String.format("read %,d (%,d/s), parsed %,d (%,d/s), saved %,d (%,d/s), %,d rejected, %.1f s",
+                getRead(), rate(read, readNanos),
+                getParsed(), rate(parsed, parseNanos),
+                getWritten(), rate(written, writeNanos),
+                getRejected(), getElapsedMillis() / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+
+    private static long rate(@NotNull LongAdder count, @NotNull LongAdder nanos) {
+        long time = nanos.sum();
+        return time == 0 ? 0 : count.sum() * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+
+}
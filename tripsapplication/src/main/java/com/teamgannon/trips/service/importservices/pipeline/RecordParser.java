@@ -0,0 +1,24 @@
+package com.teamgannon.trips.service.importservices.pipeline;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * the parser stage of an import, turns a raw record into a star
+ * <p>
+ * several parser threads share one of these so it must be thread safe
+ *
+ * @param <R> the raw record type
+ */
+@FunctionalInterface
+public interface RecordParser<R> {
+
+    /**
+     * @param record the raw record
+     * @return the star or null if the record is rejected
+     * @throws Exception if the record is malformed, it is counted as a reject
+     */
+    @Nullable StarObject parse(@NotNull R record) throws Exception;
+
+}
@@ -0,0 +1,22 @@
+package com.teamgannon.trips.service.importservices.pipeline;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * the reader stage of an import, hands out the raw records of a file one at a time
+ * <p>
+ * it is only ever called from the one reader thread, so it does not have to be thread safe, but a record it
+ * hands out must not be changed afterwards since a parser works on it on another thread
+ *
+ * @param <R> the raw record type
+ */
+@FunctionalInterface
+public interface RecordSource<R> {
+
+    /**
+     * @return the next raw record or null at the end of the file
+     * @throws Exception if the file cannot be read
+     */
+    @Nullable R next() throws Exception;
+
+}
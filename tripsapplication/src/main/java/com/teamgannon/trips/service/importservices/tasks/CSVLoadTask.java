@@ -6,23 +6,28 @@ import com.teamgannon.trips.file.csvin.RegCSVFile;
 import com.teamgannon.trips.file.csvin.RegularCsvReader;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.service.DatabaseManagementService;
-import javafx.concurrent.Task;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipelineSettings;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.UUID;
 
 @Slf4j
-public class CSVLoadTask extends Task<FileProcessResult> implements ProgressUpdater {
+public class CSVLoadTask extends ImportTask {
 
     private final Dataset dataSet;
     private final DatabaseManagementService databaseManagementService;
+    private final ImportPipelineSettings importPipelineSettings;
 
     private final @NotNull RegularCsvReader regularCsvReader;
 
-    public CSVLoadTask(Dataset dataSet, DatabaseManagementService databaseManagementService) {
+    public CSVLoadTask(Dataset dataSet,
+                       DatabaseManagementService databaseManagementService,
+                       ImportPipelineSettings importPipelineSettings) {
         this.dataSet = dataSet;
         this.databaseManagementService = databaseManagementService;
+        this.importPipelineSettings = importPipelineSettings;
 
         regularCsvReader = new RegularCsvReader(databaseManagementService);
     }
@@ -43,14 +48,26 @@ public class CSVLoadTask extends Task<FileProcessResult> implements ProgressUpda
     public @NotNull FileProcessResult processCSVFile(@NotNull Dataset dataset) {
         FileProcessResult processResult = new FileProcessResult();
 
+        // the stars are saved as they are read so the name is claimed before anything is written
+        UUID runId = databaseManagementService.startImport(dataset.getName());
+        if (runId == null) {
+            processResult.setSuccess(false);
+            processResult.setMessage("This dataset:{" + dataset.getName() + "} already exists");
+            return processResult;
+        }
+
         File file = new File(dataset.getFileSelected());
         // read records
-        RegCSVFile regCSVFile = regularCsvReader.loadFile(this, file, dataset);
+        RegCSVFile regCSVFile = regularCsvReader.loadFile(this, file, dataset, importPipelineSettings, this::isStopRequested);
+        if (!regCSVFile.isReadSuccess()) {
+            databaseManagementService.discardImport(runId, this);
+        }
 
         try {
             if (regCSVFile.isReadSuccess()) {
                 updateMessage(" File load complete, about to save records in database ");
                 DataSetDescriptor dataSetDescriptor = databaseManagementService.loadCSVFile(regCSVFile);
+                databaseManagementService.finishImport(runId);
                 String data = String.format(" %s records loaded from dataset %s, Use plot to see data.",
                         dataSetDescriptor.getNumberStars(),
                         dataSetDescriptor.getDataSetName());
@@ -65,15 +82,12 @@ public class CSVLoadTask extends Task<FileProcessResult> implements ProgressUpda
                 processResult.setSuccess(false);
             }
         } catch (Exception e) {
+            log.error("failed to save the descriptor of {} because of {}", dataset.getName(), e.getMessage());
+            databaseManagementService.discardImport(runId, this);
             processResult.setSuccess(false);
             processResult.setMessage("Failed to load the dataset, see log ");
         }
 
         return processResult;
     }
-
-    @Override
-    public void updateTaskInfo(String message) {
-        updateMessage(message + "  ");
-    }
 }
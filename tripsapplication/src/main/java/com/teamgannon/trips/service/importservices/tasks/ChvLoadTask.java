@@ -2,27 +2,36 @@ package com.teamgannon.trips.service.importservices.tasks;
 
 import com.teamgannon.trips.dialogs.dataset.Dataset;
 import com.teamgannon.trips.dialogs.dataset.FileProcessResult;
+import com.teamgannon.trips.file.chview.ChViewRecord;
 import com.teamgannon.trips.file.chview.ChviewReader;
 import com.teamgannon.trips.file.chview.model.ChViewFile;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.service.DatabaseManagementService;
-import javafx.concurrent.Task;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipeline;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipelineSettings;
+import com.teamgannon.trips.service.importservices.pipeline.ImportStatistics;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.UUID;
 
 @Slf4j
-public class ChvLoadTask extends Task<FileProcessResult> implements ProgressUpdater {
+public class ChvLoadTask extends ImportTask {
 
     private final Dataset dataset;
     private final DatabaseManagementService databaseManagementService;
+    private final ImportPipelineSettings importPipelineSettings;
 
     private final @NotNull ChviewReader chviewReader;
 
-    public ChvLoadTask(Dataset dataset, DatabaseManagementService databaseManagementService) {
+    public ChvLoadTask(Dataset dataset,
+                       DatabaseManagementService databaseManagementService,
+                       ImportPipelineSettings importPipelineSettings) {
         this.dataset = dataset;
         this.databaseManagementService = databaseManagementService;
+        this.importPipelineSettings = importPipelineSettings;
 
         this.chviewReader = new ChviewReader();
     }
@@ -31,12 +40,21 @@ public class ChvLoadTask extends Task<FileProcessResult> implements ProgressUpda
     protected @NotNull FileProcessResult call() throws Exception {
         FileProcessResult processResult = new FileProcessResult();
 
+        // the stars are saved as they are converted so the name is claimed before anything is written
+        UUID runId = databaseManagementService.startImport(dataset.getName());
+        if (runId == null) {
+            processResult.setSuccess(false);
+            processResult.setMessage("This dataset:{" + dataset.getName() + "} already exists");
+            return processResult;
+        }
+
         try {
             File file = new File(dataset.getFileSelected());
 
-            // load chView file
-            ChViewFile chViewFile = chviewReader.loadFile(this, file);
+            // read the chView preamble, the records are read as the pipeline asks for them
+            ChViewFile chViewFile = chviewReader.open(this, file);
             if (chViewFile == null) {
+                databaseManagementService.discardImport(runId, this);
                 FileProcessResult result = new FileProcessResult();
                 result.setDataSetDescriptor(null);
                 result.setSuccess(false);
@@ -44,8 +62,32 @@ public class ChvLoadTask extends Task<FileProcessResult> implements ProgressUpda
                 return result;
             }
 
-            updateMessage("File load complete, about to save records in database");
-            DataSetDescriptor dataSetDescriptor = databaseManagementService.loadCHFile(this, dataset, chViewFile);
+            double[] maxDistance = {0.0};
+            ImportPipeline<ChViewRecord> pipeline = new ImportPipeline<>("chv", importPipelineSettings, this, this::isStopRequested, false);
+            ImportStatistics statistics = pipeline.run(
+                    () -> chviewReader.nextRecord(this),
+                    chViewRecord -> {
+                        // a record without a usable distance throws and is counted as a reject
+                        StarObject starObject = new StarObject();
+                        starObject.fromChvRecord(dataset, chViewRecord);
+                        return starObject;
+                    },
+                    stars -> {
+                        for (StarObject starObject : stars) {
+                            maxDistance[0] = Math.max(maxDistance[0], starObject.getDistance());
+                        }
+                        databaseManagementService.starBulkSave(stars);
+                    });
+            if (statistics.isCancelled()) {
+                databaseManagementService.discardImport(runId, this);
+                processResult.setSuccess(false);
+                processResult.setMessage("load of " + dataset.getName() + " was cancelled");
+                return processResult;
+            }
+
+            DataSetDescriptor dataSetDescriptor = databaseManagementService.loadCHFile(
+                    this, dataset, chViewFile, statistics.getParsed(), maxDistance[0]);
+            databaseManagementService.finishImport(runId);
             String data = String.format("%s records loaded from dataset %s, Use plot to see data.",
                     dataSetDescriptor.getNumberStars(),
                     dataSetDescriptor.getDataSetName());
@@ -54,15 +96,11 @@ public class ChvLoadTask extends Task<FileProcessResult> implements ProgressUpda
             processResult.setDataSetDescriptor(dataSetDescriptor);
             updateProgress(dataSetDescriptor.getNumberStars(), dataSetDescriptor.getNumberStars());
         } catch (Exception e) {
+            log.error("failed to load {} because of {}", dataset.getName(), e.getMessage());
+            databaseManagementService.discardImport(runId, this);
             processResult.setSuccess(false);
             processResult.setMessage("Unable to load this dataset into the system ");
         }
         return processResult;
     }
-
-    @Override
-    public void updateTaskInfo(String message) {
-        updateMessage(message + "  ");
-    }
-
 }
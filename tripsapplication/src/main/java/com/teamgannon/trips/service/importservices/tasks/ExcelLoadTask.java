@@ -6,24 +6,29 @@ import com.teamgannon.trips.file.excel.normal.ExcelFile;
 import com.teamgannon.trips.file.excel.normal.ExcelReader;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.service.DatabaseManagementService;
-import javafx.concurrent.Task;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipelineSettings;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.UUID;
 
 @Slf4j
-public class ExcelLoadTask extends Task<FileProcessResult> implements ProgressUpdater {
+public class ExcelLoadTask extends ImportTask {
 
 
     private final Dataset dataSet;
     private final DatabaseManagementService databaseManagementService;
+    private final ImportPipelineSettings importPipelineSettings;
 
     private final ExcelReader excelReader;
 
-    public ExcelLoadTask(Dataset dataSet, DatabaseManagementService databaseManagementService) {
+    public ExcelLoadTask(Dataset dataSet,
+                         DatabaseManagementService databaseManagementService,
+                         ImportPipelineSettings importPipelineSettings) {
         this.dataSet = dataSet;
         this.databaseManagementService = databaseManagementService;
+        this.importPipelineSettings = importPipelineSettings;
 
         this.excelReader = new ExcelReader();
     }
@@ -33,14 +38,30 @@ public class ExcelLoadTask extends Task<FileProcessResult> implements ProgressUp
     protected @NotNull FileProcessResult call() throws Exception {
         FileProcessResult processResult = new FileProcessResult();
 
+        // the stars are saved as they are read so the name is claimed before anything is written
+        UUID runId = databaseManagementService.startImport(dataSet.getName());
+        if (runId == null) {
+            processResult.setSuccess(false);
+            processResult.setMessage("This dataset:{" + dataSet.getName() + "} already exists");
+            return processResult;
+        }
+
         File file = new File(dataSet.getFileSelected());
 
-        // load excel file
-        ExcelFile excelFile = excelReader.loadFile(this, dataSet, file, databaseManagementService);
         try {
+            // load excel file
+            ExcelFile excelFile = excelReader.loadFile(this, dataSet, file, databaseManagementService,
+                    importPipelineSettings, this::isStopRequested);
+            if (excelFile.isCancelled()) {
+                databaseManagementService.discardImport(runId, this);
+                processResult.setSuccess(false);
+                processResult.setMessage("load of " + dataSet.getName() + " was cancelled");
+                return processResult;
+            }
 
             DataSetDescriptor descriptor = excelFile.getDescriptor();
             databaseManagementService.saveExcelDataSetDescriptor(this, excelFile);
+            databaseManagementService.finishImport(runId);
             processResult.setDataSetDescriptor(descriptor);
             processResult.setSuccess(true);
             String msg = String.format("dataset %s loaded with %d stars", descriptor.getDataSetName(), descriptor.getNumberStars());
@@ -49,7 +70,8 @@ public class ExcelLoadTask extends Task<FileProcessResult> implements ProgressUp
 
         } catch (Exception e) {
             String msg = String.format("failed to load %s into system", dataSet.getName());
-            log.error(msg);
+            log.error("{} because of {}", msg, e.getMessage());
+            databaseManagementService.discardImport(runId, this);
             processResult.setSuccess(false);
             processResult.setMessage(msg);
             updateTaskInfo(msg);
@@ -57,11 +79,4 @@ public class ExcelLoadTask extends Task<FileProcessResult> implements ProgressUp
 
         return processResult;
     }
-
-
-    @Override
-    public void updateTaskInfo(String message) {
-        updateMessage(message + "  ");
-    }
-
 }
@@ -0,0 +1,31 @@
+package com.teamgannon.trips.service.importservices.tasks;
+
+import com.teamgannon.trips.dialogs.dataset.FileProcessResult;
+import javafx.concurrent.Task;
+
+/**
+ * a file import that can be asked to stop
+ * <p>
+ * the import checks the stop flag between batches and then throws away what it wrote, the task is never
+ * cancelled outright because interrupting the writer in the middle of a database write can close the H2 file
+ */
+public abstract class ImportTask extends Task<FileProcessResult> implements ProgressUpdater {
+
+    private volatile boolean stopRequested = false;
+
+    /**
+     * ask the import to stop at the next batch boundary
+     */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    public boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    @Override
+    public void updateTaskInfo(String message) {
+        updateMessage(message + "  ");
+    }
+}
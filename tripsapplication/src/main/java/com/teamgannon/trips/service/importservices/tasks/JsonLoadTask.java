@@ -3,23 +3,33 @@ package com.teamgannon.trips.service.importservices.tasks;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.teamgannon.trips.dialogs.dataset.Dataset;
 import com.teamgannon.trips.dialogs.dataset.FileProcessResult;
+import com.teamgannon.trips.file.json.JsonStarReader;
+import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.service.DatabaseManagementService;
-import com.teamgannon.trips.service.export.model.JsonExportObj;
-import javafx.concurrent.Task;
+import com.teamgannon.trips.service.export.model.DataSetDescriptorDTO;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipeline;
+import com.teamgannon.trips.service.importservices.pipeline.ImportPipelineSettings;
+import com.teamgannon.trips.service.importservices.pipeline.ImportStatistics;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.Nullable;
 
-import java.nio.file.Paths;
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
 
 @Slf4j
-public class JsonLoadTask extends Task<FileProcessResult> implements ProgressUpdater {
+public class JsonLoadTask extends ImportTask {
 
     private final Dataset dataset;
     private final DatabaseManagementService databaseManagementService;
+    private final ImportPipelineSettings importPipelineSettings;
 
-    public JsonLoadTask(Dataset dataset, DatabaseManagementService databaseManagementService) {
+    public JsonLoadTask(Dataset dataset,
+                        DatabaseManagementService databaseManagementService,
+                        ImportPipelineSettings importPipelineSettings) {
         this.dataset = dataset;
         this.databaseManagementService = databaseManagementService;
+        this.importPipelineSettings = importPipelineSettings;
     }
 
     @Override
@@ -37,33 +47,57 @@ public class JsonLoadTask extends Task<FileProcessResult> implements ProgressUpd
     private FileProcessResult processJsonFile(Dataset dataset) {
         FileProcessResult processResult = new FileProcessResult();
 
-        try {
-            ObjectMapper obj = new ObjectMapper();
-            JsonExportObj jsonExportObj = obj.readValue(Paths.get(dataset.getFileSelected()).toFile(), JsonExportObj.class);
-            updateFromDataset(dataset, jsonExportObj);
-            databaseManagementService.loadJsonFileSingleDS(this, jsonExportObj);
-            processResult.setDataSetDescriptor(jsonExportObj.getDescriptor().toDataSetDescriptor());
+        // the stars are saved before the descriptor so the name is claimed before anything is written
+        UUID runId = databaseManagementService.startImport(dataset.getName());
+        if (runId == null) {
+            processResult.setSuccess(false);
+            processResult.setMessage("This dataset was already loaded in the system ");
+            return processResult;
+        }
+
+        // the stars are streamed off the file as the pipeline asks for them, the reader thread decodes them
+        // and the parsers only stamp them with the dataset name
+        try (JsonStarReader reader = new JsonStarReader(new ObjectMapper(), new File(dataset.getFileSelected()))) {
+            ImportPipeline<StarObject> pipeline = new ImportPipeline<>("json", importPipelineSettings, this, this::isStopRequested, false);
+            ImportStatistics statistics = pipeline.run(
+                    reader,
+                    starObject -> {
+                        starObject.setDataSetName(dataset.getName());
+                        return starObject;
+                    },
+                    databaseManagementService::starBulkSave);
+            if (statistics.isCancelled()) {
+                databaseManagementService.discardImport(runId, this);
+                processResult.setSuccess(false);
+                processResult.setMessage("load of " + dataset.getName() + " was cancelled");
+                return processResult;
+            }
+
+            DataSetDescriptorDTO descriptor = reader.getDescriptor();
+            if (descriptor == null) {
+                throw new IOException("the file has no dataset descriptor");
+            }
+            updateFromDataset(dataset, descriptor);
+            descriptor.setNumberStars(statistics.getParsed());
+
+            databaseManagementService.loadJsonFileSingleDS(this, descriptor);
+            databaseManagementService.finishImport(runId);
+            processResult.setDataSetDescriptor(descriptor.toDataSetDescriptor());
             processResult.setMessage("dataset loaded " + dataset.getName());
             processResult.setSuccess(true);
         } catch (Exception e) {
-            log.error("Failed to read file for {}", dataset.getName());
+            log.error("Failed to read file for {} because of {}", dataset.getName(), e.getMessage());
+            databaseManagementService.discardImport(runId, this);
             processResult.setSuccess(false);
-            processResult.setMessage("This dataset was already loaded in the system ");
+            processResult.setMessage("Failed to load the dataset, see log ");
         }
 
 
         return processResult;
     }
 
-    private void updateFromDataset(Dataset dataset, JsonExportObj jsonExportObj) {
-        jsonExportObj.getDescriptor().setDataSetName(dataset.getName());
-        jsonExportObj.getDescriptor().setFileCreator(dataset.getAuthor());
-        jsonExportObj.getStarObjectList().forEach(astrographicObject -> astrographicObject.setDataSetName(dataset.getName()));
-    }
-
-
-    @Override
-    public void updateTaskInfo(String message) {
-        updateMessage(message + "  ");
+    private void updateFromDataset(Dataset dataset, DataSetDescriptorDTO descriptor) {
+        descriptor.setDataSetName(dataset.getName());
+        descriptor.setFileCreator(dataset.getAuthor());
     }
 }
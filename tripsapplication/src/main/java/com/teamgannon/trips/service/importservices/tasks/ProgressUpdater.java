@@ -3,4 +3,12 @@ package com.teamgannon.trips.service.importservices.tasks;
 public interface ProgressUpdater {
 
     void updateTaskInfo(String message);
+
+    /**
+     * the number of rows handled so far, for tasks that want to report it
+     *
+     * @param rows the rows done
+     */
+    default void updateRowCount(long rows) {
+    }
 }
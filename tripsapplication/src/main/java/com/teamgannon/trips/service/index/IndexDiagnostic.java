@@ -0,0 +1,51 @@
+package com.teamgannon.trips.service.index;
+
+import lombok.Data;
+
+/**
+ * the result of checking one index against its query shape
+ */
+@Data
+public class IndexDiagnostic {
+
+    /**
+     * the index name
+     */
+    private String indexName;
+
+    /**
+     * the columns in the index
+     */
+    private String columns;
+
+    /**
+     * what query this index is for
+     */
+    private String queryShape;
+
+    /**
+     * does the index exist in the database
+     */
+    private boolean present;
+
+    /**
+     * did the planner choose the index for the sample query
+     */
+    private boolean used;
+
+    /**
+     * the plan as returned by EXPLAIN
+     */
+    private String plan = "";
+
+    /**
+     * the number of rows that the sample query matched
+     */
+    private long rowsMatched;
+
+    /**
+     * the time to run the sample query in ms
+     */
+    private long elapsedMs;
+
+}
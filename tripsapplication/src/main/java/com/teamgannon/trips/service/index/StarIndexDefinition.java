@@ -0,0 +1,158 @@
+package com.teamgannon.trips.service.index;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * the secondary indexes we maintain on the STAR_OBJ table
+ * <p>
+ * each entry mirrors an @Index declared on StarObject and carries a sample of the query shape
+ * it is meant to serve so that we can run EXPLAIN against it and check the planner really picks it up
+ * <p>
+ * the sample queries use %s as the placeholder for the dataset name
+ */
+public enum StarIndexDefinition {
+
+    DATASET_DISTANCE(
+            "IDX_STAR_DATASET_DISTANCE",
+            "DATA_SET_NAME, DISTANCE",
+            "distance limited search from Sol",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND DISTANCE >= 0 AND DISTANCE <= 20"),
+
+    DATASET_XYZ(
+            "IDX_STAR_DATASET_XYZ",
+            "DATA_SET_NAME, X, Y, Z",
+            "recenter bounding box",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' " +
+                    "AND X > -20 AND X < 20 AND Y > -20 AND Y < 20 AND Z > -20 AND Z < 20"),
+
+    DATASET_NAME(
+            "IDX_STAR_DATASET_NAME",
+            "DATA_SET_NAME, DISPLAY_NAME",
+            "dataset listing ordered by name",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' ORDER BY DISPLAY_NAME"),
+
+    DATASET_SCORE(
+            "IDX_STAR_DATASET_SCORE",
+            "DATA_SET_NAME, DISPLAY_SCORE",
+            "top scored labels",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' ORDER BY DISPLAY_SCORE DESC LIMIT 50"),
+
+    DATASET_CLASS_CODE(
+            "IDX_STAR_DATASET_CLASS_CODE",
+            "DATA_SET_NAME, STELLAR_CLASS_CODE",
+            "stellar class filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND STELLAR_CLASS_CODE IN (1, 2)"),
+
+    DATASET_POLITY_CODE(
+            "IDX_STAR_DATASET_POLITY_CODE",
+            "DATA_SET_NAME, POLITY_CODE",
+            "polity filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND POLITY_CODE IN (1, 2)"),
+
+    DATASET_WORLD_CODE(
+            "IDX_STAR_DATASET_WORLD_CODE",
+            "DATA_SET_NAME, WORLD_TYPE_CODE",
+            "world type filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND WORLD_TYPE_CODE IN (1, 2)"),
+
+    DATASET_FUEL_CODE(
+            "IDX_STAR_DATASET_FUEL_CODE",
+            "DATA_SET_NAME, FUEL_TYPE_CODE",
+            "fuel type filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND FUEL_TYPE_CODE IN (1, 2)"),
+
+    DATASET_PORT_CODE(
+            "IDX_STAR_DATASET_PORT_CODE",
+            "DATA_SET_NAME, PORT_TYPE_CODE",
+            "port type filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND PORT_TYPE_CODE IN (1, 2)"),
+
+    DATASET_POPULATION_CODE(
+            "IDX_STAR_DATASET_POPULATION_CODE",
+            "DATA_SET_NAME, POPULATION_TYPE_CODE",
+            "population type filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND POPULATION_TYPE_CODE IN (1, 2)"),
+
+    DATASET_TECH_CODE(
+            "IDX_STAR_DATASET_TECH_CODE",
+            "DATA_SET_NAME, TECH_TYPE_CODE",
+            "tech type filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND TECH_TYPE_CODE IN (1, 2)"),
+
+    DATASET_PRODUCT_CODE(
+            "IDX_STAR_DATASET_PRODUCT_CODE",
+            "DATA_SET_NAME, PRODUCT_TYPE_CODE",
+            "product type filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND PRODUCT_TYPE_CODE IN (1, 2)"),
+
+    DATASET_MIL_SPACE_CODE(
+            "IDX_STAR_DATASET_MIL_SPACE_CODE",
+            "DATA_SET_NAME, MIL_SPACE_TYPE_CODE",
+            "space military filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND MIL_SPACE_TYPE_CODE IN (1, 2)"),
+
+    DATASET_MIL_PLAN_CODE(
+            "IDX_STAR_DATASET_MIL_PLAN_CODE",
+            "DATA_SET_NAME, MIL_PLAN_TYPE_CODE",
+            "planetary military filter",
+            "SELECT ID FROM STAR_OBJ WHERE DATA_SET_NAME = '%s' AND MIL_PLAN_TYPE_CODE IN (1, 2)");
+
+    /**
+     * the name of the index in the database
+     */
+    private final String indexName;
+
+    /**
+     * the physical columns the index is built on
+     */
+    private final String columns;
+
+    /**
+     * a human readable description of the query shape
+     */
+    private final String queryShape;
+
+    /**
+     * a sample query of this shape
+     */
+    private final String sampleQuery;
+
+    StarIndexDefinition(String indexName, String columns, String queryShape, String sampleQuery) {
+        this.indexName = indexName;
+        this.columns = columns;
+        this.queryShape = queryShape;
+        this.sampleQuery = sampleQuery;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public String getColumns() {
+        return columns;
+    }
+
+    public String getQueryShape() {
+        return queryShape;
+    }
+
+    /**
+     * the DDL to create this index if it is missing
+     *
+     * @return the create statement
+     */
+    public @NotNull String toCreateStatement() {
+        return "CREATE INDEX IF NOT EXISTS " + indexName + " ON STAR_OBJ(" + columns + ")";
+    }
+
+    /**
+     * the sample query bound to a specific dataset
+     *
+     * @param dataSetName the dataset name
+     * @return the query
+     */
+    public @NotNull String toSampleQuery(@NotNull String dataSetName) {
+        return String.format(sampleQuery, dataSetName.replace("'", "''"));
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.teamgannon.trips.service.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * manages the secondary indexes on the star table
+ * <p>
+ * Hibernate only adds the indexes declared on StarObject when it decides the table needs updating, so
+ * database files created by older versions of TRIPS may be missing them. This makes sure they are there
+ * and lets us verify that the planner actually uses them.
+ */
+@Slf4j
+@Service
+public class StarIndexService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * used to run each index statement in its own transaction
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    public StarIndexService(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * create any of the star indexes that are missing
+     * <p>
+     * this is called once at startup. Each index gets its own transaction so one that can't be built is
+     * logged and rolled back on its own instead of taking the others, and startup, down with it.
+     */
+    public void ensureIndexes() {
+        for (StarIndexDefinition definition : StarIndexDefinition.values()) {
+            try {
+                long start = System.currentTimeMillis();
+                transactionTemplate.executeWithoutResult(status ->
+                        entityManager.createNativeQuery(definition.toCreateStatement()).executeUpdate());
+                log.info("index {} verified in {} ms", definition.getIndexName(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("failed to create index {} because of {}", definition.getIndexName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * check each index against its query shape for a dataset
+     *
+     * @param dataSetName the dataset to run the sample queries against
+     * @return the diagnostics, one per index
+     */
+    @Transactional(readOnly = true)
+    public @NotNull List<IndexDiagnostic> runDiagnostics(@NotNull String dataSetName) {
+        List<IndexDiagnostic> diagnostics = new ArrayList<>();
+        for (StarIndexDefinition definition : StarIndexDefinition.values()) {
+            diagnostics.add(diagnose(definition, dataSetName));
+        }
+        return diagnostics;
+    }
+
+    private @NotNull IndexDiagnostic diagnose(@NotNull StarIndexDefinition definition, @NotNull String dataSetName) {
+        IndexDiagnostic diagnostic = new IndexDiagnostic();
+        diagnostic.setIndexName(definition.getIndexName());
+        diagnostic.setColumns(definition.getColumns());
+        diagnostic.setQueryShape(definition.getQueryShape());
+
+        try {
+            diagnostic.setPresent(indexExists(definition.getIndexName()));
+
+            String sampleQuery = definition.toSampleQuery(dataSetName);
+            String plan = explain(sampleQuery);
+            diagnostic.setPlan(plan);
+            diagnostic.setUsed(plan.toUpperCase().contains(definition.getIndexName()));
+
+            long start = System.currentTimeMillis();
+            Number count = (Number) entityManager
+                    .createNativeQuery("SELECT COUNT(*) FROM (" + sampleQuery + ")")
+                    .getSingleResult();
+            diagnostic.setElapsedMs(System.currentTimeMillis() - start);
+            diagnostic.setRowsMatched(count.longValue());
+        } catch (Exception e) {
+            log.error("failed to diagnose index {} because of {}", definition.getIndexName(), e.getMessage());
+            diagnostic.setPlan("failed: " + e.getMessage());
+        }
+        return diagnostic;
+    }
+
+    /**
+     * run EXPLAIN on a query
+     *
+     * @param sql the query
+     * @return the plan
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull String explain(@NotNull String sql) {
+        List<Object> planLines = entityManager.createNativeQuery("EXPLAIN " + sql).getResultList();
+        return planLines.stream().map(String::valueOf).collect(Collectors.joining("\n"));
+    }
+
+    private boolean indexExists(@NotNull String indexName) {
+        Number count = (Number) entityManager
+                .createNativeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = ?1")
+                .setParameter(1, indexName)
+                .getSingleResult();
+        return count.longValue() > 0;
+    }
+
+}
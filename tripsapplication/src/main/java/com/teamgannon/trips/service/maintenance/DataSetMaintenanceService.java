@@ -0,0 +1,182 @@
+package com.teamgannon.trips.service.maintenance;
+
+import com.teamgannon.trips.dialogs.dataset.DataSetMaintenanceComplete;
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.listener.StatusUpdaterListener;
+import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.maintenance.tasks.DataSetMaintenanceTask;
+import com.teamgannon.trips.service.maintenance.tasks.DataSetRemoveTask;
+import com.teamgannon.trips.service.maintenance.tasks.DataSetRenameTask;
+import javafx.concurrent.Service;
+import javafx.concurrent.Task;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static javafx.concurrent.Worker.State.RUNNING;
+
+/**
+ * runs a dataset removal or rename in the background
+ * <p>
+ * both walk the stars of the dataset in chunks, so the ui stays responsive on large datasets and
+ * the operation can be stopped between chunks
+ */
+@Slf4j
+public class DataSetMaintenanceService extends Service<DataSetDescriptor> {
+
+    private final DatabaseManagementService databaseManagementService;
+    private DataSetDescriptor descriptor;
+
+    /**
+     * the new name for a rename, null for a removal
+     */
+    private @Nullable String newName;
+
+    private StatusUpdaterListener statusUpdaterListener;
+    private DataSetMaintenanceComplete maintenanceComplete;
+    private Label progressText;
+
+    /**
+     * the removal or rename in progress
+     */
+    private @Nullable DataSetMaintenanceTask currentTask;
+
+    public DataSetMaintenanceService(DatabaseManagementService databaseManagementService) {
+        this.databaseManagementService = databaseManagementService;
+    }
+
+    @Override
+    protected @NotNull Task<DataSetDescriptor> createTask() {
+        if (newName == null) {
+            currentTask = new DataSetRemoveTask(descriptor, databaseManagementService);
+        } else {
+            currentTask = new DataSetRenameTask(descriptor, newName, databaseManagementService);
+        }
+        return currentTask;
+    }
+
+    /**
+     * remove a dataset
+     *
+     * @param descriptor            the dataset to remove
+     * @param statusUpdaterListener the status reporter
+     * @param maintenanceComplete   called when done
+     * @param progressText          the progress label
+     * @param cancelButton          the cancel button
+     */
+    public void removeDataSet(@NotNull DataSetDescriptor descriptor,
+                              StatusUpdaterListener statusUpdaterListener,
+                              DataSetMaintenanceComplete maintenanceComplete,
+                              @NotNull Label progressText,
+                              @NotNull Button cancelButton) {
+        launch(descriptor, null, statusUpdaterListener, maintenanceComplete, progressText, cancelButton);
+    }
+
+    /**
+     * rename a dataset
+     *
+     * @param descriptor            the dataset to rename
+     * @param newName               the new name
+     * @param statusUpdaterListener the status reporter
+     * @param maintenanceComplete   called when done
+     * @param progressText          the progress label
+     * @param cancelButton          the cancel button
+     */
+    public void renameDataSet(@NotNull DataSetDescriptor descriptor,
+                              @NotNull String newName,
+                              StatusUpdaterListener statusUpdaterListener,
+                              DataSetMaintenanceComplete maintenanceComplete,
+                              @NotNull Label progressText,
+                              @NotNull Button cancelButton) {
+        launch(descriptor, newName, statusUpdaterListener, maintenanceComplete, progressText, cancelButton);
+    }
+
+    private void launch(@NotNull DataSetDescriptor descriptor,
+                       @Nullable String newName,
+                       StatusUpdaterListener statusUpdaterListener,
+                       DataSetMaintenanceComplete maintenanceComplete,
+                       @NotNull Label progressText,
+                       @NotNull Button cancelButton) {
+        this.descriptor = descriptor;
+        this.newName = newName;
+        this.statusUpdaterListener = statusUpdaterListener;
+        this.maintenanceComplete = maintenanceComplete;
+        this.progressText = progressText;
+
+        progressText.textProperty().bind(this.messageProperty());
+        cancelButton.disableProperty().bind(this.stateProperty().isNotEqualTo(RUNNING));
+
+        this.reset();
+        this.start();
+    }
+
+    @Override
+    protected void succeeded() {
+        unsetProgressControls();
+        DataSetDescriptor result = this.getValue();
+        if (result == null) {
+            DataSetMaintenanceTask task = currentTask;
+            if (task != null && task.isStopRequested()) {
+                if (newName == null) {
+                    finished(false, null, String.format("removal of %s stopped after %d rows, the rest of the dataset is still there",
+                            descriptor.getDataSetName(), task.getRowsDone()));
+                } else {
+                    finished(false, null, String.format("rename of %s stopped after %d rows, the stars were moved back",
+                            descriptor.getDataSetName(), task.getRowsDone()));
+                }
+            } else {
+                finished(false, null, "could not complete, " + progressText.getText().trim());
+            }
+            return;
+        }
+        if (newName == null) {
+            finished(true, null, "removed dataset " + descriptor.getDataSetName());
+        } else {
+            finished(true, result, "renamed dataset " + descriptor.getDataSetName() + " to " + newName);
+        }
+    }
+
+    @Override
+    protected void failed() {
+        unsetProgressControls();
+        log.error("dataset maintenance failed due to: " + getException().getMessage());
+        finished(false, null, "failed due to: " + getException().getMessage());
+    }
+
+    @Override
+    protected void cancelled() {
+        unsetProgressControls();
+        log.warn("dataset maintenance cancelled");
+        finished(false, null, "cancelled");
+    }
+
+    private void finished(boolean status, @Nullable DataSetDescriptor renamed, @NotNull String message) {
+        statusUpdaterListener.updateStatus(message);
+        maintenanceComplete.complete(status, descriptor, renamed, message);
+    }
+
+    private void unsetProgressControls() {
+        progressText.textProperty().unbind();
+    }
+
+    /**
+     * stop the current removal or rename at the next chunk boundary
+     * <p>
+     * the service keeps running until the task reaches the boundary and reports how far it got, so nothing
+     * else can start against the database in the meantime
+     *
+     * @return true if it was signalled
+     */
+    public boolean cancelMaintenance() {
+        DataSetMaintenanceTask task = currentTask;
+        if (task == null || !isRunning()) {
+            return false;
+        }
+        task.requestStop();
+        statusUpdaterListener.updateStatus("stopping at the next chunk, please wait");
+        return true;
+    }
+
+}
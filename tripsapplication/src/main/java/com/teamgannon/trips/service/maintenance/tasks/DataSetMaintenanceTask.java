@@ -0,0 +1,46 @@
+package com.teamgannon.trips.service.maintenance.tasks;
+
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
+import javafx.concurrent.Task;
+
+/**
+ * a dataset removal or rename that can be asked to stop
+ * <p>
+ * the work checks the stop flag between chunks, the task is never cancelled outright because interrupting
+ * the worker in the middle of a database write can close the H2 file
+ */
+public abstract class DataSetMaintenanceTask extends Task<DataSetDescriptor> implements ProgressUpdater {
+
+    private volatile boolean stopRequested = false;
+
+    private volatile long rowsDone = 0;
+
+    /**
+     * ask the task to stop at the next chunk boundary
+     */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    public boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    /**
+     * @return the stars removed or moved so far
+     */
+    public long getRowsDone() {
+        return rowsDone;
+    }
+
+    @Override
+    public void updateTaskInfo(String message) {
+        updateMessage(message + "  ");
+    }
+
+    @Override
+    public void updateRowCount(long rows) {
+        rowsDone = rows;
+    }
+}
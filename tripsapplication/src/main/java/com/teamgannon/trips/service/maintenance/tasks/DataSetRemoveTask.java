@@ -0,0 +1,34 @@
+package com.teamgannon.trips.service.maintenance.tasks;
+
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.service.DatabaseManagementService;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+@Slf4j
+public class DataSetRemoveTask extends DataSetMaintenanceTask {
+
+    private final DataSetDescriptor descriptor;
+    private final DatabaseManagementService databaseManagementService;
+
+    public DataSetRemoveTask(DataSetDescriptor descriptor, DatabaseManagementService databaseManagementService) {
+        this.descriptor = descriptor;
+        this.databaseManagementService = databaseManagementService;
+    }
+
+    /**
+     * remove the dataset
+     *
+     * @return the removed dataset, or null if the removal was stopped part way
+     */
+    @Override
+    protected @Nullable DataSetDescriptor call() throws Exception {
+        boolean removed = databaseManagementService.removeDataSet(descriptor, this, this::isStopRequested);
+        if (removed) {
+            log.info("dataset {} removed", descriptor.getDataSetName());
+            return descriptor;
+        }
+        log.warn("removal of dataset {} was stopped", descriptor.getDataSetName());
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.teamgannon.trips.service.maintenance.tasks;
+
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.service.DatabaseManagementService;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+@Slf4j
+public class DataSetRenameTask extends DataSetMaintenanceTask {
+
+    private final DataSetDescriptor descriptor;
+    private final String newName;
+    private final DatabaseManagementService databaseManagementService;
+
+    public DataSetRenameTask(DataSetDescriptor descriptor, String newName, DatabaseManagementService databaseManagementService) {
+        this.descriptor = descriptor;
+        this.newName = newName;
+        this.databaseManagementService = databaseManagementService;
+    }
+
+    @Override
+    protected @Nullable DataSetDescriptor call() throws Exception {
+        DataSetDescriptor renamed = databaseManagementService.changeDatasetName(descriptor, newName, this, this::isStopRequested);
+        if (renamed != null) {
+            log.info("dataset {} renamed to {}", descriptor.getDataSetName(), newName);
+        } else {
+            log.warn("rename of dataset {} to {} did not complete", descriptor.getDataSetName(), newName);
+        }
+        return renamed;
+    }
+}
@@ -0,0 +1,260 @@
+package com.teamgannon.trips.service.migration;
+
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.jpa.model.StarCategory;
+import com.teamgannon.trips.jpa.repository.DataSetDescriptorRepository;
+import com.teamgannon.trips.service.codes.CategoryCodeService;
+import com.teamgannon.trips.service.routes.RouteService;
+import com.teamgannon.trips.stellarmodelling.StellarType;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.List;
+
+/**
+ * brings database files created by older versions of TRIPS up to the current schema
+ * <p>
+ * Hibernate's schema update only adds tables and columns, it never moves data, so anything that
+ * changes where data lives is done here at startup. Each step checks whether it is needed first,
+ * so running this against an up to date database does nothing.
+ */
+@Slf4j
+@Service
+public class SchemaMigrationService {
+
+    /**
+     * the indexes on the string columns that the code indexes replaced
+     */
+    private static final List<String> DROPPED_INDEXES = List.of(
+            "IDX_STAR_DATASET_POLITY", "IDX_STAR_DATASET_SPECTRAL"
+    );
+
+    /**
+     * the columns that moved from STAR_OBJ to STAR_OBJ_DETAILS
+     */
+    private static final List<String> DETAIL_COLUMNS = List.of(
+            "NOTES", "SOURCE", "CATALOG_ID_LIST",
+            "MISC_TEXT1", "MISC_TEXT2", "MISC_TEXT3", "MISC_TEXT4", "MISC_TEXT5",
+            "MISC_NUM1", "MISC_NUM2", "MISC_NUM3", "MISC_NUM4", "MISC_NUM5"
+    );
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * used to run each chunk of a migration in its own transaction
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * hands out the category codes
+     */
+    private final CategoryCodeService categoryCodeService;
+
+    private final DataSetDescriptorRepository dataSetDescriptorRepository;
+
+    /**
+     * takes over the routes that were stored as JSON
+     */
+    private final RouteService routeService;
+
+    /**
+     * how many rows to move per transaction
+     */
+    @Value("${app.migration.chunkSize:5000}")
+    private int chunkSize;
+
+    public SchemaMigrationService(TransactionTemplate transactionTemplate,
+                                  CategoryCodeService categoryCodeService,
+                                  DataSetDescriptorRepository dataSetDescriptorRepository,
+                                  RouteService routeService) {
+        this.transactionTemplate = transactionTemplate;
+        this.categoryCodeService = categoryCodeService;
+        this.dataSetDescriptorRepository = dataSetDescriptorRepository;
+        this.routeService = routeService;
+    }
+
+    /**
+     * run all the migrations
+     * <p>
+     * this is called once at startup. A step that fails stops startup, the rest of the code expects the
+     * current schema and would otherwise run against a half moved database. Each step commits in chunks and
+     * checks what is left to do, so the next start carries on where the failed one stopped.
+     *
+     * @throws IllegalStateException if a step fails
+     */
+    public void migrate() {
+        runStep("star details", this::migrateStarDetails);
+        runStep("category codes", this::migrateCategoryCodes);
+        runStep("routes", this::migrateRoutes);
+    }
+
+    private void runStep(@NotNull String name, @NotNull Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            log.error("failed to migrate {} because of {}", name, e.getMessage());
+            throw new IllegalStateException("failed to migrate " + name + ", the database needs attention before TRIPS can start", e);
+        }
+    }
+
+    /**
+     * move the lob and custom columns out of STAR_OBJ into STAR_OBJ_DETAILS
+     * <p>
+     * the rows are copied over in chunks so that a large database does not need one huge transaction,
+     * and the old columns are dropped once every star has its details row. Any star that has no details
+     * row, for instance one written by a native query, gets an empty one.
+     */
+    public void migrateStarDetails() {
+        if (columnExists("STAR_OBJ", "NOTES")) {
+            log.info("moving star details out of STAR_OBJ");
+            String columns = String.join(", ", DETAIL_COLUMNS);
+            String copyStatement = "INSERT INTO STAR_OBJ_DETAILS (ID, " + columns + ") " +
+                    "SELECT S.ID, " + prefixed("S.", DETAIL_COLUMNS) + " FROM STAR_OBJ S " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM STAR_OBJ_DETAILS D WHERE D.ID = S.ID) " +
+                    "LIMIT " + chunkSize;
+            long total = copyInChunks(copyStatement);
+            log.info("moved details for {} stars", total);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                for (String column : DETAIL_COLUMNS) {
+                    entityManager.createNativeQuery("ALTER TABLE STAR_OBJ DROP COLUMN IF EXISTS " + column).executeUpdate();
+                }
+            });
+            log.info("dropped the old detail columns from STAR_OBJ");
+        }
+
+        String fillStatement = "INSERT INTO STAR_OBJ_DETAILS (ID, " + String.join(", ", DETAIL_COLUMNS) + ") " +
+                "SELECT S.ID, '', '', 'NA', '', '', '', '', '', 0, 0, 0, 0, 0 FROM STAR_OBJ S " +
+                "WHERE NOT EXISTS (SELECT 1 FROM STAR_OBJ_DETAILS D WHERE D.ID = S.ID) " +
+                "LIMIT " + chunkSize;
+        long filled = copyInChunks(fillStatement);
+        if (filled > 0) {
+            log.info("created empty details for {} stars", filled);
+        }
+    }
+
+    /**
+     * fill in the stellar class and category codes of stars written before they existed
+     * <p>
+     * when Hibernate adds the code columns every existing row gets the column default, -1 for the class and
+     * 0 for the categories. We look up the distinct values that still have the default and update the
+     * rows for each one in chunks. The old indexes on the string columns are dropped since nothing
+     * searches on them any more.
+     */
+    public void migrateCategoryCodes() {
+        if (!columnExists("STAR_OBJ", "STELLAR_CLASS_CODE")) {
+            return;
+        }
+        long total = 0;
+        for (String spectralClass : distinctUncoded("ORTHO_SPECTRAL_CLASS", "STELLAR_CLASS_CODE", -1)) {
+            short code = StellarType.codeOf(spectralClass);
+            if (code != -1) {
+                total += copyInChunks("UPDATE STAR_OBJ SET STELLAR_CLASS_CODE = ?1 " +
+                        "WHERE STELLAR_CLASS_CODE = -1 AND ORTHO_SPECTRAL_CLASS = ?2 LIMIT " + chunkSize,
+                        code, spectralClass);
+            }
+        }
+        for (StarCategory category : StarCategory.values()) {
+            for (String value : distinctUncoded(category.getColumn(), category.getCodeColumn(), CategoryCodeService.EMPTY_CODE)) {
+                short code = categoryCodeService.codeOf(category, value);
+                if (code != CategoryCodeService.EMPTY_CODE) {
+                    total += copyInChunks("UPDATE STAR_OBJ SET " + category.getCodeColumn() + " = ?1 " +
+                            "WHERE " + category.getCodeColumn() + " = 0 AND " + category.getColumn() + " = ?2 " +
+                            "LIMIT " + chunkSize, code, value);
+                }
+            }
+        }
+        if (total > 0) {
+            log.info("encoded {} star fields", total);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String index : DROPPED_INDEXES) {
+                entityManager.createNativeQuery("DROP INDEX IF EXISTS " + index).executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * move the routes held as JSON on each descriptor into the ROUTE and ROUTE_STAR tables
+     * <p>
+     * each dataset is done in its own transaction, a descriptor whose JSON can't be read is logged and
+     * left alone so nothing is lost
+     */
+    public void migrateRoutes() {
+        int total = 0;
+        for (DataSetDescriptor descriptor : dataSetDescriptorRepository.findAll()) {
+            if (descriptor.getRoutesStr() != null) {
+                total += routeService.adoptLegacyRoutes(descriptor.getDataSetName());
+            }
+        }
+        if (total > 0) {
+            log.info("moved {} routes into the route tables", total);
+        }
+    }
+
+    /**
+     * the distinct values of a column on rows whose code column still has its default
+     */
+    @SuppressWarnings("unchecked")
+    private @NotNull List<String> distinctUncoded(@NotNull String column, @NotNull String codeColumn, int defaultCode) {
+        return transactionTemplate.execute(status -> (List<String>) entityManager
+                .createNativeQuery("SELECT DISTINCT " + column + " FROM STAR_OBJ " +
+                        "WHERE " + codeColumn + " = " + defaultCode + " AND " + column + " IS NOT NULL")
+                .getResultList());
+    }
+
+    /**
+     * run a statement repeatedly, one transaction at a time, until it stops changing rows
+     *
+     * @param statement  the chunked insert or update
+     * @param parameters the positional parameters of the statement
+     * @return the total number of rows changed
+     */
+    private long copyInChunks(@NotNull String statement, Object... parameters) {
+        long total = 0;
+        while (true) {
+            Integer changed = transactionTemplate.execute(status -> {
+                Query query = entityManager.createNativeQuery(statement);
+                for (int i = 0; i < parameters.length; i++) {
+                    query.setParameter(i + 1, parameters[i]);
+                }
+                return query.executeUpdate();
+            });
+            if (changed == null || changed == 0) {
+                return total;
+            }
+            total += changed;
+            log.info("migrated {} rows so far", total);
+        }
+    }
+
+    private boolean columnExists(@NotNull String tableName, @NotNull String columnName) {
+        Number count = transactionTemplate.execute(status -> (Number) entityManager
+                .createNativeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                        "WHERE TABLE_NAME = ?1 AND COLUMN_NAME = ?2")
+                .setParameter(1, tableName)
+                .setParameter(2, columnName)
+                .getSingleResult());
+        return count != null && count.longValue() > 0;
+    }
+
+    private @NotNull String prefixed(@NotNull String prefix, @NotNull List<String> columns) {
+        StringBuilder builder = new StringBuilder();
+        for (String column : columns) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(prefix).append(column);
+        }
+        return builder.toString();
+    }
+
+}
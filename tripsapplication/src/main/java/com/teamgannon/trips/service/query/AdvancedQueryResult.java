@@ -0,0 +1,67 @@
+package com.teamgannon.trips.service.query;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import lombok.Data;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * what an advanced query found and how long it took
+ */
+@Data
+public class AdvancedQueryResult {
+
+    /**
+     * the stars found, at most the row cap
+     */
+    private @NotNull List<StarObject> stars = new ArrayList<>();
+
+    /**
+     * the number of matching rows we read, this can be more than the stars loaded if it was cancelled
+     */
+    private long rowCount;
+
+    /**
+     * the row cap the query ran with
+     */
+    private long rowLimit;
+
+    /**
+     * true if more rows matched than the row cap allows
+     */
+    private boolean truncated;
+
+    /**
+     * true if it was stopped from the ui
+     */
+    private boolean cancelled;
+
+    /**
+     * true if the statement ran past the timeout
+     */
+    private boolean timedOut;
+
+    /**
+     * time spent running the statement
+     */
+    private long executionMillis;
+
+    /**
+     * time spent in total including loading the stars
+     */
+    private long totalMillis;
+
+    public @NotNull String getSummary() {
+        if (timedOut) {
+            return String.format("query timed out after %d ms", executionMillis);
+        }
+        if (cancelled) {
+            return String.format("query cancelled after %d rows and %d ms", rowCount, totalMillis);
+        }
+        return String.format("query found %d%s stars, %d ms to run and %d ms in total",
+                rowCount, truncated ? "+" : "", executionMillis, totalMillis);
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.teamgannon.trips.service.query;
+
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.util.validation.Validation;
+import net.sf.jsqlparser.util.validation.ValidationError;
+import net.sf.jsqlparser.util.validation.feature.DatabaseType;
+import org.hibernate.Session;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * runs the user written queries from the advanced query dialog
+ * <p>
+ * the user only writes the where clause. We run it once to get the matching star ids, with a row cap and a
+ * timeout on the statement, and then load the stars a page at a time by id. Either step can be cancelled
+ * from the ui. The JSqlParser validation of a query is cached by its text since users tend to run the
+ * same query a few times while they tune the display.
+ */
+@Slf4j
+@Service
+public class AdvancedQueryService {
+
+    /**
+     * the star table with its details, so the user can filter on the notes, source, catalog ids and the misc
+     * fields as well as the star's own columns
+     */
+    private static final String STAR_TABLES = "STAR_OBJ LEFT JOIN STAR_OBJ_DETAILS ON STAR_OBJ_DETAILS.ID = STAR_OBJ.ID";
+
+    /**
+     * the query the user sees and that we validate
+     */
+    private static final String DISPLAY_QUERY = "SELECT * FROM " + STAR_TABLES + " WHERE STAR_OBJ.DATA_SET_NAME='%s' ";
+
+    /**
+     * the query we actually run, only the ids come back and the dataset is a parameter
+     */
+    private static final String ID_QUERY = "SELECT STAR_OBJ.ID FROM " + STAR_TABLES + " WHERE STAR_OBJ.DATA_SET_NAME = ? ";
+
+    /**
+     * the error H2 raises when a statement is cancelled or times out
+     */
+    private static final String QUERY_CANCELED_STATE = "57014";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * the most stars one query will return
+     */
+    private final int maxRows;
+
+    /**
+     * how long the statement may run for
+     */
+    private final int timeoutSeconds;
+
+    /**
+     * how many stars are loaded per page
+     */
+    private final int pageSize;
+
+    /**
+     * the validation errors for recent query texts, access ordered so the oldest drops off first
+     */
+    private final Map<String, List<String>> validations;
+
+    public AdvancedQueryService(PlatformTransactionManager transactionManager,
+                                @Value("${app.advancedQuery.maxRows:50000}") int maxRows,
+                                @Value("${app.advancedQuery.timeoutSeconds:60}") int timeoutSeconds,
+                                @Value("${app.advancedQuery.pageSize:500}") int pageSize,
+                                @Value("${app.advancedQuery.validationCacheSize:100}") int validationCacheSize) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxRows = maxRows;
+        this.timeoutSeconds = timeoutSeconds;
+        this.pageSize = pageSize;
+        this.validations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > validationCacheSize;
+            }
+        };
+    }
+
+    /**
+     * the full query text for a where clause, as shown to the user and validated
+     *
+     * @param dataSetName the dataset
+     * @param wherePart   the user's where clause, may be empty
+     * @return the query
+     */
+    public static @NotNull String makeQueryText(@NotNull String dataSetName, @NotNull String wherePart) {
+        String queryText = String.format(DISPLAY_QUERY, dataSetName);
+        if (!wherePart.isBlank()) {
+            queryText += " AND " + wherePart;
+        }
+        return queryText;
+    }
+
+    /**
+     * check a query against the H2 dialect
+     *
+     * @param queryText the query
+     * @return the validation errors, empty if it is fine
+     */
+    public synchronized @NotNull List<String> validate(@NotNull String queryText) {
+        List<String> errors = validations.get(queryText);
+        if (errors == null) {
+            Validation validation = new Validation(Collections.singletonList(DatabaseType.H2), queryText);
+            errors = validation.validate()
+                    .stream()
+                    .map(ValidationError::toString)
+                    .collect(Collectors.toUnmodifiableList());
+            validations.put(queryText, errors);
+        }
+        return errors;
+    }
+
+    /**
+     * run a where clause against a dataset
+     *
+     * @param dataSetName the dataset
+     * @param wherePart   the user's where clause, may be empty
+     * @param updater     where progress messages go
+     * @param canceller   used to stop the query
+     * @return what was found
+     */
+    public @NotNull AdvancedQueryResult runQuery(@NotNull String dataSetName,
+                                                 @NotNull String wherePart,
+                                                 @NotNull ProgressUpdater updater,
+                                                 @NotNull QueryCanceller canceller) {
+        long start = System.currentTimeMillis();
+        AdvancedQueryResult result = new AdvancedQueryResult();
+        result.setRowLimit(maxRows);
+
+        updater.updateTaskInfo("running query");
+        List<UUID> ids = findIds(dataSetName, wherePart, canceller, result);
+        result.setExecutionMillis(System.currentTimeMillis() - start);
+        if (ids.size() > maxRows) {
+            result.setTruncated(true);
+            ids = ids.subList(0, maxRows);
+        }
+        result.setRowCount(ids.size());
+
+        if (!result.isTimedOut() && !result.isCancelled()) {
+            for (int from = 0; from < ids.size(); from += pageSize) {
+                if (canceller.isCancelled()) {
+                    result.setCancelled(true);
+                    break;
+                }
+                List<UUID> page = ids.subList(from, Math.min(from + pageSize, ids.size()));
+                List<StarObject> stars = readOnlyTransaction.execute(status -> entityManager
+                        .createQuery("SELECT s FROM STAR_OBJ s WHERE s.id IN :ids", StarObject.class)
+                        .setParameter("ids", page)
+                        .getResultList());
+                if (stars != null) {
+                    // IN hands them back in whatever order it likes, put them back in the order of the user's query
+                    Map<UUID, StarObject> starsById = new HashMap<>();
+                    stars.forEach(star -> starsById.put(star.getId(), star));
+                    for (UUID id : page) {
+                        StarObject star = starsById.get(id);
+                        if (star != null) {
+                            result.getStars().add(star);
+                        }
+                    }
+                }
+                updater.updateTaskInfo(String.format("loaded %d of %d stars", result.getStars().size(), ids.size()));
+            }
+        }
+
+        result.setTotalMillis(System.currentTimeMillis() - start);
+        log.info("advanced query on {}: {}", dataSetName, result.getSummary());
+        return result;
+    }
+
+    /**
+     * run the statement and collect the ids, one more than the cap so we can tell it was cut short
+     */
+    private @NotNull List<UUID> findIds(@NotNull String dataSetName,
+                                        @NotNull String wherePart,
+                                        @NotNull QueryCanceller canceller,
+                                        @NotNull AdvancedQueryResult result) {
+        String idQuery = wherePart.isBlank() ? ID_QUERY : ID_QUERY + " AND " + wherePart;
+        List<UUID> ids = new ArrayList<>();
+        readOnlyTransaction.executeWithoutResult(status -> entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(idQuery)) {
+                canceller.attach(statement);
+                statement.setQueryTimeout(timeoutSeconds);
+                statement.setMaxRows(maxRows + 1);
+                statement.setFetchSize(pageSize);
+                statement.setString(1, dataSetName);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        if (canceller.isCancelled()) {
+                            result.setCancelled(true);
+                            break;
+                        }
+                        ids.add(resultSet.getObject(1, UUID.class));
+                    }
+                }
+            } catch (SQLException e) {
+                if (!QUERY_CANCELED_STATE.equals(e.getSQLState())) {
+                    throw e;
+                }
+                if (canceller.isCancelled()) {
+                    result.setCancelled(true);
+                } else {
+                    result.setTimedOut(true);
+                }
+            } finally {
+                canceller.detach();
+            }
+        }));
+        return ids;
+    }
+
+}
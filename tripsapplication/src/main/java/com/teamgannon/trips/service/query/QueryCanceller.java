@@ -0,0 +1,60 @@
+package com.teamgannon.trips.service.query;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * lets the ui stop an advanced query that is running on another thread
+ * <p>
+ * a statement that is still executing is cancelled through JDBC, otherwise the query stops at the next
+ * row or page it reads
+ */
+@Slf4j
+public class QueryCanceller {
+
+    private volatile boolean cancelled = false;
+
+    private volatile @Nullable Statement statement;
+
+    /**
+     * stop the query
+     */
+    public void cancel() {
+        cancelled = true;
+        cancelStatement(statement);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * the statement that is about to run, cancelled straight away if we were asked to stop already
+     */
+    void attach(@NotNull Statement statement) {
+        this.statement = statement;
+        if (cancelled) {
+            cancelStatement(statement);
+        }
+    }
+
+    void detach() {
+        statement = null;
+    }
+
+    private void cancelStatement(@Nullable Statement current) {
+        if (current == null) {
+            return;
+        }
+        try {
+            current.cancel();
+        } catch (SQLException e) {
+            log.warn("couldn't cancel the running query because of {}", e.getMessage());
+        }
+    }
+
+}
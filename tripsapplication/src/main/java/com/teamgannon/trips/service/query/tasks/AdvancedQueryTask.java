@@ -0,0 +1,47 @@
+package com.teamgannon.trips.service.query.tasks;
+
+import com.teamgannon.trips.service.importservices.tasks.ProgressUpdater;
+import com.teamgannon.trips.service.query.AdvancedQueryResult;
+import com.teamgannon.trips.service.query.AdvancedQueryService;
+import com.teamgannon.trips.service.query.QueryCanceller;
+import javafx.concurrent.Task;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+@Slf4j
+public class AdvancedQueryTask extends Task<AdvancedQueryResult> implements ProgressUpdater {
+
+    private final AdvancedQueryService advancedQueryService;
+    private final String dataSetName;
+    private final String wherePart;
+    private final QueryCanceller canceller = new QueryCanceller();
+
+    public AdvancedQueryTask(AdvancedQueryService advancedQueryService, String dataSetName, String wherePart) {
+        this.advancedQueryService = advancedQueryService;
+        this.dataSetName = dataSetName;
+        this.wherePart = wherePart;
+    }
+
+    /**
+     * run the query
+     *
+     * @return what was found, flagged if it was cancelled or timed out
+     */
+    @Override
+    protected @NotNull AdvancedQueryResult call() throws Exception {
+        return advancedQueryService.runQuery(dataSetName, wherePart, this, canceller);
+    }
+
+    /**
+     * stop the query, the task still completes and returns what it has so far
+     */
+    public void cancelQuery() {
+        log.warn("advanced query on {} cancelled", dataSetName);
+        canceller.cancel();
+    }
+
+    @Override
+    public void updateTaskInfo(String message) {
+        updateMessage(message + "  ");
+    }
+}
@@ -0,0 +1,233 @@
+package com.teamgannon.trips.service.routes;
+
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.jpa.model.RouteObject;
+import com.teamgannon.trips.jpa.repository.DataSetDescriptorRepository;
+import com.teamgannon.trips.jpa.repository.RouteObjectRepository;
+import com.teamgannon.trips.routing.Route;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * stores the routes of each dataset in the ROUTE and ROUTE_STAR tables
+ * <p>
+ * routes used to be a JSON string on the dataset descriptor that was parsed on every read and rewritten
+ * on every change. Each route is now its own row so adding, editing or removing one only touches that
+ * route. The JSON form is still what goes in and out of export files, {@link #adoptLegacyRoutes(String)}
+ * turns it into rows after an import or when an old database is opened.
+ */
+@Slf4j
+@Service
+public class RouteService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final RouteObjectRepository routeObjectRepository;
+
+    private final DataSetDescriptorRepository dataSetDescriptorRepository;
+
+    public RouteService(RouteObjectRepository routeObjectRepository,
+                        DataSetDescriptorRepository dataSetDescriptorRepository) {
+        this.routeObjectRepository = routeObjectRepository;
+        this.dataSetDescriptorRepository = dataSetDescriptorRepository;
+    }
+
+    /**
+     * get the routes of a dataset
+     *
+     * @param dataSetName the dataset
+     * @return the routes in the order they were made
+     */
+    @Transactional(readOnly = true)
+    public @NotNull List<Route> getRoutes(@NotNull String dataSetName) {
+        return routeObjectRepository.findByDataSetName(dataSetName)
+                .stream()
+                .map(RouteObject::toRoute)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * get the routes of a dataset as the JSON that export files carry
+     *
+     * @param dataSetName the dataset
+     * @return the routes as JSON
+     */
+    @Transactional(readOnly = true)
+    public @NotNull String getRoutesJson(@NotNull String dataSetName) {
+        return new Route().convertToJson(getRoutes(dataSetName));
+    }
+
+    /**
+     * find every route that passes through a star
+     *
+     * @param starId the star
+     * @return the routes
+     */
+    @Transactional(readOnly = true)
+    public @NotNull List<Route> getRoutesThroughStar(@NotNull UUID starId) {
+        List<Route> routes = new ArrayList<>();
+        for (RouteObject routeObject : routeObjectRepository.findAllById(routeObjectRepository.findRouteIdsByStarId(starId))) {
+            routes.add(routeObject.toRoute());
+        }
+        return routes;
+    }
+
+    /**
+     * add a route to the end of a dataset's routes
+     *
+     * @param dataSetName the dataset
+     * @param route       the route
+     */
+    @Transactional
+    public void addRoute(@NotNull String dataSetName, @NotNull Route route) {
+        DataSetDescriptor descriptor = dataSetDescriptorRepository.findByDataSetName(dataSetName);
+        if (descriptor == null) {
+            log.error("can't add route {} to non existent dataset {}", route.getRouteName(), dataSetName);
+            return;
+        }
+        int routeOrder = routeObjectRepository.findLastRouteOrder(dataSetName) + 1;
+        routeObjectRepository.save(RouteObject.fromRoute(route, descriptor, routeOrder));
+        updateRouteCount(dataSetName);
+    }
+
+    /**
+     * change how a route is shown
+     *
+     * @param routeId the route
+     * @param name    the new name
+     * @param color   the new color
+     * @param notes   the new notes
+     * @return true if there was such a route
+     */
+    @Transactional
+    public boolean updateRoute(@NotNull UUID routeId, String name, String color, String notes) {
+        Optional<RouteObject> routeOptional = routeObjectRepository.findById(routeId);
+        if (routeOptional.isEmpty()) {
+            log.error("Attempt to update a non existent route: {}", routeId);
+            return false;
+        }
+        RouteObject routeObject = routeOptional.get();
+        routeObject.setRouteName(name);
+        routeObject.setRouteColor(color);
+        routeObject.setRouteNotes(notes);
+        return true;
+    }
+
+    /**
+     * remove a route
+     *
+     * @param dataSetName the dataset it is in
+     * @param routeId     the route
+     */
+    @Transactional
+    public void deleteRoute(@NotNull String dataSetName, @NotNull UUID routeId) {
+        Optional<RouteObject> routeOptional = routeObjectRepository.findById(routeId);
+        if (routeOptional.isPresent()) {
+            routeObjectRepository.delete(routeOptional.get());
+            updateRouteCount(dataSetName);
+        }
+    }
+
+    /**
+     * remove every route in a dataset
+     *
+     * @param dataSetName the dataset
+     * @return the number of routes removed
+     */
+    @Transactional
+    public int clearRoutes(@NotNull String dataSetName) {
+        routeObjectRepository.deleteRouteStarsByDataSetName(dataSetName);
+        int removed = routeObjectRepository.deleteRoutesByDataSetName(dataSetName);
+        updateRouteCount(dataSetName);
+        return removed;
+    }
+
+    /**
+     * move the routes of a dataset to another one, used when a dataset is renamed
+     *
+     * @param dataSetName    the current dataset
+     * @param newDataSetName the dataset to move them to, its descriptor must already be saved
+     * @return the number of routes moved
+     */
+    @Transactional
+    public int moveRoutes(@NotNull String dataSetName, @NotNull String newDataSetName) {
+        int moved = routeObjectRepository.moveRoutes(dataSetName, newDataSetName);
+        updateRouteCount(dataSetName);
+        updateRouteCount(newDataSetName);
+        return moved;
+    }
+
+    /**
+     * turn the JSON routes on a descriptor into rows
+     * <p>
+     * this is done for descriptors that come in from a file and for those in databases made before the
+     * route tables existed. A route whose id is already taken, say by the dataset this file was exported from,
+     * gets a new id rather than being dropped. The JSON is cleared afterwards, it is only put back on export.
+     *
+     * @param dataSetName the dataset
+     * @return the number of routes added
+     */
+    @Transactional
+    public int adoptLegacyRoutes(@NotNull String dataSetName) {
+        DataSetDescriptor descriptor = dataSetDescriptorRepository.findByDataSetName(dataSetName);
+        if (descriptor == null || descriptor.getRoutesStr() == null) {
+            return 0;
+        }
+        List<Route> routes = parseRoutes(descriptor.getRoutesStr());
+        if (routes == null) {
+            log.error("couldn't read the routes of {}, leaving them as they are", dataSetName);
+            return 0;
+        }
+        int routeOrder = routeObjectRepository.findLastRouteOrder(dataSetName) + 1;
+        int added = 0;
+        for (Route route : routes) {
+            if (route.getUuid() != null && routeObjectRepository.existsById(route.getUuid())) {
+                UUID newId = UUID.randomUUID();
+                log.info("route {} of {} has an id already in use, stored as {}", route.getRouteName(), dataSetName, newId);
+                route.setUuid(newId);
+            }
+            routeObjectRepository.save(RouteObject.fromRoute(route, descriptor, routeOrder++));
+            added++;
+        }
+        descriptor.setRoutesStr(null);
+        dataSetDescriptorRepository.save(descriptor);
+        updateRouteCount(dataSetName);
+        if (added > 0) {
+            log.info("moved {} routes of {} into the route tables", added, dataSetName);
+        }
+        return added;
+    }
+
+    private @Nullable List<Route> parseRoutes(@NotNull String routesStr) {
+        if (routesStr.isBlank()) {
+            return new ArrayList<>();
+        }
+        return new Route().toRoute(routesStr);
+    }
+
+    /**
+     * keep the route count on the descriptor in step without writing the rest of it
+     */
+    private void updateRouteCount(@NotNull String dataSetName) {
+        entityManager.flush();
+        int numberRoutes = (int) routeObjectRepository.countByDataSetName(dataSetName);
+        entityManager.createQuery("UPDATE DataSetDescriptor d SET d.numberRoutes = :numberRoutes " +
+                        "WHERE d.dataSetName = :dataSetName")
+                .setParameter("numberRoutes", numberRoutes)
+                .setParameter("dataSetName", dataSetName)
+                .executeUpdate();
+    }
+
+}
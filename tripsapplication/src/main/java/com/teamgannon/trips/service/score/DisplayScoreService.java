@@ -0,0 +1,211 @@
+package com.teamgannon.trips.service.score;
+
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.jpa.repository.DataSetDescriptorRepository;
+import com.teamgannon.trips.service.cache.StarQueryCache;
+import com.teamgannon.trips.stellarmodelling.DisplayScoreCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * keeps the stored label display score of every star up to date
+ * <p>
+ * the score is worked out when a star is saved, this catches up the stars that were written before that
+ * or by something that bypassed it. A star that has never been scored has a score of 0, every real score
+ * is at least 1.
+ */
+@Slf4j
+@Service
+public class DisplayScoreService {
+
+    /**
+     * the score inputs of a chunk of stars, in id order
+     */
+    private static final String SCORE_INPUT_QUERY =
+            "SELECT s.id, s.orthoSpectralClass, s.commonName, d.catalogIdList, s.polity, " +
+                    "s.worldType, s.fuelType, s.portType, s.populationType, s.techType, s.milSpaceType, s.milPlanType " +
+                    "FROM STAR_OBJ s LEFT JOIN s.details d " +
+                    "WHERE s.dataSetName = :dataSetName %s ORDER BY s.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * each chunk is scored in its own transaction
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    private final DataSetDescriptorRepository dataSetDescriptorRepository;
+
+    /**
+     * the cached plot views carry the score so they have to go when it changes
+     */
+    private final StarQueryCache starQueryCache;
+
+    /**
+     * set while the background job is going so we never run two
+     */
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * how many stars to score per transaction
+     */
+    @Value("${app.score.chunkSize:2000}")
+    private int chunkSize;
+
+    public DisplayScoreService(TransactionTemplate transactionTemplate,
+                               DataSetDescriptorRepository dataSetDescriptorRepository,
+                               StarQueryCache starQueryCache) {
+        this.transactionTemplate = transactionTemplate;
+        this.dataSetDescriptorRepository = dataSetDescriptorRepository;
+        this.starQueryCache = starQueryCache;
+    }
+
+    /**
+     * score every star that does not have a score yet, on a background thread
+     * <p>
+     * this is called once at startup, plots drawn before it finishes just show fewer of the unscored labels
+     */
+    public void rescoreInBackground() {
+        runInBackground(() -> {
+            for (DataSetDescriptor descriptor : dataSetDescriptorRepository.findAll()) {
+                rescoreDataSet(descriptor.getDataSetName(), true);
+            }
+        });
+    }
+
+    /**
+     * score every star in a dataset again, on a background thread
+     * <p>
+     * for when the stored scores no longer match the rules, the plots pick up the new labels as soon as
+     * each chunk is written
+     *
+     * @param dataSetName the dataset
+     * @param onDone      called on the background thread with the number of stars scored, -1 if it failed
+     * @return false if a scoring job is already running and this one was not started
+     */
+    public boolean rescoreDataSetInBackground(@NotNull String dataSetName, @NotNull LongConsumer onDone) {
+        return runInBackground(() -> {
+            long scored = -1;
+            try {
+                scored = rescoreDataSet(dataSetName, false);
+            } finally {
+                onDone.accept(scored);
+            }
+        });
+    }
+
+    private boolean runInBackground(@NotNull Runnable job) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                job.run();
+            } catch (Exception e) {
+                log.error("failed to score stars because of {}", e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, "display-score");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * work out and store the display score of the stars in a dataset
+     *
+     * @param dataSetName  the dataset
+     * @param unscoredOnly true to only score stars that have no score yet, false to score them all
+     * @return the number of stars scored
+     */
+    public long rescoreDataSet(@NotNull String dataSetName, boolean unscoredOnly) {
+        long start = System.currentTimeMillis();
+        long total = 0;
+        UUID lastId = null;
+        while (true) {
+            UUID after = lastId;
+            ScoredChunk chunk = transactionTemplate.execute(status -> scoreChunk(dataSetName, after, unscoredOnly));
+            if (chunk == null || chunk.lastId == null) {
+                break;
+            }
+            total += chunk.count;
+            lastId = chunk.lastId;
+        }
+        if (total > 0) {
+            starQueryCache.invalidate(dataSetName);
+            log.info("scored {} stars in {} in {} ms", total, dataSetName, System.currentTimeMillis() - start);
+        }
+        return total;
+    }
+
+    /**
+     * score the next chunk of stars after an id
+     * <p>
+     * only the inputs to the score are read and only the score column is written, so a star edited while
+     * this runs keeps the edit
+     */
+    private @NotNull ScoredChunk scoreChunk(@NotNull String dataSetName, @Nullable UUID lastId, boolean unscoredOnly) {
+        String conditions = (lastId != null ? "AND s.id > :lastId " : "") + (unscoredOnly ? "AND s.displayScore = 0" : "");
+        TypedQuery<Object[]> query = entityManager.createQuery(String.format(SCORE_INPUT_QUERY, conditions), Object[].class)
+                .setParameter("dataSetName", dataSetName)
+                .setMaxResults(chunkSize);
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+        }
+        List<Object[]> rows = query.getResultList();
+
+        List<UUID> ids = new ArrayList<>(rows.size());
+        List<Double> scores = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ids.add((UUID) row[0]);
+            scores.add(DisplayScoreCalculator.calculate(
+                    (String) row[1], (String) row[2], (String) row[3], (String) row[4],
+                    (String) row[5], (String) row[6], (String) row[7], (String) row[8],
+                    (String) row[9], (String) row[10], (String) row[11]));
+        }
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE STAR_OBJ SET DISPLAY_SCORE = ? WHERE ID = ?")) {
+                for (int i = 0; i < ids.size(); i++) {
+                    statement.setDouble(1, scores.get(i));
+                    statement.setObject(2, ids.get(i));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+
+        return new ScoredChunk(rows.size(), ids.isEmpty() ? null : ids.get(ids.size() - 1));
+    }
+
+    private static class ScoredChunk {
+
+        private final int count;
+
+        private final @Nullable UUID lastId;
+
+        private ScoredChunk(int count, @Nullable UUID lastId) {
+            this.count = count;
+            this.lastId = lastId;
+        }
+    }
+
+}
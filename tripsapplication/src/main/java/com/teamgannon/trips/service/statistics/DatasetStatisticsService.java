@@ -0,0 +1,291 @@
+package com.teamgannon.trips.service.statistics;
+
+import com.teamgannon.trips.dataset.model.DatasetStatistics;
+import com.teamgannon.trips.dataset.model.StarStatisticsSample;
+import com.teamgannon.trips.jpa.model.DataSetDescriptor;
+import com.teamgannon.trips.jpa.model.StarObject;
+import com.teamgannon.trips.jpa.repository.DataSetDescriptorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * computes and maintains the summary statistics of each dataset
+ * <p>
+ * the statistics are computed inside the database, so no stars are pulled into memory, and cached on the
+ * dataset descriptor. Single star edits adjust the cached copy rather than recomputing it.
+ */
+@Slf4j
+@Service
+public class DatasetStatisticsService {
+
+    /**
+     * the grouped pass, one row per one letter spectral class, polity and distance bin
+     * <p>
+     * grouping on the letter rather than the full class keeps the row count down to a few hundred however
+     * many subclasses and luminosity classes the dataset has. The %s is the bin width, which we compute
+     * ourselves so it is safe to inline
+     */
+    private static final String GROUPED_STATISTICS_QUERY =
+            "SELECT SUBSTRING(TRIM(ORTHO_SPECTRAL_CLASS), 1, 1), POLITY, FLOOR(DISTANCE / %s), " +
+                    "COUNT(*), MIN(DISTANCE), MAX(DISTANCE), SUM(DISTANCE), " +
+                    "MIN(X), MAX(X), MIN(Y), MAX(Y), MIN(Z), MAX(Z) " +
+                    "FROM STAR_OBJ WHERE DATA_SET_NAME = ?1 " +
+                    "GROUP BY SUBSTRING(TRIM(ORTHO_SPECTRAL_CLASS), 1, 1), POLITY, FLOOR(DISTANCE / %s)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DataSetDescriptorRepository dataSetDescriptorRepository;
+
+    /**
+     * the number of bins the distance histogram is split into when it is computed
+     */
+    @Value("${app.statistics.histogramBins:20}")
+    private int histogramBins;
+
+    public DatasetStatisticsService(DataSetDescriptorRepository dataSetDescriptorRepository) {
+        this.dataSetDescriptorRepository = dataSetDescriptorRepository;
+    }
+
+    /**
+     * compute the statistics for a dataset
+     * <p>
+     * the maximum distance comes straight off the dataset/distance index, everything else is one grouped
+     * scan of the dataset that we fold together here
+     *
+     * @param dataSetName the dataset
+     * @return the statistics
+     */
+    @Transactional(readOnly = true)
+    public @NotNull DatasetStatistics computeStatistics(@NotNull String dataSetName) {
+        long start = System.currentTimeMillis();
+        DatasetStatistics statistics = new DatasetStatistics();
+
+        Number maxDistance = (Number) entityManager
+                .createNativeQuery("SELECT MAX(DISTANCE) FROM STAR_OBJ WHERE DATA_SET_NAME = ?1")
+                .setParameter(1, dataSetName)
+                .getSingleResult();
+        if (maxDistance == null) {
+            return statistics;
+        }
+        double binWidth = maxDistance.doubleValue() > 0 ? maxDistance.doubleValue() / histogramBins : 1;
+        statistics.setHistogramBinWidth(binWidth);
+        statistics.setHistogramBins(histogramBins);
+
+        String binLiteral = Double.toString(binWidth);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager
+                .createNativeQuery(String.format(GROUPED_STATISTICS_QUERY, binLiteral, binLiteral))
+                .setParameter(1, dataSetName)
+                .getResultList();
+
+        List<Long> histogram = new ArrayList<>();
+        boolean first = true;
+        for (Object[] row : rows) {
+            long count = ((Number) row[3]).longValue();
+            if (first) {
+                statistics.setMinDistance(number(row[4]));
+                statistics.setMaxDistance(number(row[5]));
+                statistics.setMinX(number(row[7]));
+                statistics.setMaxX(number(row[8]));
+                statistics.setMinY(number(row[9]));
+                statistics.setMaxY(number(row[10]));
+                statistics.setMinZ(number(row[11]));
+                statistics.setMaxZ(number(row[12]));
+                first = false;
+            } else {
+                statistics.setMinDistance(Math.min(statistics.getMinDistance(), number(row[4])));
+                statistics.setMaxDistance(Math.max(statistics.getMaxDistance(), number(row[5])));
+                statistics.setMinX(Math.min(statistics.getMinX(), number(row[7])));
+                statistics.setMaxX(Math.max(statistics.getMaxX(), number(row[8])));
+                statistics.setMinY(Math.min(statistics.getMinY(), number(row[9])));
+                statistics.setMaxY(Math.max(statistics.getMaxY(), number(row[10])));
+                statistics.setMinZ(Math.min(statistics.getMinZ(), number(row[11])));
+                statistics.setMaxZ(Math.max(statistics.getMaxZ(), number(row[12])));
+            }
+            statistics.setCount(statistics.getCount() + count);
+            statistics.setSumDistance(statistics.getSumDistance() + number(row[6]));
+            statistics.getSpectralClassCounts().merge(DatasetStatistics.spectralClassKey((String) row[0]), count, Long::sum);
+            statistics.getPolityCounts().merge(DatasetStatistics.categoryKey((String) row[1]), count, Long::sum);
+
+            // the farthest star sits right on the upper edge of the last bin
+            int bin = Math.min(Math.max(0, (int) number(row[2])), histogramBins - 1);
+            while (histogram.size() <= bin) {
+                histogram.add(0L);
+            }
+            histogram.set(bin, histogram.get(bin) + count);
+        }
+        statistics.setDistanceHistogram(histogram);
+
+        log.info("statistics for {} computed from {} groups in {} ms",
+                dataSetName, rows.size(), System.currentTimeMillis() - start);
+        return statistics;
+    }
+
+    /**
+     * recompute the statistics of a dataset and store them on its descriptor
+     * <p>
+     * the star count and distance range of the descriptor are brought in line as well
+     *
+     * @param descriptor the dataset, this instance is updated too
+     * @return the new statistics
+     */
+    @Transactional
+    public @NotNull DatasetStatistics refreshStatistics(@NotNull DataSetDescriptor descriptor) {
+        DatasetStatistics statistics = computeStatistics(descriptor.getDataSetName());
+        DataSetDescriptor stored = dataSetDescriptorRepository.findByDataSetName(descriptor.getDataSetName());
+        if (stored != null) {
+            applyStatistics(stored, statistics);
+            dataSetDescriptorRepository.save(stored);
+        }
+        applyStatistics(descriptor, statistics);
+        return statistics;
+    }
+
+    /**
+     * get the statistics of a dataset, recomputing them only if they are missing or stale
+     *
+     * @param descriptor the dataset, this instance is brought up to date with the stored statistics
+     * @return the statistics
+     */
+    @Transactional
+    public @NotNull DatasetStatistics getStatistics(@NotNull DataSetDescriptor descriptor) {
+        DataSetDescriptor stored = dataSetDescriptorRepository.findByDataSetName(descriptor.getDataSetName());
+        DatasetStatistics statistics = stored != null ? stored.getStatistics() : null;
+        if (statistics == null || statistics.isStale()) {
+            return refreshStatistics(descriptor);
+        }
+        applyStatistics(descriptor, statistics);
+        return statistics;
+    }
+
+    /**
+     * make sure every dataset has statistics
+     * <p>
+     * this is called once at startup so descriptors from older versions get them
+     */
+    @Transactional
+    public void ensureStatistics() {
+        for (DataSetDescriptor descriptor : dataSetDescriptorRepository.findAll()) {
+            DatasetStatistics statistics = descriptor.getStatistics();
+            if (statistics == null || statistics.isStale()) {
+                refreshStatistics(descriptor);
+            }
+        }
+    }
+
+    /**
+     * read the values of a star that the statistics depend on, as they are stored now
+     *
+     * @param id the star id
+     * @return the sample or null if there is no such star
+     */
+    @Transactional(readOnly = true)
+    public @Nullable StarStatisticsSample sampleStar(@NotNull UUID id) {
+        List<StarStatisticsSample> samples = entityManager.createQuery(
+                        "SELECT new com.teamgannon.trips.dataset.model.StarStatisticsSample(" +
+                                "s.distance, s.x, s.y, s.z, s.orthoSpectralClass, s.polity) " +
+                                "FROM STAR_OBJ s WHERE s.id = :id", StarStatisticsSample.class)
+                .setParameter("id", id)
+                .getResultList();
+        return samples.isEmpty() ? null : samples.get(0);
+    }
+
+    /**
+     * a star was added to a dataset
+     *
+     * @param starObject the new star
+     */
+    @Transactional
+    public void starAdded(@NotNull StarObject starObject) {
+        adjust(starObject.getDataSetName(), null, StarStatisticsSample.fromStarObject(starObject));
+    }
+
+    /**
+     * a star in a dataset was changed
+     *
+     * @param dataSetName the dataset
+     * @param before      the star values before the change, null if unknown
+     * @param starObject  the star after the change
+     */
+    @Transactional
+    public void starUpdated(@NotNull String dataSetName, @Nullable StarStatisticsSample before, @NotNull StarObject starObject) {
+        if (before == null) {
+            markStale(dataSetName);
+            return;
+        }
+        adjust(dataSetName, before, StarStatisticsSample.fromStarObject(starObject));
+    }
+
+    /**
+     * a star was removed from a dataset
+     *
+     * @param dataSetName the dataset
+     * @param before      the star values before it was removed
+     */
+    @Transactional
+    public void starRemoved(@NotNull String dataSetName, @NotNull StarStatisticsSample before) {
+        adjust(dataSetName, before, null);
+    }
+
+    /**
+     * flag the statistics of a dataset for recomputation, used after bulk changes
+     *
+     * @param dataSetName the dataset
+     */
+    @Transactional
+    public void markStale(@NotNull String dataSetName) {
+        DataSetDescriptor stored = dataSetDescriptorRepository.findByDataSetName(dataSetName);
+        if (stored != null && stored.getStatistics() != null) {
+            DatasetStatistics statistics = stored.getStatistics();
+            statistics.setStale(true);
+            stored.setStatistics(statistics);
+            dataSetDescriptorRepository.save(stored);
+        }
+    }
+
+    private void adjust(@NotNull String dataSetName,
+                        @Nullable StarStatisticsSample removed,
+                        @Nullable StarStatisticsSample added) {
+        DataSetDescriptor stored = dataSetDescriptorRepository.findByDataSetName(dataSetName);
+        if (stored == null) {
+            return;
+        }
+        DatasetStatistics statistics = stored.getStatistics();
+        if (statistics == null) {
+            // nothing cached yet, it gets computed in full the next time it is asked for
+            return;
+        }
+        if (removed != null) {
+            statistics.remove(removed);
+        }
+        if (added != null) {
+            statistics.add(added);
+        }
+        applyStatistics(stored, statistics);
+        dataSetDescriptorRepository.save(stored);
+    }
+
+    private void applyStatistics(@NotNull DataSetDescriptor descriptor, @NotNull DatasetStatistics statistics) {
+        descriptor.setStatistics(statistics);
+        descriptor.setNumberStars(statistics.getCount());
+        if (!statistics.isStale() && statistics.getCount() > 0) {
+            descriptor.setDistanceRange(statistics.getMaxDistance());
+        }
+    }
+
+    private double number(Object value) {
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+}
@@ -6,6 +6,7 @@ import com.teamgannon.trips.config.application.TripsContext;
 import com.teamgannon.trips.config.application.model.ColorPalette;
 import com.teamgannon.trips.config.application.model.SerialFont;
 import com.teamgannon.trips.dialogs.routing.RouteDialog;
+import com.teamgannon.trips.graphics.AstrographicTransformer;
 import com.teamgannon.trips.graphics.StarNotesDialog;
 import com.teamgannon.trips.graphics.entities.CustomObjectFactory;
 import com.teamgannon.trips.graphics.entities.RouteDescriptor;
@@ -18,6 +19,7 @@ import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.listener.*;
 import com.teamgannon.trips.objects.MeshViewShapeFactory;
 import com.teamgannon.trips.routing.RouteManager;
+import com.teamgannon.trips.transits.TransitManager;
 import com.teamgannon.trips.routing.RoutingType;
 import com.teamgannon.trips.routing.dialogs.ContextAutomatedRoutingDialog;
 import com.teamgannon.trips.routing.dialogs.ContextManualRoutingDialog;
@@ -147,6 +149,11 @@ public class StarPlotManager {
      */
     private RouteManager routeManager;
 
+    /**
+     * reference to the Transit Manager, kept up to date when a star is edited or deleted
+     */
+    private @Nullable TransitManager transitManager;
+
 
     private double controlPaneOffset;
 
@@ -357,6 +364,10 @@ public class StarPlotManager {
         this.routeManager = routeManager;
     }
 
+    public void setTransitManager(@Nullable TransitManager transitManager) {
+        this.transitManager = transitManager;
+    }
+
 
     /**
      * clear the stars from the display
@@ -523,7 +534,7 @@ public class StarPlotManager {
         );
 
         // re-plot routes
-        routeManager.plotRoutes(tripsContext.getCurrentPlot().getDataSetDescriptor().getRoutes());
+        routeManager.plotRoutes(databaseListener.getRoutes(tripsContext.getCurrentPlot().getDataSetDescriptor()));
 
     }
 
@@ -995,6 +1006,9 @@ public class StarPlotManager {
     private void removeNode(@NotNull StarDisplayRecord starDisplayRecord) {
         log.info("Removing object for:" + starDisplayRecord.getStarName());
         databaseListener.removeStar(starDisplayRecord.getRecordId());
+        if (transitManager != null) {
+            transitManager.removeStar(starDisplayRecord.getRecordId());
+        }
     }
 
 
@@ -1008,7 +1022,12 @@ public class StarPlotManager {
         editPropertiesMenuItem.setOnAction(event -> {
             StarDisplayRecord starDisplayRecord = (StarDisplayRecord) star.getUserData();
             StarDisplayRecord editRecord = editProperties(starDisplayRecord);
-            star.setUserData(editRecord);
+            if (editRecord != null) {
+                star.setUserData(editRecord);
+                if (transitManager != null) {
+                    transitManager.updateStar(editRecord);
+                }
+            }
 
         });
         return editPropertiesMenuItem;
@@ -1032,7 +1051,7 @@ public class StarPlotManager {
                 StarObject record = status.getRecord();
                 StarDisplayRecord record1 = StarDisplayRecord.fromStarObject(record, starDisplayPreferences);
                 if (record1 != null) {
-                    record1.setCoordinates(starDisplayRecord.getCoordinates());
+                    record1.setCoordinates(screenCoordinates(record1, starDisplayRecord.getCoordinates()));
                     log.info("Changed value: {}", record);
                     databaseListener.updateStar(record);
                 } else {
@@ -1048,6 +1067,22 @@ public class StarPlotManager {
         return null;
     }
 
+    /**
+     * where an edited star belongs on screen, the edit may have moved it
+     *
+     * @param record   the edited star
+     * @param fallback where it was, used when there is no plot scaling to go by
+     * @return the screen coordinates
+     */
+    private @NotNull Point3D screenCoordinates(@NotNull StarDisplayRecord record, @NotNull Point3D fallback) {
+        AstrographicTransformer transformer = tripsContext.getCurrentPlot().getAstrographicTransformer();
+        if (transformer == null || transformer.getScalingParameters() == null) {
+            return fallback;
+        }
+        double[] screenOrds = transformer.transformOrds(record.getActualCoordinates());
+        return new Point3D(screenOrds[0], screenOrds[1], screenOrds[2]);
+    }
+
     /**
      * create a menuitem to show properties
      *
@@ -1372,6 +1407,13 @@ public class StarPlotManager {
         MenuItem menuItem = new MenuItem("Edit notes on this star");
         menuItem.setOnAction(event -> {
             StarDisplayRecord starDescriptor = (StarDisplayRecord) star.getUserData();
+            // the plot projection does not carry the notes so read them when asked for
+            if (starDescriptor.getNotes() == null || starDescriptor.getNotes().isBlank()) {
+                StarObject starObject = databaseListener.getStar(starDescriptor.getRecordId());
+                if (starObject != null) {
+                    starDescriptor.setNotes(starObject.getNotes());
+                }
+            }
             StarNotesDialog notesDialog = new StarNotesDialog(starDescriptor.getNotes());
             notesDialog.setTitle("Edit notes for " + starDescriptor.getStarName());
             Optional<String> notesOptional = notesDialog.showAndWait();
@@ -0,0 +1,249 @@
+package com.teamgannon.trips.stellarmodelling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.Pattern;
+
+/**
+ * works out the heuristic score that decides which star labels get shown on a plot
+ * <p>
+ * score = base score from the spectral and luminosity class * multiplier from names, catalogs and fiction
+ */
+@Slf4j
+public class DisplayScoreCalculator {
+
+    /**
+     * match the pattern * nnn Con
+     * nnn for 3 digits
+     */
+    private static final Pattern flamsteedPattern = Pattern.compile("[\\*] +[0-9]{3} +[a-zA-Z]{3}");
+
+    /**
+     * match the pattern * ggg Con
+     * ggg for 3 characters
+     */
+    private static final Pattern bayerPattern = Pattern.compile("[\\*] +[a-zA-Z]{3} +[a-zA-Z]{3}");
+
+    private DisplayScoreCalculator() {
+    }
+
+    /**
+     * calculate the display score
+     *
+     * @param orthoSpectralClass the spectral class
+     * @param commonName         the common name
+     * @param catalogIdList      the raw catalog id list
+     * @param polity             the polity
+     * @param fictionalTypes     the world, fuel, port, population, tech and military types
+     * @return the display score
+     */
+    public static double calculate(@Nullable String orthoSpectralClass,
+                                   @Nullable String commonName,
+                                   @Nullable String catalogIdList,
+                                   @Nullable String polity,
+                                   String... fictionalTypes) {
+        return calculateBaseScore(orthoSpectralClass) * calculateLabelMultiplier(commonName, catalogIdList, polity, fictionalTypes);
+    }
+
+    /**
+     * calculate the display score multiplier from the names and catalog ids
+     * <p>
+     * PLX 3278
+     * |* alf Cen C
+     * |2E 1426.0-6227
+     * |2E  3278
+     * |2RE J142946-624031
+     * |2RE J1429-624
+     * |CCDM J14396-6050C
+     * |CSI-62-14263
+     * |CSV   2142
+     * |Ci 20  861
+     * |GEN# +6.10010551
+     * |GEN# +6.00105721
+     * |GJ   551
+     * |HIC  70890
+     * |HIP  70890
+     * |IRAS 14260-6227
+     * |JP11  5156
+     * |JP11  5155
+     * |JP11  5187
+     * |LFT 1110
+     * |LHS    49
+     * |LPM 526
+     * |LTT  5721
+     * |NAME Proxima Cen
+     * |NAME Proxima
+     * |NAME Proxima Centauri
+     * |NLTT 37460
+     * |PM 14263-6228
+     * |RE J1429-624
+     * |RE J142950-624056
+     * |V* V645 Cen
+     * |Zkh 211
+     * |[AOP94]  6
+     * |[FS2003] 0708
+     * |[GKL99] 301
+     * |[RHG95]  2291
+     * |2MASS J14294291-6240465
+     * |PLX 3278.00
+     * |1E 1425.9-6228
+     * |1ES 1426-62.4
+     * |1RXS J142947.9-624058
+     * |2EUVE J1429-62.6
+     * |EUVE J1429-62.6
+     * |EUVE J1430-62.6
+     * |RX J1429.7-6240
+     * |WDS J14396-6050C
+     * |PMSC 14328-6025C
+     * |Gaia DR2 5853498713160606720
+     * |WISEA J142937.35-624038.3
+     * |GALEX 6387417244251458613
+     * |PM J14297-6240
+     *
+     * @param commonName     the common name
+     * @param catalogIdList  the raw catalog id list
+     * @param polity         the polity
+     * @param fictionalTypes the world, fuel, port, population, tech and military types
+     * @return the multiplier
+     */
+    private static double calculateLabelMultiplier(@Nullable String commonName,
+                                                   @Nullable String catalogIdList,
+                                                   @Nullable String polity,
+                                                   String... fictionalTypes) {
+
+        double cumulativeTotal = 0;
+        String catalogIds = catalogIdList != null ? catalogIdList : "";
+
+        // 1. Is there something in the Common Name field?
+        if (commonName != null && !commonName.isEmpty()) {
+            cumulativeTotal += 3;
+        }
+
+        // 2. Does the star have a Flamsteed catalog ID?
+        //      In the CatalogID field there will be a value of "* nnn Con"
+        //      where nnn is an integer and Con is a constellation Abbreviation
+        if (flamsteedPattern.matcher(catalogIds).find()) {
+            cumulativeTotal += 3;
+        }
+
+        // 3. Does the star have a Bayer catalog ID?
+        //      "* ggg Con" in CatalogID where GGG is
+        //      a greek letter abbreviation, a-z, or A-Q  and Con is a constellation abbreviation
+        if (bayerPattern.matcher(catalogIds).find()) {
+            cumulativeTotal += 3;
+        }
+
+        // 4. Is the star in the BD catalog?
+        //      BD and DM are the same thing
+        //      An entry in CatalogID staring with BD+ or BD-
+        if (catalogIds.contains("BD+") || catalogIds.contains("BD-")) {
+            cumulativeTotal += 1.5;
+        }
+
+        // 5. Is the star in the Gliese catalog?
+        //      "GJ " in Catalog ID
+        //      This is tricky. Alph Cen is GJ 559 But because it's binary, Alph Cen A is in GJ as GJ 559A and
+        //      "GJ 559" isn't in the base catalog right now, because Simbad doesn't list it.
+        if (catalogIds.contains("GJ")) {
+            cumulativeTotal += 1.5;
+        }
+
+        // 6. Is the star in Hipparchos?
+        //      "HIP " in Catalog ID
+        //      Same problem. Alpha Cen A is HIP 71683  Alph Cen is not in HIP…
+        if (catalogIds.contains("HIP")) {
+            cumulativeTotal += 1.5;
+        }
+
+        // 7. Is the star in Henry Draper?
+        //      "HD " in Catalog ID?
+        if (catalogIds.contains("HD")) {
+            cumulativeTotal += 1.5;
+        }
+
+        // 8. is there an entry in polity?
+        if (isSet(polity)) {
+            cumulativeTotal += 3;
+        }
+
+        // check if any other fictional item is set
+        if (otherFictionalFieldsPresent(fictionalTypes)) {
+            cumulativeTotal += 3;
+        }
+
+        // 10. If none of the above, make the multiplier one. (1)
+        if (cumulativeTotal == 0) {
+            cumulativeTotal = 1;
+        }
+
+        return cumulativeTotal;
+    }
+
+    private static boolean otherFictionalFieldsPresent(String... fictionalTypes) {
+        for (String fictionalType : fictionalTypes) {
+            if (isSet(fictionalType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSet(@Nullable String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private static double calculateBaseScore(@Nullable String orthoSpectralClass) {
+        int base = 0;
+
+        if (orthoSpectralClass == null) {
+            log.error("could not find stellar class");
+            return 1;
+        }
+
+        StarModel starModel = new StarCreator().parseSpectral(orthoSpectralClass);
+
+        if (starModel.getStellarClass() == null) {
+            log.error("could not find stellar class");
+            return 1;
+        }
+
+        // process harvard spectral class
+        if (orthoSpectralClass.length() > 1) {
+            String harvardSpecClass = starModel.getStellarClass().getValue();
+
+            switch (harvardSpecClass) {
+                case "O", "A", "B" -> base += 2;
+                case "F", "K" -> base += 4;
+                case "G" -> base += 5;
+                case "M" -> base += 3;
+                case "L", "T", "Y" -> base += 1;
+            }
+        }
+
+
+        // process luminosity
+        String luminosityValue = starModel.getLuminosityClass();
+        if (luminosityValue != null && !luminosityValue.isEmpty()) {
+            int lumNum = 1;
+            switch (luminosityValue) {
+                case "I" -> lumNum = 1;
+                case "II" -> lumNum = 2;
+                case "III" -> lumNum = 3;
+                case "IV" -> lumNum = 4;
+                case "V" -> lumNum = 5;
+                case "VI" -> lumNum = 6;
+                case "VII" -> lumNum = 7;
+                case "VIII" -> lumNum = 8;
+                case "IX" -> lumNum = 9;
+                case "X" -> lumNum = 10;
+            }
+            base += (11 - lumNum);
+        } else {
+            base += 1;
+        }
+
+        return base;
+    }
+
+}
@@ -1,5 +1,11 @@
 package com.teamgannon.trips.stellarmodelling;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * The Harvard Spectral Classification spectral classificaiton type
  * <p>
@@ -346,4 +352,49 @@ public enum StellarType {
         return className;
     }
 
+    /**
+     * the code we store for a spectral class, the ordinal of the longest class name it starts with
+     * <p>
+     * so "G2V" is G, "DA3" is DA and "C-R" is CR. The ordinal is stored on every star, so new types
+     * must only ever be added at the end of this enum
+     *
+     * @param spectralClass the spectral class
+     * @return the code or -1 if it is not one we know
+     */
+    public static short codeOf(String spectralClass) {
+        if (spectralClass == null || spectralClass.isBlank()) {
+            return -1;
+        }
+        String trimmed = spectralClass.trim();
+        StellarType best = null;
+        for (StellarType stellarType : values()) {
+            if (trimmed.startsWith(stellarType.className)
+                    && (best == null || stellarType.className.length() > best.className.length())) {
+                best = stellarType;
+            }
+        }
+        return best == null ? -1 : (short) best.ordinal();
+    }
+
+    /**
+     * the stored codes that a search for these types should match
+     * <p>
+     * a type matches itself and all the types that refine it, so D takes in DA through DZ and C the carbon stars
+     *
+     * @param stellarTypes the types selected
+     * @return the codes
+     */
+    public static @NotNull List<Short> matchingCodes(@NotNull Collection<StellarType> stellarTypes) {
+        List<Short> codes = new ArrayList<>();
+        for (StellarType stellarType : values()) {
+            for (StellarType selected : stellarTypes) {
+                if (stellarType.className.startsWith(selected.className)) {
+                    codes.add((short) stellarType.ordinal());
+                    break;
+                }
+            }
+        }
+        return codes;
+    }
+
 }
@@ -4,7 +4,7 @@ import com.teamgannon.trips.dataset.enums.SortParameterEnum;
 import com.teamgannon.trips.jpa.model.StarObject;
 import com.teamgannon.trips.screenobjects.StarEditDialog;
 import com.teamgannon.trips.screenobjects.StarEditStatus;
-import com.teamgannon.trips.service.DatabaseManagementService;
+import com.teamgannon.trips.service.async.AsyncDatabaseService;
 import javafx.beans.Observable;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -56,7 +56,10 @@ public class DataSetTable {
     private final TableColumn<StarEditRecord, String> realCol = new TableColumn<>("Real");
     private final TableColumn<StarEditRecord, String> commentCol = new TableColumn<>("comment");
     private final Map<UUID, StarObject> astrographicObjectMap = new HashMap<>();
-    private final DatabaseManagementService databaseManagementService;
+    /**
+     * the reads and writes of single stars go through this so the table never waits on the database
+     */
+    private final AsyncDatabaseService asyncDatabaseService;
     private final String dataSetName;
     private final @NotNull Dialog<String> dialog;
     private int pageNumber = 1;
@@ -73,13 +76,13 @@ public class DataSetTable {
     /**
      * the constructor that we use to show the data
      *
-     * @param databaseManagementService the database management service
-     * @param starObjects               the list of objects
+     * @param asyncDatabaseService the background database service
+     * @param starObjects          the list of objects
      */
-    public DataSetTable(DatabaseManagementService databaseManagementService,
+    public DataSetTable(AsyncDatabaseService asyncDatabaseService,
                         @NotNull List<StarObject> starObjects) {
 
-        this.databaseManagementService = databaseManagementService;
+        this.asyncDatabaseService = asyncDatabaseService;
 
         this.starObjects = starObjects;
         if (!starObjects.isEmpty()) {
@@ -177,27 +180,10 @@ public class DataSetTable {
         final MenuItem editSelectedMenuItem = new MenuItem("Edit selected");
         editSelectedMenuItem.setOnAction(event -> {
             final StarEditRecord selectedStarEditRecord = tableView.getSelectionModel().getSelectedItem();
-            StarObject starObject = databaseManagementService.getStar(selectedStarEditRecord.getId());
-            if (starObject != null) {
-                StarEditDialog starEditDialog = new StarEditDialog(starObject);
-
-                Optional<StarEditStatus> statusOptional = starEditDialog.showAndWait();
-                if (statusOptional.isPresent()) {
-                    StarEditStatus starEditStatus = statusOptional.get();
-                    if (starEditStatus.isChanged()) {
-                        // update the database
-                        databaseManagementService.updateStar(starEditStatus.getRecord());
-                        // resort
-                        reSort();
-                        // load data base on were we are
-                        loadData();
-                    }
-                }
-            } else {
-                showErrorAlert("Edit Star",
-                        "record:" + selectedStarEditRecord.getId() + " could not be found. This is odd");
-
-            }
+            AsyncDatabaseService.deliverOnFxThread(
+                    asyncDatabaseService.getStar(selectedStarEditRecord.getId()),
+                    starObject -> editStar(selectedStarEditRecord, starObject),
+                    throwable -> showErrorAlert("Edit Star", "Failed to read the star: " + throwable.getMessage()));
         });
 
 
@@ -370,6 +356,36 @@ public class DataSetTable {
         loadData();
     }
 
+    /**
+     * edit a star once it has been read from the database
+     *
+     * @param starEditRecord the table row that was picked
+     * @param starObject     the star as it is stored, null if it is not there
+     */
+    private void editStar(@NotNull StarEditRecord starEditRecord, StarObject starObject) {
+        if (starObject == null) {
+            showErrorAlert("Edit Star",
+                    "record:" + starEditRecord.getId() + " could not be found. This is odd");
+            return;
+        }
+        StarEditDialog starEditDialog = new StarEditDialog(starObject);
+
+        Optional<StarEditStatus> statusOptional = starEditDialog.showAndWait();
+        if (statusOptional.isPresent()) {
+            StarEditStatus starEditStatus = statusOptional.get();
+            if (starEditStatus.isChanged()) {
+                // update the database, then resort and load data base on were we are
+                AsyncDatabaseService.deliverOnFxThread(
+                        asyncDatabaseService.updateStar(starEditStatus.getRecord()),
+                        done -> {
+                            reSort();
+                            loadData();
+                        },
+                        throwable -> showErrorAlert("Edit Star", "Failed to save the star: " + throwable.getMessage()));
+            }
+        }
+    }
+
     /**
      * add a new entry
      */
@@ -389,7 +405,10 @@ public class DataSetTable {
                 // add to our map which backs the list
                 astrographicObjectMap.put(astro.getId(), astro);
                 // add to the database
-                databaseManagementService.addStar(astro);
+                AsyncDatabaseService.deliverOnFxThread(
+                        asyncDatabaseService.addStar(astro),
+                        done -> log.info("star added={}", astro.getId()),
+                        throwable -> showErrorAlert("Add Star", "Failed to save the star: " + throwable.getMessage()));
                 // now that we added an entry, we resort and reset the page views
                 reSort();
                 moveFirst();
@@ -409,13 +428,14 @@ public class DataSetTable {
         astrographicObjectMap.remove(id);
 
         // remove from DB
-        databaseManagementService.removeStar(id);
+        AsyncDatabaseService.deliverOnFxThread(
+                asyncDatabaseService.removeStar(id),
+                done -> log.info("Removed from DB"),
+                throwable -> showErrorAlert("Remove Star", "Failed to remove the star: " + throwable.getMessage()));
 
         resetList();
         reSort();
         loadData();
-
-        log.info("Removed from DB");
     }
 
     /**
@@ -437,6 +457,7 @@ public class DataSetTable {
         if (diff < pageSize) {
             pageSize = diff;
         }
+        Map<UUID, StarEditRecord> needComments = new HashMap<>();
         for (int i = currentPosition; i < (currentPosition + pageSize); i++) {
             StarObject object = starObjects.get(i);
             // check for a crap record
@@ -446,8 +467,35 @@ public class DataSetTable {
             if (!object.getDisplayName().equalsIgnoreCase("name")) {
                 StarEditRecord starEditRecord = StarEditRecord.fromAstrographicObject(object);
                 tableView.getItems().add(starEditRecord);
+                if (starEditRecord.getComment() == null) {
+                    needComments.put(starEditRecord.getId(), starEditRecord);
+                }
             }
         }
+        fillComments(needComments);
+    }
+
+    /**
+     * the stars are loaded without their details, so read the notes of just the rows we are showing
+     *
+     * @param records the rows without a comment by star id
+     */
+    private void fillComments(@NotNull Map<UUID, StarEditRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        AsyncDatabaseService.deliverOnFxThread(
+                asyncDatabaseService.getNotes(new ArrayList<>(records.keySet())),
+                notes -> {
+                    notes.forEach((id, note) -> {
+                        StarEditRecord record = records.get(id);
+                        if (record != null) {
+                            record.setComment(note);
+                        }
+                    });
+                    tableView.refresh();
+                },
+                throwable -> log.error("failed to read the star notes: {}", throwable.getMessage()));
     }
 
     /**
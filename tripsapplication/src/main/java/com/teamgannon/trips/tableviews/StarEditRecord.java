@@ -2,6 +2,7 @@ package com.teamgannon.trips.tableviews;
 
 import com.teamgannon.trips.jpa.model.StarObject;
 import lombok.Data;
+import org.hibernate.Hibernate;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.UUID;
@@ -52,7 +53,10 @@ public class StarEditRecord {
         record.setYCoord(starObject.getY());
         record.setZCoord(starObject.getZ());
         record.setReal(starObject.isRealStar());
-        record.setComment(starObject.getNotes());
+        // stars in lists come without their details, the table fills the comments in separately
+        if (Hibernate.isInitialized(starObject.getDetails())) {
+            record.setComment(starObject.getNotes());
+        }
         return record;
     }
 }
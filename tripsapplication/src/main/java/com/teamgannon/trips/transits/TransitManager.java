@@ -6,6 +6,7 @@ import com.teamgannon.trips.graphics.entities.StarDisplayRecord;
 import com.teamgannon.trips.graphics.panes.InterstellarSpacePane;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.listener.RouteUpdaterListener;
+import com.teamgannon.trips.service.StarMeasurementService;
 import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.SubScene;
@@ -15,6 +16,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class TransitManager {
@@ -79,6 +81,24 @@ public class TransitManager {
     private boolean transitsLengthsOn = true;
     private double controlPaneOffset;
 
+    private final StarMeasurementService starMeasurementService = new StarMeasurementService();
+
+    /**
+     * the enabled bands of the current transits, and their visibility groups in the same order
+     */
+    private final List<TransitRangeDef> activeBands = new ArrayList<>();
+    private final List<TransitRouteVisibilityGroup> activeGroups = new ArrayList<>();
+
+    /**
+     * the stars the current transits were worked out over, by record id
+     */
+    private final Map<UUID, StarDisplayRecord> transitStars = new HashMap<>();
+
+    /**
+     * the dataset the current transits were worked out for
+     */
+    private @Nullable String transitDataSetName;
+
 
     ////////////////
 
@@ -117,24 +137,141 @@ public class TransitManager {
         // set
         transitsLengthsOn = true;
         transitsOn = true;
-        List<TransitRangeDef> transitRangeDefList = transitDefinitions.getTransitRangeDefs();
+        List<TransitRangeDef> enabledBands = transitDefinitions.getTransitRangeDefs()
+                .stream()
+                .filter(TransitRangeDef::isEnabled)
+                .collect(Collectors.toList());
+
+        // one search over the stars finds the transits of every band
+        List<List<TransitRoute>> transitsByBand = starMeasurementService.calculateDistances(enabledBands, starsInView);
+
+        for (int i = 0; i < enabledBands.size(); i++) {
+            TransitRangeDef transitRangeDef = enabledBands.get(i);
+            // create a transit visibilty group
+            TransitRouteVisibilityGroup visibilityGroup = new TransitRouteVisibilityGroup(subScene, interstellarSpacePane,
+                    controlPaneOffset, transitRangeDef, routeUpdaterListener, tripsContext);
+
+            // plot the visibility group
+            visibilityGroup.plotTransit(transitsByBand.get(i));
+
+            // install it
+            installGroup(visibilityGroup);
+            activeGroups.add(visibilityGroup);
+        }
+        activeBands.addAll(enabledBands);
+        indexStars(starsInView, transitStars);
+        transitDataSetName = currentDataSetName();
+        updateLabels(interstellarSpacePane);
 
-        for (TransitRangeDef transitRangeDef : transitRangeDefList) {
-            if (transitRangeDef.isEnabled()) {
-                // create a transit visibilty group
-                TransitRouteVisibilityGroup visibilityGroup = new TransitRouteVisibilityGroup(subScene, interstellarSpacePane,
-                        controlPaneOffset, transitRangeDef, routeUpdaterListener, tripsContext);
+        log.info("done transits");
+    }
 
-                // plot the visibility group
-                visibilityGroup.plotTransit(transitRangeDef, starsInView);
+    /**
+     * a star was deleted, drop its transits
+     *
+     * @param recordId the star
+     */
+    public void removeStar(@NotNull UUID recordId) {
+        if (transitStars.remove(recordId) == null) {
+            return;
+        }
+        for (TransitRouteVisibilityGroup visibilityGroup : activeGroups) {
+            visibilityGroup.applyChanges(new ArrayList<>(visibilityGroup.getRoutesOf(recordId)), Collections.emptyList());
+        }
+        updateLabels(interstellarSpacePane);
+    }
 
-                // install it
-                installGroup(visibilityGroup);
+    /**
+     * a star was edited, measure it again against the other stars and swap its transits
+     *
+     * @param record the edited star
+     */
+    public void updateStar(@NotNull StarDisplayRecord record) {
+        if (!transitStars.containsKey(record.getRecordId())) {
+            return;
+        }
+        transitStars.put(record.getRecordId(), record);
+        updateTransitsOf(Set.of(record.getRecordId()));
+        updateLabels(interstellarSpacePane);
+    }
+
+    /**
+     * the plot was redrawn, recentered or requeried, bring the transits up to date without measuring the
+     * stars that were already in view against each other again
+     * <p>
+     * the transits of stars that left the view are dropped, the rest are pointed at the new star records and
+     * the stars that came into view or moved in space since are measured against everything in view. A
+     * different dataset means starting again, so the transits are cleared.
+     *
+     * @param starsInView the stars now in view
+     */
+    public void updateStarsInView(@NotNull List<StarDisplayRecord> starsInView) {
+        if (activeGroups.isEmpty()) {
+            return;
+        }
+        if (!Objects.equals(transitDataSetName, currentDataSetName())) {
+            clearTransits();
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<UUID, StarDisplayRecord> inView = new HashMap<>();
+        indexStars(starsInView, inView);
+
+        // the screen coordinates of the stars that stayed change if the view moved, the meshes are redrawn then
+        boolean moved = false;
+        Set<UUID> changed = new HashSet<>();
+        for (StarDisplayRecord record : inView.values()) {
+            StarDisplayRecord previous = transitStars.get(record.getRecordId());
+            if (previous == null || !Arrays.equals(previous.getActualCoordinates(), record.getActualCoordinates())) {
+                // new to the view, or edited somewhere else so its distances are not what we measured
+                changed.add(record.getRecordId());
+            } else if (!moved && !Objects.equals(previous.getCoordinates(), record.getCoordinates())) {
+                moved = true;
             }
         }
+        for (TransitRouteVisibilityGroup visibilityGroup : activeGroups) {
+            visibilityGroup.retainStars(inView, moved);
+        }
+        transitStars.clear();
+        transitStars.putAll(inView);
+
+        if (!changed.isEmpty()) {
+            updateTransitsOf(changed);
+        }
         updateLabels(interstellarSpacePane);
+        log.info("kept transits over {} stars, {} new or moved, in {} ms",
+                inView.size(), changed.size(), System.currentTimeMillis() - start);
+    }
 
-        log.info("done transits");
+    /**
+     * measure some stars against all the stars in view and swap in their transits
+     *
+     * @param changed the record ids of the stars
+     */
+    private void updateTransitsOf(@NotNull Set<UUID> changed) {
+        List<List<TransitRoute>> transitsByBand = starMeasurementService.calculateDistances(activeBands,
+                new ArrayList<>(transitStars.values()), changed);
+        for (int i = 0; i < activeGroups.size(); i++) {
+            TransitRouteVisibilityGroup visibilityGroup = activeGroups.get(i);
+            Set<TransitRoute> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (UUID recordId : changed) {
+                removed.addAll(visibilityGroup.getRoutesOf(recordId));
+            }
+            visibilityGroup.applyChanges(removed, transitsByBand.get(i));
+        }
+    }
+
+    private void indexStars(@NotNull List<StarDisplayRecord> starsInView, @NotNull Map<UUID, StarDisplayRecord> index) {
+        for (StarDisplayRecord record : starsInView) {
+            if (record != null && record.getRecordId() != null) {
+                index.put(record.getRecordId(), record);
+            }
+        }
+    }
+
+    private @Nullable String currentDataSetName() {
+        DataSetDescriptor descriptor = tripsContext.getCurrentPlot().getDataSetDescriptor();
+        return descriptor != null ? descriptor.getDataSetName() : null;
     }
 
     /**
@@ -251,6 +388,10 @@ public class TransitManager {
             }
         }
         transitMap.clear();
+        activeBands.clear();
+        activeGroups.clear();
+        transitStars.clear();
+        transitDataSetName = null;
         transitsOn = false;
         labelDisplayGroup.getChildren().clear();
         transitsLengthsOn = false;
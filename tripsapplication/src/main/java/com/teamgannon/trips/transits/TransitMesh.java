@@ -0,0 +1,155 @@
+package com.teamgannon.trips.transits;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Material;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * draws a batch of transits as one mesh
+ * <p>
+ * each transit is a thin three sided prism from the source star to the target star, as thick as its line
+ * weight, so a band of any size is a handful of nodes instead of a cylinder, group, sphere, label, tooltip
+ * and menu per transit. Every transit has the same number of faces, so the face the mouse hit tells us which
+ * transit it was.
+ */
+public class TransitMesh {
+
+    /**
+     * the most transits we put in a single mesh, keeps the arrays handed to the graphics card a sensible size
+     */
+    public static final int MAX_ROUTES_PER_MESH = 20000;
+
+    /**
+     * three sides of two triangles each
+     */
+    private static final int FACES_PER_ROUTE = 6;
+
+    private static final int SIDES = 3;
+
+    private static final Point3D Y_AXIS = new Point3D(0, 1, 0);
+    private static final Point3D X_AXIS = new Point3D(1, 0, 0);
+
+    /**
+     * the transits in this mesh, in face order
+     */
+    private final List<TransitRoute> routes;
+
+    private final MeshView meshView;
+
+    private TransitMesh(@NotNull List<TransitRoute> routes, @NotNull Material material) {
+        this.routes = routes;
+        this.meshView = new MeshView(buildMesh(routes));
+        this.meshView.setMaterial(material);
+        // the prisms are too thin to bother about which way the faces point
+        this.meshView.setCullFace(CullFace.NONE);
+        this.meshView.setUserData(this);
+    }
+
+    /**
+     * build the meshes for a list of transits, sharing one material
+     *
+     * @param transitRoutes the transits
+     * @param material      the material
+     * @return the meshes, one per MAX_ROUTES_PER_MESH transits
+     */
+    public static @NotNull List<TransitMesh> build(@NotNull List<TransitRoute> transitRoutes, @NotNull Material material) {
+        List<TransitMesh> meshes = new ArrayList<>();
+        for (int start = 0; start < transitRoutes.size(); start += MAX_ROUTES_PER_MESH) {
+            int end = Math.min(transitRoutes.size(), start + MAX_ROUTES_PER_MESH);
+            meshes.add(new TransitMesh(new ArrayList<>(transitRoutes.subList(start, end)), material));
+        }
+        return meshes;
+    }
+
+    /**
+     * @return the node to put in the scene
+     */
+    public @NotNull MeshView getMeshView() {
+        return meshView;
+    }
+
+    /**
+     * @return the transits drawn in this mesh, in face order, don't change it
+     */
+    public @NotNull List<TransitRoute> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * find the transit a face belongs to
+     *
+     * @param faceIndex the face from a pick result
+     * @return the transit, null if the face is not one of ours
+     */
+    public @Nullable TransitRoute routeAt(int faceIndex) {
+        if (faceIndex < 0) {
+            return null;
+        }
+        int index = faceIndex / FACES_PER_ROUTE;
+        return index < routes.size() ? routes.get(index) : null;
+    }
+
+    private static @NotNull TriangleMesh buildMesh(@NotNull List<TransitRoute> routes) {
+        float[] points = new float[routes.size() * SIDES * 2 * 3];
+        int[] faces = new int[routes.size() * FACES_PER_ROUTE * 6];
+        int p = 0;
+        int f = 0;
+        for (int r = 0; r < routes.size(); r++) {
+            TransitRoute route = routes.get(r);
+            Point3D origin = route.getSourceEndpoint();
+            Point3D target = route.getTargetEndpoint();
+            double radius = route.getLineWeight();
+
+            Point3D axis = target.subtract(origin).normalize();
+            Point3D across = axis.crossProduct(Math.abs(axis.getY()) > 0.9 ? X_AXIS : Y_AXIS).normalize();
+            Point3D up = axis.crossProduct(across).normalize();
+
+            // the corners round the source end then round the target end
+            for (Point3D end : new Point3D[]{origin, target}) {
+                for (int k = 0; k < SIDES; k++) {
+                    double angle = 2 * Math.PI * k / SIDES;
+                    Point3D corner = end
+                            .add(across.multiply(radius * Math.cos(angle)))
+                            .add(up.multiply(radius * Math.sin(angle)));
+                    points[p++] = (float) corner.getX();
+                    points[p++] = (float) corner.getY();
+                    points[p++] = (float) corner.getZ();
+                }
+            }
+
+            int base = r * SIDES * 2;
+            for (int k = 0; k < SIDES; k++) {
+                int a0 = base + k;
+                int a1 = base + (k + 1) % SIDES;
+                int b0 = a0 + SIDES;
+                int b1 = a1 + SIDES;
+                f = face(faces, f, a0, a1, b1);
+                f = face(faces, f, a0, b1, b0);
+            }
+        }
+
+        TriangleMesh mesh = new TriangleMesh();
+        mesh.getPoints().setAll(points);
+        mesh.getTexCoords().setAll(0, 0);
+        mesh.getFaces().setAll(faces);
+        return mesh;
+    }
+
+    private static int face(int @NotNull [] faces, int f, int p0, int p1, int p2) {
+        faces[f++] = p0;
+        faces[f++] = 0;
+        faces[f++] = p1;
+        faces[f++] = 0;
+        faces[f++] = p2;
+        faces[f++] = 0;
+        return f;
+    }
+
+}
@@ -3,26 +3,21 @@ package com.teamgannon.trips.transits;
 import com.teamgannon.trips.config.application.TripsContext;
 import com.teamgannon.trips.config.application.model.SerialFont;
 import com.teamgannon.trips.dialogs.routing.RouteDialog;
-import com.teamgannon.trips.graphics.entities.RouteDescriptor;
 import com.teamgannon.trips.graphics.entities.StarDisplayRecord;
-import com.teamgannon.trips.graphics.entities.StellarEntityFactory;
+import com.teamgannon.trips.graphics.entities.RouteDescriptor;
 import com.teamgannon.trips.graphics.panes.InterstellarSpacePane;
 import com.teamgannon.trips.jpa.model.DataSetDescriptor;
 import com.teamgannon.trips.listener.RouteUpdaterListener;
-import com.teamgannon.trips.service.StarMeasurementService;
 import javafx.geometry.Bounds;
 import javafx.geometry.Point3D;
 import javafx.scene.Group;
-import javafx.scene.Node;
 import javafx.scene.SubScene;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.paint.Color;
+import javafx.scene.input.PickResult;
 import javafx.scene.paint.PhongMaterial;
-import javafx.scene.shape.Cylinder;
-import javafx.scene.shape.Sphere;
-import javafx.scene.transform.Rotate;
+import javafx.scene.shape.MeshView;
 import javafx.scene.transform.Translate;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +34,16 @@ import static com.teamgannon.trips.support.AlertFactory.showErrorAlert;
 @Data
 public class TransitRouteVisibilityGroup {
 
+    /**
+     * the most transits in a band that still get length labels
+     */
+    private static final int MAX_LABELS = 500;
+
+    /**
+     * how many meshes past what a fresh draw would need before small changes get folded back into a full redraw
+     */
+    private static final int MAX_EXTRA_MESHES = 16;
+
     /**
      * whether this is currently visible
      * just a marker since it doesn't actually actual set the group visibility
@@ -80,9 +85,44 @@ public class TransitRouteVisibilityGroup {
     private List<TransitRoute> transitRouteList = new ArrayList<>();
 
     /**
-     * used to map a given label to a point sphere
+     * each length label and the middle of its transit, in the coordinates of the group
+     */
+    private final Map<Label, Point3D> labelAnchors = new HashMap<>();
+
+    /**
+     * the meshes the transits are drawn in
+     */
+    private final List<TransitMesh> meshes = new ArrayList<>();
+
+    /**
+     * the transits of each star, so the ones touching a star are found without going through the whole band
+     */
+    private final Map<UUID, List<TransitRoute>> routesByStar = new HashMap<>();
+
+    /**
+     * the mesh each transit is drawn in, transits compare by value so this goes by identity
      */
-    private final Map<Node, Label> shapeToLabel = new HashMap<>();
+    private final Map<TransitRoute, TransitMesh> meshOfRoute = new IdentityHashMap<>();
+
+    /**
+     * the length label of each transit, when the labels have been made
+     */
+    private final Map<TransitRoute, Label> routeLabels = new IdentityHashMap<>();
+
+    /**
+     * the band material, shared by all the meshes
+     */
+    private @Nullable PhongMaterial material;
+
+    /**
+     * shared by every transit in the band, the text is set for the transit under the mouse
+     */
+    private final Tooltip tooltip = new Tooltip();
+
+    /**
+     * the length labels are only made when they are first shown
+     */
+    private boolean labelsBuilt = false;
 
     private SubScene subScene;
     private InterstellarSpacePane interstellarSpacePane;
@@ -154,29 +194,185 @@ public class TransitRouteVisibilityGroup {
     public void toggleLabels(boolean show) {
         if (visible) {
             labelGroup.setVisible(show);
+            if (show) {
+                updateLabels(subScene, controlPaneOffset, interstellarSpacePane.getWidth(),
+                        interstellarSpacePane.getHeight(), interstellarSpacePane.getBoundsInParent());
+            }
         }
     }
 
     public void clear() {
-        labelGroup.getChildren().clear();
-        group.getChildren().clear();
-        shapeToLabel.clear();
+        clearGraphics();
+        routesByStar.clear();
         visible = false;
     }
 
+    private void clearGraphics() {
+        clearLabels();
+        group.getChildren().clear();
+        meshes.clear();
+        meshOfRoute.clear();
+    }
+
+    private void clearLabels() {
+        labelGroup.getChildren().clear();
+        labelAnchors.clear();
+        routeLabels.clear();
+        labelsBuilt = false;
+    }
+
 
     /////////////////////////////////////////
 
-    public void plotTransit(TransitRangeDef transitRangeDef, List<StarDisplayRecord> starsInView) {
-        StarMeasurementService starMeasurementService = new StarMeasurementService();
-        List<TransitRoute> transitRoutes = starMeasurementService.calculateDistances(transitRangeDef, starsInView);
+    /**
+     * plot the transits of this band, worked out for all the bands at once by the transit manager
+     *
+     * @param transitRoutes the transits in this band
+     */
+    public void plotTransit(@NotNull List<TransitRoute> transitRoutes) {
         log.info("# of routes found is {}", transitRoutes.size());
 
         MapUtils.populateMap(transitRouteMap,
                 transitRoutes,
                 TransitRoute::getName);
+        transitRouteList = new ArrayList<>(transitRoutes);
+        routesByStar.clear();
+        transitRouteList.forEach(this::indexRoute);
+
+        plotTransitRoutes(transitRouteList);
+    }
+
+    /**
+     * the transits of this band that start or end at a star
+     *
+     * @param recordId the star
+     * @return the transits, empty if there are none
+     */
+    public @NotNull List<TransitRoute> getRoutesOf(@NotNull UUID recordId) {
+        return routesByStar.getOrDefault(recordId, Collections.emptyList());
+    }
+
+    /**
+     * take some transits out of the band and put some new ones in, only the meshes that held a transit that
+     * went are rebuilt, the new transits get meshes of their own
+     *
+     * @param removed the transits to take out
+     * @param added   the transits to put in
+     */
+    public void applyChanges(@NotNull Collection<TransitRoute> removed, @NotNull List<TransitRoute> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        Set<TransitRoute> gone = removeRoutes(removed);
+
+        // rebuild the meshes that held a transit that went, with the transits that are left in them
+        Set<TransitMesh> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TransitRoute transitRoute : gone) {
+            TransitMesh transitMesh = meshOfRoute.remove(transitRoute);
+            if (transitMesh != null) {
+                touched.add(transitMesh);
+            }
+            Label label = routeLabels.remove(transitRoute);
+            if (label != null) {
+                labelAnchors.remove(label);
+                labelGroup.getChildren().remove(label);
+            }
+        }
+        List<TransitRoute> kept = new ArrayList<>();
+        for (TransitMesh transitMesh : touched) {
+            group.getChildren().remove(transitMesh.getMeshView());
+            meshes.remove(transitMesh);
+            for (TransitRoute transitRoute : transitMesh.getRoutes()) {
+                if (!gone.contains(transitRoute)) {
+                    kept.add(transitRoute);
+                }
+            }
+        }
+        drawMeshes(kept);
+
+        MapUtils.populateMap(transitRouteMap, added, TransitRoute::getName);
+        transitRouteList.addAll(added);
+        added.forEach(this::indexRoute);
+        drawMeshes(added);
+
+        if (meshes.size() > transitRouteList.size() / TransitMesh.MAX_ROUTES_PER_MESH + MAX_EXTRA_MESHES) {
+            redraw();
+            return;
+        }
+        if (labelsBuilt) {
+            if (transitRouteList.size() <= MAX_LABELS && routeLabels.size() + added.size() == transitRouteList.size()) {
+                added.forEach(this::addLabel);
+            } else {
+                // the band crossed the label limit, make them again when they are next shown
+                clearLabels();
+            }
+        }
+        updateLabels(subScene, controlPaneOffset, interstellarSpacePane.getWidth(),
+                interstellarSpacePane.getHeight(), interstellarSpacePane.getBoundsInParent());
+    }
 
-        plotTransitRoutes(transitRoutes);
+    /**
+     * keep the transits between stars that are still in view after a replot, pointed at the new records
+     *
+     * @param starsInView the stars now in view by record id
+     * @param moved       true if the stars moved on screen, the band is redrawn, otherwise only the meshes of
+     *                    the transits that went are
+     */
+    public void retainStars(@NotNull Map<UUID, StarDisplayRecord> starsInView, boolean moved) {
+        List<TransitRoute> removed = new ArrayList<>();
+        for (TransitRoute transitRoute : transitRouteList) {
+            StarDisplayRecord source = starsInView.get(transitRoute.getSource().getRecordId());
+            StarDisplayRecord target = starsInView.get(transitRoute.getTarget().getRecordId());
+            if (source == null || target == null) {
+                removed.add(transitRoute);
+            } else {
+                transitRoute.setSource(source);
+                transitRoute.setTarget(target);
+            }
+        }
+        if (moved) {
+            removeRoutes(removed);
+            redraw();
+        } else {
+            applyChanges(removed, Collections.emptyList());
+        }
+    }
+
+    /**
+     * take transits out of the lists and the star index, leaves the graphics alone
+     *
+     * @param removed the transits
+     * @return the transits that were taken out
+     */
+    private @NotNull Set<TransitRoute> removeRoutes(@NotNull Collection<TransitRoute> removed) {
+        Set<TransitRoute> gone = Collections.newSetFromMap(new IdentityHashMap<>());
+        gone.addAll(removed);
+        if (gone.isEmpty()) {
+            return gone;
+        }
+        transitRouteList.removeIf(gone::contains);
+        for (TransitRoute transitRoute : gone) {
+            transitRouteMap.remove(transitRoute.getName(), transitRoute);
+            unindexRoute(transitRoute);
+        }
+        return gone;
+    }
+
+    private void indexRoute(@NotNull TransitRoute transitRoute) {
+        routesByStar.computeIfAbsent(transitRoute.getSource().getRecordId(), id -> new ArrayList<>()).add(transitRoute);
+        routesByStar.computeIfAbsent(transitRoute.getTarget().getRecordId(), id -> new ArrayList<>()).add(transitRoute);
+    }
+
+    private void unindexRoute(@NotNull TransitRoute transitRoute) {
+        for (UUID recordId : List.of(transitRoute.getSource().getRecordId(), transitRoute.getTarget().getRecordId())) {
+            List<TransitRoute> routes = routesByStar.get(recordId);
+            if (routes != null) {
+                routes.removeIf(route -> route == transitRoute);
+                if (routes.isEmpty()) {
+                    routesByStar.remove(recordId);
+                }
+            }
+        }
     }
 
     /**
@@ -188,22 +384,7 @@ public class TransitRouteVisibilityGroup {
         visible = true;
         labelsVisible = true;
 
-        for (TransitRoute transitRoute : transitRoutes) {
-            log.info("transit: {}", transitRoute);
-            Label lengthLabel = createLabel(transitRoute);
-
-            Node transitSegment = createLineSegment(
-                    transitRoute.getSourceEndpoint(),
-                    transitRoute.getTargetEndpoint(),
-                    transitRoute.getLineWeight(),
-                    transitRoute.getColor(),
-                    lengthLabel);
-            transitSegment.setUserData(transitRoute);
-            Tooltip tooltip = new Tooltip(hoverText(transitRoute));
-            Tooltip.install(transitSegment, tooltip);
-            createContextMenu(transitSegment);
-            group.getChildren().add(transitSegment);
-        }
+        drawMeshes(transitRoutes);
         updateLabels(subScene, controlPaneOffset, interstellarSpacePane.getWidth(),
                 interstellarSpacePane.getHeight(), interstellarSpacePane.getBoundsInParent());
 
@@ -211,6 +392,62 @@ public class TransitRouteVisibilityGroup {
         labelGroup.setVisible(visible);
     }
 
+    /**
+     * draw the transits as a few meshes with one material for the band
+     *
+     * @param transitRoutes the transit routes
+     */
+    private void drawMeshes(@NotNull List<TransitRoute> transitRoutes) {
+        if (material == null) {
+            material = new PhongMaterial();
+            material.setDiffuseColor(transitRangeDef.getBandColor());
+            material.setSpecularColor(transitRangeDef.getBandColor());
+        }
+
+        for (TransitMesh transitMesh : TransitMesh.build(transitRoutes, material)) {
+            MeshView meshView = transitMesh.getMeshView();
+            Tooltip.install(meshView, tooltip);
+            meshView.addEventHandler(MouseEvent.MOUSE_MOVED, e -> {
+                TransitRoute transitRoute = pickRoute(transitMesh, e);
+                if (transitRoute != null) {
+                    tooltip.setText(hoverText(transitRoute));
+                }
+            });
+            meshView.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+                TransitRoute transitRoute = pickRoute(transitMesh, e);
+                if (transitRoute != null) {
+                    log.info("mouse click detected! " + transitRoute);
+                    transitClickEventHandler(meshView, transitRoute, e);
+                }
+            });
+            for (TransitRoute transitRoute : transitMesh.getRoutes()) {
+                meshOfRoute.put(transitRoute, transitMesh);
+            }
+            meshes.add(transitMesh);
+            group.getChildren().add(meshView);
+        }
+    }
+
+    /**
+     * redraw the band after the transits changed
+     */
+    private void redraw() {
+        boolean shown = group.isVisible();
+        boolean labelsShown = labelGroup.isVisible();
+        clearGraphics();
+        plotTransitRoutes(transitRouteList);
+        // a band the user hid stays hidden
+        group.setVisible(shown);
+        labelGroup.setVisible(labelsShown);
+    }
+
+    private @Nullable TransitRoute pickRoute(@NotNull TransitMesh transitMesh, @NotNull MouseEvent e) {
+        PickResult pickResult = e.getPickResult();
+        if (pickResult == null) {
+            return null;
+        }
+        return transitMesh.routeAt(pickResult.getIntersectedFace());
+    }
 
     private @NotNull String hoverText(@NotNull TransitRoute transitRoute) {
         return "transit: "
@@ -219,73 +456,30 @@ public class TransitRouteVisibilityGroup {
                 + String.format("%.2f", transitRoute.getDistance()) + " ";
     }
 
-
     /**
-     * create a line segment
-     *
-     * @param origin      the start point
-     * @param target      the finish point
-     * @param lineWeight  the line width
-     * @param color       the line color
-     * @param lengthLabel the length label
-     * @return the 3-d line
-     */
-    private @NotNull Node createLineSegment(Point3D origin, @NotNull Point3D target, double lineWeight, Color color, @NotNull Label lengthLabel) {
-
-        Point3D yAxis = new Point3D(0, 1, 0);
-        Point3D diff = target.subtract(origin);
-        double height = diff.magnitude();
-
-        Point3D mid = target.midpoint(origin);
-        Translate moveToMidpoint = new Translate(mid.getX(), mid.getY(), mid.getZ());
-
-        Point3D axisOfRotation = diff.crossProduct(yAxis);
-        double angle = Math.acos(diff.normalize().dotProduct(yAxis));
-        Rotate rotateAroundCenter = new Rotate(-Math.toDegrees(angle), axisOfRotation);
-
-        // create cylinder and color it with phong material
-        Cylinder line = StellarEntityFactory.createCylinder(lineWeight, color, height);
-
-        Group lineGroup = new Group();
-
-        line.getTransforms().addAll(moveToMidpoint, rotateAroundCenter);
-        lineGroup.getChildren().add(line);
-
-        if (labelsVisible) {
-            // attach label
-            Sphere pointSphere = createPointSphere(lengthLabel);
-            pointSphere.setTranslateX(mid.getX());
-            pointSphere.setTranslateY(mid.getY());
-            pointSphere.setTranslateZ(mid.getZ());
-            lengthLabel.setTextFill(color);
-            lineGroup.getChildren().add(pointSphere);
-            if (!shapeToLabel.containsValue(lengthLabel)) {
-                shapeToLabel.put(pointSphere, lengthLabel);
-                labelGroup.getChildren().add(lengthLabel);
-            } else {
-                log.warn("what is <{}> present twice", lengthLabel.getText());
-            }
+     * make the length labels, once, when they are first shown
+     * <p>
+     * a band with more transits than MAX_LABELS would be a solid wall of numbers, those only show their lengths
+     * in the tooltip
+     */
+    private void buildLabels() {
+        if (labelsBuilt) {
+            return;
         }
-
-        return lineGroup;
+        labelsBuilt = true;
+        if (transitRouteList.size() > MAX_LABELS) {
+            log.info("{} has {} transits, showing lengths as tooltips only", groupName, transitRouteList.size());
+            return;
+        }
+        transitRouteList.forEach(this::addLabel);
     }
 
-    /**
-     * create an attachment point for the label
-     *
-     * @param label the label to add
-     * @return the attachment point
-     */
-    private @NotNull Sphere createPointSphere(@NotNull Label label) {
-        final PhongMaterial material = new PhongMaterial();
-        material.setDiffuseColor(Color.WHEAT);
-        material.setSpecularColor(Color.WHEAT);
-        Sphere sphere = new Sphere(1);
-        sphere.setMaterial(material);
-        label.setLabelFor(sphere);
-        labelGroup.getChildren().add(label);
-        shapeToLabel.put(sphere, label);
-        return sphere;
+    private void addLabel(@NotNull TransitRoute transitRoute) {
+        Label lengthLabel = createLabel(transitRoute);
+        lengthLabel.setTextFill(transitRoute.getColor());
+        labelAnchors.put(lengthLabel, transitRoute.getTargetEndpoint().midpoint(transitRoute.getSourceEndpoint()));
+        routeLabels.put(transitRoute, lengthLabel);
+        labelGroup.getChildren().add(lengthLabel);
     }
 
     /**
@@ -304,72 +498,49 @@ public class TransitRouteVisibilityGroup {
     ///////////////
 
     /**
-     * create a popup context menu
-     *
-     * @param transitSegment the line segment to point and attach the menu to
-     */
-    private void createContextMenu(@NotNull Node transitSegment) {
-        TransitRoute route = (TransitRoute) transitSegment.getUserData();
-        ContextMenu transitContextMenu = createPopup(hoverText(route), transitSegment);
-
-        transitSegment.addEventHandler(
-                MouseEvent.MOUSE_CLICKED,
-                e -> transitClickEventHandler(transitSegment, transitContextMenu, e));
-
-        transitSegment.setOnMousePressed(event -> {
-            Node node = (Node) event.getSource();
-            TransitRoute transitRoute = (TransitRoute) node.getUserData();
-            log.info("mouse click detected! " + transitRoute);
-        });
-
-    }
-
-
-    /**
-     * the event handler if you click the line sgement
+     * the event handler if you click a transit, the menu is made for the transit that was clicked
      *
-     * @param transitSegment     the line segment
-     * @param transitContextMenu the context menu
-     * @param e                  the mouse event
+     * @param meshView     the mesh that was clicked
+     * @param transitRoute the transit under the mouse
+     * @param e            the mouse event
      */
-    private void transitClickEventHandler(Node transitSegment, @NotNull ContextMenu transitContextMenu, @NotNull MouseEvent e) {
+    private void transitClickEventHandler(@NotNull MeshView meshView, @NotNull TransitRoute transitRoute, @NotNull MouseEvent e) {
         if (e.getButton() == MouseButton.PRIMARY) {
             log.info("Primary button pressed");
-            transitContextMenu.show(transitSegment, e.getScreenX(), e.getScreenY());
+            ContextMenu transitContextMenu = createPopup(transitRoute);
+            transitContextMenu.show(meshView, e.getScreenX(), e.getScreenY());
         } else {
             log.info("not primary button pressed");
         }
     }
 
-    private @NotNull ContextMenu createPopup(String hoverText, @NotNull Node transitSegment) {
+    private @NotNull ContextMenu createPopup(@NotNull TransitRoute transitRoute) {
         final ContextMenu cm = new ContextMenu();
 
-        MenuItem titleItem = new MenuItem(hoverText);
+        MenuItem titleItem = new MenuItem(hoverText(transitRoute));
         titleItem.setDisable(true);
         cm.getItems().add(titleItem);
 
-        MenuItem createRouteMenuItem = createNewRoute(transitSegment);
+        MenuItem createRouteMenuItem = createNewRoute(transitRoute);
         cm.getItems().add(createRouteMenuItem);
 
-        MenuItem addRouteMenuItem = addToRoute(transitSegment);
+        MenuItem addRouteMenuItem = addToRoute(transitRoute);
         cm.getItems().add(addRouteMenuItem);
 
-        MenuItem completeRouteMenuItem = completeTheRoute(transitSegment);
+        MenuItem completeRouteMenuItem = completeTheRoute(transitRoute);
         cm.getItems().add(completeRouteMenuItem);
 
         cm.getItems().add(new SeparatorMenuItem());
 
-        MenuItem removeTransitMenuItem = removeTransit(transitSegment);
+        MenuItem removeTransitMenuItem = removeTransitItem(transitRoute);
         cm.getItems().add(removeTransitMenuItem);
 
         return cm;
     }
 
-    private @NotNull MenuItem removeTransit(@NotNull Node transitSegment) {
+    private @NotNull MenuItem removeTransitItem(@NotNull TransitRoute transitRoute) {
         MenuItem menuItem = new MenuItem("Remove");
         menuItem.setOnAction(event -> {
-            TransitRoute transitRoute = (TransitRoute) transitSegment.getUserData();
-            group.getChildren().remove(transitSegment);
             removeTransit(transitRoute);
             log.info("remove");
         });
@@ -384,20 +555,16 @@ public class TransitRouteVisibilityGroup {
      * @param transitRoute the transit segment
      */
     private void removeTransit(@NotNull TransitRoute transitRoute) {
-        transitRouteMap.remove(transitRoute.getName());
-        transitRouteList = new ArrayList<>(transitRouteMap.values());
-        MapUtils.populateMap(transitRouteMap,
-                transitRouteList,
-                TransitRoute::getName);
+        applyChanges(List.of(transitRoute), Collections.emptyList());
     }
 
     /**
      * create a menutitem for create new route
      *
-     * @param transitSegment the line segment
+     * @param transitRoute the transit
      * @return the menu item
      */
-    private @NotNull MenuItem createNewRoute(@NotNull Node transitSegment) {
+    private @NotNull MenuItem createNewRoute(@NotNull TransitRoute transitRoute) {
         MenuItem menuItem = new MenuItem("Create New Route");
         menuItem.setOnAction(event -> {
             if (currentRouteList.size() > 0) {
@@ -407,11 +574,11 @@ public class TransitRouteVisibilityGroup {
 
                 if ((buttonType.isPresent()) && (buttonType.get() == ButtonType.OK)) {
                     currentRouteList.clear();
-                    createRoute(transitSegment);
+                    createRoute(transitRoute);
                     routeUpdaterListener.routingStatus(true);
                 }
             } else {
-                createRoute(transitSegment);
+                createRoute(transitRoute);
                 routeUpdaterListener.routingStatus(true);
             }
         });
@@ -419,8 +586,7 @@ public class TransitRouteVisibilityGroup {
     }
 
 
-    private void createRoute(@NotNull Node transitSegment) {
-        TransitRoute transitRoute = (TransitRoute) transitSegment.getUserData();
+    private void createRoute(@NotNull TransitRoute transitRoute) {
         RouteDialog dialog = new RouteDialog(transitRoute.getSource());
         Optional<RouteDescriptor> result = dialog.showAndWait();
         if (result.isPresent()) {
@@ -434,11 +600,10 @@ public class TransitRouteVisibilityGroup {
         }
     }
 
-    private @NotNull MenuItem addToRoute(@NotNull Node transitSegment) {
+    private @NotNull MenuItem addToRoute(@NotNull TransitRoute transitRoute) {
         MenuItem menuItem = new MenuItem("Add To Route");
         menuItem.setOnAction(event -> {
             if (routingActive) {
-                TransitRoute transitRoute = (TransitRoute) transitSegment.getUserData();
                 currentRouteList.add(transitRoute);
                 log.info("add to route");
             } else {
@@ -448,11 +613,10 @@ public class TransitRouteVisibilityGroup {
         return menuItem;
     }
 
-    private @NotNull MenuItem completeTheRoute(@NotNull Node transitSegment) {
+    private @NotNull MenuItem completeTheRoute(@NotNull TransitRoute transitRoute) {
         MenuItem menuItem = new MenuItem("Complete Route");
         menuItem.setOnAction(event -> {
             if (routingActive) {
-                TransitRoute transitRoute = (TransitRoute) transitSegment.getUserData();
                 currentRouteList.add(transitRoute);
                 constructRoute();
                 log.info("complete route");
@@ -484,11 +648,11 @@ public class TransitRouteVisibilityGroup {
      * @param ofParent          the parent bounds
      */
     public void updateLabels(SubScene subScene, double controlPaneOffset, double width, double height, Bounds ofParent) {
-        if (visible) {
-            for (Map.Entry<Node, Label> entry : shapeToLabel.entrySet()) {
-                Node node = entry.getKey();
-                Label label = entry.getValue();
-                Point3D coordinates = node.localToScene(Point3D.ZERO, true);
+        if (visible && labelGroup.isVisible()) {
+            buildLabels();
+            for (Map.Entry<Label, Point3D> entry : labelAnchors.entrySet()) {
+                Label label = entry.getKey();
+                Point3D coordinates = group.localToScene(entry.getValue(), true);
 
                 // we need to check if the coordinates work within the displayable area
                 if (!clip(coordinates, width, height)) {